@@ -0,0 +1,191 @@
+/**
+ * Makes a gray raster black and white with a threshold for each pixel,
+ * found from the mean m and the standard deviation s of the values in a
+ * square window around it, instead of from the histogram of the whole
+ * image. The pixels below their threshold become black (0), the others
+ * white (255), so scanned or photographed charts with uneven lighting keep
+ * their lines and text where one global threshold loses them.
+ * <p>
+ * Two thresholds are given:
+ * <ul>
+ * <li>SAUVOLA: m*(1 + k*(s/R - 1)), with R = 128, the largest standard
+ * deviation of gray values; k is about 0.34.</li>
+ * <li>NIBLACK: m + k*s; k is about -0.2.</li>
+ * </ul>
+ * The mean and the variance of each window come from an
+ * <code>IntegralImage</code>, so the time does not depend on the size of
+ * the window and the pass stays linear on large scans. The windows are cut
+ * at the edges of the image. The rows are done in stripes (see
+ * <code>StripeExecutor</code>).
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class AdaptiveBinarizer {
+
+	/**
+	 * Sauvola's threshold, m*(1 + k*(s/R - 1)).
+	 */
+	public static final int SAUVOLA = 0;
+
+	/**
+	 * Niblack's threshold, m + k*s.
+	 */
+	public static final int NIBLACK = 1;
+
+	/**
+	 * The default width of the window, in pixels.
+	 */
+	public static final int DEFAULT_WINDOW = 31;
+
+	/**
+	 * The widest window, 181 pixels, whose sums of squares are exact in
+	 * an <code>IntegralImage</code>; wider windows are made this wide.
+	 */
+	public static final int MAX_WINDOW = ((int)Math.sqrt(IntegralImage.MAX_WINDOW_PIXELS) - 1)/2*2 + 1;
+
+	private static final double R = 128;	//the dynamic range of the standard deviation for SAUVOLA
+
+	private int method;	//SAUVOLA or NIBLACK
+	private int radius;	//the window is 2*radius + 1 pixels wide
+	private double k;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param aMethod SAUVOLA or NIBLACK
+	 * @param window The width of the window, odd; an even width is made one
+	 * more, and a width over MAX_WINDOW is made MAX_WINDOW
+	 * @param aK The weight of the standard deviation
+	 */
+	public AdaptiveBinarizer(int aMethod, int window, double aK) {
+		if (aMethod != SAUVOLA && aMethod != NIBLACK) {
+			throw new IllegalArgumentException("Unknown binarization method "+aMethod);
+		}
+		radius = Math.max(Math.min(window, MAX_WINDOW)/2, 1);
+		method = aMethod;
+		k = aK;
+	}
+
+	/**
+	 * Returns Sauvola's binarization with the default window and k = 0.34.
+	 *
+	 * @param none
+	 */
+	public static AdaptiveBinarizer sauvola() {
+		return new AdaptiveBinarizer(SAUVOLA, DEFAULT_WINDOW, 0.34);
+	}
+
+	/**
+	 * Returns Niblack's binarization with the default window and k = -0.2.
+	 *
+	 * @param none
+	 */
+	public static AdaptiveBinarizer niblack() {
+		return new AdaptiveBinarizer(NIBLACK, DEFAULT_WINDOW, -0.2);
+	}
+
+	/**
+	 * Returns the binarization named by the <code>vem.binarization</code>
+	 * system property, "sauvola" or "niblack", with the window of the
+	 * <code>vem.binarization.window</code> property if it is set (at most
+	 * MAX_WINDOW, a larger one is cut down with a warning), or null
+	 * if the property is not set (the histogram filter of
+	 * <code>BWImageG.filterImage</code> is used then).
+	 *
+	 * @param none
+	 */
+	public static AdaptiveBinarizer getDefault() {
+		int window = Integer.getInteger("vem.binarization.window", DEFAULT_WINDOW).intValue();
+		if (window > MAX_WINDOW) {
+			System.out.println("vem.binarization.window "+window+" is too large, using "+MAX_WINDOW);
+		}
+		return forName(System.getProperty("vem.binarization"), window);
+	}
+
+	/**
+	 * Returns the binarization with the given name, "sauvola" or "niblack",
+	 * and window, with the default k; null for null or "histogram".
+	 *
+	 * @param name The name of the method
+	 * @param window The width of the window
+	 */
+	public static AdaptiveBinarizer forName(String name, int window) {
+		if (name == null || name.equalsIgnoreCase("histogram")) {
+			return null;
+		}
+		if (name.equalsIgnoreCase("sauvola")) {
+			return new AdaptiveBinarizer(SAUVOLA, window, 0.34);
+		}
+		if (name.equalsIgnoreCase("niblack")) {
+			return new AdaptiveBinarizer(NIBLACK, window, -0.2);
+		}
+		throw new IllegalArgumentException("Unknown binarization "+name);
+	}
+
+	/**
+	 * Returns the name and the settings of the binarization, e.g.
+	 * "sauvola(31,0.34)", for the configuration fingerprint.
+	 *
+	 * @param none
+	 */
+	public String getName() {
+		return (method == SAUVOLA ? "sauvola" : "niblack")+"("+(2*radius + 1)+","+k+")";
+	}
+
+	/**
+	 * Returns the threshold of a pixel: the pixel is black if its value is
+	 * less than the threshold.
+	 *
+	 * @param sums The summed-area tables of the image
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 */
+	public double getThreshold(IntegralImage sums, int row, int column) {
+		int firstRow = Math.max(row - radius, 0);
+		int lastRow = Math.min(row + radius + 1, sums.getRows());
+		int firstColumn = Math.max(column - radius, 0);
+		int lastColumn = Math.min(column + radius + 1, sums.getColumns());
+		double mean = sums.getMean(firstRow, firstColumn, lastRow, lastColumn);
+		double deviation = Math.sqrt(sums.getVariance(firstRow, firstColumn, lastRow, lastColumn));
+		if (method == SAUVOLA) {
+			return mean*(1 + k*(deviation/R - 1));
+		}
+		return mean + k*deviation;
+	}
+
+	/**
+	 * Makes a gray raster black (0) and white (255) in place and counts
+	 * the two values.
+	 *
+	 * @param aRaster The gray raster
+	 * @param stripes Runs the rows in stripes
+	 * @param histogram The histogram of the result, 256 counts, added to
+	 */
+	public void binarize(Raster aRaster, StripeExecutor stripes, final int[] histogram) {
+		final IntegralImage sums = new IntegralImage(aRaster);
+		final byte[] gray = aRaster.getGrayData();
+		final int columns = aRaster.getColumns();
+		stripes.run(aRaster.getRows(), columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				int black = 0;
+				for (int r = firstRow; r < lastRow; r++) {
+					int i = r*columns;
+					for (int c = 0; c < columns; c++) {
+						if ((gray[i+c] & 0xff) < getThreshold(sums, r, c)) {
+							gray[i+c] = 0;
+							black++;
+						}
+						else {
+							gray[i+c] = (byte)255;
+						}
+					}
+				}
+				synchronized (histogram) {
+					histogram[0] += black;
+					histogram[255] += (lastRow - firstRow)*columns - black;
+				}
+			}
+		});
+	}
+}
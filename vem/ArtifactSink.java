@@ -0,0 +1,42 @@
+/**
+ * The place that the diagnostic images of the <code>BWImageG</code>
+ * pipeline (Image-GrayScale.pgm, Labelled.pgm, Text.pgm, Words.pgm, ...)
+ * are sent to.
+ * <p>
+ * The pipeline asks <code>isEnabled</code> before it builds a diagnostic
+ * image, so a disabled sink costs nothing. The images are handed to
+ * <code>write</code> as the complete bytes of a pgm file, so the sink does
+ * not depend on arrays that the pipeline changes later.
+ * <p>
+ * Implementations: <code>DisabledArtifactSink</code> (the default of
+ * <code>BWImageG</code>), <code>AsyncArtifactSink</code> (files written by
+ * a background thread) and <code>MemoryArtifactSink</code> (kept in memory).
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public interface ArtifactSink {
+
+	/**
+	 * Checks if the sink keeps the images. If not, the images are not built.
+	 *
+	 * @param none
+	 * @return True if the images should be written to the sink
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Takes one image. The array must not be changed afterwards.
+	 *
+	 * @param name The file name of the image, e.g. Labelled.pgm
+	 * @param data The bytes of the image file
+	 */
+	public void write(String name, byte[] data);
+
+	/**
+	 * Waits until all the images written so far are stored.
+	 *
+	 * @param none
+	 */
+	public void flush();
+}
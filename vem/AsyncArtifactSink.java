@@ -0,0 +1,99 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An <code>ArtifactSink</code> that writes the images to files of a
+ * directory with a background thread, so the pipeline does not wait
+ * for the disk.
+ * <p>
+ * Several sinks can share one writer thread, e.g. one sink with its own
+ * directory for each chart of a batch, so that charts that are read at
+ * the same time do not overwrite each other's images.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class AsyncArtifactSink implements ArtifactSink {
+
+	private File directory;					//directory that the files are written to
+	private ExecutorService writer;	//runs the writes
+	private LinkedList pending;			//Futures of the writes that may not be finished
+
+	/**
+	 * Constructor. The sink has its own writer thread.
+	 *
+	 * @param dir The directory that the files are written to
+	 */
+	public AsyncArtifactSink(File dir) {
+		this(dir, newWriter());
+	}
+
+	/**
+	 * Constructor. The files are written by the given executor.
+	 *
+	 * @param dir The directory that the files are written to
+	 * @param anExecutor The executor that writes the files
+	 */
+	public AsyncArtifactSink(File dir, ExecutorService anExecutor) {
+		directory = dir;
+		writer = anExecutor;
+		pending = new LinkedList();
+	}
+
+	/**
+	 * Returns an executor with one daemon thread, suitable to be shared
+	 * by several sinks.
+	 *
+	 * @param none
+	 * @return The executor
+	 */
+	public static ExecutorService newWriter() {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "artifact-writer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public boolean isEnabled() {
+		return true;
+	}
+
+	public synchronized void write(final String name, final byte[] data) {
+		Future f = writer.submit(new Runnable() {
+			public void run() {
+				try {
+					directory.mkdirs();
+					FileOutputStream x = new FileOutputStream(new File(directory, name));
+					x.write(data);
+					x.close();
+				}
+				catch(Exception e) {System.out.println(e.getMessage());}
+			}
+		});
+		pending.add(f);
+		//Forget the writes that are done
+		while (!pending.isEmpty() && ((Future)pending.getFirst()).isDone()) {
+			pending.removeFirst();
+		}
+	}
+
+	public void flush() {
+		LinkedList waitFor;
+		synchronized (this) {
+			waitFor = pending;
+			pending = new LinkedList();
+		}
+		ListIterator lItr = waitFor.listIterator();
+		while (lItr.hasNext()) {
+			try {
+				((Future)lItr.next()).get();
+			}
+			catch(Exception e) {System.out.println(e.getMessage());}
+		}
+	}
+}
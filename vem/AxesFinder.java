@@ -20,6 +20,7 @@ import java.awt.Point;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "cast", "static"})
 public class AxesFinder {
 
   private int imageHeight;    //number of rows in the input image
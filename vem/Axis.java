@@ -8,6 +8,7 @@ import java.util.ListIterator;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Axis {
 	public final static int NOT_AXIS=0;
 	public final static int HORIZONTAL_AXIS=1;
@@ -3,6 +3,8 @@ import java.util.*;
 import java.awt.Point;
 import javax.swing.JTextArea;
 import java.awt.image.*;
+import java.security.MessageDigest;
+import java.nio.ByteBuffer;
 
  /**
  * A class to read in greyscale images in pgm format.
@@ -47,20 +49,33 @@ import java.awt.image.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked", "cast"})
 public class BWImageG {
+
+	/**
+	 * The version of the results of the pipeline. Must be changed when a
+	 * change of the code changes the xml files, so that cached results
+	 * (see <code>ResultCache</code>) are not used any more.
+	 */
+	public static final String PIPELINE_VERSION = "1";
+
+	private static final int ROW_HASH_SIZE = 32;	//bytes of the sha-256 hash of a row
+
   private int rows;
   private int columns;
-  private int[][] image;
+  private Raster image;	//gray values
 
 	//Processed image properties:
 	private int blobCount;	//number of regions 
 	private int bPixValue;
-	private int pixelLabel[][];	//image labels
-	private int firstPixelLabel[][];	//image labels 
-	private int pixelLabelThinned[][]; 	//image labels after thinning
+	private Raster pixelLabel;	//image labels
+	private Raster firstPixelLabel;	//image labels 
+	private Raster pixelLabelThinned; 	//image labels after thinning
 	private int labelsArray[];	
-	private int imageBorders[][];	//image borders
-	private int firstImageBorders[][];	//image borders
+	private RegionStatistics labelStatistics;	//area, bounding box and moments of each label of pixelLabel
+	private RegionStatistics borderStatistics;	//the same for the border pixels of imageBorders
+	private RegionStore regionStore;	//the runs and bounding boxes of the regions of pixelLabel
+	private Raster imageBorders;	//image borders
 	private int countsImage[][];	
 	private Hashtable borderChains;
 
@@ -75,113 +90,100 @@ public class BWImageG {
 	private	PointPixel frameLowerRight;	//lower right corner of the bounding box of the frame
 
 	private Graph aGraph;
-	private int[] histogramArray;
+	private int[] histogramArray;	//histogram of the loaded image for filterImage, or null
+	private int[] filteredHistogram;	//histogram made by filterImage for findBackground, or null
+	private LinkedList backgroundValues;	//background colors found by filterImage for findBackground, or null
+	private FontLibrary fonts;	//the fonts that the words are read with
+	private PipelineMetrics metrics;	//time, allocations and counts of each stage
+	private ArtifactSink artifacts;	//where the diagnostic images go
+	private String pixelHash;	//hash of the gray values made by loadJavaImage or loadFile
+	private boolean hashPixels;	//hash the gray values while they are loaded
+	private byte[] rowHashes;	//hash of each row, made by the load kernels, or null
+	private StripeExecutor stripes;	//runs the per-pixel passes of the preprocessing in row stripes
+	private AdaptiveBinarizer binarizer;	//the local thresholds of filterImage, or null for the histogram filter
 
 	/**
 	 * Constructor. Sets rows, columns and blobCount (number of objects or labels) 
 	 * to zero, bPixValue (the background color value) to 255 and isFrame (is there
 	 * a frame in the image of the chart) to false.
+	 * The words are read with the default <code>FontLibrary</code>, which is
+	 * loaded from the working directory when it is first needed.
 	 *
 	 * @param none
 	 */
   public BWImageG() {
+		this(null);
+	}
+
+	/**
+	 * Constructor. Same as the constructor without parameters, but the words
+	 * are read with the given fonts. The same <code>FontLibrary</code> can be
+	 * shared by several images that are processed at the same time.
+	 *
+	 * @param fontLibrary The fonts that the words are read with
+	 */
+  public BWImageG(FontLibrary fontLibrary) {
 		rows = 0;
 		columns = 0;
 		blobCount = 0;
 		bPixValue = 255;
 		isFrame = false;
+		fonts = fontLibrary;
+		metrics = new PipelineMetrics();
+		artifacts = new DisabledArtifactSink();
+		stripes = StripeExecutor.getDefault();
+		binarizer = AdaptiveBinarizer.getDefault();
 	}
 
 
 	/**
-	 * Opens the given file and loads the pgm file into a 2d array.
+	 * Loads a netpbm file (pbm, pgm or ppm, ascii or binary) into the
+	 * image; see <code>PNMCodec</code>. Like loadJavaImage, it computes
+	 * the hash of the gray values.
 	 *
 	 * @param infilename Filename to be loaded
 	 */
-  public void loadFile(String infilename) {
-    try {
-      BufferedInputStream x =
-        new BufferedInputStream(new FileInputStream(infilename));
-      if (x.read() != 'P' || x.read() != '5') {
-        System.out.println("not a raw pgm file");
-      }
-      else {
-        columns = oneNum(x);
-        rows = oneNum(x);
-        int throw_away = oneNum(x);
-        image = new int[rows][columns];
-        int r, c;
-        for (r = 0; r < rows; r++) {
-          for (c = 0; c < columns; c++) {
-            image[r][c] = x.read();
-					}
+  public void loadFile(String infilename) throws IOException {
+	metrics.startStage("loadFile");
+	image = PNMCodec.read(new File(infilename));
+	rows = image.getRows();
+	columns = image.getColumns();
+	rowHashes = hashPixels ? new byte[rows*ROW_HASH_SIZE] : null;
+	//The histogram is counted, and the rows hashed, in one pass
+	final byte[] data = image.getGrayData();
+	final int[] his = new int[256];
+	final int width = columns;
+	stripes.run(rows, columns, new StripeExecutor.Kernel() {
+		public void run(int firstRow, int lastRow) {
+			int[] counts = new int[256];
+			MessageDigest digest = newRowDigest();
+			for (int r = firstRow; r < lastRow; r++) {
+				int i = r*width;
+				for (int c = 0; c < width; c++) {
+					counts[data[i+c] & 0xff]++;
 				}
-        x.close();
-      }
-    }
-    catch(Exception e) {System.out.println(e.getMessage());}
-  }
-
-	/**
-	 * Skips comments and reads one integer from buffered input stream 
-	 *
-	 * @param x 
-	 */
-  static int oneNum(BufferedInputStream x) {
-    int c;
-    int n;
-    n = 0;
-    try {
-      c = x.read();
-      while (c < '0' || c > '9') {
-        if (c == '#') {
-          while (c != '\n') c = x.read();
-        }
-        else c = x.read();
-      }
-      while (c >= '0' && c <= '9') {
-        n = 10*n + c - '0';
-        c = x.read();
-      }
-    }
-    catch(Exception e) {System.out.println(e.getMessage());}
-    return n;
+				hashRow(digest, data, r);
+			}
+			addCounts(his, counts, null);
+		}
+	});
+	finishLoad(his);
+	metrics.setCounter("loadFile", "pixels", rows*columns);
+	metrics.endStage("loadFile");
   }
 
-
 	/**
-	 * Writes data of 2d array (oImage) to the outfilename file. 
+	 * Sends data of 2d array (oImage) to the artifact sink of the image
+	 * as a pgm file, unless the sink is disabled.
+	 * The values are scaled by the integer 255/(max-min).
 	 *
 	 * @param outfilename Filename that the image is to be saved to
 	 * @param oImage The array that is to be saved
 	 */
   public void save(String outfilename,int[][] oImage) {
-    try {
-      BufferedOutputStream x =
-        new BufferedOutputStream(new FileOutputStream(outfilename));
-      int r,c;
-      int Imax = oImage[0][0];
-      int Imin = Imax;
-      for (r = 0; r < rows; r++) {
-        for (c = 0; c < columns; c++) {
-				  if (oImage[r][c] < Imin) Imin = oImage[r][c];
-	  			if (oImage[r][c] > Imax) Imax = oImage[r][c];
-      	}
-			}	
-//			System.out.println("Max min are "+Imax +", "+Imin);
-			int k;
-			if (Imax == Imin)
-				k = 0;
-			else
-      	k = 255/(Imax - Imin);
-      x.write(("P5 " + Integer.toString(columns) + " "
-        + Integer.toString(rows) + " 255 ").getBytes());
-      for (r = 0; r < rows; r++)
-        for (c = 0; c < columns; c++)
-          x.write((int)(k*(oImage[r][c] - Imin)));
-      x.close();
-    }
-    catch(Exception e) {System.out.println(e.getMessage());}
+		if (artifacts.isEnabled()) {
+			artifacts.write(outfilename, makePGM(oImage, rows, columns, true));
+		}
   }
 
 	/**
@@ -194,71 +196,348 @@ public class BWImageG {
 	 */
     public static void save(String outfilename,int[][] oImage, int height, int width) {
         try {
-            BufferedOutputStream x =
-              new BufferedOutputStream(new FileOutputStream(outfilename));
-            int r,c;
-	    double k;
-            int Imax = oImage[0][0];
-            int Imin = Imax;
-            for (r = 0; r < height; r++) {
-                for (c = 0; c < width; c++) {
-	            if (oImage[r][c] < Imin) Imin = oImage[r][c];
-	  	    if (oImage[r][c] > Imax) Imax = oImage[r][c];
-      	        }
-	    }	
-//System.out.println("Max min are "+Imax +", "+Imin);
-	    if (Imax == Imin) {
-	        k = 0;
-            }
-	    else {
-      	        k = 255.0/(Imax - Imin);
-            }
-            x.write(("P5 " + Integer.toString(width) + " "
-              + Integer.toString(height) + " 255 ").getBytes());
-            for (r = 0; r < height; r++)
-                for (c = 0; c < width; c++)
-                    x.write((int)(k*(oImage[r][c] - Imin)));
-                 //{if (oImage[r][c] < 255) x.write(255);
-                  //else x.write(0);}
-            x.close();
+            PNMCodec.write(new File(outfilename), makePGM(oImage, height, width, false));
         } catch(Exception e) {System.out.println(e.getMessage());}
     }
 
+	/**
+	 * Sends data of 2d array (oImage) of the given size to the artifact
+	 * sink of the image, unless the sink is disabled.
+	 * The values are scaled like the static save method does.
+	 *
+	 * @param outfilename Filename that the image is to be saved to
+	 * @param oImage The array that is to be saved
+	 * @param height The number of rows of the array
+	 * @param width The number of columns of the array
+	 */
+	private void saveArtifact(String outfilename, int[][] oImage, int height, int width) {
+		if (artifacts.isEnabled()) {
+			artifacts.write(outfilename, makePGM(oImage, height, width, false));
+		}
+	}
+
+	/**
+	 * Returns the bytes of a raw pgm file of the given 2d array. The values
+	 * are stretched to 0-255; the instance save method has always used an
+	 * integer scale factor and the static one a real scale factor.
+	 *
+	 * @param oImage The array
+	 * @param height The number of rows of the array
+	 * @param width The number of columns of the array
+	 * @param integerScale True to scale by the integer 255/(max-min)
+	 * @return The pgm file
+	 */
+	public static byte[] makePGM(int[][] oImage, int height, int width, boolean integerScale) {
+		int r, n;
+		PixelKernels kernels = PixelKernels.get();
+		int[] minMax = kernels.minMax(oImage, height, width);
+		int Imin = minMax[0];
+		int Imax = minMax[1];
+		byte[] header = ("P5 " + Integer.toString(width) + " "
+		                 + Integer.toString(height) + " 255 ").getBytes();
+		byte[] data = new byte[header.length + height*width];
+		System.arraycopy(header, 0, data, 0, header.length);
+		n = header.length;
+		if (integerScale) {
+			int k = (Imax == Imin) ? 0 : 255/(Imax - Imin);
+			for (r = 0; r < height; r++, n += width)
+				kernels.scaleRow(oImage[r], width, Imin, k, data, n);
+		}
+		else {
+			double k = (Imax == Imin) ? 0 : 255.0/(Imax - Imin);
+			for (r = 0; r < height; r++, n += width)
+				kernels.scaleRow(oImage[r], width, Imin, k, data, n);
+		}
+		return data;
+	}
+
+	/**
+	 * Sets where the diagnostic images of the image go. By default they
+	 * are not built at all.
+	 *
+	 * @param aSink The artifact sink
+	 */
+	public void setArtifactSink(ArtifactSink aSink) {
+		artifacts = aSink;
+	}
+
+	/**
+	 * Returns where the diagnostic images of the image go.
+	 *
+	 * @param none
+	 */
+	public ArtifactSink getArtifactSink() {
+		return artifacts;
+	}
+
 
 /*
 * Loads a java image into a BWImageG image.
 */
 public void loadJavaImage (BufferedImage jImage) {
+	metrics.startStage("loadJavaImage");
     columns = jImage.getWidth();
     rows = jImage.getHeight();
 	ColorModel cm = jImage.getColorModel();
 //System.out.println(cm.toString());
-    image = new int[rows][columns];
-    int rgb;
-    int r,c;
-    int gray;
+    image = new Raster(rows, columns, Raster.GRAY);
+    byte[] data = image.getGrayData();
+    //The histogram is counted, and the rows hashed, while the gray values are made
+    final int[] his = new int[256];
+    rowHashes = hashPixels ? new byte[rows*ROW_HASH_SIZE] : null;
+
+    if (!loadDataBuffer(jImage, data, his)) {
+        final BufferedImage anImage = jImage;
+        final byte[] gray = data;
+        final int width = columns;
+        stripes.run(rows, columns, new StripeExecutor.Kernel() {
+            public void run(int firstRow, int lastRow) {
+                int[] counts = new int[256];
+                MessageDigest digest = newRowDigest();
+                for (int r = firstRow; r < lastRow; r++) {
+                    for (int c = 0; c < width; c++) {
+                        int rgb = anImage.getRGB(c,r);
+                        int value = toGray((rgb>>16)&0xff, (rgb>>8)&0xff, rgb&0xff);
+                        gray[r*width + c] = (byte)value;
+                        counts[value]++;
+                    }
+                    hashRow(digest, gray, r);
+                }
+                addCounts(his, counts, null);
+            }
+        });
+    }
+	finishLoad(his);
+	metrics.setCounter("loadJavaImage", "pixels", rows*columns);
+	metrics.endStage("loadJavaImage");
+}
 
-    for (r = 0; r < rows; r++) {
-        for (c = 0; c < columns; c++) {
-            //rgb = jImage.getRGB(c,r) & 255;
-            rgb = jImage.getRGB(c,r);
-            gray = (int)((0.3*((rgb>>16)&0xff)+0.59*((rgb>>8)&0xff)
-                          + 0.11*(rgb&0xff)));
-            //System.out.println(rgb);
-            //System.out.println(gray);
-            //image[r][c] = rgb;}}
-            image[r][c] = gray;
-		}
-	}
-	createHistogram("Histogram-GrayScale.pgm");
-	save("Image-GrayScale.pgm",image);
+/*
+* Keeps the histogram of the image that was just loaded for filterImage,
+* makes the hash of its gray values from the hashes of its rows (see
+* getPixelHash) and saves its histogram and gray image.
+*/
+private void finishLoad(int[] his) {
+	histogramArray = his;
+	filteredHistogram = null;
+	backgroundValues = null;
+	pixelHash = null;
+	if (rowHashes != null) {
+		MessageDigest digest = ResultCache.newDigest();
+		digest.update((rows+"x"+columns+"\n").getBytes());
+		digest.update(rowHashes);
+		pixelHash = ResultCache.toHex(digest.digest());
+		rowHashes = null;
+	}
+	if (artifacts.isEnabled()) {
+		saveHistogram("Histogram-GrayScale.pgm", histogramArray);
+		save("Image-GrayScale.pgm",image.toArray());
+	}
+}
+
+/*
+* Reads the gray values straight from the data buffer of the common image
+* types (TYPE_BYTE_GRAY, TYPE_3BYTE_BGR, TYPE_INT_RGB and TYPE_INT_ARGB)
+* instead of calling getRGB, which goes through the color model for each
+* pixel. The gray values are counted in his. Returns false, leaving data
+* and his as they are, for the other types.
+*/
+private boolean loadDataBuffer(BufferedImage jImage, final byte[] data, final int[] his) {
+	int type = jImage.getType();
+	WritableRaster aRaster = jImage.getRaster();
+	SampleModel aModel = aRaster.getSampleModel();
+	DataBuffer aBuffer = aRaster.getDataBuffer();
+	int x0 = -aRaster.getSampleModelTranslateX();
+	int y0 = -aRaster.getSampleModelTranslateY();
+	final int width = columns;
+	if ((type == BufferedImage.TYPE_BYTE_GRAY || type == BufferedImage.TYPE_3BYTE_BGR)
+	    && aModel instanceof ComponentSampleModel && aBuffer instanceof DataBufferByte) {
+		ComponentSampleModel cModel = (ComponentSampleModel)aModel;
+		final byte[] pixels = ((DataBufferByte)aBuffer).getData();
+		final int stride = cModel.getScanlineStride();
+		final int step = cModel.getPixelStride();
+		final int[] offsets = cModel.getBandOffsets();
+		final int start = aBuffer.getOffset() + y0*stride + x0*step;
+		if (type == BufferedImage.TYPE_BYTE_GRAY) {
+			//the gray of each of the 256 values as getRGB gives it
+			ColorModel cm = jImage.getColorModel();
+			final byte[] grayOf = new byte[256];
+			for (int v = 0; v < 256; v++) {
+				int rgb = cm.getRGB(v);
+				grayOf[v] = (byte)toGray((rgb>>16)&0xff, (rgb>>8)&0xff, rgb&0xff);
+			}
+			stripes.run(rows, columns, new StripeExecutor.Kernel() {
+				public void run(int firstRow, int lastRow) {
+					int[] counts = new int[256];
+					MessageDigest digest = newRowDigest();
+					for (int r = firstRow; r < lastRow; r++) {
+						int p = start + r*stride + offsets[0];
+						int i = r*width;
+						for (int c = 0; c < width; c++, p += step) {
+							int v = pixels[p] & 0xff;
+							data[i+c] = grayOf[v];
+							counts[v]++;
+						}
+						hashRow(digest, data, r);
+					}
+					addCounts(his, counts, grayOf);
+				}
+			});
+		}
+		else {
+			final int red = offsets[0], green = offsets[1], blue = offsets[2];
+			stripes.run(rows, columns, new StripeExecutor.Kernel() {
+				public void run(int firstRow, int lastRow) {
+					int[] counts = new int[256];
+					MessageDigest digest = newRowDigest();
+					for (int r = firstRow; r < lastRow; r++) {
+						int p = start + r*stride;
+						int i = r*width;
+						for (int c = 0; c < width; c++, p += step) {
+							int gray = toGray(pixels[p+red] & 0xff, pixels[p+green] & 0xff, pixels[p+blue] & 0xff);
+							data[i+c] = (byte)gray;
+							counts[gray]++;
+						}
+						hashRow(digest, data, r);
+					}
+					addCounts(his, counts, null);
+				}
+			});
+		}
+		return true;
+	}
+	if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+	    && aModel instanceof SinglePixelPackedSampleModel && aBuffer instanceof DataBufferInt) {
+		final int[] pixels = ((DataBufferInt)aBuffer).getData();
+		final int stride = ((SinglePixelPackedSampleModel)aModel).getScanlineStride();
+		final int start = aBuffer.getOffset() + y0*stride + x0;
+		final PixelKernels kernels = PixelKernels.get();
+		stripes.run(rows, columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				int[] counts = new int[256];
+				MessageDigest digest = newRowDigest();
+				for (int r = firstRow; r < lastRow; r++) {
+					kernels.grayRow(pixels, start + r*stride, data, r*width, width, counts);
+					hashRow(digest, data, r);
+				}
+				addCounts(his, counts, null);
+			}
+		});
+		return true;
+	}
+	return false;
+}
+
+/*
+* Returns a digest for the rows of one stripe, or null if the gray values
+* are not hashed.
+*/
+private MessageDigest newRowDigest() {
+	return (rowHashes == null) ? null : ResultCache.newDigest();
+}
+
+/*
+* Hashes one row of the gray values that were just made into its place in
+* rowHashes, unless the digest is null. The hash of the image is made from
+* the hashes of the rows in order, so it does not depend on the stripes.
+*/
+private void hashRow(MessageDigest digest, byte[] data, int r) {
+	if (digest == null) {
+		return;
+	}
+	digest.update(data, r*columns, columns);
+	try {
+		digest.digest(rowHashes, r*ROW_HASH_SIZE, ROW_HASH_SIZE);
+	}
+	catch (java.security.DigestException e) {
+		throw new RuntimeException(e.getMessage());
+	}
+}
+
+/*
+* Adds the histogram of one stripe to the histogram of the image. If a
+* table is given, the stripe counted the values before the table.
+*/
+private static void addCounts(int[] his, int[] counts, byte[] table) {
+	synchronized (his) {
+		for (int v = 0; v < 256; v++) {
+			his[table == null ? v : table[v] & 0xff] += counts[v];
+		}
+	}
+}
+
+/*
+* Changes each gray value of the image to its value in the table, in row
+* stripes.
+*/
+private void mapGrayValues(final byte[] table) {
+	final byte[] data = image.getGrayData();
+	final int width = image.getColumns();
+	stripes.run(image.getRows(), width, new StripeExecutor.Kernel() {
+		public void run(int firstRow, int lastRow) {
+			for (int i = firstRow*width; i < lastRow*width; i++) {
+				data[i] = table[data[i] & 0xff];
+			}
+		}
+	});
+}
+
+/*
+* The gray value of a color, (int)(0.3*red + 0.59*green + 0.11*blue).
+* The sum is made with the integer weights 30, 59 and 11 and divided by 100
+* with a multiply and a shift; when it is a multiple of 100 the floating
+* point sum can fall just below it, and then the value is one less
+* (see ROUNDED_DOWN), to give the same value as before.
+*/
+public static int toGray(int red, int green, int blue) {
+	int sum = 30*red + 59*green + 11*blue;
+	int gray = (sum * 5243) >>> 19;
+	if (gray*100 == sum) {
+		int bit = ((red << 8) + green)*3 + blue/100;
+		gray -= (ROUNDED_DOWN[bit >>> 5] >>> bit) & 1;
+	}
+	return gray;
+}
+
+/*
+* The colors whose weighted sum is a multiple of 100 but whose floating
+* point sum, 0.3*red + 0.59*green + 0.11*blue, is just below it. For a red
+* and a green there are at most three such blues, b, b+100 and b+200 with
+* 11*b = -(30*red + 59*green) modulo 100 (91 is the inverse of 11), so
+* the color has bit (red*256 + green)*3 + blue/100, 32 bits to an int.
+*/
+static final int[] ROUNDED_DOWN = makeRoundedDown();
+
+private static int[] makeRoundedDown() {
+	int[] bits = new int[(256*256*3 + 31) >>> 5];
+	for (int red = 0; red < 256; red++) {
+		for (int green = 0; green < 256; green++) {
+			int first = ((-(30*red + 59*green)*91) % 100 + 100) % 100;
+			for (int blue = first; blue < 256; blue += 100) {
+				int sum = 30*red + 59*green + 11*blue;
+				if ((int)(0.3*red + 0.59*green + 0.11*blue) != sum/100) {
+					int bit = ((red << 8) + green)*3 + blue/100;
+					bits[bit >>> 5] |= 1 << bit;
+				}
+			}
+		}
+	}
+	return bits;
 }
 
 //JJ
 public void filterImage () {
+	metrics.startStage("filterImage");
+	if (binarizer != null) {
+		binarizeImage();
+		metrics.endStage("filterImage");
+		return;
+	}
 	int r,c,gray;
-	Background aFinder = new Background(image, rows, columns, 256);
-	histogramArray = aFinder.getHistogram();
+	byte[] data = image.getGrayData();
+	if (histogramArray == null) {
+		histogramArray = new Background(image, 256).getHistogram();
+	}
 
 	/*for (r = 0; r < rows; r++) {
         for (c = 0; c < columns; c++) {
@@ -300,20 +579,23 @@ public void filterImage () {
 //		System.out.println(n+". histogram["+point[n]+"] ="+histogramArray[point[n]]);
 	}
 	
+	//The passes below depend only on the gray value, so they are
+	//worked out on a table of the 256 values and the image is
+	//changed in one pass
+	int[] filter = new int[256];
+	for (gray = 0; gray < 256; gray++) {
+		filter[gray] = gray;
+	}
 	int scale1 = (point[1] - point[0])/2;
 	int scale2 = (point[numPoints-1] - point[numPoints-2])/2 ;
 	
 //	System.out.println(" scale1= "+scale1 +". scale2= "+scale2);
-	for (r = 0; r < rows; r++) {
-		for (c = 0; c < columns; c++) {
-
-			gray = image[r][c];
+	for (gray = 0; gray < 256; gray++) {
 		    if (gray <= scale1) {
-		        image[r][c] = 0;
+		        filter[gray] = 0;
 		    } else if (gray >= 255 - scale2) {
-		        image[r][c] = 255;
+		        filter[gray] = 255;
 		    } 
-		}
 	}		
 
 	if(numPoints>2){
@@ -323,33 +605,85 @@ public void filterImage () {
 			scale2 = (point[n+1] - point[n])/2 ;
 			//if (scale > 25) scale = 25;
 			System.out.println(n+". scale1= "+scale1 +". scale2= "+scale2);
-			for (r = 0; r < rows; r++) {
-				for (c = 0; c < columns; c++) {
-
-					gray = image[r][c];
-					if((gray >= point[n]-scale1) && (gray <= point[n]+scale2)){
-					    image[r][c] = point[n];
+			for (gray = 0; gray < 256; gray++) {
+					if((filter[gray] >= point[n]-scale1) && (filter[gray] <= point[n]+scale2)){
+					    filter[gray] = point[n];
 					}
-
-				}
 			}
 
 		}	
 	}
 
-	createHistogram("Histogram-Filter.pgm");
-	save("ImageGrayScale-Filter.pgm",image);
+	//the histogram of the filtered image, without going through it again
+	filteredHistogram = new int[256];
+	for (gray = 0; gray < 256; gray++) {
+		filteredHistogram[filter[gray]] += histogramArray[gray];
+	}
+	if (artifacts.isEnabled()) {
+		saveHistogram("Histogram-Filter.pgm", filteredHistogram);
+		int[][] filteredImage = new int[rows][columns];
+		for (r = 0; r < rows; r++) {
+			for (c = 0; c < columns; c++) {
+				filteredImage[r][c] = filter[data[r*columns + c] & 0xff];
+			}
+		}
+		save("ImageGrayScale-Filter.pgm",filteredImage);
+	}
+
+	//The background colors of the filtered image are found from its
+	//histogram and corner, so the colors that findBackground changes to
+	//the first background color are changed in the same pass
+	backgroundValues = new Background(image, 256, filteredHistogram).findBackground(filter);
+	int[] backgroundMap = Background.makeBackgroundMap(backgroundValues, 256);
+	byte[] filterBytes = new byte[256];
+	boolean changed = false;
+	for (gray = 0; gray < 256; gray++) {
+		filter[gray] = backgroundMap[filter[gray]];
+		filterBytes[gray] = (byte)filter[gray];
+		changed |= filter[gray] != gray;
+	}
+	if (changed) {
+		mapGrayValues(filterBytes);
+	}
+	histogramArray = null;
+	metrics.endStage("filterImage");
+
+}
 
+/*
+* Used by filterImage instead of the histogram filter when a binarization
+* is set (see setBinarization): makes the image black and white with the
+* local thresholds of the binarizer. A window with no contrast is always
+* white, so white is the only background color and nothing is remapped.
+*/
+private void binarizeImage() {
+	filteredHistogram = new int[256];
+	binarizer.binarize(image, stripes, filteredHistogram);
+	if (artifacts.isEnabled()) {
+		saveHistogram("Histogram-Filter.pgm", filteredHistogram);
+		save("ImageGrayScale-Filter.pgm", image.toArray());
+	}
+	backgroundValues = new LinkedList();
+	backgroundValues.add(Integer.valueOf(255));
+	histogramArray = null;
+	metrics.setCounter("filterImage", "blackPixels", filteredHistogram[0]);
 }
 
 //JJ
 public void createHistogram(String name) {
-		Background aFinder = new Background(image, rows, columns, 256);
+		Background aFinder = new Background(image, 256);
+		saveHistogram(name, aFinder.getHistogram());
+}
+
+/*
+* Saves the image of the given histogram of the image.
+*/
+private void saveHistogram(String name, int[] histogramArray) {
+		Background aFinder = new Background(image, 256, histogramArray);
 		int margin = 10; //For the histogram image
-		int[] histogramArray = aFinder.getHistogram();
 		int[][] histogramImage = aFinder.makeHistogramImage(histogramArray, 256, margin);
 		//System.out.println("Histogram image margins are "+(margin/2)+" pixels wide.");
-		save(name, histogramImage, (256+margin), (256+margin));
+		saveArtifact(name, histogramImage, (256+margin), (256+margin));
 }
 
 
@@ -363,35 +697,38 @@ public void createHistogram(String name) {
    * @param none
    */
 	public void findBackground() {
-		Background aFinder = new Background(image, rows, columns, 256);
-		LinkedList bPixels = aFinder.findBackground();
-		int margin = 10; //For the histogram image
-		int[][] histogramImage = aFinder.makeHistogramImage(aFinder.getHistogram(), 256, margin);
-		//System.out.println("Histogram image margins are "+(margin/2)+" pixels wide.");
-		save("Histogram.pgm", histogramImage, (256+margin), (256+margin)); 
+		LinkedList bPixels;
+		int[] his;
+		boolean remapped = false;
+		if (backgroundValues != null) {
+			//found by filterImage, which has already changed the background colors
+			bPixels = backgroundValues;
+			his = filteredHistogram;
+			remapped = true;
+			backgroundValues = null;
+			filteredHistogram = null;
+		}
+		else {
+			Background aFinder = new Background(image, 256);
+			bPixels = aFinder.findBackground();
+			his = aFinder.getHistogram();
+		}
+		if (artifacts.isEnabled()) {
+			saveHistogram("Histogram.pgm", his);
+		}
 		//System.out.println("Saved histogram image to Histogram.pgm");
 		bPixValue = ((Integer)bPixels.getFirst()).intValue();
 		//System.out.println("There are "+bPixels.size()+" background colors");
 		//System.out.println("Background color is "+bPixValue);
-		try {
-			//System.out.println("Histogram image margins are "+(margin/2)+" pixels wide. Saved histogram image to Histogram.pgm\n");
-			//System.out.println("There are "+bPixels.size()+" background colors. Background color is "+bPixValue+"\n");
-		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
 		//If there are more than one background color values,
 		//Change all of them to the first one
-		if (bPixels.size() > 1) {
-			int aValue;
-			for (int i = 0; i < rows; i++) {
-				for (int j = 0; j < columns; j++) {
-					ListIterator lItr = bPixels.listIterator(1);
-					while (lItr.hasNext()) {
-						aValue = ((Integer)lItr.next()).intValue();
-						if (image[i][j] == aValue) {
-							image[i][j] = bPixValue;
-						}
-					}
-				}
+		if (!remapped && bPixels.size() > 1) {
+			int[] backgroundMap = Background.makeBackgroundMap(bPixels, 256);
+			byte[] table = new byte[256];
+			for (int i = 0; i < 256; i++) {
+				table[i] = (byte)backgroundMap[i];
 			}
+			mapGrayValues(table);
 		}
 		//save("NewImage.pgm", image);
 	}
@@ -405,42 +742,53 @@ public void createHistogram(String name) {
 	 * and calls applyLabelling method of LabelImage class that 
 	 * labels the image using the code of p.65 in Computer Vision
 	 * by Shapiro and Stockman.
-	 * pixelLabel variable which is the 2d array representation of the 
+	 * pixelLabel variable which is the LABELS raster of the 
 	 * image depicting the labels is obtained.
 	 * The labelled image is saved to Labelled.pgm.
 	 *
    * @param none
    */
 	public void labelImage() {
+		metrics.startStage("labelImage");
 		findBackground();
 		addImage();
 		//save("NewImage.pgm", image);
-		LabelImage iLabeler = new LabelImage(image, rows, columns, bPixValue);
+		LabelImage iLabeler = new LabelImage(image, bPixValue, stripes);
+		iLabeler.setFindBorders(true);
 		Vector labelledImageInfo = iLabeler.applyLabelling();
 		blobCount = ((Integer)labelledImageInfo.get(0)).intValue();
 		labelsArray = (int [])labelledImageInfo.get(1);
 		//the index of labelsArray is the label number, the value is the pixel value (the color) of the original image
-		pixelLabel = (int [][])labelledImageInfo.get(2);
+		pixelLabel = (Raster)labelledImageInfo.get(2);
+		labelStatistics = (RegionStatistics)labelledImageInfo.get(3);
+		//the borders are found with the final labels; findBorders uses them
+		imageBorders = iLabeler.getBorderImage();
+		borderStatistics = iLabeler.getBorderStatistics();
 
 		//Save the pixelLabel array in firstPixelLabel. pixelLabel will be changed later.
 		firstPixelLabel = pixelLabel;
 
-		int[][] pixelLabelSave = getLabelImageToSave();
-		save("Labelled.pgm", pixelLabelSave);
+		if (artifacts.isEnabled()) {
+			int[][] pixelLabelSave = getLabelImageToSave();
+			save("Labelled.pgm", pixelLabelSave);
+			System.out.println("Saved label image to Labelled.pgm\n");
+		}
 		try {
 			System.out.println("Image size: "+rows+"x"+columns+ ". There are "+blobCount+" objects.\n");
-			System.out.println("Saved label image to Labelled.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
 
 		//Initialize aGraph
 		aGraph = new Graph(rows, columns);
+		metrics.setCounter("labelImage", "blobs", blobCount);
+		metrics.endStage("labelImage");
 	}
 
 
   /**
    * Creates an object of the Border class and 
 	 * calls applyBorderDetection method of Border class that 
-	 * finds the borders of the already labelled image.
+	 * finds the borders of the already labelled image, unless
+	 * labelImage found them while it labelled the image.
 	 * imageBorders variable is obtained.
 	 * allRegions array that holds information for each region is initialized.
 	 * The bounding boxes of all regions are found.
@@ -449,23 +797,26 @@ public void createHistogram(String name) {
    * @param none
    */
 	public void findBorders() { 
+		metrics.startStage("findBorders");
 //System.out.println("in findBorders");
-		Border borderFinder = new Border(pixelLabel, blobCount, rows, columns, bPixValue);
-		borderFinder.applyBorderDetection();
-		imageBorders = borderFinder.getBorderImage();
+		if (imageBorders == null) {
+			Border borderFinder = new Border(pixelLabel, blobCount, rows, columns, bPixValue);
+			borderFinder.applyBorderDetection();
+			imageBorders = borderFinder.getBorderImage();
+			borderStatistics = borderFinder.getStatistics();
+		}
 
-		//Initialize an array of Regions
+		findBoundingBoxes();
+		//Initialize an array of Regions; the background has no pixels
 		allRegions = new Region[blobCount];
-		for (int i = 0; i < blobCount; i++) {
-			Region aRegion = new Region(i);
-			aRegion.setColor(labelsArray[i]);
+		allRegions[0] = new Region(0);
+		allRegions[0].setColor(labelsArray[0]);
+		for (int i = 1; i < blobCount; i++) {
+			allRegions[i] = new Region(i, regionStore);
 //DLC
 //System.out.println("color for region " + i + " set");
 // end DLC
-
-			allRegions[i] = aRegion;
 		}
-		findBoundingBoxes();
 /*
 * setting numPixels here doesn't seem to be visible elsewhere
 
@@ -477,6 +828,7 @@ public void createHistogram(String name) {
 		try {
 			//System.out.println("Saved bordered image to Bordered.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		metrics.endStage("findBorders");
 	}
 
 
@@ -494,15 +846,18 @@ public void createHistogram(String name) {
    * @param none
    */
 	public void findCharacters() { 
+		metrics.startStage("findCharacters");
 		//The background label is zero.
-		TextRecognizer atext = new TextRecognizer(imageBorders, blobCount, rows, columns, allRegions, 0);
+		TextRecognizer atext = new TextRecognizer(imageBorders, blobCount, rows, columns, allRegions, 0, borderStatistics);
 		atext.findTextRegions();
 		//int[][] dashedImage = getDashedLineImageToSave();
 		//save("DashedLines.pgm", dashedImage); 
 		//System.out.println("Saved dashed lines image to DashedLines.pgm");
-		int[][] textImage = getTextImageToSave(pixelLabel);
-		save("Text.pgm", textImage); 
-		System.out.println("Saved text image to Text.pgm");
+		if (artifacts.isEnabled()) {
+			int[][] textImage = getTextImageToSave(pixelLabel);
+			save("Text.pgm", textImage); 
+			System.out.println("Saved text image to Text.pgm");
+		}
 		findFrame();
 		removeRegions();
 		try {
@@ -511,33 +866,72 @@ public void createHistogram(String name) {
 			//System.out.println(atext.getNoOfCharacters()+ " regions out of "+blobCount+ " regions are character regions. \n");
 			//System.out.println("Saved text image to Text.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
-		int[][] borderImageSave = getBorderImageToSave();
-		save("BorderedGraph.pgm", borderImageSave);
-		try {
+		if (artifacts.isEnabled()) {
+			int[][] borderImageSave = getBorderImageToSave();
+			save("BorderedGraph.pgm", borderImageSave);
 			System.out.println("Saved bordered image without characters to BorderedGraph.pgm\n");
-		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		}
+		metrics.setCounter("findCharacters", "characters", getNoOfCharacters());
+		metrics.endStage("findCharacters");
 	}
 
   /**
 	 * Finds words from the character regions that should already be identified.
 	 * The image of words is saved to Words.pgm.
+	 * Same as <code>readWords</code> followed by <code>addWords</code>.
 	 *
    * @param none
    */
 	public boolean findWords() { 
+		readWords();
+		return addWords();
+	}
+
+  /**
+	 * Reads the words of the character regions that should already be
+	 * identified. The image of words is saved to Words.pgm.
+	 * Only the labels and the bounding boxes of the character regions are
+	 * used, which do not change after <code>findCharacters</code>, so this
+	 * can run at the same time as the stages that find the lines, rectangles,
+	 * axes, wedges and connected lines. The words are added to the Graph
+	 * object by <code>addWords</code>.
+	 *
+   * @param none
+   */
+	public void readWords() { 
+		metrics.startStage("readWords");
 		//The background label is zero.
 		//The background color in the text image is 255
 		int[][] textImage = getTextLabelImage(firstPixelLabel);
 		WordFinder aFinder = new WordFinder(textImage, rows, columns, 0);
-		aFinder.findWords(allRegions);
+		aFinder.setStripeExecutor(stripes);
+		if (fonts == null) {
+			fonts = FontLibrary.getDefault();
+		}
+		aFinder.findWords(allRegions, fonts);
 System.out.println("wordfinder found words");
-		int[][] wordImage = aFinder.getWordImage();
-		save("Words.pgm", wordImage); 
-System.out.println("Saved word image to Words.pgm");
+		if (artifacts.isEnabled()) {
+			save("Words.pgm", aFinder.getWordImage()); 
+			System.out.println("Saved word image to Words.pgm");
+		}
 		try {
 			//System.out.println("Saved word image to Words.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
 		words = aFinder.getWordsHashtable();
+		metrics.setCounter("readWords", "words", words.size());
+		metrics.setCounter("readWords", "templateComparisons", aFinder.getNoOfTemplateComparisons());
+		metrics.endStage("readWords");
+	}
+
+  /**
+	 * Adds the words found by <code>readWords</code> to the Graph object,
+	 * makes the text blocks and finds the titles of the chart.
+	 *
+   * @param none
+	 * @return True if there are words, false otherwise
+   */
+	public boolean addWords() { 
+		metrics.startStage("addWords");
                 aGraph.addWords(words);
 //System.out.println("added words");
                 aGraph.makeTextBlocks();
@@ -551,9 +945,9 @@ System.out.println("Saved word image to Words.pgm");
 			try {
 				//System.out.println("Saved chart title image to Title.pgm\n");
 			} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
-			return true;
 		}
-		return false;
+		metrics.endStage("addWords");
+		return words.size() > 0;
 	}
 
   /**
@@ -562,9 +956,12 @@ System.out.println("Saved word image to Words.pgm");
    * @param none
    */
 	public void dilate() { 
+		if (!artifacts.isEnabled()) {
+			return;
+		}
 		//The background value is 255 (white).
 		int[][] textImage = getTextImageToSave(firstPixelLabel);
-		Dilator adilator = new Dilator();
+		Dilator adilator = new Dilator(artifacts);
 		int[][] dilatedImage = adilator.dilate(textImage, rows, columns, 255);
 		save("Dilated.pgm", dilatedImage); 
 		//System.out.println("Saved dilated image to Dilated.pgm");
@@ -584,7 +981,7 @@ System.out.println("Saved word image to Words.pgm");
    */
 	public void findFrame() { 
 		//The background label is zero.
-		FrameFinder aFinder = new FrameFinder(imageBorders, blobCount, rows, columns, allRegions, 0);
+		FrameFinder aFinder = new FrameFinder(imageBorders, blobCount, rows, columns, allRegions, 0, borderStatistics);
 		isFrame = false;
 		if (aFinder.findFrameRegions()) {
 			frameUpperLeft = aFinder.getUpperLeft();
@@ -599,7 +996,7 @@ System.out.println("Saved word image to Words.pgm");
   /**
    * Removes regions that are characters and
 	 * regions that are part of the frame of the region from the image;
-	 * from pixelLabel and imageBorders arrays. 
+	 * from pixelLabel and imageBorders rasters. 
 	 * Also, if there is a frame, sets everything outside the frame to
 	 * background pixel value or background label value.
 	 *
@@ -607,22 +1004,22 @@ System.out.println("Saved word image to Words.pgm");
    */
 	public void removeRegions() { 
 		//The background label is zero.
-		firstImageBorders = new int[rows][columns];
-		firstPixelLabel = new int[rows][columns];
+		int[] labels = pixelLabel.getLabelData();
+		int[] borders = imageBorders.getLabelData();
+		firstPixelLabel = new Raster(rows, columns, labels.clone());
 		for (int i=0; i<rows; i++) {
 			for (int j=0; j<columns; j++) {
-				firstImageBorders[i][j] = imageBorders[i][j];
-				firstPixelLabel[i][j] = pixelLabel[i][j];
-				int label = pixelLabel[i][j];
+				int p = i*columns + j;
+				int label = labels[p];
 				//if (allRegions[label].getIsCharacter() || allRegions[label].getIsFrame() || allRegions[label].getIsDashedLine()) {
 				if (allRegions[label].getIsCharacter() || allRegions[label].getIsFrame()) {
-					imageBorders[i][j] = 0;
-					pixelLabel[i][j] = 0;
+					borders[p] = 0;
+					labels[p] = 0;
 				}
 				if (isFrame) {
 					if (i < frameUpperLeft.getRow() || i > frameLowerRight.getRow() || j < frameUpperLeft.getColumn() || j > frameLowerRight.getColumn()) {
-						imageBorders[i][j] = 0;
-						pixelLabel[i][j] = 0;
+						borders[p] = 0;
+						labels[p] = 0;
 					}
 				}
 			}
@@ -640,6 +1037,7 @@ System.out.println("Saved word image to Words.pgm");
    * @param none
    */
 	public void thinThickLines() { 
+		metrics.startStage("thinThickLines");
 		LineThinner aThinner = new LineThinner(allRegions, pixelLabel, imageBorders, blobCount, rows, columns, 0);  
 		//0 is the label of the background
 		
@@ -667,14 +1065,17 @@ System.out.println("Saved word image to Words.pgm");
 		//save("thinnedBorder.pgm", afterThinning);
 		//System.out.println("Saved thinned border image in thinnedBorder.pgm");
 
-		int[][] newBorderImage = getBorderImageToSave();
-		int[][] newLabelImage = getThinLabelImageToSave();
-		try {
-			save("BorderedThin.pgm", newBorderImage);
-			System.out.println("Saved thin border image to BorderedThin.pgm\n");
-			save("LabelledThin.pgm", newLabelImage);
-			System.out.println("Saved thin label image to LabelledThin.pgm\n");
-		} catch(Exception ex) {System.out.println(ex.getMessage()+"\n");}
+		if (artifacts.isEnabled()) {
+			int[][] newBorderImage = getBorderImageToSave();
+			int[][] newLabelImage = getThinLabelImageToSave();
+			try {
+				save("BorderedThin.pgm", newBorderImage);
+				System.out.println("Saved thin border image to BorderedThin.pgm\n");
+				save("LabelledThin.pgm", newLabelImage);
+				System.out.println("Saved thin label image to LabelledThin.pgm\n");
+			} catch(Exception ex) {System.out.println(ex.getMessage()+"\n");}
+		}
+		metrics.endStage("thinThickLines");
 	}
 	
 
@@ -693,19 +1094,24 @@ System.out.println("Saved word image to Words.pgm");
    * @param none
    */
 	public void segmentBorders() { 
+		metrics.startStage("segmentBorders");
 		Vectorizer aVectorizer = new Vectorizer(imageBorders, blobCount, rows, columns, 0, allRegions, allPixels);
 		aVectorizer.findSegments();
 		//borderChains = borderFinder.getBorderChains();
-		int[][] chainImage = aVectorizer.makeChainImage();
-		//System.out.println("Got chains. Saving.");
-		save("Chains.pgm", chainImage);
-		System.out.println("Saved chains in Chains.pgm");
+		if (artifacts.isEnabled()) {
+			int[][] chainImage = aVectorizer.makeChainImage();
+			//System.out.println("Got chains. Saving.");
+			save("Chains.pgm", chainImage);
+			System.out.println("Saved chains in Chains.pgm");
+		}
 		//allRegions = new Region[blobCount];
 		allRegions = aVectorizer.getRegions();
 		allPixels = aVectorizer.getPixelDatabase();
 		try {
 			//System.out.println("Saved chains in Chains.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		metrics.setCounter("segmentBorders", "primitives", getNoOfPrimitives());
+		metrics.endStage("segmentBorders");
 	}
 
 
@@ -719,6 +1125,7 @@ System.out.println("Saved word image to Words.pgm");
    * @param none 
    */
 	public void fitLines() { 
+		metrics.startStage("fitLines");
 		//System.out.println("In fitLines of BWImageG.java");
 		Region aRegion;
 		Collection chainList;
@@ -742,6 +1149,109 @@ System.out.println("Saved word image to Words.pgm");
 		try {
 			//System.out.println("Fit lines to all chains.\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		metrics.setCounter("fitLines", "lines", allLines.size());
+		metrics.endStage("fitLines");
+	}
+
+  /**
+   * Writes the state of the image after fitLines to a checkpoint file
+	 * (see <code>PipelineCheckpoint</code>): the gray image, the label and
+	 * border images, the regions with their primitives, the pixel database
+	 * and the virtual lines. The stages after fitLines can then be run
+	 * again on it with readCheckpoint.
+	 * It must not run at the same time as the stages that change the
+	 * primitives (findRectangles and the ones after it).
+	 *
+   * @param filename The name of the checkpoint file
+   */
+	public void writeCheckpoint(String filename) throws IOException { 
+		if (allLines == null) {
+			throw new IllegalStateException("A checkpoint can only be written after fitLines");
+		}
+		metrics.startStage("writeCheckpoint");
+		DataOutputStream out = PipelineCheckpoint.create(new File(filename));
+		try {
+			out.writeInt(rows);
+			out.writeInt(columns);
+			out.writeInt(bPixValue);
+			out.writeInt(blobCount);
+			out.writeBoolean(isFrame);
+			PipelineCheckpoint.writePoint(out, frameUpperLeft);
+			PipelineCheckpoint.writePoint(out, frameLowerRight);
+			PipelineCheckpoint.writeString(out, pixelHash);
+			PipelineCheckpoint.writeArray(out, labelsArray);
+			PipelineCheckpoint.writeRaster(out, image);
+			PipelineCheckpoint.writeRaster(out, pixelLabel);
+			PipelineCheckpoint.writeRaster(out, firstPixelLabel);
+			PipelineCheckpoint.writeRaster(out, pixelLabelThinned);
+			PipelineCheckpoint.writeRaster(out, imageBorders);
+			out.writeInt(allRegions.length);
+			for (int i = 0; i < allRegions.length; i++) {
+				allRegions[i].write(out);
+			}
+			allPixels.write(out);
+			PipelineCheckpoint checkpoint = new PipelineCheckpoint(allRegions);
+			out.writeInt(allLines.size());
+			Iterator itr = allLines.entrySet().iterator();
+			while (itr.hasNext()) {
+				Map.Entry anEntry = (Map.Entry)itr.next();
+				out.writeInt(((Integer)anEntry.getKey()).intValue());
+				((VirtualLine)anEntry.getValue()).write(out, checkpoint);
+			}
+		}
+		finally {
+			out.close();
+		}
+		metrics.setCounter("writeCheckpoint", "bytes", new File(filename).length());
+		metrics.endStage("writeCheckpoint");
+	}
+
+  /**
+   * Restores the state of the image from a checkpoint file written by
+	 * writeCheckpoint, as if the image had been loaded and run up to
+	 * fitLines. A new Graph object is made, so the stages after fitLines
+	 * (readWords, findRectangles, ...) can be run on it.
+	 *
+   * @param filename The name of the checkpoint file
+   */
+	public void readCheckpoint(String filename) throws IOException { 
+		metrics.startStage("readCheckpoint");
+		ByteBuffer in = PipelineCheckpoint.open(new File(filename));
+		rows = in.getInt();
+		columns = in.getInt();
+		bPixValue = in.getInt();
+		blobCount = in.getInt();
+		isFrame = in.get() != 0;
+		frameUpperLeft = (PointPixel)PipelineCheckpoint.readPoint(in);
+		frameLowerRight = (PointPixel)PipelineCheckpoint.readPoint(in);
+		pixelHash = PipelineCheckpoint.readString(in);
+		labelsArray = PipelineCheckpoint.readIntArray(in);
+		image = PipelineCheckpoint.readRaster(in);
+		pixelLabel = PipelineCheckpoint.readRaster(in);
+		firstPixelLabel = PipelineCheckpoint.readRaster(in);
+		pixelLabelThinned = PipelineCheckpoint.readRaster(in);
+		imageBorders = PipelineCheckpoint.readRaster(in);
+		allRegions = new Region[in.getInt()];
+		for (int i = 0; i < allRegions.length; i++) {
+			allRegions[i] = Region.read(in);
+		}
+		allPixels = PixelDatabase.read(in);
+		PipelineCheckpoint checkpoint = new PipelineCheckpoint(allRegions);
+		int n = in.getInt();
+		int[] keys = new int[n];
+		VirtualLine[] lines = new VirtualLine[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = in.getInt();
+			lines[i] = VirtualLine.read(in, checkpoint);
+		}
+		//Put in the opposite order, so that the table goes through them in the same order as before
+		allLines = PipelineCheckpoint.newHashtable(n);
+		for (int i = n-1; i >= 0; i--) {
+			allLines.put(Integer.valueOf(keys[i]), lines[i]);
+		}
+		aGraph = new Graph(rows, columns);
+		metrics.setCounter("readCheckpoint", "bytes", in.capacity());
+		metrics.endStage("readCheckpoint");
 	}
 
 	/**
@@ -755,6 +1265,7 @@ System.out.println("Saved word image to Words.pgm");
    * @param none 
    */
 	public void findCoordinateAxes(BWImageG passedImage) { 
+		metrics.startStage("findCoordinateAxes");
 		//System.out.println("In findCoordinateAxes of BWImageG.java");
 		//AxesFinder anAxesFinder = new AxesFinder(allRegions, blobCount, rows, columns, allPixels);
 		AxesFinder anAxesFinder = new AxesFinder(rows, columns, allRegions, allPixels, allLines);
@@ -775,17 +1286,20 @@ System.out.println("Saved word image to Words.pgm");
 		vAxis = anAxesFinder.getVerticalAxis();
 		//System.out.println("Horizontal axis: "+hAxis);
 		//System.out.println("Vertical axis: "+vAxis);
-		int[][] axesImage = anAxesFinder.makeAxesImage(hAxis, vAxis);
-		save("Axes.pgm", axesImage);
+		if (artifacts.isEnabled()) {
+			int[][] axesImage = anAxesFinder.makeAxesImage(hAxis, vAxis);
+			save("Axes.pgm", axesImage);
+			System.out.println("Saved axes in Axes.pgm\n");
+		}
 		//System.out.println("Saved axes in Axes.pgm\n");
 		try {
 			System.out.println("Horizontal axis: "+hAxis);
 System.out.println("in BWImageG");
 			System.out.println("Vertical axis: "+vAxis);
-			System.out.println("Saved axes in Axes.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
 		aGraph.addAxes(hAxis,passedImage);
 		aGraph.addAxes(vAxis,passedImage);
+		metrics.endStage("findCoordinateAxes");
 	}
 
 	/**
@@ -804,10 +1318,12 @@ System.out.println("in BWImageG");
 			LinkedList allGridlines = aFinder.getGridlines();
 			if (allGridlines.size() > 0) {
 				aGraph.addGridlines(allGridlines);
-				int[][] gridImage = aFinder.makeGridlineImage(allGridlines);
-				//int[][] gridImage = getGridlineImageToSave(allGridlines);
-				save("Gridlines.pgm", gridImage); 
-				System.out.println("Saved gridline image to Gridlines.pgm");
+				if (artifacts.isEnabled()) {
+					int[][] gridImage = aFinder.makeGridlineImage(allGridlines);
+					//int[][] gridImage = getGridlineImageToSave(allGridlines);
+					save("Gridlines.pgm", gridImage); 
+					System.out.println("Saved gridline image to Gridlines.pgm");
+				}
 				
 				removeGridlines(allGridlines);
 				//int[][] dataImage = getBorderImageToSave();
@@ -851,9 +1367,9 @@ System.out.println("in BWImageG");
 				lItr2 = points.listIterator(0);
 				while (lItr2.hasNext()) {
 					aPoint = (Point)lItr2.next();
-					imageBorders[(int)aPoint.getX()][(int)aPoint.getY()] = 0;
-					pixelLabel[(int)aPoint.getX()][(int)aPoint.getY()] = 0;
-					pixelLabelThinned[(int)aPoint.getX()][(int)aPoint.getY()] = 0;
+					imageBorders.set((int)aPoint.getX(), (int)aPoint.getY(), 0);
+					pixelLabel.set((int)aPoint.getX(), (int)aPoint.getY(), 0);
+					pixelLabelThinned.set((int)aPoint.getX(), (int)aPoint.getY(), 0);
 				}
 			}
 		}
@@ -870,6 +1386,7 @@ System.out.println("in BWImageG");
    * @param none 
    */
 	public void findRectangles(BWImageG passedImage) { 
+		metrics.startStage("findRectangles");
 		System.out.println("In findRectangles of BWImageG.java");
 		RectangleFinder aRectangleFinder = new RectangleFinder(allRegions, blobCount, rows, columns, allPixels);
 //DLC
@@ -878,9 +1395,11 @@ System.out.println("in BWImageG");
 //DLC
                 System.out.println("found rectangles");
 		LinkedList allRectangles = aRectangleFinder.getRectangles();	
-		int[][] rectangleImage = aRectangleFinder.makeRectangleImage(allRectangles);
-		save("Rectangles.pgm", rectangleImage);
-		System.out.println("Saved rectangles in Rectangles.pgm\n");
+		if (artifacts.isEnabled()) {
+			int[][] rectangleImage = aRectangleFinder.makeRectangleImage(allRectangles);
+			save("Rectangles.pgm", rectangleImage);
+			System.out.println("Saved rectangles in Rectangles.pgm\n");
+		}
 		
                 // Don't use LegendFinder Class; legends handled in Graph.java
 		//LegendFinder aLegendFinder = new LegendFinder(rows, columns, firstImageBorders, 0, blobCount, allRegions, allRectangles);
@@ -895,6 +1414,8 @@ System.out.println("in BWImageG");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
 		aGraph.addRectangles(allRectangles);
                 aGraph.trueColorRectangles(passedImage);
+		metrics.setCounter("findRectangles", "rectangles", allRectangles.size());
+		metrics.endStage("findRectangles");
 	}
 
 
@@ -908,6 +1429,7 @@ System.out.println("in BWImageG");
    * @param none 
    */
 	public void findWedges() { 
+		metrics.startStage("findWedges");
 		//System.out.println("In findWedges of BWImageG.java");
 		WedgeFinder aWedgeFinder = new WedgeFinder(allRegions, blobCount, rows, columns, allPixels, imageBorders);
 		aWedgeFinder.findWedges();
@@ -920,6 +1442,8 @@ System.out.println("in BWImageG");
 			//System.out.println("There are "+allWedges.size()+" wedges.\n");
 			//System.out.println("Saved wedges in Wedges.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		metrics.setCounter("findWedges", "wedges", allWedges.size());
+		metrics.endStage("findWedges");
 	}
 
 	/**
@@ -932,19 +1456,31 @@ System.out.println("in BWImageG");
    * @param none 
    */
 	public void findConnectedLines() { 
+		metrics.startStage("findConnectedLines");
+		//Connected lines are used only for a line chart, and findChartType
+		//never makes a line chart when there are bars or wedges.
+		if (aGraph.getNoOfBars() > 0 || aGraph.getNoOfWedges() > 0) {
+			aGraph.findChartType();
+			metrics.setCounter("findConnectedLines", "skipped", 1);
+			metrics.endStage("findConnectedLines");
+			return;
+		}
 		//System.out.println("In findConnectedLines of BWImageG.java");
 		ConnectedLinesFinder aFinder = new ConnectedLinesFinder(allRegions, blobCount, rows, columns, allPixels);
 		aFinder.findConnectedLines();
 		LinkedList allConnectedLines = aFinder.getConnectedLines();	
-		int[][] linesImage = aFinder.makeConnectedLinesImage(allConnectedLines);
-		save("ConnectedLines.pgm", linesImage);
-		System.out.println("Saved connected lines in ConnectedLines.pgm\n");
+		if (artifacts.isEnabled()) {
+			int[][] linesImage = aFinder.makeConnectedLinesImage(allConnectedLines);
+			save("ConnectedLines.pgm", linesImage);
+			System.out.println("Saved connected lines in ConnectedLines.pgm\n");
+		}
 		aGraph.addConnectedLines(allConnectedLines);
 		try {
 			System.out.println("There are "+allConnectedLines.size()+" connected lines.\n");
-			System.out.println("Saved connected lines in ConnectedLines.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
   aGraph.findChartType();  //putting this here is a kludge
+		metrics.setCounter("findConnectedLines", "connectedLines", allConnectedLines.size());
+		metrics.endStage("findConnectedLines");
 	}
 
 	/**
@@ -959,11 +1495,25 @@ System.out.println("in BWImageG");
    * @param none 
    */
 	public void displaySummary(String filename) { 
+		metrics.startStage("displaySummary");
 		aGraph.writeXML(filename, allRegions, firstPixelLabel);
 		try {
 			//System.out.println(aGraph+"\n");
 			//System.out.println("Saved data image in Data.pgm\n");
 		} catch (Exception e) {System.out.println(e.getMessage()+"\n");}
+		metrics.endStage("displaySummary");
+	}
+
+	/**
+   * Same as <code>displaySummary(String)</code>, but the xml document 
+	 * is written to the given writer instead of a file.
+	 *
+   * @param out The writer that the xml document is written to
+   */
+	public void displaySummary(Writer out) throws IOException { 
+		metrics.startStage("displaySummary");
+		aGraph.writeXML(out, allRegions, firstPixelLabel);
+		metrics.endStage("displaySummary");
 	}
 
 
@@ -979,56 +1529,18 @@ System.out.println("in BWImageG");
 	}
 
  /**
-	* Finds the bounding box of all the regions. 
-	* Records two points -the left upper corner and the right lower corner of
-	* each region.
+	* Finds the bounding box and the pixels of all the regions. 
+	* The two points of each region -the left upper corner and the right
+	* lower corner- are the ones of the statistics of the labels found by
+	* labelImage; the pixels are kept as runs in regionStore, which the
+	* regions read them from.
 	*
 	* @param none
 	*/
 	private void findBoundingBoxes() {
-	//Put this in a separate class: BoundingBoxFinder
 	    //System.out.println("In findBoundingBoxes method 1.");
-		int[] minRow = new int[blobCount];
-		int[] minColumn = new int[blobCount];
-		int[] maxRow = new int[blobCount];
-		int[] maxColumn = new int[blobCount];
-		int[] count = new int[blobCount];
-		int labelNo;
-		PointPixel aPoint;
-		for (int i=0; i < blobCount; i++) {
-			count[i] = 0;
-		}
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < columns; j++) {
-				labelNo = pixelLabel[i][j];
-				if (labelNo > 0) {
-					aPoint = new PointPixel(i, j);
-					allRegions[labelNo].addPixelToRegion(aPoint);
-					if (count[labelNo] == 0) { //this is the first point encountered
-						minRow[labelNo] = i;
-						minColumn[labelNo] = j;
-						maxRow[labelNo] = i;
-						maxColumn[labelNo] = j;
-					}
-					if (i > maxRow[labelNo]) maxRow[labelNo] = i;
-					if (i < minRow[labelNo]) minRow[labelNo] = i;
-					if (j > maxColumn[labelNo]) maxColumn[labelNo] = j;
-					if (j < minColumn[labelNo]) minColumn[labelNo] = j;
-					count[labelNo]++;
-				}
-			}
-		}
-	//    System.out.println("Found min/max row/columns.");
-		PointPixel upperLeft;
-		PointPixel lowerRight;
-		for (int i = 2; i < blobCount*2; i+=2) {
-			upperLeft = new PointPixel(minRow[(int)(i/2)], minColumn[(int)(i/2)]);
-			lowerRight = new PointPixel(maxRow[(int)(i/2)], maxColumn[(int)(i/2)]);
-			//boundingBoxCorners[i] = upperLeft;
-			//boundingBoxCorners[i+1] = lowerRight;
-			allRegions[(int)(i/2)].setUpperLeft(upperLeft);
-			allRegions[(int)(i/2)].setLowerRight(lowerRight);
-		}
+		regionStore = new RegionStore(labelStatistics, labelsArray);
+		regionStore.addRuns(pixelLabel);
 		//System.out.println("\nFound bounding boxes.");
 		try {
 			//System.out.println("Found bounding boxes.\n");
@@ -1044,30 +1556,16 @@ System.out.println("in BWImageG");
 	public void addImage() {
 		rows = rows + 2;
 		columns = columns + 2;
-		int[][] newImage = new int[rows][columns];
-		for (int j = 0; j < columns; j++) {
-			newImage[0][j] = bPixValue;
-			newImage[rows-1][j] = bPixValue;
-		}
-		for (int i = 0; i < rows; i++) {
-			newImage[i][0] = bPixValue;
-			newImage[i][columns-1] = bPixValue;
-		}
-		for (int i = 1; i < rows-1; i++) {
-			for (int j = 1; j < columns-1; j++) {
-				newImage[i][j] = image[i-1][j-1];
-			}
-		}
-		image = newImage;
+		image = image.addBorder(bPixValue, stripes);
 	}
 
   /**
-   * Returns the 2d array of image labels.
+   * Returns the LABELS raster of image labels.
 	 *
    * @param none 
-	 * @return The 2d array of image labels.
+	 * @return The raster of image labels.
    */
-	public int[][] getRegionLabels() {
+	public Raster getRegionLabels() {
 		return pixelLabel;
 	}
 
@@ -1117,10 +1615,10 @@ System.out.println("in BWImageG");
 		int[][] labelImage = new int[rows][columns];
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				labelImage[i][j] = ((int)255/blobCount)*pixelLabel[i][j];
-				if (pixelLabel[i][j] == 0)
+				labelImage[i][j] = ((int)255/blobCount)*pixelLabel.get(i, j);
+				if (pixelLabel.get(i, j) == 0)
 					labelImage[i][j] = 255;
-				else if (pixelLabel[i][j] == blobCount - 1)
+				else if (pixelLabel.get(i, j) == blobCount - 1)
 					labelImage[i][j] = 0;
 			}
 		}
@@ -1136,10 +1634,10 @@ System.out.println("in BWImageG");
 		int[][] labelImage = new int[rows][columns];
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				labelImage[i][j] = ((int)255/blobCount)*pixelLabelThinned[i][j];
-				if (pixelLabelThinned[i][j] == 0)
+				labelImage[i][j] = ((int)255/blobCount)*pixelLabelThinned.get(i, j);
+				if (pixelLabelThinned.get(i, j) == 0)
 					labelImage[i][j] = 255;
-				else if (pixelLabelThinned[i][j] == blobCount - 1)
+				else if (pixelLabelThinned.get(i, j) == blobCount - 1)
 					labelImage[i][j] = 0;
 			}
 		}
@@ -1157,7 +1655,7 @@ System.out.println("in BWImageG");
 		int[][] bImage = new int[rows][columns];
 		for (int i=0; i<rows; i++) {
 			for (int j=0; j<columns; j++) {
-				if (imageBorders[i][j] == 0) {
+				if (imageBorders.get(i, j) == 0) {
 					bImage[i][j] = 255;
 				}
 				else {
@@ -1180,7 +1678,7 @@ System.out.println("in BWImageG");
 		for (int i=0; i<rows; i++) {
 			for (int j=0; j<columns; j++) {
 				bImage[i][j] = 255;
-				if (firstPixelLabel[i][j] == label) {
+				if (firstPixelLabel.get(i, j) == label) {
 					bImage[i][j] = 0;
 				}
 			}
@@ -1275,14 +1773,14 @@ System.out.println("in BWImageG");
   /**
    * Processes and returns the 2d array of the character regions of the image. 
 	 *
-   * @param inImage The 2d array of the image whose characters are to be output
+   * @param inImage The LABELS raster of the image whose characters are to be output
 	 */
-	public int[][] getTextLabelImage(int[][] inImage) {
+	public int[][] getTextLabelImage(Raster inImage) {
 		int label;
 		int[][] bImage = new int[rows][columns];
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				label = inImage[i][j];
+				label = inImage.get(i, j);
 				//bImage[i][j] = 255;
 				bImage[i][j] = 0;
 				if ((allRegions[label]).getIsCharacter()) {
@@ -1297,14 +1795,14 @@ System.out.println("in BWImageG");
   /**
    * Processes and returns the 2d array of the character regions of the image. 
 	 *
-   * @param inImage The 2d array of the image whose characters are to be output
+   * @param inImage The LABELS raster of the image whose characters are to be output
 	 */
-	public int[][] getTextImageToSave(int[][] inImage) {
+	public int[][] getTextImageToSave(Raster inImage) {
 		int label;
 		int[][] bImage = new int[rows][columns];
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				label = inImage[i][j];
+				label = inImage.get(i, j);
 				bImage[i][j] = 255;
 				if ((allRegions[label]).getIsCharacter()) {
 					bImage[i][j] = 0;
@@ -1324,7 +1822,7 @@ System.out.println("in BWImageG");
 		int[][] bImage = new int[rows][columns];
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				int label = pixelLabel[i][j];
+				int label = pixelLabel.get(i, j);
 				bImage[i][j] = 255;
 				if ((allRegions[label]).getIsDashedLine()) {
 					bImage[i][j] = 0;
@@ -1358,7 +1856,7 @@ System.out.println("in BWImageG");
 		for (int i=0; i<rows; i++) {
 			for (int j=0; j<columns; j++) {
 				bImage[i][j] = 255;
-				if (image[i][j] != bPixValue) {
+				if (image.get(i, j) != bPixValue) {
 					bImage[i][j] = 200;
 				}
 				if (data[i][j] == 0) {
@@ -1400,6 +1898,16 @@ System.out.println("in BWImageG");
 		return blobCount;
 	}
 
+  /**
+   * Returns the regions of the image, indexed by label
+	 *
+   * @param none
+	 * @return The array of regions, or null if the image was not labelled
+	 */
+	public Region[] getRegions() {
+		return allRegions;
+	}
+
 
   /**
    * Returns the number of rectangles in the image
@@ -1410,6 +1918,93 @@ System.out.println("in BWImageG");
 		return aGraph.getNoOfRectangles();
 	}
 
+  /**
+   * Returns the hash (sha-256, in hex) of the size and the gray values of
+	 * the image loaded by loadJavaImage or loadFile, or null if no image
+	 * was loaded or the image was loaded without setHashPixels.
+	 * Two images with the same hash give the same results.
+	 * The hash is made from the sha-256 hashes of the rows, which the
+	 * load kernels make while they make the gray values of the row.
+	 *
+   * @param none
+   */
+	public String getPixelHash() {
+		return pixelHash;
+	}
+
+  /**
+   * Sets whether loadJavaImage and loadFile hash the gray values of the
+	 * image (see getPixelHash). Off by default, since the hash is only
+	 * needed to look up the image in a <code>ResultCache</code>.
+	 *
+   * @param hash True to hash the gray values
+   */
+	public void setHashPixels(boolean hash) {
+		hashPixels = hash;
+	}
+
+  /**
+   * Returns a string that identifies everything, besides the pixels, that
+	 * the results of the image depend on: the version of the pipeline,
+	 * the fonts and the settings of the image.
+	 *
+   * @param none
+   */
+	public String getConfigFingerprint() {
+		if (fonts == null) {
+			fonts = FontLibrary.getDefault();
+		}
+		String fingerprint = "pipeline="+PIPELINE_VERSION+";fonts="+fonts.getFingerprint();
+		if (binarizer != null) {
+			fingerprint += ";binarization="+binarizer.getName();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Sets the most row stripes that the per-pixel passes of the
+	 * preprocessing (gray conversion, filterImage, findBackground and
+	 * addImage) and the labelling of labelImage and readWords are split
+	 * into; 1 runs them on the calling thread.
+	 * The result does not depend on it.
+	 *
+	 * @param level The parallelism level
+	 */
+	public void setParallelism(int level) {
+		stripes = StripeExecutor.withParallelism(level);
+	}
+
+	/**
+	 * Returns the parallelism level of the preprocessing.
+	 *
+	 * @param none
+	 */
+	public int getParallelism() {
+		return stripes.getParallelism();
+	}
+
+	/**
+	 * Sets the adaptive binarization that filterImage uses instead of the
+	 * histogram filter, or null for the histogram filter. By default it is
+	 * the one of the <code>vem.binarization</code> system property
+	 * (see <code>AdaptiveBinarizer.getDefault</code>).
+	 *
+	 * @param aBinarizer The binarization, or null
+	 */
+	public void setBinarization(AdaptiveBinarizer aBinarizer) {
+		binarizer = aBinarizer;
+	}
+
+	/**
+	 * Returns the adaptive binarization of filterImage, or null if the
+	 * histogram filter is used.
+	 *
+	 * @param none
+	 */
+	public AdaptiveBinarizer getBinarization() {
+		return binarizer;
+	}
+
   /**
    * Returns the Graph object of the image 
 	 *
@@ -1419,6 +2014,44 @@ System.out.println("in BWImageG");
 		return aGraph;
 	}
 
+  /**
+   * Returns the time, allocations and counts recorded for each stage
+	 * of the image
+	 *
+   * @param none
+   */
+	public PipelineMetrics getMetrics() {
+		return metrics;
+	}
+
+  /**
+   * Returns the number of regions that were recognized as characters
+	 *
+   * @param none
+   */
+	public int getNoOfCharacters() {
+		int count = 0;
+		for (int i = 1; i < blobCount; i++) {
+			if (allRegions[i].getIsCharacter()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+  /**
+   * Returns the number of primitives in all the regions of the image
+	 *
+   * @param none
+   */
+	public int getNoOfPrimitives() {
+		int count = 0;
+		for (int i = 1; i < blobCount; i++) {
+			count += allRegions[i].getPrimitiveList().size();
+		}
+		return count;
+	}
+
 /*
 *  creates virtual ticks to go on a virtual measurement axis
 */
@@ -1436,15 +2069,14 @@ System.out.println("in BWImageG");
       Word aWord;
       if (br == er) { // horizontal axis
         for (i=bc;i < ec;i++) 
-          if (image[br][i] != bPixValue) 
+          if (image.get(br, i) != bPixValue) 
   {
-//System.out.println("image[br][i] = " + image[br][i]);
             virtualTicks.add(new Primitive(new PointPixel(br,i),0,0));}
   }
       else { // vertical axis
         if (bc > 0) {
           for (i=br;i<er;i++)
-            if (image[i][bc] != bPixValue)
+            if (image.get(i, bc) != bPixValue)
               virtualTicks.add(new Primitive(new PointPixel(i,bc),0,0));
 //System.out.println("vticksize = " + virtualTicks.size());
           if (virtualTicks.size() < 2
@@ -1471,7 +2103,7 @@ System.out.println("in BWImageG");
 * gets the value of a pixel in the image
 */
     public int getImageValue(int row, int col) {
-      return image[row][col];}
+      return image.get(row, col);}
 
 /*
 *  changes blobs that are 2x2 pixels or less and that are
@@ -1495,22 +2127,24 @@ System.out.println("in BWImageG");
                PointPixel lr = rgn.getLowerRight();
                for (int r = ul.getRow();r<=lr.getRow();r++)
                  for (int c = ul.getColumn();c<=lr.getColumn();c++) {
-                     if (pixelLabel[r][c] == lbl) image[r][c] = bPixValue;}}
+                     if (pixelLabel.get(r, c) == lbl) image.set(r, c, bPixValue);}}
         }}
 
   public void findBars() {
+    metrics.startStage("findBars");
 //System.out.println("in findBars\n");
     aGraph.findBars2();
 //System.out.println("finished call to findBars2\n");
     aGraph.findChartType();
 //System.out.println("finished call to findChartType\n");
-    aGraph.getDataValues();}
+    aGraph.getDataValues();
+    metrics.endStage("findBars");}
 
   public int getClearColumn(int firstRow, int lastRow, int column) {
     int r,c;
     for (c = column - 1; c >= 0;c--) {
       for (r = firstRow; r<= lastRow; r++) {
-         if (image[r][c] != bPixValue) break;}
+         if (image.get(r, c) != bPixValue) break;}
       if (r > lastRow) return c;}
     return 0;}
 
@@ -1528,7 +2162,7 @@ System.out.println("in BWImageG");
      for (y=yb;y<=ye;y++)
         for (x=xb;x<=xe;x++) {
            blobImage[y - yb][x - xb] =
-              (firstPixelLabel[y][x]==reg.getRegion())? 0 : 255;
+              (firstPixelLabel.get(y, x)==reg.getRegion())? 0 : 255;
         }
      return blobImage;
   }
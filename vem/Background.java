@@ -11,11 +11,12 @@ import java.lang.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class Background{
 	final static int [] rPos = {-1, -1, -1, 0, 1, 1, 1, 0};  //already declared in ImagePrimitives.jave
 	final static int [] cPos = {1, 0, -1, -1, -1, 0, 1, 1};  //already declared in ImagePrimitives.jave
-	//Storing the image as 2D array
-	private int[][] inputImage;
+	//Storing the image as a gray raster
+	private Raster inputImage;
 	private int noOfColors;
 	private int noOfBackgroundColors;
 	private int imageHeight;
@@ -28,20 +29,30 @@ public class Background{
   /**
    * Constructor. 
 	 *	
-   * @param inImage2D The 2d array representation of the image
-	 * @param imageRows The number of rows in the image
-	 * @param imageColumns The number of columns in the image
+   * @param inImage The gray raster of the image
 	 * @param numColors The number of colors in the image (256)
    */
-	public Background(int[][] inImage2D, int imageRows, int imageColumns, int numColors) {
-		inputImage = inImage2D;  
-		imageHeight = imageRows;
-		imageWidth = imageColumns;
+	public Background(Raster inImage, int numColors) {
+		inputImage = inImage;  
+		imageHeight = inImage.getRows();
+		imageWidth = inImage.getColumns();
 		bPixels = new LinkedList();
 		noOfColors = numColors;
 		noOfBackgroundColors = 0;
 	}
 
+  /**
+   * Constructor, for an image whose histogram is already known.
+	 *	
+   * @param inImage The gray raster of the image
+	 * @param numColors The number of colors in the image (256)
+	 * @param histogram The number of pixels of each color value of the image
+   */
+	public Background(Raster inImage, int numColors, int[] histogram) {
+		this(inImage, numColors);
+		histogramArray = histogram;
+	}
+
   /**
 	 * Returns a linked list of the color values that are 
 	 * determined to be background colors. The histogram is created first,
@@ -52,11 +63,26 @@ public class Background{
 	 * @return The linked list of the background color values.
    */
 	public LinkedList findBackground() {
+		return findBackground(null);
+	}
+
+  /**
+	 * Same as findBackground(), for the image whose gray values are
+	 * changed by the given table: the corner is checked through the table,
+	 * and the histogram given to the constructor must be the one of the
+	 * changed image. So the background can be found before the image is
+	 * changed, and the change and the background remapping can be made
+	 * in one pass (see <code>makeBackgroundMap</code>).
+	 *
+   * @param map The new value of each gray value, or null for no change
+	 * @return The linked list of the background color values.
+   */
+	public LinkedList findBackground(int[] map) {
 		//histogramArray = histogram(noOfColors);
 		getHistogram();
 		int[] indeces = findMinMax(histogramArray, noOfColors);
 		int maxIndex = indeces[1];
-		int maxCorner = checkCorner(10, 10);
+		int maxCorner = checkCorner(10, 10, map);
 		//System.out.println("Max color is "+maxIndex+"; occurs at "+histogramArray[maxIndex]+" pixels. Max corner color is "+maxCorner);
 		//Add the color that appears the most.
 		bPixels.add(new Integer(maxIndex));
@@ -77,6 +103,26 @@ public class Background{
 		return bPixels;
 	}
 
+  /**
+	 * Returns the table that changes all the background colors of the
+	 * given list to the first one, and leaves the other colors as they are.
+	 *
+   * @param backgroundColors The list of background colors made by findBackground
+	 * @param numColors The number of colors in the image (256)
+   */
+	public static int[] makeBackgroundMap(LinkedList backgroundColors, int numColors) {
+		int[] map = new int[numColors];
+		for (int i = 0; i < numColors; i++) {
+			map[i] = i;
+		}
+		int first = ((Integer)backgroundColors.getFirst()).intValue();
+		ListIterator lItr = backgroundColors.listIterator(1);
+		while (lItr.hasNext()) {
+			map[((Integer)lItr.next()).intValue()] = first;
+		}
+		return map;
+	}
+
   /**
 	 * Checks the upper left corner of the image, in an area that
 	 * is given by the input parameters, and determines which color
@@ -85,17 +131,21 @@ public class Background{
 	 *
    * @param height The height of the area to be checked.
 	 * @param width The width of the area to be checked.
+	 * @param map The new value of each gray value, or null for no change
    */
-	private int checkCorner(int height, int width) {
+	private int checkCorner(int height, int width, int[] map) {
 		int[] colors = new int[noOfColors];
 		int max = 0;
 		int maxColor = -1;
+		byte[] gray = inputImage.getGrayData();
 		for (int i = 0; i < height; i++) {
 			for (int j = 0; j < width; j++) {
-				colors[inputImage[i][j]]++;
-				if (colors[inputImage[i][j]] > max) {
-					max = colors[inputImage[i][j]];
-					maxColor = inputImage[i][j];
+				int value = gray[i*imageWidth + j] & 0xff;
+				if (map != null) value = map[value];
+				colors[value]++;
+				if (colors[value] > max) {
+					max = colors[value];
+					maxColor = value;
 				}
 			}
 		}
@@ -114,10 +164,9 @@ public class Background{
 		for (int k = 0; k < size; k++) {
 			his[k] = 0;
 		}
-		for (int i = 0; i < imageHeight; i++) {
-			for (int j = 0; j < imageWidth; j++) {
-				his[inputImage[i][j]]++;
-			}
+		byte[] gray = inputImage.getGrayData();
+		for (int i = 0; i < gray.length; i++) {
+			his[gray[i] & 0xff]++;
 		}
 		return his;
 	}
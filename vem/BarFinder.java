@@ -8,6 +8,7 @@ import java.awt.Point;
  * The rectangle and the horizontal axis of the chart or 
  * the rectangle and the vertical axis of the chart are given.
  */
+@SuppressWarnings("rawtypes")
 public class BarFinder {
 
 	LinkedList allRectangles;
@@ -0,0 +1,336 @@
+/**
+ * A binary image with one bit for each pixel, 64 pixels in each long.
+ * <p>
+ * Each row starts at a new word; the pixel at (row, column) is bit
+ * column%64 of word row*wordsPerRow + column/64. The bits after the last
+ * column of a row are always zero. The morphology (dilation, erosion and
+ * border extraction) shifts, ORs and ANDs whole words, so it handles 64
+ * pixels at a time instead of visiting each pixel and its neighbors.
+ * <p>
+ * Pixels outside the image are background.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class BitImage {
+
+	private int rows;
+	private int columns;
+	private int wordsPerRow;
+	private long lastWordMask;	//the bits of the last word of a row that are in the image
+	private long[] bits;
+
+	/**
+	 * Constructor. All the pixels are background.
+	 *
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 */
+	public BitImage(int imageRows, int imageColumns) {
+		rows = imageRows;
+		columns = imageColumns;
+		wordsPerRow = (columns + 63) >>> 6;
+		lastWordMask = (columns & 63) == 0 ? -1L : (1L << (columns & 63)) - 1;
+		bits = new long[rows*wordsPerRow];
+	}
+
+	/**
+	 * Constructor. The pixels that are not background in a 2d array are set.
+	 *
+	 * @param anImage The 2d array representation of the image
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 * @param bPix The value of the background pixels
+	 */
+	public BitImage(int[][] anImage, int imageRows, int imageColumns, int bPix) {
+		this(imageRows, imageColumns);
+		for (int r = 0; r < rows; r++) {
+			int[] aRow = anImage[r];
+			int w = r*wordsPerRow;
+			for (int c = 0; c < columns; c++) {
+				if (aRow[c] != bPix) {
+					bits[w + (c >>> 6)] |= 1L << c;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor. The pixels that are not background in a raster are set.
+	 *
+	 * @param aRaster The raster of the image, GRAY or LABELS
+	 * @param bPix The value of the background pixels
+	 */
+	public BitImage(Raster aRaster, int bPix) {
+		this(aRaster.getRows(), aRaster.getColumns());
+		byte[] gray = aRaster.getGrayData();
+		int[] labels = aRaster.getLabelData();
+		for (int r = 0; r < rows; r++) {
+			int p = r*columns;
+			int w = r*wordsPerRow;
+			for (int c = 0; c < columns; c++) {
+				int value = labels != null ? labels[p+c] : gray[p+c] & 0xff;
+				if (value != bPix) {
+					bits[w + (c >>> 6)] |= 1L << c;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @param none
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 *
+	 * @param none
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the number of words of each row.
+	 *
+	 * @param none
+	 */
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	/**
+	 * Returns the words of the image, row by row.
+	 *
+	 * @param none
+	 */
+	public long[] getWords() {
+		return bits;
+	}
+
+	/**
+	 * Checks if a pixel is set.
+	 *
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 */
+	public boolean get(int row, int column) {
+		return (bits[row*wordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+	}
+
+	/**
+	 * Sets or clears a pixel.
+	 *
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 * @param on True to set the pixel, false to clear it
+	 */
+	public void set(int row, int column, boolean on) {
+		if (on) {
+			bits[row*wordsPerRow + (column >>> 6)] |= 1L << column;
+		}
+		else {
+			bits[row*wordsPerRow + (column >>> 6)] &= ~(1L << column);
+		}
+	}
+
+	/**
+	 * Returns the number of pixels that are set.
+	 *
+	 * @param none
+	 */
+	public int count() {
+		int n = 0;
+		for (int i = 0; i < bits.length; i++) {
+			n += Long.bitCount(bits[i]);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the dilation by the 3x3 square: a pixel is set if it or
+	 * one of its 8 neighbors is set.
+	 *
+	 * @param none
+	 */
+	public BitImage dilate() {
+		BitImage horizontal = new BitImage(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				horizontal.bits[w+k] = bits[w+k] | fromLeft(w, k) | fromRight(w, k);
+			}
+			horizontal.bits[w + wordsPerRow - 1] &= lastWordMask;
+		}
+		BitImage dilated = new BitImage(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				long word = horizontal.bits[w+k];
+				if (r > 0) word |= horizontal.bits[w-wordsPerRow+k];
+				if (r < rows-1) word |= horizontal.bits[w+wordsPerRow+k];
+				dilated.bits[w+k] = word;
+			}
+		}
+		return dilated;
+	}
+
+	/**
+	 * Returns the dilation by the 2x2 square that has the pixel at its upper
+	 * left corner: a pixel is set if it, its right neighbor, its lower
+	 * neighbor or its lower right neighbor is set. It grows the regions
+	 * only up and to the left (see <code>Dilator.dilate2</code>).
+	 *
+	 * @param none
+	 */
+	public BitImage dilateUpLeft() {
+		BitImage dilated = new BitImage(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				long word = bits[w+k] | fromRight(w, k);
+				if (r < rows-1) {
+					word |= bits[w+wordsPerRow+k] | fromRight(w+wordsPerRow, k);
+				}
+				dilated.bits[w+k] = word;
+			}
+		}
+		return dilated;
+	}
+
+	/**
+	 * Returns the erosion by the 3x3 square: a pixel is set if it and all
+	 * of its 8 neighbors are set. The pixels next to the edges of the
+	 * image are cleared.
+	 *
+	 * @param none
+	 */
+	public BitImage erode() {
+		BitImage horizontal = new BitImage(rows, columns);
+		for (int r = 0; r < rows; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				horizontal.bits[w+k] = bits[w+k] & fromLeft(w, k) & fromRight(w, k);
+			}
+		}
+		BitImage eroded = new BitImage(rows, columns);
+		for (int r = 1; r < rows-1; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				eroded.bits[w+k] = horizontal.bits[w+k] & horizontal.bits[w-wordsPerRow+k] & horizontal.bits[w+wordsPerRow+k];
+			}
+		}
+		return eroded;
+	}
+
+	/**
+	 * Returns the erosion by the cross of the 4 neighbors: a pixel is set
+	 * if it and its upper, lower, left and right neighbors are set.
+	 *
+	 * @param none
+	 */
+	public BitImage erode4() {
+		BitImage eroded = new BitImage(rows, columns);
+		for (int r = 1; r < rows-1; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				eroded.bits[w+k] = bits[w+k] & fromLeft(w, k) & fromRight(w, k)
+				                   & bits[w-wordsPerRow+k] & bits[w+wordsPerRow+k];
+			}
+		}
+		return eroded;
+	}
+
+	/**
+	 * Returns the 4-neighbor border: the pixels that are set and have at
+	 * least one of their upper, lower, left and right neighbors not set.
+	 *
+	 * @param none
+	 */
+	public BitImage border4() {
+		BitImage border = erode4();
+		for (int i = 0; i < bits.length; i++) {
+			border.bits[i] = bits[i] & ~border.bits[i];
+		}
+		return border;
+	}
+
+	/**
+	 * Returns the gray raster of the image.
+	 *
+	 * @param on The value of the pixels that are set
+	 * @param off The value of the other pixels
+	 */
+	public Raster toRaster(int on, int off) {
+		Raster aRaster = new Raster(rows, columns, Raster.GRAY);
+		aRaster.fill(off);
+		byte[] gray = aRaster.getGrayData();
+		byte value = (byte)on;
+		for (int r = 0; r < rows; r++) {
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				long word = bits[w+k];
+				while (word != 0) {
+					int c = (k << 6) + Long.numberOfTrailingZeros(word);
+					gray[r*columns + c] = value;
+					word &= word - 1;
+				}
+			}
+		}
+		return aRaster;
+	}
+
+	/**
+	 * Returns the 2d array representation of the image.
+	 *
+	 * @param on The value of the pixels that are set
+	 * @param off The value of the other pixels
+	 */
+	public int[][] toArray(int on, int off) {
+		int[][] anImage = new int[rows][columns];
+		for (int r = 0; r < rows; r++) {
+			int[] aRow = anImage[r];
+			if (off != 0) {
+				java.util.Arrays.fill(aRow, off);
+			}
+			int w = r*wordsPerRow;
+			for (int k = 0; k < wordsPerRow; k++) {
+				long word = bits[w+k];
+				while (word != 0) {
+					aRow[(k << 6) + Long.numberOfTrailingZeros(word)] = on;
+					word &= word - 1;
+				}
+			}
+		}
+		return anImage;
+	}
+
+	/**
+	 * Returns word k of the row starting at word w, shifted so that each
+	 * bit holds its left neighbor (column - 1).
+	 */
+	private long fromLeft(int w, int k) {
+		long word = bits[w+k] << 1;
+		if (k > 0) {
+			word |= bits[w+k-1] >>> 63;
+		}
+		return word;
+	}
+
+	/**
+	 * Returns word k of the row starting at word w, shifted so that each
+	 * bit holds its right neighbor (column + 1).
+	 */
+	private long fromRight(int w, int k) {
+		long word = bits[w+k] >>> 1;
+		if (k < wordsPerRow-1) {
+			word |= bits[w+k+1] << 63;
+		}
+		return word;
+	}
+}
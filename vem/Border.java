@@ -11,6 +11,7 @@ import java.io.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Border {
 	final int[] rPos = {-1, -1, -1, 0, 1, 1, 1, 0}; 
 	final int[] cPos = {1, 0, -1, -1, -1, 0, 1, 1};
@@ -27,93 +28,107 @@ public class Border {
 	private int bPix;		    		//Background
  	private int bPixLabel;
 
-	private int[][] labelledImage;  //Labelled image
+	private Raster labelledImage;  //Labelled image
 	private int noOfLabels;
-	private int[][] borderedImage;
+	private Raster borderedImage;
 	private PixelDatabase pixelData;
+	private RegionStatistics statistics; //of the border pixels of each label
 
  /**
 	* Constructor. Initializes a PixelDatabase object to hold 
 	* information for each pixel according to the row and column of the pixel.
 	*
-	* @param inImage The 2d array representation of the labelled image
+	* @param inImage The LABELS raster of the labelled image
 	* @param labelCount The number of labels (number of regions)
 	* @param imageRows The number of rows
 	* @param imageColumns The number of columns
 	* @param bGroundPix The color of the background pixel; the label of the background colored regions is zero
 	*/
-	public Border(int[][] inImage, int labelCount, int imageRows, int imageColumns, int bGroundPix) {
+	public Border(Raster inImage, int labelCount, int imageRows, int imageColumns, int bGroundPix) {
 		labelledImage = inImage;
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
 		bPix = bGroundPix;
 		bPixLabel = 0;
 		noOfLabels = labelCount;
-		borderedImage = new int[imageRows][imageColumns];
+		borderedImage = new Raster(imageRows, imageColumns, Raster.LABELS);
 		pixelData = new PixelDatabase(imageRows, imageColumns);
 	}
 
   /**
    * Finds the border pixels of the already labelled image. 
-	 * A 2d array, borderedImage, array is obtained.
+	 * A LABELS raster, borderedImage, is obtained.
 	 * borderedImage is all background except the border pixels
 	 * which are colored with their corresponding label.
+	 * A pixel is a border pixel if one of its 4 neighbors has another label;
+	 * the pixels outside the image are background.
+	 * The pixels next to the background are found for 64 pixels at a time
+	 * with a <code>BitImage</code>; only the pixels whose 4 neighbors are
+	 * all in some region have their labels compared. With the vector
+	 * <code>PixelKernels</code> the rows are compared with their neighbors
+	 * several pixels at a time instead.
+	 * The statistics of the border pixels of each label are found as
+	 * each row is done (see getStatistics).
+	 * <code>LabelImage.setFindBorders</code> finds the same borders and
+	 * statistics while the final labels are written.
 	 *
    * @param none
    */
 	public void applyBorderDetection() {
 		int imageRows = imageHeight;
 		int imageColumns = imageWidth;	
-		//System.out.println(imageRows+"x"+imageColumns);
-		int label_c; //this pixels label
-		int label_n; //one of the neighbours label
-		boolean border_pixel = false;
-	 	int[][] inImage = new int[imageRows+2][imageColumns+2];  	
-   	//labelsArray = new int[noOfLabels]; this is a private variable
-
-		//thinBorders(labelledImage, 1);
-		//insert one row of background pixels at the bottom and one on top 
-		for (int i = 0; i<imageColumns+2; i++) {
-			inImage[0][i] = bPixLabel;
-			inImage[imageRows+2-1][i] = bPixLabel;
-		}
-		for (int i = 0; i<imageRows+2; i++) {
-			inImage[i][0] = bPixLabel;
-			inImage[i][imageColumns+2-1] = bPixLabel;
-		}
-		//System.out.println("Copying...");
-		for (int i = 1; i<imageRows+2-1; i++) {
-			for (int j = 1; j<imageColumns+2-1; j++) {
-				inImage[i][j] = labelledImage[i-1][j-1];
-				borderedImage[i-1][j-1] = bPixLabel; //initialize to background 
-				//System.out.print(borderedImage[i-1][j-1]);
+		statistics = new RegionStatistics(noOfLabels);
+		int[] labels = labelledImage.getLabelData();
+		int[] borders = borderedImage.getLabelData();
+		PixelKernels kernels = PixelKernels.get();
+		if (kernels.isVectorized()) {
+			//all the labels of a row are compared at once
+			for (int r = 0; r < imageRows; r++) {
+				int p = r*imageColumns;
+				kernels.markBorders(labels, p, imageColumns, r > 0, r < imageRows-1, borders, bPixLabel);
+				statistics.addRow(borders, p, r, imageColumns);
 			}
+			return;
 		}
-		//System.out.println("Inserted background pixels on top and bottom.");
-
-		for(int r = 1; r < imageRows+2-1; r++ ) {
-			for( int c = 1; c < imageColumns+2-1; c++ ) {
-				label_c = inImage[r][c]; 
-				border_pixel = false;
-
-    		if (label_c != bPixLabel) { //not a background pixel
-				//if (allChains.get(label_c) == null) //key label_c is not mapped to any value 
-					//allChains.put(label_c, new LinkedList()); 
-					border_pixel = false;
-					for (int i = 1; i < 8; i += 2) {  //check 4 neighbors, not 8
- 						label_n = inImage[r+rPos[i]][c+cPos[i]];
- 						if (label_c != label_n) { //then (r,c) is a border pixel
-							borderedImage[r-1][c-1] = label_c;
-							border_pixel = true;
-							//System.out.println("("+r+", "+c+") is a border pixel of label "+label_c);
-							break;
-						}
+		borderedImage.fill(bPixLabel); //initialize to background
+		BitImage regions = new BitImage(labelledImage, bPixLabel);
+		BitImage inside = regions.erode4();
+		long[] regionWords = regions.getWords();
+		long[] insideWords = inside.getWords();
+		int wordsPerRow = regions.getWordsPerRow();
+		for (int r = 0; r < imageRows; r++) {
+			int p = r*imageColumns;
+			for (int k = 0; k < wordsPerRow; k++) {
+				long word = regionWords[r*wordsPerRow + k];
+				long insideWord = insideWords[r*wordsPerRow + k];
+				while (word != 0) {
+					long bit = word & -word;
+					int i = p + (k << 6) + Long.numberOfTrailingZeros(word);
+					word ^= bit;
+					int label_c = labels[i];
+					if ((insideWord & bit) == 0) { //next to the background
+						borders[i] = label_c;
+					}
+					else if (labels[i+1] != label_c || labels[i-1] != label_c
+					         || labels[i-imageColumns] != label_c || labels[i+imageColumns] != label_c) {
+						borders[i] = label_c;
 					}
 				}
 			}
+			statistics.addRow(borders, p, r, imageColumns);
 		}
 	}
 
+  /**
+   * Returns the statistics of the border pixels of each label found by
+	 * applyBorderDetection: their number, bounding box, centroid and
+	 * variances. Label 0 has the pixels that are not on a border.
+	 *
+   * @param none
+   */
+	public RegionStatistics getStatistics() {
+		return statistics;
+	}
 
   /**
    * Calls applyBorderDetection that 
@@ -144,7 +159,7 @@ public class Border {
 		int[] neigbors;
 		for (int i=0; i<imageHeight; i++) {
 			for (int j=0; j<imageWidth; j++) {
-				if (borderedImage[i][j] != bPixLabel) {
+				if (borderedImage.get(i, j) != bPixLabel) {
 					neigborList = new LinkedList();
 					neigbors = getRegionNeigbors(i, j);
 					for (int k = 1; k <= neigbors[0]; k++) {
@@ -177,7 +192,7 @@ public class Border {
 	 	int[] neigborArray = new int[9];
 	 	neigborArray[0] = numNeigbors;
 
-		int labelc = borderedImage[row][column];
+		int labelc = borderedImage.get(row, column);
  		PointPixel aPoint = new PointPixel(row, column);
 	 	LinkedList neigborList = aPoint.getNeigbors8();
 	 	ListIterator lItr = neigborList.listIterator();
@@ -186,7 +201,7 @@ public class Border {
 			neigRow = neigPoint.getRow();
 			neigColumn = neigPoint.getColumn();
 			if (neigRow >= 0 && neigRow < imageHeight && neigColumn >= 0 && neigColumn < imageWidth) {
-				labeln = borderedImage[neigRow][neigColumn];
+				labeln = borderedImage.get(neigRow, neigColumn);
 				if (labeln == labelc) {
 			 		numNeigbors++;
 				 	neigborArray[numNeigbors] = k;
@@ -280,12 +295,12 @@ public class Border {
 	 * 1's should be having the same label all and 
 	 * all 0's should have a label different than that one, 
 	 * the label of -1's is not important, they can have any label.
-	 * The 2d array anImage, which is an input parameter, is changed.
+	 * The raster anImage, which is an input parameter, is changed.
 	 *
 	 * @param anImage The input image which is eroded. It is changed by setting the eroded pixel values to the bacground value.
 	 * @param option If option is 2, the structuring models are increased by calling defineModelsAdd after calling defineModels. Otherwise, only defineModels is called.
 	 */
-	private void thinBorders(int[][] anImage, int option) {
+	private void thinBorders(Raster anImage, int option) {
 		//System.out.println("In Borders.");
 		Vector models = defineModels();
 		if (option == 2)
@@ -298,28 +313,22 @@ public class Border {
 		int[] modelArray;
 		int[] rowPos = {-1, -1, -1, 0, 1, 1, 1, 0, 0};
 		int[] colPos = {1, 0, -1, -1, -1, 0, 1, 1, 0};
-		int[][] borderImage = new int[imageRows+2][imageColumns+2];
-		//insert one row of background pixels at the bottom and one on top
-		for (int i = 0; i<imageColumns+2; i++) {
-			borderImage[0][i] = bPixLabel;
-			borderImage[imageRows+2-1][i] = bPixLabel;
-		}
-		for (int i = 0; i<imageRows+2; i++) {
-			borderImage[i][0] = bPixLabel;
-			borderImage[i][imageColumns+2-1] = bPixLabel;
-		}
-		for (int i = 1; i<imageRows+2-1; i++) {
-			for (int j = 1; j<imageColumns+2-1; j++) {
-				borderImage[i][j] = anImage[i-1][j-1];
-			}
+		int[] labels = anImage.getLabelData();
+		int[] offset = new int[9];	//the index of each neighbor from the index of the pixel
+		for (int i = 0; i < 9; i++) {
+			offset[i] = rowPos[i]*imageColumns + colPos[i];
 		}
+		//the pixels outside the image are background; only the pixels on the
+		//edges of the image look for their neighbors with labelAt
 		int count = 1;
 		while (count > 0) {
 			count = 0;
-			for(int r = 1; r < imageRows+2-1; r++ ) {
-				for(int c = 1; c < imageColumns+2-1; c++ ) {
-					pixelLabel = borderImage[r][c];
+			for(int r = 0; r < imageRows; r++ ) {
+				for(int c = 0; c < imageColumns; c++ ) {
+					int p = r*imageColumns + c;
+					pixelLabel = labels[p];
 					if (pixelLabel != bPixLabel) {
+						boolean edge = r == 0 || c == 0 || r == imageRows-1 || c == imageColumns-1;
 						//Go through each structuring model
 						for (int k = 0; k < models.size(); k++) {
 							modelArray = (int [])models.elementAt(k);
@@ -327,23 +336,24 @@ public class Border {
 							//Find which label corresponds to the value 1 in the structuring element
 							for (int i = 0; i < 9; i++) {
 								if (modelArray[i] == 1) {
-									label_check = borderImage[r+rowPos[i]][c+colPos[i]];
+									label_check = edge ? labelAt(anImage, r+rowPos[i], c+colPos[i])
+									                   : labels[p+offset[i]];
 									break;
 								}
 							}
 							//Check all the neighbors of the pixel
 							for (int i = 0; i < 9; i++) {
-								label = borderImage[r+rowPos[i]][c+colPos[i]];
+								label = edge ? labelAt(anImage, r+rowPos[i], c+colPos[i])
+								             : labels[p+offset[i]];
 								if (modelArray[i] == 1 && label != label_check)
 									match = 0;
 								if (modelArray[i] == 0 && label == label_check)
 									match = 0;
 							}
 							if (match == 1) { //this pixel passed the test
-								borderImage[r][c] = bPixLabel;
-								anImage[r-1][c-1] = bPixLabel;
+								labels[p] = bPixLabel;
 								count++;
-								//System.out.println("Removing: "+(r-1)+", "+(c-1));
+								//System.out.println("Removing: "+r+", "+c);
 								break;
 							}
 						}//end of for loop for the arrays in the models Vector
@@ -355,6 +365,22 @@ public class Border {
 	}
 
 
+  /**
+	 * Returns the label of a pixel of the image, or the background label
+	 * for a pixel outside the image.
+	 *
+	 * @param anImage The raster of the labels
+	 * @param r The row of the pixel
+	 * @param c The column of the pixel
+	 */
+	private int labelAt(Raster anImage, int r, int c) {
+		if (r < 0 || c < 0 || r >= imageHeight || c >= imageWidth) {
+			return bPixLabel;
+		}
+		return anImage.get(r, c);
+	}
+
+
   /**
    * Processes and returns a 2d array of the border image.
 	 * The borders are black, the background is set to white.
@@ -369,9 +395,10 @@ public class Border {
 		for (int i=0; i<imageHeight; i++) {
 			for (int j=0; j<imageWidth; j++) {
 				//borderImage[i][j] = ((int)255/noOfLabels)*borderImage[i][j];
-				if (borderedImage[i][j] == 0)
+				int label = borderedImage.get(i, j);
+				if (label == 0)
 					bImage[i][j] = 255;
-				else if (borderedImage[i][j] == 10)
+				else if (label == 10)
 					bImage[i][j] = 100;
 				else
 					bImage[i][j] = 0;
@@ -382,32 +409,32 @@ public class Border {
 
 
   /**
-   * Returns the 2d array of border pixels. 
+   * Returns the LABELS raster of border pixels. 
 	 *
    * @param none
-	 * @return 2d array representation of the border image
+	 * @return The raster of the border image
    */
-  public int[][] getBorderImage() {
+  public Raster getBorderImage() {
     return borderedImage;
   }
 
 
   /**
-   * Sets the 2d array of labelled pixels. 
+   * Sets the LABELS raster of labelled pixels. 
 	 *
-   * @param anImage The 2d array representation of the labelled image
+   * @param anImage The raster of the labelled image
    */
-  public void setLabelImage(int[][] anImage) {
+  public void setLabelImage(Raster anImage) {
 		labelledImage = anImage;
   }
 
   /**
-   * Returns the 2d array of labelled pixels. 
+   * Returns the LABELS raster of labelled pixels. 
 	 *
    * @param none
-	 * @return The 2d array representation of the labelled image
+	 * @return The raster of the labelled image
    */
-  public int[][] getLabelImage() {
+  public Raster getLabelImage() {
     return labelledImage;
   }
 
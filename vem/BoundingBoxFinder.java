@@ -10,6 +10,7 @@ import java.io.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings("cast")
 public class BoundingBoxFinder{
 
 	private int imageHeight;    //number of rows in the input image
@@ -19,6 +20,7 @@ public class BoundingBoxFinder{
 
 	private int[][] inputImage;     //input image
 	private PointPixel[] boundingBoxCorners;
+	private RegionStatistics statistics; //of the labels of the input image, null to scan it
 
 	/**
 	 * Constructor.
@@ -38,6 +40,19 @@ public class BoundingBoxFinder{
 		boundingBoxCorners = new PointPixel[noOfLabels*2];
 	}
 
+	/**
+	 * Constructor. The bounding boxes are read from the statistics of the
+	 * labels found while the image was labelled, without scanning it.
+	 *
+	 * @param labelStatistics The statistics of the labels (see <code>LabelImage.getStatistics</code>)
+	 */
+	public BoundingBoxFinder(RegionStatistics labelStatistics) {
+		statistics = labelStatistics;
+		bPixLabel = 0;
+		noOfLabels = labelStatistics.getLabelCount();
+		boundingBoxCorners = new PointPixel[noOfLabels*2];
+	}
+
 	/**
 	 * Finds the bounding box of all the regions.
 	 * Records two points -the left upper corner and the right lower corner of
@@ -47,6 +62,13 @@ public class BoundingBoxFinder{
 	 */
 	public void findBoundingBoxes() {
 		//System.out.println("In findBoundingBoxes method 2.");
+		if (statistics != null) {
+			for (int i = 1; i < noOfLabels; i++) {
+				boundingBoxCorners[2*i] = statistics.getUpperLeft(i);
+				boundingBoxCorners[2*i+1] = statistics.getLowerRight(i);
+			}
+			return;
+		}
 		int[] minRow = new int[noOfLabels];
 		int[] minColumn = new int[noOfLabels];
 		int[] maxRow = new int[noOfLabels];
@@ -0,0 +1,722 @@
+import java.io.*;
+import java.util.*;
+import java.awt.*;
+import java.awt.image.*;
+import java.text.*;
+import javax.imageio.*;
+
+/**
+ * Draws synthetic charts with Java2D, together with their ground truth,
+ * so that the pipeline can be tested and timed without real charts.
+ * <p>
+ * The kinds of chart are "bar", "groupedbar", "line" and "pie". The size
+ * of the image, the number of series (the bars of a group or the lines of
+ * a line graph), the number of categories, the font of the text, the
+ * gridlines and the noise can be set. The fonts are the ones that
+ * <code>simpleOCR</code> has tables for: CB, CO, TB and TR (Courier bold,
+ * Courier, Times bold, Times roman) in 10, 12, 17 and 21 points, e.g.
+ * "TR12". The text is drawn at 72 dots per inch without antialiasing.
+ * The values, names and gray levels of the chart come from a random
+ * number generator, so a seed always gives the same chart.
+ * <p>
+ * The ground truth is written in the xml schema of
+ * <code>Graph.writeXML</code>: the same elements, the same units
+ * (centimeters at 72 dots per inch for bar charts, pixels from the origin
+ * for line graphs) and the same indentation, so that it can be compared to
+ * the xml read by the pipeline. Its values are the ones the chart was drawn
+ * with. A pie chart has a Slice, with a Label, Color and Value (in
+ * percent), for each of its slices.
+ * <p>
+ * The pie charts cannot be used to check the pipeline yet: a chart
+ * without axes makes <code>Graph.addAxes</code> throw a
+ * NullPointerException, as it did before the generator was written, so
+ * every pie chart fails before its xml is written. Their ground truth
+ * follows the schema of <code>Graph.writePieChart</code> but has not
+ * been compared with an output of the pipeline.
+ * <p>
+ * Usage: java ChartGenerator [-type bar|groupedbar|line|pie] [-count n] [-size widthxheight]
+ *                            [-series n] [-categories n] [-font XXnn|random] [-gridlines]
+ *                            [-noise fraction] [-seed n] [-out directory]
+ * <p>
+ * Each chart is written as name.png and its ground truth as name-truth.xml,
+ * where name is the type, the seed and the number of the chart.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ChartGenerator {
+
+	/**
+	 * The kinds of chart that can be drawn.
+	 */
+	public static final String[] CHART_TYPES = {"bar", "groupedbar", "line", "pie"};
+
+	private static final String[] FONT_CODES = {"CB", "CO", "TB", "TR"};
+	private static final int[] FONT_SIZES = {10, 12, 17, 21};
+	private static final int[] GRAY_LEVELS = {0, 76, 150, 216};	//fill of the series
+	private static final int GRID_GRAY = 192;
+	private static final String[] NAMES = {"Apples", "Oranges", "Grapes", "Pears", "Plums", "Lemons", "Peaches",
+	                                       "Cherries", "Melons", "Limes", "Figs", "Dates"};
+	private static final String[] SERIES_NAMES = {"North", "South", "East", "West"};
+	private static final String[] SUBJECTS = {"Fruit sales", "Crop yield", "Exports", "Prices", "Orders"};
+
+	private Random random;
+	private int width = 500;
+	private int height = 400;
+	private int noOfSeries = 2;
+	private int noOfCategories = 5;
+	private String fontName = "TR12";	//or "random"
+	private boolean gridlines = false;
+	private double noise = 0;		//fraction of the pixels set to black or white
+
+	/**
+	 * Constructor.
+	 *
+	 * @param seed The seed of the random values of the charts
+	 */
+	public ChartGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Sets the size of the images.
+	 *
+	 * @param w The width in pixels
+	 * @param h The height in pixels
+	 */
+	public void setSize(int w, int h) {
+		width = w;
+		height = h;
+	}
+
+	/**
+	 * Sets the number of series of grouped bar charts and line graphs;
+	 * at most 4.
+	 *
+	 * @param n The number of series
+	 */
+	public void setSeriesCount(int n) {
+		noOfSeries = Math.max(1, Math.min(n, GRAY_LEVELS.length));
+	}
+
+	/**
+	 * Sets the number of bars (or groups of bars), points of each line,
+	 * or slices.
+	 *
+	 * @param n The number of categories
+	 */
+	public void setCategoryCount(int n) {
+		noOfCategories = Math.max(2, Math.min(n, NAMES.length));
+	}
+
+	/**
+	 * Sets the font of the text.
+	 *
+	 * @param name The name of a font table, e.g. "CB12", or "random" for a different font in each chart
+	 */
+	public void setFont(String name) {
+		fontName = name;
+	}
+
+	/**
+	 * Sets whether bar charts and line graphs have gridlines.
+	 *
+	 * @param on True to draw the gridlines
+	 */
+	public void setGridlines(boolean on) {
+		gridlines = on;
+	}
+
+	/**
+	 * Sets the salt and pepper noise of the images.
+	 *
+	 * @param fraction The fraction of the pixels that are set to black or white
+	 */
+	public void setNoise(double fraction) {
+		noise = fraction;
+	}
+
+	public static void main(String args[]) throws Exception {
+		String type = "bar";
+		int count = 1;
+		long seed = 1;
+		File outDir = new File(".");
+		ChartGenerator generator = null;
+		int w = 500, h = 400, series = 2, categories = 5;
+		String font = "TR12";
+		boolean grid = false;
+		double fraction = 0;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-type") && i+1 < args.length) {
+				type = args[++i];
+			}
+			else if (args[i].equals("-count") && i+1 < args.length) {
+				count = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-size") && i+1 < args.length) {
+				String s = args[++i];
+				w = Integer.parseInt(s.substring(0, s.indexOf('x')));
+				h = Integer.parseInt(s.substring(s.indexOf('x')+1));
+			}
+			else if (args[i].equals("-series") && i+1 < args.length) {
+				series = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-categories") && i+1 < args.length) {
+				categories = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-font") && i+1 < args.length) {
+				font = args[++i];
+			}
+			else if (args[i].equals("-gridlines")) {
+				grid = true;
+			}
+			else if (args[i].equals("-noise") && i+1 < args.length) {
+				fraction = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("-seed") && i+1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-out") && i+1 < args.length) {
+				outDir = new File(args[++i]);
+			}
+			else {
+				type = null;
+				break;
+			}
+		}
+		if (type == null || Arrays.asList(CHART_TYPES).indexOf(type) < 0 || count < 1 || w < 100 || h < 100) {
+			System.out.println("Usage: java ChartGenerator [-type bar|groupedbar|line|pie] [-count n] [-size widthxheight]"
+			                   +" [-series n] [-categories n] [-font XXnn|random] [-gridlines] [-noise fraction]"
+			                   +" [-seed n] [-out directory]");
+			System.exit(2);
+		}
+		generator = new ChartGenerator(seed);
+		generator.setSize(w, h);
+		generator.setSeriesCount(series);
+		generator.setCategoryCount(categories);
+		generator.setFont(font);
+		generator.setGridlines(grid);
+		generator.setNoise(fraction);
+		outDir.mkdirs();
+		for (int i = 0; i < count; i++) {
+			String name = type+"-"+seed+"-"+i;
+			StringWriter truth = new StringWriter();
+			BufferedImage jImage = generator.generate(type, truth);
+			ImageIO.write(jImage, "png", new File(outDir, name+".png"));
+			BufferedWriter ostream = new BufferedWriter(new FileWriter(new File(outDir, name+"-truth.xml")));
+			ostream.write(truth.toString());
+			ostream.close();
+		}
+		System.out.println("Wrote "+count+" charts to "+outDir);
+	}
+
+	/**
+	 * Draws one chart and writes its ground truth.
+	 *
+	 * @param type One of <code>CHART_TYPES</code>
+	 * @param truth The writer that the ground truth is written to
+	 * @return The image of the chart
+	 */
+	public BufferedImage generate(String type, Writer truth) throws IOException {
+		BufferedImage jImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = jImage.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		g.setColor(Color.white);
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.black);
+		String code = fontName;
+		if (code.equals("random")) {
+			code = FONT_CODES[random.nextInt(FONT_CODES.length)]+FONT_SIZES[random.nextInt(FONT_SIZES.length)];
+		}
+		g.setFont(makeFont(code));
+		boolean bold = code.charAt(1) == 'B';
+		String caption = SUBJECTS[random.nextInt(SUBJECTS.length)]+" "+(1990+random.nextInt(20));
+
+		BufferedWriter ostream = new BufferedWriter(truth);
+		ostream.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		ostream.write("<InformationGraphic>\n");
+		if (type.equals("bar")) {
+			drawBarChart(g, ostream, caption, 1, bold);
+		}
+		else if (type.equals("groupedbar")) {
+			drawBarChart(g, ostream, caption, noOfSeries, bold);
+		}
+		else if (type.equals("line")) {
+			drawLineChart(g, ostream, caption, bold);
+		}
+		else if (type.equals("pie")) {
+			drawPieChart(g, ostream, caption, bold);
+		}
+		else {
+			throw new IllegalArgumentException("Unknown chart type "+type);
+		}
+		ostream.write("</InformationGraphic>\n");
+		ostream.flush();
+		g.dispose();
+		addNoise(jImage);
+		return jImage;
+	}
+
+	/**
+	 * Draws a vertical bar chart; with more than one series the bars are
+	 * grouped and a legend names the series.
+	 *
+	 * @param g The graphics of the image
+	 * @param ostream The writer of the ground truth
+	 * @param caption The title of the chart
+	 * @param series The number of bars in each group
+	 * @param bold True if the font is bold
+	 */
+	private void drawBarChart(Graphics2D g, BufferedWriter ostream, String caption, int series, boolean bold) throws IOException {
+		FontMetrics fm = g.getFontMetrics();
+		int lineHeight = fm.getHeight();
+		double[][] values = randomValues(series, noOfCategories);
+		double step = tickStep(max(values));
+		int noOfTicks = (int)Math.ceil(max(values)/step);
+		int left = fm.stringWidth(format(step*noOfTicks)) + 15;
+		int top = 2*lineHeight + 10 + (series > 1 ? lineHeight + 10 : 0);
+		int x0 = left, x1 = width - 15, y0 = top, y1 = height - 2*lineHeight - 10;
+		drawCentered(g, caption, width/2, lineHeight + 5);
+		int[] grays = pickGrays(series);
+		if (series > 1) {
+			drawLegend(g, grays, series, 2*lineHeight + 10);
+		}
+		int[] tickRows = drawMeasurementAxis(g, step, noOfTicks, x0, x1, y0, y1);
+		double pixelsPerValue = (double)(y1 - y0)/(step*noOfTicks);
+		DecimalFormat formater = new DecimalFormat("##0.00");
+
+		ostream.write(series > 1 ? "<GroupedBarChart BarDirection=\"vertical\">\n" : "<BarChart BarDirection=\"vertical\">\n");
+		ostream.write("        <Caption>\n");
+		ostream.write("                <Content>"+caption+"</Content>\n");
+		ostream.write("        </Caption>\n");
+		ostream.write("        <MeasurementAxis Length=\""+formater.format((y1-y0+1)*2.54/72)+"\">\n");
+		writeTickmarks(ostream, step, tickRows, y1);
+		ostream.write("        </MeasurementAxis>\n");
+		ostream.write("        <BarAxis Length=\""+formater.format((x1-x0+1)*2.54/72)+"\">\n");
+		ostream.write("        </BarAxis>\n");
+		if (series > 1) {
+			ostream.write("    <Legend>\n");
+			for (int s = 0; s < series; s++) {
+				ostream.write("            <Series>\n");
+				ostream.write("                <Color>"+toGray(grays[s])+"</Color>\n");
+				writeText(ostream, "Annotation", SERIES_NAMES[s], bold, "                ");
+				ostream.write("            </Series>\n");
+			}
+			ostream.write("  </Legend>\n");
+		}
+
+		int slot = (x1 - x0)/noOfCategories;
+		int barWidth = Math.max(2, (int)(slot*0.7)/series);
+		for (int c = 0; c < noOfCategories; c++) {
+			int groupLeft = x0 + c*slot + (slot - barWidth*series)/2;
+			drawCentered(g, NAMES[c], groupLeft + barWidth*series/2, y1 + lineHeight + 3);
+			if (series > 1) {
+				ostream.write("<Group>\n");
+			}
+			for (int s = 0; s < series; s++) {
+				int barHeight = Math.max(1, (int)Math.round(values[s][c]*pixelsPerValue));
+				int barLeft = groupLeft + s*barWidth;
+				g.setColor(new Color(grays[s], grays[s], grays[s]));
+				g.fillRect(barLeft, y1 - barHeight, barWidth - 1, barHeight);
+				g.setColor(Color.black);
+				g.drawRect(barLeft, y1 - barHeight, barWidth - 1, barHeight);
+				String annotation = format(values[s][c]);
+				drawCentered(g, annotation, barLeft + barWidth/2, y1 - barHeight - 3);
+
+				ostream.write("        <Bar>\n");
+				if (series == 1) {
+					writeText(ostream, "Label", NAMES[c], bold, "                ");
+				}
+				ostream.write("                <Color>"+toGray(grays[s])+"</Color>\n");
+				//The outline makes the bar one row higher; the distance is to its middle column
+				ostream.write("                <Height>"+formater.format((barHeight + 1)*2.54/72)+"</Height>\n");
+				ostream.write("                <AxisDistance>"+formater.format((barLeft + (barWidth - 1)/2 - x0)*2.54/72)+"</AxisDistance>\n");
+				ostream.write("                <SightLine>false</SightLine>\n");
+				ostream.write("                <Value>"+formater.format(values[s][c])+"</Value>\n");
+				writeText(ostream, "Annotation", annotation, bold, "                ");
+				ostream.write("        </Bar>\n");
+			}
+			if (series > 1) {
+				writeText(ostream, "Label", NAMES[c], bold, "                ");
+				ostream.write("</Group>\n");
+			}
+		}
+		ostream.write(series > 1 ? "</GroupedBarChart>\n" : "</BarChart>\n");
+	}
+
+	/**
+	 * Draws a line graph with one line for each series.
+	 *
+	 * @param g The graphics of the image
+	 * @param ostream The writer of the ground truth
+	 * @param caption The title of the chart
+	 * @param bold True if the font is bold
+	 */
+	private void drawLineChart(Graphics2D g, BufferedWriter ostream, String caption, boolean bold) throws IOException {
+		FontMetrics fm = g.getFontMetrics();
+		int lineHeight = fm.getHeight();
+		double[][] values = randomValues(noOfSeries, noOfCategories);
+		double step = tickStep(max(values));
+		int noOfTicks = (int)Math.ceil(max(values)/step);
+		int left = fm.stringWidth(format(step*noOfTicks)) + 15;
+		int x0 = left, x1 = width - 20, y0 = 2*lineHeight + 10, y1 = height - 2*lineHeight - 10;
+		drawCentered(g, caption, width/2, lineHeight + 5);
+		int[] tickRows = drawMeasurementAxis(g, step, noOfTicks, x0, x1, y0, y1);
+		double pixelsPerValue = (double)(y1 - y0)/(step*noOfTicks);
+		int slot = (x1 - x0)/noOfCategories;
+		int[] columns = new int[noOfCategories];
+		String[] years = new String[noOfCategories];
+		int firstYear = 1990 + random.nextInt(15);
+		for (int c = 0; c < noOfCategories; c++) {
+			columns[c] = x0 + c*slot + slot/2;
+			years[c] = String.valueOf(firstYear + c);
+			g.drawLine(columns[c], y1, columns[c], y1 + 4);
+			drawCentered(g, years[c], columns[c], y1 + lineHeight + 3);
+		}
+		int[] grays = pickGrays(noOfSeries);
+		int[][] rows = new int[noOfSeries][noOfCategories];
+		for (int s = 0; s < noOfSeries; s++) {
+			g.setColor(new Color(grays[s], grays[s], grays[s]));
+			for (int c = 0; c < noOfCategories; c++) {
+				rows[s][c] = y1 - (int)Math.round(values[s][c]*pixelsPerValue);
+				if (c > 0) {
+					g.drawLine(columns[c-1], rows[s][c-1], columns[c], rows[s][c]);
+				}
+			}
+		}
+		g.setColor(Color.black);
+
+		NumberFormat nf = NumberFormat.getInstance();
+		ostream.write("<LineGraph>\n");
+		ostream.write("        <Caption>\n");
+		ostream.write("                <Content>"+caption+"</Content>\n");
+		ostream.write("                <Noun/>\n");
+		ostream.write("                <Verb/>\n");
+		ostream.write("                <Adjective/>\n");
+		ostream.write("                <Value/>\n");
+		ostream.write("                <Time/>\n");
+		ostream.write("        </Caption>\n");
+		ostream.write("        <Descriptions>\n");
+		ostream.write("                <Description>\n");
+		ostream.write("                        <Content/>\n");
+		ostream.write("                        <Noun/>\n");
+		ostream.write("                        <Verb/>\n");
+		ostream.write("                        <Adjective/>\n");
+		ostream.write("                        <Value/>\n");
+		ostream.write("                        <Time/>\n");
+		ostream.write("                </Description>\n");
+		ostream.write("        </Descriptions>\n");
+		ostream.write("        <TextInGraphic/>\n");
+		ostream.write("        <TextUnderGraphic/>\n");
+		ostream.write("<XAxis Length= \""+nf.format(x1-x0+1)+"\">\n");
+		for (int c = 0; c < noOfCategories; c++) {
+			ostream.write("                <Tickmark>\n");
+			ostream.write("                        <TickLabelled>true</TickLabelled>\n");
+			ostream.write("                        <TickLabel>"+years[c]+"</TickLabel>\n");
+			ostream.write("                        <GridLine>false</GridLine>\n");
+			ostream.write("                        <Coord><X>"+nf.format(columns[c] - x0)+"</X><Y>0</Y></Coord>\n");
+			ostream.write("                </Tickmark>\n");
+		}
+		ostream.write("</XAxis>\n");
+		ostream.write("<YAxis Length=\""+nf.format(y1-y0+1)+"\">\n");
+		writeTickmarks(ostream, step, tickRows, y1);
+		ostream.write("</YAxis>\n");
+		for (int s = 0; s < noOfSeries; s++) {
+			for (int c = 0; c < noOfCategories; c++) {
+				ostream.write("<SamplePoint>\n");
+				ostream.write("	<Coord><X>"+nf.format(columns[c] - x0)+"</X><Y>"+nf.format(y1 - rows[s][c])+"</Y></Coord>\n");
+				ostream.write("	<OnXGrid>false</OnXGrid><OnYGrid>false</OnYGrid>\n");
+				ostream.write("	<AnnotationOnSample>\n");
+				ostream.write("		<Content/>\n");
+				ostream.write("		<Color/>\n");
+				ostream.write("		<Bold/>\n");
+				ostream.write("		<Type/>\n");
+				ostream.write("	</AnnotationOnSample>\n");
+				ostream.write("	<SalienceOnSample/>\n");
+				ostream.write("</SamplePoint>\n");
+			}
+		}
+		ostream.write("</LineGraph>\n");
+	}
+
+	/**
+	 * Draws a pie chart with a label outside each slice.
+	 * The pipeline cannot read it yet (see the class comment).
+	 *
+	 * @param g The graphics of the image
+	 * @param ostream The writer of the ground truth
+	 * @param caption The title of the chart
+	 * @param bold True if the font is bold
+	 */
+	private void drawPieChart(Graphics2D g, BufferedWriter ostream, String caption, boolean bold) throws IOException {
+		FontMetrics fm = g.getFontMetrics();
+		int lineHeight = fm.getHeight();
+		drawCentered(g, caption, width/2, lineHeight + 5);
+		double[] values = randomValues(1, noOfCategories)[0];
+		double total = 0;
+		for (int c = 0; c < values.length; c++) {
+			total += values[c];
+		}
+		int labelWidth = 0;
+		for (int c = 0; c < values.length; c++) {
+			labelWidth = Math.max(labelWidth, fm.stringWidth(NAMES[c]));
+		}
+		int centerX = width/2, centerY = (height + 2*lineHeight)/2;
+		int radius = Math.max(10, Math.min(width/2 - labelWidth - 10, (height - 2*lineHeight)/2 - lineHeight - 10));
+		DecimalFormat formater = new DecimalFormat("##0.00");
+		ostream.write("<PieChart NumberOfSlices=\""+values.length+"\">\n");
+		double angle = 90;
+		for (int c = 0; c < values.length; c++) {
+			double sweep = 360*values[c]/total;
+			int gray = GRAY_LEVELS[c % GRAY_LEVELS.length] + (c/GRAY_LEVELS.length)*20;
+			g.setColor(new Color(gray, gray, gray));
+			g.fillArc(centerX - radius, centerY - radius, 2*radius, 2*radius, (int)Math.round(angle), -(int)Math.round(sweep));
+			g.setColor(Color.black);
+			double middle = Math.toRadians(angle - sweep/2);
+			int labelX = centerX + (int)Math.round(Math.cos(middle)*(radius + 8));
+			int labelY = centerY - (int)Math.round(Math.sin(middle)*(radius + 8));
+			if (Math.cos(middle) < 0) {
+				labelX -= fm.stringWidth(NAMES[c]);
+			}
+			g.drawString(NAMES[c], labelX, labelY + fm.getAscent()/2);
+			angle -= sweep;
+
+			ostream.write("<Slice>\n");
+			ostream.write("<Label>"+NAMES[c]+"</Label>\n");
+			ostream.write("<Color>"+toGray(gray)+"</Color>\n");
+			ostream.write("<Value>"+formater.format(100*values[c]/total)+"</Value>\n");
+			ostream.write("</Slice>\n");
+		}
+		g.drawOval(centerX - radius, centerY - radius, 2*radius, 2*radius);
+		ostream.write("</PieChart>\n");
+	}
+
+	/**
+	 * Draws the axes of a bar chart or line graph, the tickmarks and labels
+	 * of the vertical axis and, if they are on, the gridlines.
+	 *
+	 * @param g The graphics of the image
+	 * @param step The value between two tickmarks
+	 * @param noOfTicks The number of tickmarks above the origin
+	 * @param x0 The column of the vertical axis
+	 * @param x1 The last column of the horizontal axis
+	 * @param y0 The first row of the vertical axis
+	 * @param y1 The row of the horizontal axis
+	 * @return The rows of the tickmarks, from the origin up
+	 */
+	private int[] drawMeasurementAxis(Graphics2D g, double step, int noOfTicks, int x0, int x1, int y0, int y1) {
+		FontMetrics fm = g.getFontMetrics();
+		int[] tickRows = new int[noOfTicks + 1];
+		for (int t = 0; t <= noOfTicks; t++) {
+			tickRows[t] = y1 - (int)Math.round((double)t*(y1 - y0)/noOfTicks);
+			if (gridlines && t > 0) {
+				g.setColor(new Color(GRID_GRAY, GRID_GRAY, GRID_GRAY));
+				g.drawLine(x0 + 1, tickRows[t], x1, tickRows[t]);
+			}
+			g.setColor(Color.black);
+			g.drawLine(x0 - 4, tickRows[t], x0, tickRows[t]);
+			String label = format(step*t);
+			g.drawString(label, x0 - 7 - fm.stringWidth(label), tickRows[t] + fm.getAscent()/2 - 1);
+		}
+		g.setColor(Color.black);
+		g.drawLine(x0, y0, x0, y1);
+		g.drawLine(x0, y1, x1, y1);
+		return tickRows;
+	}
+
+	/**
+	 * Draws the legend of a grouped bar chart: a box of the gray of each
+	 * series followed by its name, in one row.
+	 *
+	 * @param g The graphics of the image
+	 * @param grays The gray levels of the series
+	 * @param series The number of series
+	 * @param baseline The baseline of the text of the legend
+	 */
+	private void drawLegend(Graphics2D g, int[] grays, int series, int baseline) {
+		FontMetrics fm = g.getFontMetrics();
+		int box = fm.getAscent();
+		int legendWidth = 0;
+		for (int s = 0; s < series; s++) {
+			legendWidth += box + 5 + fm.stringWidth(SERIES_NAMES[s]) + 15;
+		}
+		int x = Math.max(5, (width - legendWidth)/2);
+		for (int s = 0; s < series; s++) {
+			g.setColor(new Color(grays[s], grays[s], grays[s]));
+			g.fillRect(x, baseline - box, box, box);
+			g.setColor(Color.black);
+			g.drawRect(x, baseline - box, box, box);
+			g.drawString(SERIES_NAMES[s], x + box + 5, baseline);
+			x += box + 5 + fm.stringWidth(SERIES_NAMES[s]) + 15;
+		}
+	}
+
+	/**
+	 * Writes the tickmarks of the measurement axis to the ground truth.
+	 *
+	 * @param ostream The writer of the ground truth
+	 * @param step The value between two tickmarks
+	 * @param tickRows The rows of the tickmarks, from the origin up
+	 * @param originRow The row of the origin
+	 */
+	private void writeTickmarks(BufferedWriter ostream, double step, int[] tickRows, int originRow) throws IOException {
+		DecimalFormat formater = new DecimalFormat("##0.00");
+		NumberFormat nf = NumberFormat.getInstance();
+		for (int t = 0; t < tickRows.length; t++) {
+			ostream.write("                <Tickmark>\n");
+			ostream.write("                        <TickLabelled>true</TickLabelled>\n");
+			ostream.write("                        <TickLabel>"+format(step*t)+"</TickLabel>\n");
+			ostream.write("                        <TickValue>"+formater.format(step*t)+"</TickValue>\n");
+			ostream.write("                        <GridLine>"+(gridlines && t > 0)+"</GridLine>\n");
+			ostream.write("                        <Coord><X>0</X><Y>"+nf.format(originRow - tickRows[t])+"</Y></Coord>\n");
+			ostream.write("                </Tickmark>\n");
+		}
+	}
+
+	/**
+	 * Writes a text element (Label or Annotation) to the ground truth.
+	 * The text of the charts is always black.
+	 *
+	 * @param ostream The writer of the ground truth
+	 * @param element The name of the element
+	 * @param text The text
+	 * @param bold True if the font is bold
+	 * @param indent The indentation of the element
+	 */
+	private static void writeText(BufferedWriter ostream, String element, String text, boolean bold, String indent) throws IOException {
+		ostream.write(indent+"<"+element+">\n");
+		ostream.write(indent+"        <Content>"+text+"</Content>\n");
+		ostream.write(indent+"        <Color>0</Color>\n");
+		ostream.write(indent+"        <Bold>"+bold+"</Bold>\n");
+		ostream.write(indent+"</"+element+">\n");
+	}
+
+	/**
+	 * Sets a fraction of the pixels of the image to black or white.
+	 *
+	 * @param jImage The image
+	 */
+	private void addNoise(BufferedImage jImage) {
+		if (noise <= 0) {
+			return;
+		}
+		int n = (int)(noise*width*height);
+		for (int i = 0; i < n; i++) {
+			jImage.setRGB(random.nextInt(width), random.nextInt(height), random.nextBoolean() ? 0xffffff : 0);
+		}
+	}
+
+	/**
+	 * Returns the java font that matches a font table of simpleOCR.
+	 * Courier and Times are used if they are installed, otherwise the
+	 * monospaced and serif fonts of the java virtual machine.
+	 *
+	 * @param code The name of the font table, e.g. "TB17"
+	 */
+	private static Font makeFont(String code) {
+		if (code.length() < 3 || Arrays.asList(FONT_CODES).indexOf(code.substring(0, 2)) < 0) {
+			throw new IllegalArgumentException("Unknown font "+code);
+		}
+		boolean courier = code.charAt(0) == 'C';
+		int style = code.charAt(1) == 'B' ? Font.BOLD : Font.PLAIN;
+		int size = Integer.parseInt(code.substring(2));
+		String family = courier ? "Courier" : "Times";
+		String[] installed = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+		if (Arrays.asList(installed).indexOf(family) < 0) {
+			family = courier ? Font.MONOSPACED : Font.SERIF;
+		}
+		return new Font(family, style, size);
+	}
+
+	/**
+	 * Returns random values, between 10% and 100% of a random maximum.
+	 *
+	 * @param series The number of series
+	 * @param categories The number of values of each series
+	 */
+	private double[][] randomValues(int series, int categories) {
+		double[] maxima = {10, 50, 100, 500, 1000};
+		double maximum = maxima[random.nextInt(maxima.length)];
+		double[][] values = new double[series][categories];
+		for (int s = 0; s < series; s++) {
+			for (int c = 0; c < categories; c++) {
+				values[s][c] = Math.round(maximum*(0.1 + 0.9*random.nextDouble()));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the gray levels of the series in a random order.
+	 *
+	 * @param series The number of series
+	 */
+	private int[] pickGrays(int series) {
+		LinkedList grays = new LinkedList();
+		for (int i = 0; i < GRAY_LEVELS.length; i++) {
+			grays.add(Integer.valueOf(GRAY_LEVELS[i]));
+		}
+		Collections.shuffle(grays, random);
+		int[] picked = new int[series];
+		for (int s = 0; s < series; s++) {
+			picked[s] = ((Integer)grays.get(s)).intValue();
+		}
+		return picked;
+	}
+
+	/**
+	 * Returns the gray value that <code>BWImageG.loadJavaImage</code> reads
+	 * for a pixel drawn in the given gray.
+	 *
+	 * @param gray The red, green and blue value of the pixel
+	 */
+	private static int toGray(int gray) {
+		return (int)(0.3*gray + 0.59*gray + 0.11*gray);
+	}
+
+	/**
+	 * Returns the distance between two tickmarks: 1, 2 or 5 times a power
+	 * of ten, so that the axis has 4 to 10 tickmarks.
+	 *
+	 * @param maximum The largest value of the chart
+	 */
+	private static double tickStep(double maximum) {
+		double power = Math.pow(10, Math.floor(Math.log10(maximum)));
+		double[] factors = {0.1, 0.2, 0.5, 1, 2, 5};
+		for (int i = 0; i < factors.length; i++) {
+			if (maximum/(factors[i]*power) <= 10) {
+				return factors[i]*power;
+			}
+		}
+		return 10*power;
+	}
+
+	private static double max(double[][] values) {
+		double m = 0;
+		for (int s = 0; s < values.length; s++) {
+			for (int c = 0; c < values[s].length; c++) {
+				m = Math.max(m, values[s][c]);
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Returns a value as it is written on the chart: without decimals if
+	 * it is a whole number.
+	 *
+	 * @param value The value
+	 */
+	private static String format(double value) {
+		if (value == Math.rint(value)) {
+			return String.valueOf((long)value);
+		}
+		return new DecimalFormat("##0.##").format(value);
+	}
+
+	private static void drawCentered(Graphics2D g, String text, int x, int baseline) {
+		g.drawString(text, x - g.getFontMetrics().stringWidth(text)/2, baseline);
+	}
+}
@@ -9,6 +9,7 @@ import java.util.ListIterator;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class ConnectedLine {
 	private LinkedList primitives;
 	private int orientation;
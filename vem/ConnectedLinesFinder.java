@@ -8,6 +8,7 @@ import java.awt.Point;
  * All primitives that are not part of an axis, a tick mark, a rectangle or
  * a wedge are considered to be part of a connected line.
  */
+@SuppressWarnings({"rawtypes", "unchecked", "cast", "static"})
 public class ConnectedLinesFinder {
   private int imageHeight;    // #rows in the input image
 	private int imageWidth;     // #columns in the input image
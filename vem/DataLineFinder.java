@@ -6,6 +6,7 @@ import java.awt.Point;
  * A class to find if the given connected lines form a data line for 
  * a line chart.
  */
+@SuppressWarnings("rawtypes")
 public class DataLineFinder {
 
 	private LinkedList allConnectedLines;
@@ -9,18 +9,35 @@ import java.lang.reflect.*;
 
 /**
  * A class to dilate a given image.
+ * <p>
+ * Binary images (one value for all the pixels that are not background)
+ * are dilated a word at a time as a <code>BitImage</code>. Images with
+ * more values are dilated pixel by pixel; where the dilations of two
+ * pixels overlap, the one that comes later in row order wins.
  *
  * @author Chart Reading project
  * @version 1.0
  */
 public class Dilator {
 
+	private ArtifactSink artifacts;	//where dilate2 sends its image
+
 	/**
-	 * Constructor
+	 * Constructor. The dilated images are not saved.
 	 *
 	 * @param none
 	 */
 	public Dilator() {
+		this(new DisabledArtifactSink());
+	}
+
+	/**
+	 * Constructor. dilate2 sends its image to the given sink as dilated2.pgm.
+	 *
+	 * @param aSink The artifact sink
+	 */
+	public Dilator(ArtifactSink aSink) {
+		artifacts = aSink;
 	}
 
 	/**
@@ -35,7 +52,11 @@ public class Dilator {
 	 */
 	public int[][] dilate(int[][] inImage, int imageRows, int imageColumns, int bPix) {
 //System.out.println("bPix = " + bPix);
-		//Dilation of a binary image
+		int value1 = getForegroundValue(inImage, imageRows, imageColumns, bPix);
+		if (value1 != -1) {
+			return dilate(new BitImage(inImage, imageRows, imageColumns, bPix)).toArray(value1, bPix);
+		}
+		//Dilation of an image with more than one value
 		int i, j, m, value, r, c;
 		int[] rowPos = {-1, -1, -1, 0, 1, 1, 1, 0, 0};
 		int[] colPos = {1, 0, -1, -1, -1, 0, 1, 1, 0};
@@ -76,6 +97,53 @@ public class Dilator {
 		return dilatedImage;
   }	
 
+	/**
+	 * Returns the dilation of a binary image by the 3x3 square,
+	 * the structuring element of <code>dilate</code>.
+	 *
+	 * @param inImage The image to be dilated
+	 * @return The dilated image
+	 */
+	public BitImage dilate(BitImage inImage) {
+		return inImage.dilate();
+	}
+
+	/**
+	 * Returns the dilation of a binary image by the structuring element
+	 * of <code>dilate2</code>, which grows the regions up and to the left.
+	 *
+	 * @param inImage The image to be dilated
+	 * @return The dilated image
+	 */
+	public BitImage dilate2(BitImage inImage) {
+		return inImage.dilateUpLeft();
+	}
+
+	/**
+	 * Returns the value of the pixels that are not background if they
+	 * all have the same value, the background value if there are none,
+	 * or -1 if they have more than one value.
+	 *
+	 * @param inImage The image
+	 * @param imageRows The number of rows 
+	 * @param imageColumns The number of columns
+	 * @param bPix The value of the background pixels
+	 */
+	private static int getForegroundValue(int[][] inImage, int imageRows, int imageColumns, int bPix) {
+		int value1 = bPix;
+		for (int i = 0; i < imageRows; i++) {
+			int[] aRow = inImage[i];
+			for (int j = 0; j < imageColumns; j++) {
+				int v = aRow[j];
+				if (v != bPix) {
+					if (value1 != bPix && v != value1) return -1;
+					value1 = v;
+				}
+			}
+		}
+		return value1;
+	}
+
  	/**
 	 * Defines the structuring elements used for character dilation.
 	 *
@@ -96,36 +164,46 @@ public class Dilator {
 */
 
 	public int[][] dilate2(int[][] inImage, int imageRows, int imageColumns, int bPix) {
-		//Dilation of a binary image
-		int i, j, m, value, r, c;
-		int[] rowPos = {-1, -1, -1, 0, 1, 1, 1, 0, 0};
-		int[] colPos = {1, 0, -1, -1, -1, 0, 1, 1, 0};
-		int[][] dilatedImage = new int[imageRows][imageColumns];
-		for (i = 0; i < imageRows; i++) {
-			for (j = 0; j < imageColumns; j++) {
-				dilatedImage[i][j] = bPix;
-			}
+		int[][] dilatedImage;
+		int value1 = getForegroundValue(inImage, imageRows, imageColumns, bPix);
+		if (value1 != -1) {
+			dilatedImage = dilate2(new BitImage(inImage, imageRows, imageColumns, bPix)).toArray(value1, bPix);
 		}
-		int[] arr = {0,1,1,1,0,0,0,0,1};
-		for (i = 0; i < imageRows; i++) {
-			for (j = 0; j < imageColumns; j++) {
-				value = inImage[i][j];
-				if (value != bPix && arr[8] == 1) {
-					for (m = 0; m < 9; m++) {
-						r = i + rowPos[m];
-						c = j + colPos[m];
-						if (arr[m] == 1 && r >= 0 && c >= 0 && r < imageRows && c < imageColumns) {
-							dilatedImage[r][c] = value;
+		else {
+			//Dilation of an image with more than one value
+			int i, j, m, value, r, c;
+			int[] rowPos = {-1, -1, -1, 0, 1, 1, 1, 0, 0};
+			int[] colPos = {1, 0, -1, -1, -1, 0, 1, 1, 0};
+			dilatedImage = new int[imageRows][imageColumns];
+			for (i = 0; i < imageRows; i++) {
+				for (j = 0; j < imageColumns; j++) {
+					dilatedImage[i][j] = bPix;
+				}
+			}
+			int[] arr = {0,1,1,1,0,0,0,0,1};
+			for (i = 0; i < imageRows; i++) {
+				for (j = 0; j < imageColumns; j++) {
+					value = inImage[i][j];
+					if (value != bPix && arr[8] == 1) {
+						for (m = 0; m < 9; m++) {
+							r = i + rowPos[m];
+							c = j + colPos[m];
+							if (arr[m] == 1 && r >= 0 && c >= 0 && r < imageRows && c < imageColumns) {
+								dilatedImage[r][c] = value;
+							}
 						}
 					}
 				}
 			}
 		}
 //DLC
-            BWImageG.save("dilated2.pgm",
-                          dilatedImage,
-                          Array.getLength(dilatedImage),
-                          Array.getLength(dilatedImage[0]));
+            if (artifacts.isEnabled()) {
+                artifacts.write("dilated2.pgm",
+                                BWImageG.makePGM(dilatedImage,
+                                                 Array.getLength(dilatedImage),
+                                                 Array.getLength(dilatedImage[0]),
+                                                 false));
+            }
 
 //DLC
 		return dilatedImage;
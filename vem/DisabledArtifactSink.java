@@ -0,0 +1,20 @@
+/**
+ * An <code>ArtifactSink</code> that keeps nothing.
+ * Since <code>isEnabled</code> returns false, the pipeline does not
+ * even build the diagnostic images.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class DisabledArtifactSink implements ArtifactSink {
+
+	public boolean isEnabled() {
+		return false;
+	}
+
+	public void write(String name, byte[] data) {
+	}
+
+	public void flush() {
+	}
+}
@@ -0,0 +1,205 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * An immutable library of the character templates that <code>simpleOCR</code>
+ * matches the characters of a chart against.
+ * <p>
+ * Each font (Times bold/roman and Courier bold/oblique in 10, 12, 17 and 21
+ * points) is loaded from its XXfontTable file. A font table file has the
+ * number of characters on its first line and then, for each character, the
+ * character, the number of rows, the number of columns and one line of 0s
+ * and 1s for each row of the character image.
+ * <p>
+ * A library is loaded once and is never changed afterwards, so one library
+ * can be shared by any number of <code>BWImageG</code> pipelines running in
+ * different threads. The template arrays handed out by
+ * <code>getFontTable</code> must not be modified.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class FontLibrary {
+
+	/**
+	 * The names of the fonts, in the order that <code>simpleOCR.decideChar</code>
+	 * tries them. The font table of font XX is read from the file XXfontTable.
+	 */
+	public static final String[] FONT_NAMES = {
+		"TB21", "TR21", "TB17", "TR17", "TB12", "TR12", "TB10", "TR10",
+		"CB21", "CO21", "CB17", "CO17", "CB12", "CO12", "CB10", "CO10"};
+
+	private static FontLibrary defaultLibrary; //loaded from the working directory
+
+	private final String[] fontNames;				//names of the loaded fonts
+	private final int[][][][] fontTables;		//character images of each font
+	private final String[][] charTables;		//characters of each font
+	private final String fingerprint;				//hash of all the templates
+
+	/**
+	 * Constructor. Only the load methods create libraries.
+	 *
+	 * @param names The names of the fonts
+	 * @param fonts The character images of each font
+	 * @param chars The characters of each font
+	 */
+	private FontLibrary(String[] names, int[][][][] fonts, String[][] chars) {
+		fontNames = names;
+		fontTables = fonts;
+		charTables = chars;
+		fingerprint = makeFingerprint();
+	}
+
+	/**
+	 * Returns the sha-256 hash, in hex, of the names, the characters and
+	 * the templates of all the fonts.
+	 *
+	 * @param none
+	 */
+	private String makeFingerprint() {
+		java.security.MessageDigest digest = ResultCache.newDigest();
+		for (int f = 0; f < fontNames.length; f++) {
+			digest.update(fontNames[f].getBytes());
+			for (int i = 0; i < charTables[f].length; i++) {
+				int[][] template = fontTables[f][i];
+				digest.update((charTables[f][i]+" "+template.length+" "+(template.length > 0 ? template[0].length : 0)+"\n").getBytes());
+				for (int j = 0; j < template.length; j++) {
+					for (int k = 0; k < template[j].length; k++) {
+						digest.update((byte)template[j][k]);
+					}
+				}
+			}
+		}
+		return ResultCache.toHex(digest.digest());
+	}
+
+	/**
+	 * Returns the library loaded from the font tables in the working directory.
+	 * The tables are read the first time this method is called; later calls
+	 * return the same library.
+	 *
+	 * @param none
+	 * @return The shared library of the working directory
+	 */
+	public static synchronized FontLibrary getDefault() {
+		if (defaultLibrary == null) {
+			defaultLibrary = load(".");
+		}
+		return defaultLibrary;
+	}
+
+	/**
+	 * Loads all the fonts in <code>FONT_NAMES</code> from the given directory.
+	 * A font whose table cannot be read is reported and left out of the
+	 * library.
+	 *
+	 * @param directory The directory of the XXfontTable files
+	 * @return The library of the fonts that could be read
+	 */
+	public static FontLibrary load(String directory) {
+		LinkedList names = new LinkedList();
+		LinkedList fonts = new LinkedList();
+		LinkedList chars = new LinkedList();
+		for (int f = 0; f < FONT_NAMES.length; f++) {
+			try {
+				BufferedReader x = new BufferedReader(new FileReader(new File(directory, FONT_NAMES[f]+"fontTable")));
+				try {
+					int n = Integer.parseInt(x.readLine().trim());
+					int[][][] fontTable = new int[n][][];
+					String[] charTable = new String[n];
+					loadOneFont(fontTable, charTable, x);
+					names.add(FONT_NAMES[f]);
+					fonts.add(fontTable);
+					chars.add(charTable);
+				}
+				finally {
+					x.close();
+				}
+			}
+			catch(Exception e) {System.out.println(e.getMessage());}
+		}
+		return new FontLibrary((String[])names.toArray(new String[0]),
+		                       (int[][][][])fonts.toArray(new int[0][][][]),
+		                       (String[][])chars.toArray(new String[0][]));
+	}
+
+	/**
+	 * Reads the characters of one font table.
+	 * Template pixels are 0 (black) or 255 (white).
+	 *
+	 * @param fontTable The array that the character images are read into
+	 * @param charTable The array that the characters are read into
+	 * @param x The reader positioned after the number of characters
+	 */
+	private static void loadOneFont(int[][][] fontTable, String[] charTable, BufferedReader x) throws IOException {
+		String s;
+		int i, j, k, rows, cols;
+		for (i = 0; i < charTable.length; i++) {
+			charTable[i] = x.readLine().trim();
+			rows = Integer.parseInt(x.readLine().trim());
+			cols = Integer.parseInt(x.readLine().trim());
+			fontTable[i] = new int[rows][cols];
+			for (j = 0; j < rows; j++) {
+				s = x.readLine().trim();
+				for (k = 0; k < cols; k++) {
+					if (s.charAt(k) == '0')
+						fontTable[i][j][k] = 0;
+					else
+						fontTable[i][j][k] = 255;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of fonts in the library.
+	 *
+	 * @param none
+	 * @return The number of fonts
+	 */
+	public int getNoOfFonts() {
+		return fontNames.length;
+	}
+
+	/**
+	 * Returns the four letter name of a font, e.g. TB21.
+	 *
+	 * @param i The index of the font
+	 * @return The name of the font
+	 */
+	public String getFontName(int i) {
+		return fontNames[i];
+	}
+
+	/**
+	 * Returns a hash of all the templates of the library. Two libraries
+	 * with the same fingerprint read the same characters.
+	 *
+	 * @param none
+	 * @return The sha-256 hash in hex
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Returns the character images of a font. Must not be modified.
+	 *
+	 * @param i The index of the font
+	 * @return The character images of the font
+	 */
+	int[][][] getFontTable(int i) {
+		return fontTables[i];
+	}
+
+	/**
+	 * Returns the characters of a font. Must not be modified.
+	 *
+	 * @param i The index of the font
+	 * @return The characters of the font, in the order of the font table
+	 */
+	String[] getCharTable(int i) {
+		return charTables[i];
+	}
+}
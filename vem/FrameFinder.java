@@ -18,9 +18,10 @@ public class FrameFinder {
 	private int imageWidth;     //number of columns in the input image
  	private int bPixLabel; 			//background label
 
-	private int[][] borderImage;  //Labelled image
+	private Raster borderImage;  //Labelled image
 	private int noOfLabels;
 	private Region[] allRegions;
+	private RegionStatistics statistics; //of the pixels of each label in borderImage
 
 	private PointPixel upperLeft;
 	private PointPixel lowerRight;
@@ -28,14 +29,32 @@ public class FrameFinder {
  /**
 	* Constructor
 	*
- 	* @param inImage The input image whose frame is to be found
+ 	* @param inImage The LABELS raster of the input image whose frame is to be found
 	* @param labelCount The number of regions in the image
 	* @param imageRows The number of rows 
 	* @param imageColumns The number of columns
 	* @param regions The Region array of all regions in the image
 	* @param bPix The label of the background pixel
 	*/
-	public FrameFinder(int[][] inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix) {
+	public FrameFinder(Raster inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix) {
+		this(inImage, labelCount, imageRows, imageColumns, regions, bPix,
+		     RegionStatistics.fromLabels(inImage, labelCount));
+	}
+
+ /**
+	* Constructor. The centroids and variances of the regions are taken from
+	* the statistics of the input image instead of being found again.
+	*
+ 	* @param inImage The LABELS raster of the input image whose frame is to be found
+	* @param labelCount The number of regions in the image
+	* @param imageRows The number of rows 
+	* @param imageColumns The number of columns
+	* @param regions The Region array of all regions in the image
+	* @param bPix The label of the background pixel
+	* @param imageStatistics The statistics of the labels of the input image (see <code>Border.getStatistics</code>)
+	*/
+	public FrameFinder(Raster inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix, RegionStatistics imageStatistics) {
+		statistics = imageStatistics;
 		borderImage = inImage;
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
@@ -59,7 +78,7 @@ public class FrameFinder {
 		int checkWidth = imageWidth - imageWidth/10;
 		int label;
 		for (int i = 0; i < imageHeight/10; i++) {
-			label = borderImage[i][i];
+			label = borderImage.get(i, i);
 			if (label != bPixLabel) {
 				if (isFrame(label, checkHeight, checkWidth)) {
 					allRegions[label].setIsFrame(true);
@@ -175,22 +194,7 @@ public class FrameFinder {
 	 * @return Array of doubles; first element is the row number of the centroid, second is the column number of the centroid.
    */
 	private double[] findCentroid(int label, PointPixel upperLeft, PointPixel lowerRight) {
-		int count = 0;
-		int sumRow = 0;
-		int sumColumn = 0;
-		double[] cent = new double[2];
-		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
-			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (borderImage[i][j] == label) {
-					count++;
-					sumRow += i;
-					sumColumn += j;
-				}
-			}
-		}			
-		cent[0] = (double)sumRow/(double)count;
-		cent[1] = (double)sumColumn/(double)count;
-		return cent;	
+		return statistics.getCentroid(label);
 	}
 
   /**
@@ -202,23 +206,7 @@ public class FrameFinder {
 	 * @return Array of doubles; first element is the row variance, second is the column variance
    */
 	private double[] findVariance(int label, PointPixel upperLeft, PointPixel lowerRight) {
-		int count = 0;
-		double sumRow = 0;
-		double sumColumn = 0;
-		double[] variance = new double[2];
-		double[] cent = findCentroid(label, upperLeft, lowerRight);
-		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
-			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (borderImage[i][j] == label) {
-					count++;
-					sumRow += (i-cent[0]) * (i-cent[0]);
-					sumColumn += (j-cent[1]) * (j-cent[1]);
-				}
-			}
-		}			
-		variance[0] = sumRow/(double)count;
-		variance[1] = sumColumn/(double)count;
-		return variance;	
+		return statistics.getVariance(label);
 	}
 
   /**
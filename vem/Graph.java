@@ -15,6 +15,7 @@ import java.text.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Graph {
 
 	public final int UNKNOWNCHART = 0;
@@ -1010,6 +1011,27 @@ System.out.println("found a legend rectangle");
 		return rectangles.size();
 	}
 
+	/**
+	 * Returns the number of bars.
+ 	 * 
+	 * @param none
+	 * @return The number of bars.
+ 	 */
+	public int getNoOfBars() {
+		return noOfBars;
+	}
+
+	/**
+	 * Returns the type of the chart found so far; UNKNOWNCHART, BARCHART,
+	 * LINECHART or PIECHART.
+ 	 * 
+	 * @param none
+	 * @return The type of the chart.
+ 	 */
+	public int getChartType() {
+		return chartType;
+	}
+
 	/**
 	 * Returns the number of wedges.
  	 * 
@@ -1219,9 +1241,17 @@ System.out.println("found a legend rectangle");
 		return message;
 	}
 
+	/**
+	 * Writes the chart type, the data values and the text of the graph
+	 * to the given xml file.
+	 *
+	 * @param filename The name of the xml file
+	 * @param allRegions The array of all the regions of the image
+	 * @param firstPixelLabel The LABELS raster of the image, before the regions were removed
+	 */
 	public void writeXML(String filename,
                              Region[] allRegions,
-                             int[][] firstPixelLabel) {
+                             Raster firstPixelLabel) {
 
 
 
@@ -1234,6 +1264,34 @@ System.out.println("found a legend rectangle");
 	    try {
 	        BufferedWriter ostream =
 		    new BufferedWriter(new FileWriter(filename));
+                writeXMLDocument(ostream, allRegions, firstPixelLabel);
+	ostream.close();
+    }
+    catch (Exception e) {System.out.println(e.getMessage());}
+}
+
+	/**
+	 * Same as <code>writeXML(String, Region[], Raster)</code>, but the xml
+	 * document is written to the given writer, which is flushed and left open.
+	 *
+	 * @param out The writer that the xml document is written to
+	 * @param allRegions The array of all the regions of the image
+	 * @param firstPixelLabel The LABELS raster of the image, before the regions were removed
+	 */
+	public void writeXML(Writer out,
+                             Region[] allRegions,
+                             Raster firstPixelLabel) throws IOException {
+            makeLinearScale(VERTICAL);
+            makeLinearScale(HORIZONTAL);
+            classifyTextBlocks();
+	    BufferedWriter ostream = new BufferedWriter(out);
+            writeXMLDocument(ostream, allRegions, firstPixelLabel);
+	    ostream.flush();
+}
+
+void writeXMLDocument(BufferedWriter ostream,
+                      Region[] allRegions,
+                      Raster firstPixelLabel) throws IOException {
                 ostream.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
 		ostream.write("<InformationGraphic>\n");
 
@@ -1246,14 +1304,11 @@ System.out.println(chartType);
 	    case 3: writePieChart(ostream); break;
 	}
 	ostream.write("</InformationGraphic>\n");
-	ostream.close();
-    }
-    catch (Exception e) {System.out.println(e.getMessage());}
 }
 
 void writeBarChart(BufferedWriter ostream,
                    Region[] allRegions,
-                   int [][] firstPixelLabel) {
+                   Raster firstPixelLabel) {
     ListIterator lItr;
     TextBlock tb;
     WordCompare wc = new WordCompare();
@@ -1408,7 +1463,7 @@ void writePieChart(BufferedWriter ostream) {
 
 void writeLineChart(BufferedWriter ostream,
                    Region[] allRegions,
-                   int [][] firstPixelLabel) {
+                   Raster firstPixelLabel) {
     ListIterator lItr;
     TextBlock tb;
     findPointLabels(allRegions, firstPixelLabel);
@@ -1577,7 +1632,7 @@ void writeYTitleWords(BufferedWriter ostream) {
 void writeLabel(Rectangle aBar,
                   BufferedWriter ostream,
                   Region[] allRegions,
-                  int[][] firstPixelLabel) {
+                  Raster firstPixelLabel) {
           Region testRegion;
           try {
                 if (!aBar.getLabelBlocks().isEmpty()) {
@@ -1616,7 +1671,7 @@ void writeLabel(Rectangle aBar,
 void writeAnnotation(Rectangle aBar,
                   BufferedWriter ostream,
                   Region[] allRegions,
-                  int[][] firstPixelLabel) {
+                  Raster firstPixelLabel) {
     Region testRegion;
     Word testWord;
     LinkedList testList;
@@ -1660,7 +1715,7 @@ firstPixelLabel))
 void writeBarData(BufferedWriter ostream,
                   int direction,
                   Region[] allRegions,
-                  int[][] firstPixelLabel) {
+                  Raster firstPixelLabel) {
     Rectangle aBar;
     Object[] rectangleArray;
     Word testWord;
@@ -2496,7 +2551,7 @@ void getRefPoints(int[] v,int i,Object[] anArray,int direction){
   if (v[1] == -1 || v[2] == -1) System.out.println("PROBLEM! not enough labelled ticks");
   return;}
 
-boolean isBold(Word aWord, Region[] allRegions, int[][] firstPixelLabel) {
+boolean isBold(Word aWord, Region[] allRegions, Raster firstPixelLabel) {
 //System.out.println("in isBold");
   double r;
   int n;
@@ -2632,12 +2687,12 @@ void writeTickmarks(BufferedWriter ostream, int direction) {
           ostream.write("                </Tickmark>\n");}}
      catch (Exception e) {System.out.println(e.getMessage());}}
 
-int countPixels(int label,PointPixel ul, PointPixel lr, int[][] firstPixelLabel) {
+int countPixels(int label,PointPixel ul, PointPixel lr, Raster firstPixelLabel) {
   int numPixels = 0;
   int i,j;
   for (i = ul.getRow(); i<=lr.getRow();i++) 
     for (j = ul.getColumn(); j<=lr.getColumn();j++)
-       if (label == firstPixelLabel[i][j]) numPixels++;
+       if (label == firstPixelLabel.get(i, j)) numPixels++;
   return numPixels;}
 
 LinkedList findChartXTitle() {
@@ -3133,7 +3188,7 @@ System.out.println("added to XTitle");
      */
 
     public void findPointLabels(Region[] allRegions,
-                                int[][] firstPixelLabel) {
+                                Raster firstPixelLabel) {
         int i;
         TextBlock aBlock;
         for (i = 1; i< allRegions.length;i++){
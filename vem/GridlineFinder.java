@@ -24,6 +24,7 @@ import java.awt.Point;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class GridlineFinder {
 
   private int imageHeight;    //number of rows in the input image
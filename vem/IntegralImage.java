@@ -0,0 +1,167 @@
+/**
+ * The summed-area tables of a gray raster: the sum of the values and the
+ * sum of their squares over the rectangle from the upper left corner to
+ * each pixel. The sum, mean and variance of any rectangle of the image are
+ * then found from its four corners, whatever its size.
+ * <p>
+ * The tables have one more row and one more column than the image, the
+ * first row and column being zero, and are kept in ints. The totals of a
+ * large image do not fit in an int and wrap around, but the sum of a
+ * rectangle is the difference of its corners and comes out right as long
+ * as it fits itself: for the sums of the values when the rectangle has at
+ * most <code>MAX_SUM_PIXELS</code> pixels (about 8.4 million), and for the
+ * sums of the squares when it has at most <code>MAX_WINDOW_PIXELS</code>
+ * pixels. The get methods do not take larger rectangles. Two ints a pixel is half of what
+ * longs would take, which matters for scans of 20 megapixels and more.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class IntegralImage {
+
+	/**
+	 * The most pixels of a rectangle whose sum of squares is exact
+	 * (255*255 times this fits in an int). The windows of
+	 * <code>AdaptiveBinarizer</code> are kept within it.
+	 */
+	public static final int MAX_WINDOW_PIXELS = Integer.MAX_VALUE/(255*255);
+
+	/**
+	 * The most pixels of a rectangle whose sum of values is exact
+	 * (255 times this fits in an int).
+	 */
+	public static final int MAX_SUM_PIXELS = Integer.MAX_VALUE/255;
+
+	private int rows;
+	private int columns;
+	private int width;	//columns + 1, the length of a row of the tables
+	private int[] sums;	//sum of the values above and to the left of each corner
+	private int[] squareSums;	//sum of the squares of the values
+
+	/**
+	 * Constructor. Makes the tables of a gray raster in one pass.
+	 *
+	 * @param aRaster The gray raster
+	 */
+	public IntegralImage(Raster aRaster) {
+		rows = aRaster.getRows();
+		columns = aRaster.getColumns();
+		width = columns + 1;
+		sums = new int[(rows+1)*width];
+		squareSums = new int[(rows+1)*width];
+		byte[] gray = aRaster.getGrayData();
+		for (int r = 0; r < rows; r++) {
+			int i = r*columns;
+			int above = r*width + 1;	//the corner above the first pixel of the row
+			int here = above + width;
+			int rowSum = 0;
+			int rowSquareSum = 0;
+			for (int c = 0; c < columns; c++) {
+				int value = gray[i+c] & 0xff;
+				rowSum += value;
+				rowSquareSum += value*value;
+				sums[here+c] = sums[above+c] + rowSum;
+				squareSums[here+c] = squareSums[above+c] + rowSquareSum;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of rows of the image.
+	 *
+	 * @param none
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns of the image.
+	 *
+	 * @param none
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the sum of the values of the rectangle of the rows from
+	 * firstRow to lastRow - 1 and the columns from firstColumn to
+	 * lastColumn - 1. The rectangle must be inside the image and have at
+	 * most <code>MAX_SUM_PIXELS</code> pixels.
+	 *
+	 * @param firstRow The first row
+	 * @param firstColumn The first column
+	 * @param lastRow The row after the last row
+	 * @param lastColumn The column after the last column
+	 */
+	public int getSum(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		checkSize(firstRow, firstColumn, lastRow, lastColumn, MAX_SUM_PIXELS);
+		return corners(sums, firstRow, firstColumn, lastRow, lastColumn);
+	}
+
+	/**
+	 * Returns the sum of the squares of the values of a rectangle
+	 * (see getSum). The rectangle must have at most
+	 * <code>MAX_WINDOW_PIXELS</code> pixels.
+	 *
+	 * @param firstRow The first row
+	 * @param firstColumn The first column
+	 * @param lastRow The row after the last row
+	 * @param lastColumn The column after the last column
+	 */
+	public int getSquareSum(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		checkSize(firstRow, firstColumn, lastRow, lastColumn, MAX_WINDOW_PIXELS);
+		return corners(squareSums, firstRow, firstColumn, lastRow, lastColumn);
+	}
+
+	/**
+	 * Returns the mean of the values of a rectangle (see getSum).
+	 *
+	 * @param firstRow The first row
+	 * @param firstColumn The first column
+	 * @param lastRow The row after the last row
+	 * @param lastColumn The column after the last column
+	 */
+	public double getMean(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int count = (lastRow - firstRow)*(lastColumn - firstColumn);
+		return (double)getSum(firstRow, firstColumn, lastRow, lastColumn)/count;
+	}
+
+	/**
+	 * Returns the variance of the values of a rectangle (see getSum and
+	 * getSquareSum), worked out in longs so that it is never negative.
+	 *
+	 * @param firstRow The first row
+	 * @param firstColumn The first column
+	 * @param lastRow The row after the last row
+	 * @param lastColumn The column after the last column
+	 */
+	public double getVariance(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		long count = (long)(lastRow - firstRow)*(lastColumn - firstColumn);
+		long sum = getSum(firstRow, firstColumn, lastRow, lastColumn);
+		long squareSum = getSquareSum(firstRow, firstColumn, lastRow, lastColumn);
+		return (double)(count*squareSum - sum*sum)/(count*count);
+	}
+
+	/**
+	 * Throws an IllegalArgumentException if a rectangle has more than
+	 * the given number of pixels, so that its sum would wrap around.
+	 */
+	private static void checkSize(int firstRow, int firstColumn, int lastRow, int lastColumn, int maxPixels) {
+		if ((long)(lastRow - firstRow)*(lastColumn - firstColumn) > maxPixels) {
+			throw new IllegalArgumentException("Rectangle of "+(lastRow - firstRow)+"x"+(lastColumn - firstColumn)
+			                                   +" pixels is too large for an exact sum");
+		}
+	}
+
+	/**
+	 * Returns the sum of a table over a rectangle from its four corners.
+	 */
+	private int corners(int[] table, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int top = firstRow*width;
+		int bottom = lastRow*width;
+		return table[bottom+lastColumn] - table[bottom+firstColumn]
+		       - table[top+lastColumn] + table[top+firstColumn];
+	}
+}
@@ -0,0 +1,450 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A benchmark of <code>LabelImage.applyLabelling</code> on synthetic
+ * images with many connections, where the equivalences between the
+ * provisional labels are the most work:
+ * <pre>
+ * gridlines   lines every 8 pixels both ways, one region
+ * hatched     vertical lines every 4 pixels crossed by diagonal lines
+ * moire       an interference pattern, about 60% foreground, many merges
+ * noise       random foreground at 60%, gray values 0-23 and 248-254, so
+ *             that neighbors are joined when less than 8 apart
+ * </pre>
+ * Each image is labelled "warmup" times without being measured and then
+ * "iterations" times. The report has the same columns as the one of
+ * <code>VEMBenchmark</code>, the pattern in place of the chart, with the
+ * mean allocated bytes of the labelling taken from a
+ * <code>PipelineMetrics</code>. Run it on two builds to compare them.
+ * With -parallelism n the images are labelled in up to n stripes at the
+ * same time (see <code>StripeLabeler</code>); the allocations of the
+ * stripes run by the pool are then not in the allocated bytes.
+ * <p>
+ * With -verify nothing is timed. Instead each image is labelled, with
+ * the borders (<code>LabelImage.setFindBorders</code>), by one stripe and
+ * by 4 and 16 stripes, and its borders are also found by
+ * <code>Border.applyBorderDetection</code>. Each result is compared with
+ * the one of the reference labeller, the pixel by pixel labelling of
+ * Shapiro and Stockman that <code>LabelImage</code> used before the runs
+ * and the stripes: the same number of labels, the same label of every
+ * pixel, the same value of every label, the same statistics and the same
+ * borders. The run labelling and the stripes must number the regions
+ * exactly as it does, since the later stages depend on the numbers.
+ * The differences are printed and the exit status is 1 if there are any.
+ * Run it with and without --add-modules jdk.incubator.vector to check both
+ * the scalar and the vector <code>PixelKernels</code>.
+ * <p>
+ * Usage: java LabelBenchmark [-warmup n] [-iterations n] [-parallelism n] [-sizes WxH,...] [pattern...]
+ *        java LabelBenchmark -verify [-sizes WxH,...] [pattern...]
+ * <p>
+ * With maven: mvn -B exec:exec@label-benchmark -Dlabel.args="..."
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class LabelBenchmark {
+
+	/**
+	 * The synthetic patterns.
+	 */
+	public static final String[] PATTERNS = {"gridlines", "hatched", "moire", "noise"};
+
+	/**
+	 * The numbers of stripes that -verify labels the images with.
+	 */
+	public static final int[] VERIFY_STRIPES = {1, 4, 16};
+
+	final static int [] rPos = {-1, -1, -1, 0, 1, 1, 1, 0};
+	final static int [] cPos = {1, 0, -1, -1, -1, 0, 1, 1};
+
+	public static void main(String args[]) {
+		int warmup = 2;
+		int iterations = 5;
+		int parallelism = 1;
+		boolean verify = false;
+		LinkedList sizes = new LinkedList();
+		LinkedList patterns = new LinkedList();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup") && i+1 < args.length) {
+				warmup = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-iterations") && i+1 < args.length) {
+				iterations = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-parallelism") && i+1 < args.length) {
+				parallelism = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-verify")) {
+				verify = true;
+			}
+			else if (args[i].equals("-sizes") && i+1 < args.length) {
+				StringTokenizer st = new StringTokenizer(args[++i], ",");
+				while (st.hasMoreTokens()) {
+					sizes.add(st.nextToken());
+				}
+			}
+			else {
+				patterns.add(args[i]);
+			}
+		}
+		if (sizes.size() == 0) {
+			sizes.add("1000x1000");
+			if (verify) {
+				//an odd size, and one big enough for 16 stripes
+				sizes.add("333x777");
+				sizes.add("2000x1100");
+			}
+			else {
+				sizes.add("4000x3000");
+			}
+		}
+		if (patterns.size() == 0) {
+			patterns.addAll(Arrays.asList(PATTERNS));
+		}
+		if (iterations < 1) {
+			System.out.println("Usage: java LabelBenchmark [-warmup n] [-iterations n] [-parallelism n] [-sizes WxH,...] [pattern...]");
+			System.out.println("       java LabelBenchmark -verify [-sizes WxH,...] [pattern...]");
+			System.exit(2);
+		}
+		if (verify) {
+			System.exit(verify(sizes, patterns) ? 0 : 1);
+		}
+		System.out.println("# java "+System.getProperty("java.version")+" ("+System.getProperty("java.vm.name")+"), "
+		                   +Runtime.getRuntime().availableProcessors()+" processors, "
+		                   +System.getProperty("os.name")+" "+System.getProperty("os.arch"));
+		System.out.println("# warmup "+warmup+", iterations "+iterations+", parallelism "+parallelism);
+		StripeExecutor stripes = StripeExecutor.withParallelism(parallelism);
+		System.out.println("# pattern\tscale\tsize\tregions\tbenchmark\tmeanMs\tminMs\tmaxMs\tstddevMs\tthreadAllocatedBytes");
+		ListIterator lItr = sizes.listIterator();
+		while (lItr.hasNext()) {
+			String size = (String)lItr.next();
+			int x = size.indexOf('x');
+			int columns = Integer.parseInt(size.substring(0, x));
+			int rows = Integer.parseInt(size.substring(x+1));
+			ListIterator lItr2 = patterns.listIterator();
+			while (lItr2.hasNext()) {
+				String pattern = (String)lItr2.next();
+				Raster anImage = makeImage(pattern, rows, columns);
+				VEMBenchmark.Sample aSample = new VEMBenchmark.Sample();
+				int regions = 0;
+				for (int i = 0; i < warmup + iterations; i++) {
+					PipelineMetrics metrics = new PipelineMetrics();
+					metrics.startStage("labelImage");
+					Vector labelledImageInfo = new LabelImage(anImage, 255, stripes).applyLabelling();
+					metrics.endStage("labelImage");
+					regions = ((Integer)labelledImageInfo.get(0)).intValue();
+					labelledImageInfo = null;
+					if (i >= warmup) {
+						aSample.add(metrics.getWallNanos("labelImage"), metrics.getAllocatedBytes("labelImage"));
+					}
+				}
+				System.out.println(new VEMBenchmark.Result(pattern, 1.0, size, String.valueOf(regions),
+				                                           "LabelImage.applyLabelling", aSample));
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Compares the labelling of each pattern and size with the reference
+	 * labeller (see the class comment) and prints the result of each.
+	 *
+	 * @param sizes The linked list of sizes, as WxH
+	 * @param patterns The linked list of patterns
+	 * @return True if all the results are the same as the reference
+	 */
+	public static boolean verify(LinkedList sizes, LinkedList patterns) {
+		System.out.println("# verify against the reference labeller, "
+		                   +(PixelKernels.get().isVectorized() ? "vector" : "scalar")+" kernels");
+		boolean allSame = true;
+		ListIterator lItr = sizes.listIterator();
+		while (lItr.hasNext()) {
+			String size = (String)lItr.next();
+			int x = size.indexOf('x');
+			int columns = Integer.parseInt(size.substring(0, x));
+			int rows = Integer.parseInt(size.substring(x+1));
+			ListIterator lItr2 = patterns.listIterator();
+			while (lItr2.hasNext()) {
+				String pattern = (String)lItr2.next();
+				Raster anImage = makeImage(pattern, rows, columns);
+				Vector reference = referenceLabelling(anImage, 255);
+				int noOfLabels = ((Integer)reference.get(0)).intValue();
+				int[][] labels = (int[][])reference.get(2);
+				int[][] borders = referenceBorders(labels, rows, columns);
+				Raster labelImage = new Raster(labels, rows, columns, Raster.LABELS);
+				RegionStatistics statistics = RegionStatistics.fromLabels(labelImage, noOfLabels);
+				RegionStatistics borderStatistics = RegionStatistics.fromLabels(new Raster(borders, rows, columns, Raster.LABELS), noOfLabels);
+				for (int i = 0; i < VERIFY_STRIPES.length; i++) {
+					StripeExecutor stripes = StripeExecutor.withParallelism(VERIFY_STRIPES[i]);
+					LabelImage aLabeler = new LabelImage(anImage, 255, stripes);
+					aLabeler.setFindBorders(true);
+					Vector result = aLabeler.applyLabelling();
+					String name = pattern+" "+size+" "+stripes.getStripeCount(rows, columns)+" stripes";
+					String difference = compareLabels(reference, result, rows, columns);
+					if (difference == null) {
+						difference = compareStatistics(statistics, (RegionStatistics)result.get(3), "statistics");
+					}
+					if (difference == null) {
+						difference = compareImages(borders, aLabeler.getBorderImage(), rows, columns, "fused border");
+					}
+					if (difference == null) {
+						difference = compareStatistics(borderStatistics, aLabeler.getBorderStatistics(), "border statistics");
+					}
+					allSame &= report(name, noOfLabels, difference);
+				}
+				Border aBorder = new Border(labelImage, noOfLabels, rows, columns, 255);
+				aBorder.applyBorderDetection();
+				String difference = compareImages(borders, aBorder.getBorderImage(), rows, columns, "border");
+				if (difference == null) {
+					difference = compareStatistics(borderStatistics, aBorder.getStatistics(), "border statistics");
+				}
+				allSame &= report(pattern+" "+size+" Border", noOfLabels, difference);
+			}
+		}
+		return allSame;
+	}
+
+	/**
+	 * Prints one line of the result of -verify.
+	 *
+	 * @param name What was compared
+	 * @param noOfLabels The number of labels of the reference
+	 * @param difference The first difference, or null
+	 * @return True if there was no difference
+	 */
+	private static boolean report(String name, int noOfLabels, String difference) {
+		if (difference == null) {
+			System.out.println("OK\t"+name+"\t"+noOfLabels+" labels");
+			return true;
+		}
+		System.out.println("DIFFERENT\t"+name+"\t"+difference);
+		return false;
+	}
+
+	/**
+	 * Returns the first difference between two results of applyLabelling,
+	 * or null if they are the same.
+	 */
+	private static String compareLabels(Vector reference, Vector result, int rows, int columns) {
+		int noOfLabels = ((Integer)reference.get(0)).intValue();
+		if (((Integer)result.get(0)).intValue() != noOfLabels) {
+			return "number of labels "+result.get(0)+" instead of "+noOfLabels;
+		}
+		int[] values = (int[])reference.get(1);
+		int[] resultValues = (int[])result.get(1);
+		for (int i = 0; i < noOfLabels; i++) {
+			if (resultValues[i] != values[i]) {
+				return "value of label "+i+" is "+resultValues[i]+" instead of "+values[i];
+			}
+		}
+		return compareImages((int[][])reference.get(2), (Raster)result.get(2), rows, columns, "label");
+	}
+
+	/**
+	 * Returns the first pixel where a raster differs from the 2d array of
+	 * the reference, or null if they are the same.
+	 */
+	private static String compareImages(int[][] reference, Raster result, int rows, int columns, String what) {
+		if (result == null) {
+			return "no "+what+" image";
+		}
+		if (result.getType() != Raster.LABELS || result.getRows() != rows || result.getColumns() != columns) {
+			return what+" image is not a "+rows+"x"+columns+" LABELS raster";
+		}
+		int[] data = result.getLabelData();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				if (data[r*columns + c] != reference[r][c]) {
+					return what+" of ("+r+", "+c+") is "+data[r*columns + c]+" instead of "+reference[r][c];
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the first label whose area, runs or bounding box differ
+	 * between two statistics, or null if they are the same.
+	 */
+	private static String compareStatistics(RegionStatistics reference, RegionStatistics result, String what) {
+		if (result == null) {
+			return "no "+what;
+		}
+		if (result.getLabelCount() != reference.getLabelCount()) {
+			return what+" have "+result.getLabelCount()+" labels instead of "+reference.getLabelCount();
+		}
+		for (int i = 0; i < reference.getLabelCount(); i++) {
+			if (result.getArea(i) != reference.getArea(i) || result.getRunCount(i) != reference.getRunCount(i)
+			    || (reference.getArea(i) > 0
+			        && (result.getMinRow(i) != reference.getMinRow(i) || result.getMaxRow(i) != reference.getMaxRow(i)
+			            || result.getMinColumn(i) != reference.getMinColumn(i)
+			            || result.getMaxColumn(i) != reference.getMaxColumn(i)))) {
+				return what+" of label "+i+" are different";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The reference labeller: the pixel by pixel labelling that
+	 * <code>LabelImage</code> used before <code>RunLabeler</code>, with
+	 * the equivalences kept in a parent array, on a gray raster.
+	 *
+	 * @param anImage The gray raster
+	 * @param bPix The value of the background pixels
+	 * @return The number of labels, the values of the labels and the labels
+	 * of the pixels, like <code>LabelImage.applyLabelling</code>
+	 */
+	static Vector referenceLabelling(Raster anImage, int bPix) {
+		int rows = anImage.getRows();
+		int columns = anImage.getColumns();
+		int[][] inputImage = anImage.toArray();
+		int[][] pixelLabel = new int[rows][columns];
+		int label = 1;
+		int[] priorNeigLabel = new int[4];
+		int[] parentArray = new int[rows*columns + 1];
+		parentArray[0] = -1; //the background
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				if (inputImage[r][c] == bPix) {
+					pixelLabel[r][c] = 0;
+					continue;
+				}
+				int j = 0;
+				for (int i = 0; i < 4; i++) {
+					int nr = r + rPos[i];
+					int nc = c + cPos[i];
+					if (nr >= 0 && nc >= 0 && nr < rows && nc < columns
+					    && Math.abs(inputImage[r][c] - inputImage[nr][nc]) < 8) {
+						priorNeigLabel[j++] = pixelLabel[nr][nc];
+					}
+				}
+				if (j == 0) {
+					pixelLabel[r][c] = label;
+					parentArray[label] = -1;
+					label++;
+				}
+				else {
+					int minLabel = priorNeigLabel[0];
+					for (int i = 1; i < j; i++) {
+						if (priorNeigLabel[i] < minLabel) minLabel = priorNeigLabel[i];
+					}
+					pixelLabel[r][c] = minLabel;
+				}
+				for (int i = 0; i < j; i++) {
+					if (pixelLabel[r][c] != priorNeigLabel[i]) {
+						int a = findRoot(pixelLabel[r][c], parentArray);
+						int b = findRoot(priorNeigLabel[i], parentArray);
+						if (a != b) {
+							if (b == 0) parentArray[a] = b;
+							else parentArray[b] = a;
+						}
+					}
+				}
+			}
+		}
+		int[] labelsMap = new int[label];
+		int noOfLabels = 0;
+		for (int i = 0; i < label; i++) {
+			if (parentArray[i] == -1) {
+				labelsMap[i] = noOfLabels++;
+			}
+		}
+		int[] labelsArray = new int[noOfLabels];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				pixelLabel[r][c] = labelsMap[findRoot(pixelLabel[r][c], parentArray)];
+				labelsArray[pixelLabel[r][c]] = inputImage[r][c];
+			}
+		}
+		Vector labelVector = new Vector(3);
+		labelVector.add(Integer.valueOf(noOfLabels));
+		labelVector.add(labelsArray);
+		labelVector.add(pixelLabel);
+		return labelVector;
+	}
+
+	/**
+	 * Returns the root of a label in the parent array of the reference
+	 * labeller; the roots are -1.
+	 */
+	private static int findRoot(int label, int[] parentArray) {
+		while (parentArray[label] != -1) {
+			label = parentArray[label];
+		}
+		return label;
+	}
+
+	/**
+	 * The reference borders: a pixel of a region is on its border if one of
+	 * its 4 neighbors has another label, the pixels outside the image being
+	 * background, as <code>Border.applyBorderDetection</code> found them
+	 * before the bit images and the vector kernels.
+	 *
+	 * @param labels The labels of the pixels
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 * @return The label of each border pixel, 0 elsewhere
+	 */
+	static int[][] referenceBorders(int[][] labels, int rows, int columns) {
+		int[][] borders = new int[rows][columns];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				int label = labels[r][c];
+				if (label == 0) {
+					continue;
+				}
+				for (int i = 1; i < 8; i += 2) {
+					int nr = r + rPos[i];
+					int nc = c + cPos[i];
+					int neighbor = (nr >= 0 && nc >= 0 && nr < rows && nc < columns) ? labels[nr][nc] : 0;
+					if (neighbor != label) {
+						borders[r][c] = label;
+						break;
+					}
+				}
+			}
+		}
+		return borders;
+	}
+
+	/**
+	 * Returns the gray raster of a pattern; the background is 255.
+	 *
+	 * @param pattern The name of the pattern (see PATTERNS)
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 */
+	public static Raster makeImage(String pattern, int rows, int columns) {
+		Raster anImage = new Raster(rows, columns, Raster.GRAY);
+		byte[] gray = anImage.getGrayData();
+		Random aRandom = new Random(1);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				int value = 255;
+				if (pattern.equals("gridlines")) {
+					if (r % 8 == 0 || c % 8 == 0) value = 0;
+				}
+				else if (pattern.equals("hatched")) {
+					if (c % 4 == 0 || (r + c) % 256 == 0) value = 0;
+				}
+				else if (pattern.equals("moire")) {
+					if (((r*31 + c*17) ^ (r*c)) % 5 < 3) value = 0;
+				}
+				else if (pattern.equals("noise")) {
+					//values less than 8 apart are joined, also next to the background
+					int draw = aRandom.nextInt(100);
+					if (draw < 50) value = aRandom.nextInt(24);
+					else if (draw < 60) value = 248 + aRandom.nextInt(7);
+				}
+				else {
+					throw new IllegalArgumentException("Unknown pattern "+pattern);
+				}
+				gray[r*columns + c] = (byte)value;
+			}
+		}
+		return anImage;
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * The equivalences between the provisional labels of a labelling pass,
+ * kept as a union-find forest that grows with the number of labels.
+ * <p>
+ * The trees are joined by rank and the paths are halved as they are
+ * searched, so that union and find take nearly constant time however
+ * the labels are merged. Label 0 is the label of the background and is
+ * made by the constructor.
+ * <p>
+ * Each set also has a representative, the label that was the root of its
+ * chain in the first labeller (<code>LabelImage</code> before the forest
+ * was used): when two sets are joined the representative of the set of the
+ * first label is kept, unless the other set has the background, which
+ * always stays the representative of its set. The final labels are
+ * numbered in the order of the representatives (see makeLabelMap), so the
+ * regions get the same numbers as before whatever tree the rank gives.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class LabelEquivalence {
+
+	private int[] parent;	//the parent of each label in the forest, itself for a root
+	private byte[] rank;	//bound on the height of the tree of each root
+	private int[] representative;	//the representative of the set of each root
+	private int count;	//the number of labels
+	private int sets;	//the number of sets
+
+	/**
+	 * Constructor. There is only the background label, 0.
+	 *
+	 * @param capacity The number of labels to make room for at first
+	 */
+	public LabelEquivalence(int capacity) {
+		capacity = Math.max(capacity, 16);
+		parent = new int[capacity];
+		rank = new byte[capacity];
+		representative = new int[capacity];
+		count = 1;
+		sets = 1;
+	}
+
+	/**
+	 * Returns the number of labels, the background included.
+	 *
+	 * @param none
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of sets, the one of the background included.
+	 *
+	 * @param none
+	 */
+	public int getSetCount() {
+		return sets;
+	}
+
+	/**
+	 * Makes a new label in a set of its own and returns it.
+	 * The table grows by half when it is full.
+	 *
+	 * @param none
+	 */
+	public int add() {
+		if (count == parent.length) {
+			int capacity = parent.length + (parent.length >> 1);
+			parent = java.util.Arrays.copyOf(parent, capacity);
+			rank = java.util.Arrays.copyOf(rank, capacity);
+			representative = java.util.Arrays.copyOf(representative, capacity);
+		}
+		int label = count++;
+		parent[label] = label;
+		representative[label] = label;
+		sets++;
+		return label;
+	}
+
+	/**
+	 * Returns the root of the tree of a label, halving the path to it.
+	 *
+	 * @param label The label
+	 */
+	public int find(int label) {
+		while (parent[label] != label) {
+			parent[label] = parent[parent[label]];
+			label = parent[label];
+		}
+		return label;
+	}
+
+	/**
+	 * Returns the representative of the set of a label.
+	 *
+	 * @param label The label
+	 */
+	public int getRepresentative(int label) {
+		return representative[find(label)];
+	}
+
+	/**
+	 * Joins the sets of two labels. The representative of the set of
+	 * label is kept, unless the set of neigLabel has the background.
+	 *
+	 * @param label The label of the pixel
+	 * @param neigLabel The label of its neighbor
+	 */
+	public void union(int label, int neigLabel) {
+		int j = find(label);
+		int k = find(neigLabel);
+		if (j == k) {
+			return;
+		}
+		int aRepresentative = representative[k] == 0 ? 0 : representative[j];
+		if (rank[j] < rank[k]) {
+			int t = j;
+			j = k;
+			k = t;
+		}
+		else if (rank[j] == rank[k]) {
+			rank[j]++;
+		}
+		parent[k] = j;
+		representative[j] = aRepresentative;
+		sets--;
+	}
+
+	/**
+	 * Returns the final label of each label: the sets are numbered from 0
+	 * to getSetCount() - 1 in the order of their representatives.
+	 *
+	 * @param none
+	 */
+	public int[] makeLabelMap() {
+		int[] labelsMap = new int[count];
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (getRepresentative(i) == i) {
+				labelsMap[i] = n++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			labelsMap[i] = labelsMap[getRepresentative(i)];
+		}
+		return labelsMap;
+	}
+}
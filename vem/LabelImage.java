@@ -12,33 +12,50 @@ import java.lang.*;
  * @version 1.0
  */
 
+@SuppressWarnings("rawtypes")
 public class LabelImage{
 	final static int [] rPos = {-1, -1, -1, 0, 1, 1, 1, 0}; 
 	final static int [] cPos = {1, 0, -1, -1, -1, 0, 1, 1};
-	//Storing the image as 2D array
-	private int[][] inputImage;
-	private int[][] pixelLabel; 
+	//Storing the image as a gray raster
+	private Raster inputImage;
+	private Raster pixelLabel; 
 	private int[] labelsArray;
 	private int noOfLabels;
 	private int imageHeight;
 	private int imageWidth;
  	private int bPix; //value of the background pixel
  	private int bPixLabel; //label of the background pixels (set to 0)
+	private StripeExecutor stripes; //splits a large image into stripes that are labelled at the same time
+	private RegionStatistics statistics; //area, bounding box and moments of each label
+	private boolean findBorders; //the borders are marked while the image is labelled
+	private Raster borderImage;
+	private RegionStatistics borderStatistics; //of the border pixels of each label
 
 
   /**
    * Constructor.
 	 *
-   * @param inImage2D The 2-D representation of the image
-	 * @param imageRows The number of columns
-	 * @param imageColumns The number of rows
+   * @param inImage The gray raster of the image
 	 * @param bP The color value of the background 
    */
-	public LabelImage(int[][] inImage2D, int imageRows, int imageColumns, int bP) {
-		inputImage = inImage2D;  
-		imageHeight = imageRows;
-		imageWidth = imageColumns;
-		pixelLabel = new int[imageRows][imageColumns];
+	public LabelImage(Raster inImage, int bP) {
+		this(inImage, bP, new StripeExecutor(null, 1));
+	}
+
+  /**
+   * Constructor. An image of more than one stripe of the given executor
+	 * is labelled in stripes at the same time by a <code>StripeLabeler</code>,
+	 * with the same results.
+	 *
+   * @param inImage The gray raster of the image
+	 * @param bP The color value of the background 
+	 * @param aStripes Splits the rows into stripes
+   */
+	public LabelImage(Raster inImage, int bP, StripeExecutor aStripes) {
+		inputImage = inImage;  
+		stripes = aStripes;
+		imageHeight = inImage.getRows();
+		imageWidth = inImage.getColumns();
 		bPix = bP;
 		noOfLabels = 1;  //the background
    	bPixLabel = 0;
@@ -47,153 +64,78 @@ public class LabelImage{
   /**
    * Labels the image using the code of p.65 in Computer Vision by
    * by Shapiro and Stockman. The background pixels are labelled with zero.
+	 * The pixels are labelled a run of equal pixels at a time by a
+	 * <code>RunLabeler</code>, which also finds the statistics of the regions
+	 * (see <code>RegionStatistics</code>), or in stripes at the same time by
+	 * a <code>StripeLabeler</code>; both number the regions in the same way.
 	 *
    * @param none
 	 * @return A Vector of number of labels as an Integer, the 1d integer array
-	 * of color values for each label number and the 2d integer array of the labelled 
-	 * image.
+	 * of color values for each label number, the LABELS raster of the labelled 
+	 * image and the <code>RegionStatistics</code> of the labels.
    */
 	public Vector applyLabelling() {
-		int rows = imageHeight;
-		int columns = imageWidth;
-
-		//System.out.println("In applyLabelling of LabelImage.");
-		int label = 1; 
- 		int minLabel;
- 		int[] priorNeigLabel = new int[4];
-		int[] parentArray = new int[rows*columns];
-		Vector labelVector = new Vector(3);
-		parentArray[0] = -1; //this is a root, it is there for the background pixels
-
-		int j = 0;
-		int noOfbPixels = 0;
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c < columns; c++) {
-				pixelLabel[r][c] = -1; //Initialize
-			}
-			for (int c = 0; c < columns; c++) {
-				if (inputImage[r][c] == bPix) {
-					pixelLabel[r][c] = bPixLabel;
-					continue;
-				}	
-
-				j = 0;
-
-//check 4 neighbors that are already processed, record the ones that are in the same region
-				for (int i = 0; i < 4; i++) {
-					if ((r+rPos[i]) >= 0 && (c+cPos[i]) >= 0 && (r+rPos[i]) < imageHeight && (c+cPos[i]) < imageWidth) {
-						if (Math.abs(inputImage[r][c] - inputImage[r+rPos[i]][c+cPos[i]]) < 8) {
-					 		priorNeigLabel[j] = pixelLabel[r+rPos[i]][c+cPos[i]];
-							j++;
-						}
-					}
-				}
-				
-				//System.out.println("There are " + j + "prior neighbors in the same region.");
-				if (j == 0) { //there are no prior neighbors in the same region
-					pixelLabel[r][c] = label;
-					noOfLabels++;
-					parentArray[label] = -1; //this label is a root
-					label++;
-					//System.out.println("Labeled ("+r+", "+c+") with " + label);
-				}
-				else {  //Find the minimum label of the neighbors
-					minLabel = priorNeigLabel[0];
-					for (int i = 1; i < j; i++) {
-						if (priorNeigLabel[i] < minLabel)
-							minLabel = priorNeigLabel[i];
-					}
-					//System.out.println("min label is " + minLabel);
-					pixelLabel[r][c] = minLabel;
-					//System.out.println("Labeled ("+r+", "+c+") with " + minLabel);
-				}
-				for (int i = 0; i < j; i++) {
-					if (pixelLabel[r][c] != priorNeigLabel[i]) {
-						union(pixelLabel[r][c], priorNeigLabel[i], parentArray);
-						//noOfLabels--;
-					}
-				}	
-			}
+		Vector labelVector;
+		if (stripes.getStripeCount(imageHeight, imageWidth) > 1) {
+			StripeLabeler aLabeler = new StripeLabeler(inputImage, bPix, stripes);
+			aLabeler.setFindBorders(findBorders);
+			labelVector = aLabeler.applyLabelling();
+			borderImage = aLabeler.getBorderImage();
+			borderStatistics = aLabeler.getBorderStatistics();
 		}
-	//System.out.println("End of first pass. There are " + noOfLabels+ " labels.");
-
-	//Second pass replaces the first pass labels with equivalence class labels
-		for(int r = 0; r < rows; r++) {
-			for(int c = 0; c < columns; c++) {
-				if (pixelLabel[r][c] != bPixLabel) { //0 is the background label
-					pixelLabel[r][c] = findParent(pixelLabel[r][c], parentArray);
-				}
-			}
-		}
-		//System.out.println("No of label is " + label);
-		int[] labelsMap = new int[label];
-		noOfLabels = 0;
-		for (int i = 0; i < label; i++) {
-			if (parentArray[i] == -1) { //a root
-				labelsMap[i] = noOfLabels;
-				noOfLabels++;
-			}
- 		}
-		//System.out.println("End of second pass. There are " + noOfLabels+ " labels.");
-
-   	labelsArray = new int[noOfLabels];
-
-		//Third pass replaces the second pass labels with consecutive numbered labels
-		for(int r = 0; r < rows; r++) {
-			for(int c = 0; c < columns; c++) {
-				pixelLabel[r][c] = labelsMap[pixelLabel[r][c]];
-				labelsArray[pixelLabel[r][c]] = inputImage[r][c];
-				//pixelLabel[r][c] = ((int)(255/noOfLabels))*pixelLabel[r][c];
-			}
+		else {
+			RunLabeler aLabeler = new RunLabeler(inputImage, bPix);
+			aLabeler.setFindBorders(findBorders);
+			labelVector = aLabeler.applyLabelling();
+			borderImage = aLabeler.getBorderImage();
+			borderStatistics = aLabeler.getBorderStatistics();
 		}
-		//System.out.println("End of third pass. There are " + noOfLabels+ " labels.");
+		noOfLabels = ((Integer)labelVector.get(0)).intValue();
+		labelsArray = (int[])labelVector.get(1);
+		pixelLabel = (Raster)labelVector.get(2);
+		statistics = (RegionStatistics)labelVector.get(3);
+		return labelVector;
+	}
 
-		//System.out.println("There are " + noOfLabels + " objects.");
+  /**
+   * Returns the statistics of the regions found by applyLabelling.
+	 *
+   * @param none
+   */
+	public RegionStatistics getStatistics() {
+		return statistics;
+	}
 
-		labelVector.add(new Integer(noOfLabels)); //Count of Blobs
-		labelVector.add(labelsArray);//Array holding the mapping of sequential labels to pixel labels
-		//Note that label 0 in labelsMap will point to some label x in pixelLabel
-		labelVector.add(pixelLabel);//Pixel Labels
-		return labelVector;
+  /**
+   * Sets whether applyLabelling also finds the borders of the regions,
+	 * the same ones as <code>Border.applyBorderDetection</code>, while the
+	 * final labels are written, instead of in a pass of its own.
+	 *
+   * @param borders true to find the borders
+   */
+	public void setFindBorders(boolean borders) {
+		findBorders = borders;
 	}
 
   /**
-   * Finds the roots of label and neigLabel in the parent array
-   * and makes label the parent of neigLabel, 
-	 * if neigLabel is the background label, makes neigLabel the parent of label. 
+   * Returns the LABELS raster of border pixels found by applyLabelling with
+	 * setFindBorders (see <code>Border.getBorderImage</code>); null otherwise.
 	 *
-   * @param label
-	 * @param neigLabel
-	 * @param parentArray 
+   * @param none
    */
-	private void union(int label, int neigLabel, int[] parentArray) {
-//System.out.println("In union method.");
-		int j = label;
-		int k = neigLabel;
-		while (parentArray[j] != -1)
-			j = parentArray[j];	
-		while (parentArray[k] != -1) 
-			k = parentArray[k];	
-		if (j != k) {
-			if (k == bPixLabel)
-				parentArray[j] = k;
-			else
-				parentArray[k] = j;
-		}	
+	public Raster getBorderImage() {
+		return borderImage;
 	}
 
   /**
-	 * This method finds the root of label in the parent array
-	 * All roots have -1 as their value in the parentArray
+   * Returns the statistics of the border pixels found by applyLabelling
+	 * with setFindBorders (see <code>Border.getStatistics</code>); null
+	 * otherwise.
 	 *
-   * @param label
-	 * @param parentArray 
+   * @param none
    */
-	private int findParent(int label, int[] parentArray) {
-		int j = label;
-		while (parentArray[j] != -1)
-			j = parentArray[j];	
-		return j;
+	public RegionStatistics getBorderStatistics() {
+		return borderStatistics;
 	}
 
 }
@@ -10,6 +10,7 @@ import java.awt.Point;
  * rectangles and text inside.
  */
 
+@SuppressWarnings("rawtypes")
 public class LegendFinder {
 
   private int imageHeight;    //number of rows in the input image
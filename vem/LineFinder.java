@@ -18,6 +18,7 @@ import java.io.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class LineFinder {
 
 	private int imageHeight;    //number of rows in the input image
@@ -28,7 +29,7 @@ public class LineFinder {
 	private int angles;
 	private int distances;
 
-	private int[][] borderImage;
+	private Raster borderImage;
 	private Region[] allRegions;
 	private Hashtable allLines;
 
@@ -61,10 +62,10 @@ public class LineFinder {
 	 * @param imageColumns The number of columns in the image
    * @param labelCount The number of regions in the image
 	 * @param bLabel The label of the background pixels
-	 * @param bImage The 2d array reprentation of the border image
+	 * @param bImage The LABELS raster of the border image
 	 * @param allR The Region array for all the regions in the image
 	 */
-	public LineFinder(int imageRows, int imageColumns, int labelCount, int bLabel, int[][] bImage, Region[] allR) {
+	public LineFinder(int imageRows, int imageColumns, int labelCount, int bLabel, Raster bImage, Region[] allR) {
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
 		noOfLabels = labelCount;
@@ -213,7 +214,7 @@ public class LineFinder {
 			for (int r = beginPoint.getRow() - length; r < endPoint.getRow() + length; r++) {
 				int c = (int)((double)r*slope + intercept);
 				if (r >= 0 && r < imageHeight && c >= 0 && c < imageWidth) {
-					int label = borderImage[r][c];
+					int label = borderImage.get(r, c);
 					if (label != bPixLabel && allRegions[label].getNumPixels() == 1) {
 						aLine.addPrimitive(allRegions[label].getPrimitive(0));
 					}   
@@ -224,7 +225,7 @@ public class LineFinder {
 			for (int c = beginPoint.getColumn() - length; c < endPoint.getColumn() + length; c++) {
 				int r = (int)((double)c*slope + intercept);
 				if (r >= 0 && r < imageHeight && c >= 0 && c < imageWidth) {
-					int label = borderImage[r][c];
+					int label = borderImage.get(r, c);
 					if (label != bPixLabel && allRegions[label].getNumPixels() == 1) {
 						aLine.addPrimitive(allRegions[label].getPrimitive(0));
 					}   
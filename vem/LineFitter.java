@@ -12,6 +12,7 @@ import java.awt.geom.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "cast", "removal"})
 public class LineFitter {
 
 	private final int NOCHANGE = 0;
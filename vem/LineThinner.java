@@ -18,6 +18,7 @@ import java.io.*;
  *
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class LineThinner {
 	final int[] rPos = {-1, -1, -1, 0, 1, 1, 1, 0};  //already declared in ImagePrimitives.jave
 	final int[] cPos = {1, 0, -1, -1, -1, 0, 1, 1};  //already declared in ImagePrimitives.jave
@@ -32,23 +33,23 @@ public class LineThinner {
  	private int bPixLabel;			//background label 
 	private int noOfLabels;
 
-	private int[][] labelledImage;  //Labelled image
-	private int[][] borderedImage;  //Bordered image
-	private int[][] processedImage;
+	private Raster labelledImage;  //Labelled image
+	private Raster borderedImage;  //Bordered image
+	private Raster processedImage;
 	private Region[] allRegions;
 
 	/**
 	 * Constructor
 	 *
    * @param allR The Region array of all the regions in the image
-	 * @param inImage The label image
-	 * @param borImage The border image
+	 * @param inImage The LABELS raster of the label image
+	 * @param borImage The LABELS raster of the border image
 	 * @param labelCount The number of regions in the image
 	 * @param imageRows The number of rows
 	 * @param imageColumns The number of columns
 	 * @param bGroundLabel The label of the background pixels
 	 */
-	public LineThinner(Region[] allR, int[][] inImage, int[][] borImage, int labelCount, int imageRows, int imageColumns, int bGroundLabel) {
+	public LineThinner(Region[] allR, Raster inImage, Raster borImage, int labelCount, int imageRows, int imageColumns, int bGroundLabel) {
 		labelledImage = inImage;
 		borderedImage = borImage;
 		allRegions = allR;
@@ -56,7 +57,7 @@ public class LineThinner {
 		imageWidth = imageColumns;
 		bPixLabel = bGroundLabel;
 		noOfLabels = labelCount;
-		processedImage = new int[imageRows][imageColumns];
+		processedImage = new Raster(imageRows, imageColumns, Raster.LABELS);
 	}
 
   /**
@@ -75,30 +76,9 @@ public class LineThinner {
 		int label_c; //this pixels label
 		int label_n; //one of the neighbours label
 		boolean border_pixel = false;
-	 	int[][] inImage = new int[imageHeight+2][imageWidth+2];  	
-		int[][] borderImage = new int[imageHeight+2][imageWidth+2];
-
-		//insert one row of background pixels at the bottom and one on top 
-		for (int i = 0; i<imageWidth+2; i++) {
-			inImage[0][i] = bPixLabel;
-			inImage[imageHeight+2-1][i] = bPixLabel;
-			borderImage[0][i] = bPixLabel;
-			borderImage[imageHeight+2-1][i] = bPixLabel;
-		}
-		for (int i = 0; i<imageHeight+2; i++) {
-			inImage[i][0] = bPixLabel;
-			inImage[i][imageWidth+2-1] = bPixLabel;
-			borderImage[i][0] = bPixLabel;
-			borderImage[i][imageWidth+2-1] = bPixLabel;
-		}
-		//System.out.println("Copying...");
-		for (int i = 1; i<imageHeight+2-1; i++) {
-			for (int j = 1; j<imageWidth+2-1; j++) {
-				inImage[i][j] = labelledImage[i-1][j-1];
-				borderImage[i][j] = borderedImage[i-1][j-1];
-				processedImage[i-1][j-1] = bPixLabel; //initialize to background 
-			}
-		}
+		//one row/column of background pixels around the border image
+		Raster borderImage = borderedImage.addBorder(bPixLabel);
+		processedImage.fill(bPixLabel); //initialize to background 
 		//System.out.println("Inserted background pixels on top and bottom.");
 
 		Region aRegion;
@@ -109,13 +89,13 @@ public class LineThinner {
 
 		for(int r = 1; r < imageHeight+2-1; r++ ) {
 			for( int c = 1; c < imageWidth+2-1; c++ ) {
-				label_c = borderImage[r][c];
+				label_c = borderImage.get(r, c);
 				//if (label_c != bPixLabel && !(allRegions[label_c].getIsCharacter())) {
 				if (label_c != bPixLabel) {
 					//Start from this pixel in this region. Follow the border.
 					//Each time there is a new pixel, calculate the number of pixels in the row and column direction.
 					//Each border pixel will have a row count and a column count
-					calculatePixelCounts(inImage, borderImage, r, c);
+					calculatePixelCounts(borderImage, r, c);
 				}
 			}
 		}
@@ -261,14 +241,13 @@ public class LineThinner {
 	 * the chain beginning with the given non-background pixel.
 	 * The counts are stored in the pointpixel itself.
 	 *
-   * @param labelImage The labelled image
-	 * @param borderImage The boredered image
+	 * @param borderImage The boredered image, with a row/column of background around it
 	 * @param row The row number of the beginning pixel 
 	 * @param column The column number of the beginning pixel
 	 */	
-	private	void calculatePixelCounts(int[][] labelImage, int[][] borderImage, int row, int column) {
+	private	void calculatePixelCounts(Raster borderImage, int row, int column) {
 		//System.out.println("Calculate pixel counts beginning with ("+(row-1)+", "+(column-1)+")");
-		int labelNo = borderImage[row][column];
+		int labelNo = borderImage.get(row, column);
 		int firstRow = row;
 		int firstColumn = column;
 		int previousRow = row;
@@ -297,7 +276,7 @@ public class LineThinner {
 		aPixel.setRowCount(rowC);
 		aPixel.setColumnCount(columnC);
 		aRegion.addPixelToRegion(aPixel);
-		borderImage[firstRow][firstColumn] = bPixLabel; 
+		borderImage.set(firstRow, firstColumn, bPixLabel); 
 
 		while (foundNext == 1 && onSecondPixel < 2) {
 			rowDifference = previousRow - row;
@@ -311,7 +290,7 @@ public class LineThinner {
 				remainder = (position+i) - (((position+i)/8)*8); //position+i mod 8
 				newRow = row + rPos[remainder];
 				newColumn = column + cPos[remainder];
-				if (borderImage[newRow][newColumn] == labelNo && foundNext == 0) {
+				if (borderImage.get(newRow, newColumn) == labelNo && foundNext == 0) {
 					nextRow = newRow;
 					nextColumn = newColumn;
 					foundNext = 1;
@@ -342,7 +321,7 @@ public class LineThinner {
 					aPixel.setRowCount(rowC);
 					aPixel.setColumnCount(columnC);
 					aRegion.addPixelToRegion(aPixel);
-					borderImage[nextRow][nextColumn] = bPixLabel;
+					borderImage.set(nextRow, nextColumn, bPixLabel);
 					previousRow = row;
 					previousColumn = column;
 					row = nextRow;
@@ -355,7 +334,7 @@ public class LineThinner {
 
   /**
    * Thins the thick line region whose label is given as an argument.
-	 * The 2d array processedImage is that region, but thinned.
+	 * The raster processedImage is that region, but thinned.
 	 * Begins from the first pixel of the border pixels list of the region.
 	 * First tracks the line, in the direction right/down.
 	 * When that is finished, a second tracking is done in the direction left/down.
@@ -403,7 +382,7 @@ public class LineThinner {
 	 * @param trendR The row trend (horizontal trend, right or left)
 	 * @param trendC The column trend (vertical trend, down or up)
 	 */	
-	private	void trackThinLine(int[][] bImage, int r, int c, int label, int trendR, int trendC) {
+	private	void trackThinLine(Raster bImage, int r, int c, int label, int trendR, int trendC) {
 		int row = r;
 		int column = c;
 		int previousRow = r;
@@ -450,6 +429,10 @@ public class LineThinner {
 		//while (count != 0 && goingBack == 0 && ((columnCountDown + columnCountUp) != 0 || (rowCountRight + rowCountLeft) != 0)) {
 
 		while (goingBack < 3) {
+			if (Thread.currentThread().isInterrupted()) {
+				//some lines are tracked forever; let a cancelled chart stop here
+				throw new IllegalStateException("Thinning of region "+label+" was interrupted");
+			}
 			count = 0;
 			rowCountRight = countRowPixelsRight(row, column, label); //does not count itself
 			rowCountLeft = countRowPixelsLeft(row, column, label);
@@ -477,11 +460,11 @@ public class LineThinner {
 
 			/****
 			for (int i = column + 1; i < middleColumn; i++) {
-				bImage[row][i] = 0;
+				bImage.set(row, i, 0);
 				count++;
 			}
 			for (int i = column - 1; i > middleColumn; i--) {
-				bImage[row][i] = 0;
+				bImage.set(row, i, 0);
 				count++;
 			}
 			****/
@@ -490,7 +473,7 @@ public class LineThinner {
 				row = middleRow;
 				column = middleColumn;
 				//if (bImage[row][column] == 0 && !(row == firstRow && column == firstColumn)) {
-				if (bImage[row][column] == label && !(row == firstRow && column == firstColumn)) {
+				if (bImage.get(row, column) == label && !(row == firstRow && column == firstColumn)) {
 					goingBack++;
 					//System.out.println("Going back on itself");
 					if (goingBack == 1) {
@@ -526,7 +509,7 @@ public class LineThinner {
 					//System.out.println("Trend change from UP to DOWN (1)");
 				}
 				//bImage[row][column] = 0;
-				bImage[row][column] = label; //Pick this point as part of the thin line
+				bImage.set(row, column, label); //Pick this point as part of the thin line
 				countAddedPixels++;
 				count++;
 				previousPixel = currentPixel; 
@@ -541,11 +524,11 @@ public class LineThinner {
 
 			/****
 			if (trendColumn == DOWN && columnCountDown == 0) {
-				bImage[row][column] = 0;
+				bImage.set(row, column, 0);
 				count++;
 			}
 			else if (trendColumn == UP && columnCountUp == 0){
-				bImage[row][column] = 0;
+				bImage.set(row, column, 0);
 				count++;
 			}
 			****/
@@ -799,10 +782,10 @@ public class LineThinner {
 	 *
    * @param previousPixel The pixel to be connected
 	 * @param currentPixel The pixel the previousPixel is to be connected to 
-	 * @param bImage The 2d array representation of the processed image that is changed when the two pixels get connected
+	 * @param bImage The raster of the processed image that is changed when the two pixels get connected
 	 * @param value The label of the pixels to be connected
 	 */	
-	private void connectPixels(PointPixel previousPixel, PointPixel currentPixel, int[][] bImage, int value) {
+	private void connectPixels(PointPixel previousPixel, PointPixel currentPixel, Raster bImage, int value) {
 		//System.out.println("Connection "+previousPixel+" to "+currentPixel);
 		int row, column;
 		LinkedList points = new LinkedList();
@@ -816,21 +799,21 @@ public class LineThinner {
 		if (lineOrientation == Primitive.HORIZONTAL) { //rows = m*columns + b
 			for (int i = previousPixel.getColumn() + 1; i < currentPixel.getColumn(); i++) {
 				row = (int)(slope*(double)i+intercept);
-				bImage[row][i] = value;
+				bImage.set(row, i, value);
 			}
 			for (int i = previousPixel.getColumn() - 1; i > currentPixel.getColumn(); i--) {
 				row = (int)(slope*(double)i+intercept);
-				bImage[row][i] = value;
+				bImage.set(row, i, value);
 			}
 		}
 		else if (lineOrientation == Primitive.VERTICAL) { //columns = m*rows + b
 			for (int i = previousPixel.getRow() + 1; i < currentPixel.getRow(); i++) {
 				column = (int)(slope*(double)i+intercept);
-				bImage[i][column] = value;
+				bImage.set(i, column, value);
 			}
 			for (int i = previousPixel.getRow() - 1; i > currentPixel.getRow(); i--) {
 				column = (int)(slope*(double)i+intercept);
-				bImage[i][column] = value;
+				bImage.set(i, column, value);
 			}
 		}
 	}
@@ -855,7 +838,7 @@ public class LineThinner {
 			while(nextLabel == labelNo && nextColumn < imageWidth - 1) {
 				countRight++;
 				nextColumn++;
-				nextLabel = labelledImage[r][nextColumn]; 
+				nextLabel = labelledImage.get(r, nextColumn); 
 			}
 		}
 		return (countRight - 1);
@@ -881,7 +864,7 @@ public class LineThinner {
 			while(nextLabel == labelNo && nextColumn > 0) {
 				countLeft++;
 				nextColumn--;
-				nextLabel = labelledImage[r][nextColumn]; 
+				nextLabel = labelledImage.get(r, nextColumn); 
 			}
 		}
 		return (countLeft - 1);
@@ -908,7 +891,7 @@ public class LineThinner {
 			while(nextLabel == labelNo && nextRow < imageHeight - 1) {
 				countDown++;
 				nextRow++;
-				nextLabel = labelledImage[nextRow][c]; 
+				nextLabel = labelledImage.get(nextRow, c); 
 			}
 		}
 		return (countDown - 1);
@@ -934,7 +917,7 @@ public class LineThinner {
 			while(nextLabel == labelNo && nextRow > 0) {
 				countUp++;
 				nextRow--;
-				nextLabel = labelledImage[nextRow][c]; 
+				nextLabel = labelledImage.get(nextRow, c); 
 			}
 		}
 		return (countUp - 1);
@@ -1002,7 +985,7 @@ public class LineThinner {
 		int count = 0;
 		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
 			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (labelledImage[i][j] == label) {
+				if (labelledImage.get(i, j) == label) {
 					count++;
 				}
 			}
@@ -1075,19 +1058,20 @@ public class LineThinner {
 	 * line pixels are set to their corresponding labels.
 	 *
    * @param none
-	 * @return The 2d array representation of the labelled thinned image
+	 * @return The LABELS raster of the labelled thinned image
    */
-  public int[][] makeLabelImage() {
-		int[][] bImage = new int[imageHeight][imageWidth];
-		for (int i=0; i<imageHeight; i++) {
-			for (int j=0; j<imageWidth; j++) {
-				bImage[i][j] = labelledImage[i][j];
-				//if part of a thick line, set to background
-				if (allRegions[labelledImage[i][j]].getIsThickLine())
-					bImage[i][j] = bPixLabel;
-				if (processedImage[i][j] != bPixLabel) 
-					bImage[i][j] = processedImage[i][j];
-			}
+  public Raster makeLabelImage() {
+		Raster bImage = new Raster(imageHeight, imageWidth, Raster.LABELS);
+		int[] labels = labelledImage.getLabelData();
+		int[] thinned = processedImage.getLabelData();
+		int[] newLabels = bImage.getLabelData();
+		for (int i = 0; i < newLabels.length; i++) {
+			newLabels[i] = labels[i];
+			//if part of a thick line, set to background
+			if (allRegions[labels[i]].getIsThickLine())
+				newLabels[i] = bPixLabel;
+			if (thinned[i] != bPixLabel) 
+				newLabels[i] = thinned[i];
 		}
 		return bImage;
 	}
@@ -1108,16 +1092,16 @@ public class LineThinner {
 		int[][] bImage = new int[imageHeight][imageWidth];
 		for (int i=0; i<imageHeight; i++) {
 			for (int j=0; j<imageWidth; j++) {
-				if (labelledImage[i][j] == bPixLabel) {
+				if (labelledImage.get(i, j) == bPixLabel) {
 					bImage[i][j] = 255;
 				}
 				else {
 					bImage[i][j] = 150;
 				}
-				if (allRegions[labelledImage[i][j]].getIsThickLine())
+				if (allRegions[labelledImage.get(i, j)].getIsThickLine())
 					bImage[i][j] = 0;
 				//if part of a thick line, set to background
-				if (processedImage[i][j] != bPixLabel) 
+				if (processedImage.get(i, j) != bPixLabel) 
 					bImage[i][j] = 200; 
 			}
 		}
@@ -1126,12 +1110,12 @@ public class LineThinner {
 
 
   /**
-   * Returns the 2-d array of the thinned line labels image without any processing.
+   * Returns the raster of the thinned line labels image without any processing.
 	 *
    * @param none
-	 * @return The 2d array representation of the thinned line image
+	 * @return The LABELS raster of the thinned line image
    */
-  public int[][] getThinLineImage() {
+  public Raster getThinLineImage() {
     return processedImage;
   }
 
@@ -0,0 +1,55 @@
+import java.util.*;
+
+/**
+ * An <code>ArtifactSink</code> that keeps the images in memory,
+ * e.g. to check the diagnostic images of a run without touching the disk.
+ * An image that is written twice replaces the first one.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class MemoryArtifactSink implements ArtifactSink {
+
+	private LinkedHashMap artifacts;	//name -> byte[]
+
+	/**
+	 * Constructor.
+	 *
+	 * @param none
+	 */
+	public MemoryArtifactSink() {
+		artifacts = new LinkedHashMap();
+	}
+
+	public boolean isEnabled() {
+		return true;
+	}
+
+	public synchronized void write(String name, byte[] data) {
+		artifacts.put(name, data);
+	}
+
+	public void flush() {
+	}
+
+	/**
+	 * Returns the names of the images, in the order they were first written.
+	 *
+	 * @param none
+	 * @return The linked list of the names (Strings)
+	 */
+	public synchronized LinkedList getNames() {
+		return new LinkedList(artifacts.keySet());
+	}
+
+	/**
+	 * Returns the bytes of an image file.
+	 *
+	 * @param name The name of the image
+	 * @return The bytes of the image, or null if there is no such image
+	 */
+	public synchronized byte[] getArtifact(String name) {
+		return (byte[])artifacts.get(name);
+	}
+}
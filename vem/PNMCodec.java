@@ -0,0 +1,327 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and writes the netpbm image files: bitmaps (P1 ascii, P4 binary),
+ * gray images (P2 ascii, P5 binary) and color images (P3 ascii, P6 binary).
+ * <p>
+ * A file is read through a memory mapped buffer into a gray
+ * <code>Raster</code>, the image that the pipeline works on, in one pass:
+ * a binary gray file with a maximum value of 255 is copied with one bulk
+ * get, the set pixels of a bitmap are black (0) and the others white (255),
+ * other maximum values are scaled to 0-255, and the colors are made gray
+ * with <code>BWImageG.toGray</code>, like <code>loadJavaImage</code> does.
+ * <p>
+ * Files are written with one gathering write of the header and the pixels.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class PNMCodec {
+
+	private static final String[] PNM_EXTENSIONS = {".pbm", ".pgm", ".ppm", ".pnm"};
+
+	/**
+	 * Checks if the given file name has one of the netpbm extensions.
+	 *
+	 * @param name The file name
+	 * @return True if the file is a netpbm image, false otherwise
+	 */
+	public static boolean isPNMName(String name) {
+		String lower = name.toLowerCase();
+		for (int i = 0; i < PNM_EXTENSIONS.length; i++) {
+			if (lower.endsWith(PNM_EXTENSIONS[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads a netpbm file into a gray raster.
+	 *
+	 * @param aFile The file
+	 * @return The gray raster
+	 */
+	public static Raster read(File aFile) throws IOException {
+		FileInputStream x = new FileInputStream(aFile);
+		try {
+			FileChannel channel = x.getChannel();
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			x.close();
+		}
+	}
+
+	/**
+	 * Reads a netpbm image from a buffer into a gray raster.
+	 *
+	 * @param in The buffer, at the start of the image
+	 * @return The gray raster
+	 */
+	public static Raster read(ByteBuffer in) throws IOException {
+		try {
+			if (in.get() != 'P') {
+				throw new IOException("not a pnm file");
+			}
+			int format = in.get() - '0';
+			if (format < 1 || format > 6) {
+				throw new IOException("unknown pnm format P"+format);
+			}
+			int columns = readNumber(in);
+			int rows = readNumber(in);
+			int maxValue = (format == 1 || format == 4) ? 1 : readNumber(in);
+			if (columns <= 0 || rows <= 0 || maxValue <= 0 || maxValue > 65535) {
+				throw new IOException("bad pnm header");
+			}
+			//The size must fit in an array and in the rest of the file, so
+			//that a bad header cannot make a huge raster
+			long pixels = (long)rows*columns;
+			if (pixels > Integer.MAX_VALUE) {
+				throw new IOException("pnm image is too large: "+columns+"x"+rows);
+			}
+			if (getMinimumSize(format, rows, columns, maxValue) > in.remaining()) {
+				throw new IOException("pnm file is too short for a "+columns+"x"+rows+" image");
+			}
+			Raster aRaster = new Raster(rows, columns, Raster.GRAY);
+			byte[] gray = aRaster.getGrayData();
+			switch (format) {
+				case 1: readAsciiBitmap(in, gray); break;
+				case 2: readAsciiGray(in, gray, maxValue); break;
+				case 3: readAsciiColor(in, gray, maxValue); break;
+				case 4: readBitmap(in, gray, rows, columns); break;
+				case 5: readGray(in, gray, maxValue); break;
+				case 6: readColor(in, gray, rows, columns, maxValue); break;
+			}
+			return aRaster;
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("pnm file is too short");
+		}
+	}
+
+	/**
+	 * Returns the fewest bytes that the pixels of an image can take:
+	 * the size of the pixels of a binary file, and one byte for each
+	 * sample of an ascii file.
+	 *
+	 * @param format The format, 1 to 6
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 * @param maxValue The maximum value of the file
+	 */
+	private static long getMinimumSize(int format, int rows, int columns, int maxValue) {
+		long pixels = (long)rows*columns;
+		int sampleSize = (maxValue < 256) ? 1 : 2;
+		switch (format) {
+			case 3: return 3*pixels;
+			case 4: return (long)rows*((columns + 7) >>> 3);
+			case 5: return sampleSize*pixels;
+			case 6: return 3L*sampleSize*pixels;
+			default: return pixels;
+		}
+	}
+
+	/**
+	 * Writes a gray raster to a binary pgm (P5) file, without scaling.
+	 *
+	 * @param aFile The file
+	 * @param aRaster The gray raster
+	 */
+	public static void write(File aFile, Raster aRaster) throws IOException {
+		byte[] header = ("P5 " + aRaster.getColumns() + " " + aRaster.getRows() + " 255 ").getBytes();
+		write(aFile, new ByteBuffer[] {ByteBuffer.wrap(header), ByteBuffer.wrap(aRaster.getGrayData())});
+	}
+
+	/**
+	 * Writes a whole file that is already made, e.g. by
+	 * <code>BWImageG.makePGM</code>.
+	 *
+	 * @param aFile The file
+	 * @param data The bytes of the file
+	 */
+	public static void write(File aFile, byte[] data) throws IOException {
+		write(aFile, new ByteBuffer[] {ByteBuffer.wrap(data)});
+	}
+
+	/**
+	 * Writes the buffers to a file, one after the other.
+	 *
+	 * @param aFile The file
+	 * @param buffers The buffers
+	 */
+	private static void write(File aFile, ByteBuffer[] buffers) throws IOException {
+		FileOutputStream x = new FileOutputStream(aFile);
+		try {
+			FileChannel channel = x.getChannel();
+			long remaining = 0;
+			for (int i = 0; i < buffers.length; i++) {
+				remaining += buffers[i].remaining();
+			}
+			while (remaining > 0) {
+				remaining -= channel.write(buffers);
+			}
+		}
+		finally {
+			x.close();
+		}
+	}
+
+	/**
+	 * Skips white space and comments, reads one number and the character
+	 * after it. After the last number of the header of a binary file that
+	 * character is the single white space before the pixels.
+	 *
+	 * @param in The buffer
+	 */
+	private static int readNumber(ByteBuffer in) throws IOException {
+		int c = skipSpace(in);
+		if (c < '0' || c > '9') {
+			throw new IOException("bad number in pnm file");
+		}
+		int n = 0;
+		while (c >= '0' && c <= '9') {
+			if (n > (Integer.MAX_VALUE - (c - '0'))/10) {
+				throw new IOException("number too large in pnm file");
+			}
+			n = 10*n + c - '0';
+			if (!in.hasRemaining()) {
+				return n;
+			}
+			c = in.get();
+		}
+		return n;
+	}
+
+	/**
+	 * Skips white space and comments and returns the next character.
+	 *
+	 * @param in The buffer
+	 */
+	private static int skipSpace(ByteBuffer in) {
+		int c = in.get();
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '#') {
+			if (c == '#') {
+				while (c != '\n' && c != '\r') c = in.get();
+			}
+			c = in.get();
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the table that scales the values 0 to maxValue to 0-255.
+	 *
+	 * @param maxValue The maximum value of the file
+	 */
+	private static byte[] makeScale(int maxValue) {
+		byte[] scale = new byte[maxValue+1];
+		for (int v = 0; v <= maxValue; v++) {
+			scale[v] = (byte)((v*255 + maxValue/2)/maxValue);
+		}
+		return scale;
+	}
+
+	/**
+	 * Reads the next binary sample: one byte, or two bytes (big endian)
+	 * if the maximum value is more than 255.
+	 *
+	 * @param in The buffer
+	 * @param maxValue The maximum value of the file
+	 */
+	private static int readSample(ByteBuffer in, int maxValue) {
+		int v = (maxValue < 256) ? (in.get() & 0xff) : (in.getShort() & 0xffff);
+		return Math.min(v, maxValue);
+	}
+
+	/**
+	 * Reads a P1 bitmap; 1 is black.
+	 */
+	private static void readAsciiBitmap(ByteBuffer in, byte[] gray) throws IOException {
+		for (int i = 0; i < gray.length; i++) {
+			int c = skipSpace(in);	//the digits of a P1 file need not be separated
+			if (c != '0' && c != '1') {
+				throw new IOException("bad pixel in pbm file");
+			}
+			gray[i] = (byte)(c == '1' ? 0 : 255);
+		}
+	}
+
+	/**
+	 * Reads a P2 gray image.
+	 */
+	private static void readAsciiGray(ByteBuffer in, byte[] gray, int maxValue) throws IOException {
+		byte[] scale = makeScale(maxValue);
+		for (int i = 0; i < gray.length; i++) {
+			gray[i] = scale[Math.min(readNumber(in), maxValue)];
+		}
+	}
+
+	/**
+	 * Reads a P3 color image.
+	 */
+	private static void readAsciiColor(ByteBuffer in, byte[] gray, int maxValue) throws IOException {
+		byte[] scale = makeScale(maxValue);
+		for (int i = 0; i < gray.length; i++) {
+			int red = scale[Math.min(readNumber(in), maxValue)] & 0xff;
+			int green = scale[Math.min(readNumber(in), maxValue)] & 0xff;
+			int blue = scale[Math.min(readNumber(in), maxValue)] & 0xff;
+			gray[i] = (byte)BWImageG.toGray(red, green, blue);
+		}
+	}
+
+	/**
+	 * Reads a P4 bitmap: each row is packed 8 pixels to a byte, the first
+	 * pixel in the high bit, and a set bit is black.
+	 */
+	private static void readBitmap(ByteBuffer in, byte[] gray, int rows, int columns) {
+		byte[] row = new byte[(columns + 7) >>> 3];
+		for (int r = 0; r < rows; r++) {
+			in.get(row);
+			int i = r*columns;
+			for (int c = 0; c < columns; c++) {
+				gray[i+c] = (byte)(((row[c >>> 3] << (c & 7)) & 0x80) != 0 ? 0 : 255);
+			}
+		}
+	}
+
+	/**
+	 * Reads a P5 gray image.
+	 */
+	private static void readGray(ByteBuffer in, byte[] gray, int maxValue) {
+		if (maxValue == 255) {
+			in.get(gray);
+			return;
+		}
+		byte[] scale = makeScale(maxValue);
+		for (int i = 0; i < gray.length; i++) {
+			gray[i] = scale[readSample(in, maxValue)];
+		}
+	}
+
+	/**
+	 * Reads a P6 color image, a row at a time when the samples are bytes.
+	 */
+	private static void readColor(ByteBuffer in, byte[] gray, int rows, int columns, int maxValue) {
+		if (maxValue == 255) {
+			byte[] row = new byte[3*columns];
+			for (int r = 0; r < rows; r++) {
+				in.get(row);
+				int i = r*columns;
+				for (int c = 0, p = 0; c < columns; c++, p += 3) {
+					gray[i+c] = (byte)BWImageG.toGray(row[p] & 0xff, row[p+1] & 0xff, row[p+2] & 0xff);
+				}
+			}
+			return;
+		}
+		byte[] scale = makeScale(maxValue);
+		for (int i = 0; i < gray.length; i++) {
+			int red = scale[readSample(in, maxValue)] & 0xff;
+			int green = scale[readSample(in, maxValue)] & 0xff;
+			int blue = scale[readSample(in, maxValue)] & 0xff;
+			gray[i] = (byte)BWImageG.toGray(red, green, blue);
+		}
+	}
+}
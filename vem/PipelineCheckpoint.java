@@ -0,0 +1,474 @@
+import java.io.*;
+import java.util.*;
+import java.awt.Point;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * A binary snapshot of the state of a <code>BWImageG</code> after
+ * <code>fitLines</code>, so that the later stages (reading the words,
+ * finding the rectangles, bars, axes, wedges and connected lines and
+ * writing the summary) can be run again without labelling, thinning and
+ * vectorizing the image again (see <code>BWImageG.writeCheckpoint</code>
+ * and <code>BWImageG.readCheckpoint</code>).
+ * <p>
+ * The file starts with a header (magic number, format version and
+ * <code>BWImageG.PIPELINE_VERSION</code>) followed by the fields of the
+ * image: the gray raster as bytes, the label and border rasters as big
+ * endian ints, the <code>Region</code>s with their <code>Primitive</code>s, the
+ * <code>PixelDatabase</code> and the <code>VirtualLine</code>s. Each of these classes writes and reads its
+ * own fields. A primitive or a region used by a virtual line is written as
+ * its position in the region array, so it is the same object again when the
+ * checkpoint is read.
+ * <p>
+ * The file is read through a memory mapped buffer; each raster is copied
+ * from it into one array.
+ * <p>
+ * The hash tables are rebuilt with the capacity that gives the same
+ * iteration order as the tables that were written, since the stages
+ * after <code>fitLines</code> go through them in that order.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PipelineCheckpoint {
+
+	public static final int MAGIC = 0x56454d43;	//"VEMC"
+	public static final int FORMAT_VERSION = 3;
+
+	private static final byte NULL_POINT = 0;
+	private static final byte POINT = 1;
+	private static final byte POINT_PIXEL = 2;
+
+	private static final int NULL_REF = -1;
+	private static final int INLINE_REF = -2;
+
+	private Region[] regions;
+	private IdentityHashMap primitiveRefs;	//Primitive -> int[] {region, position}, for writing
+	private IdentityHashMap regionRefs;	//Region -> Integer, for writing
+	private Object[][] primitiveArrays;	//the primitives of each region in iteration order, for reading
+
+	/**
+	 * Constructor. The primitives and the regions written or read with
+	 * this object are found in the given region array.
+	 *
+	 * @param allRegions The region array of the image
+	 */
+	public PipelineCheckpoint(Region[] allRegions) {
+		regions = allRegions;
+		primitiveArrays = new Object[regions.length][];
+	}
+
+	/**
+	 * Creates a checkpoint file and writes its header.
+	 *
+	 * @param aFile The file
+	 * @return The stream that the rest of the checkpoint is written to
+	 */
+	public static DataOutputStream create(File aFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aFile), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeString(out, BWImageG.PIPELINE_VERSION);
+		return out;
+	}
+
+	/**
+	 * Maps a checkpoint file into memory and checks its header.
+	 *
+	 * @param aFile The file
+	 * @return The buffer, positioned after the header
+	 */
+	public static ByteBuffer open(File aFile) throws IOException {
+		RandomAccessFile x = new RandomAccessFile(aFile, "r");
+		MappedByteBuffer in;
+		try {
+			FileChannel channel = x.getChannel();
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			x.close();
+		}
+		if (in.remaining() < 8 || in.getInt() != MAGIC) {
+			throw new IOException(aFile+" is not a checkpoint");
+		}
+		int version = in.getInt();
+		String pipelineVersion = readString(in);
+		if (version != FORMAT_VERSION || !BWImageG.PIPELINE_VERSION.equals(pipelineVersion)) {
+			throw new IOException(aFile+" was written by another version of the pipeline");
+		}
+		return in;
+	}
+
+	/**
+	 * Writes a raster: its number of rows and columns, its type and its
+	 * pixels, as bytes or as big endian ints.
+	 *
+	 * @param out The stream
+	 * @param aRaster The raster, which may be null
+	 */
+	public static void writeRaster(DataOutputStream out, Raster aRaster) throws IOException {
+		if (aRaster == null) {
+			out.writeInt(-1);
+			return;
+		}
+		int rows = aRaster.getRows();
+		int columns = aRaster.getColumns();
+		out.writeInt(rows);
+		out.writeInt(columns);
+		out.writeByte(aRaster.getType());
+		if (aRaster.getType() == Raster.GRAY) {
+			out.write(aRaster.getGrayData());
+			return;
+		}
+		int[] data = aRaster.getLabelData();
+		ByteBuffer row = ByteBuffer.allocate(columns*4);
+		for (int i = 0; i < rows; i++) {
+			row.clear();
+			row.asIntBuffer().put(data, i*columns, columns);
+			out.write(row.array());
+		}
+	}
+
+	/**
+	 * Reads a raster written by <code>writeRaster</code>.
+	 *
+	 * @param in The buffer
+	 * @return The raster, or null
+	 */
+	public static Raster readRaster(ByteBuffer in) {
+		int rows = in.getInt();
+		if (rows < 0) {
+			return null;
+		}
+		int columns = in.getInt();
+		Raster aRaster = new Raster(rows, columns, in.get());
+		if (aRaster.getType() == Raster.GRAY) {
+			in.get(aRaster.getGrayData());
+			return aRaster;
+		}
+		in.asIntBuffer().get(aRaster.getLabelData());
+		in.position(in.position() + rows*columns*4);
+		return aRaster;
+	}
+
+	/**
+	 * Writes an int array.
+	 *
+	 * @param out The stream
+	 * @param a The array, which may be null
+	 */
+	public static void writeArray(DataOutputStream out, int[] a) throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(a.length);
+		for (int i = 0; i < a.length; i++) {
+			out.writeInt(a[i]);
+		}
+	}
+
+	/**
+	 * Reads an int array written by <code>writeArray</code>.
+	 *
+	 * @param in The buffer
+	 * @return The array, or null
+	 */
+	public static int[] readIntArray(ByteBuffer in) {
+		int n = in.getInt();
+		if (n < 0) {
+			return null;
+		}
+		int[] a = new int[n];
+		in.asIntBuffer().get(a);
+		in.position(in.position() + n*4);
+		return a;
+	}
+
+	/**
+	 * Writes a string in UTF-8.
+	 *
+	 * @param out The stream
+	 * @param s The string, which may be null
+	 */
+	public static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by <code>writeString</code>.
+	 *
+	 * @param in The buffer
+	 * @return The string, or null
+	 */
+	public static String readString(ByteBuffer in) throws IOException {
+		int n = in.getInt();
+		if (n < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[n];
+		in.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * Writes a point. A <code>PointPixel</code> is written with its row,
+	 * column, value, counts and label, besides its x and y, which are not
+	 * always the same as its row and column.
+	 *
+	 * @param out The stream
+	 * @param p The point, which may be null
+	 */
+	public static void writePoint(DataOutputStream out, Point p) throws IOException {
+		if (p == null) {
+			out.writeByte(NULL_POINT);
+		}
+		else if (p instanceof PointPixel) {
+			PointPixel aPixel = (PointPixel)p;
+			out.writeByte(POINT_PIXEL);
+			out.writeInt(aPixel.x);
+			out.writeInt(aPixel.y);
+			out.writeInt(aPixel.getRow());
+			out.writeInt(aPixel.getColumn());
+			out.writeInt(aPixel.getValue());
+			out.writeInt(aPixel.getRowCount());
+			out.writeInt(aPixel.getColumnCount());
+			out.writeInt(aPixel.getLabelNo());
+		}
+		else {
+			out.writeByte(POINT);
+			out.writeInt(p.x);
+			out.writeInt(p.y);
+		}
+	}
+
+	/**
+	 * Reads a point written by <code>writePoint</code>.
+	 *
+	 * @param in The buffer
+	 * @return The point (a <code>Point</code> or a <code>PointPixel</code>), or null
+	 */
+	public static Point readPoint(ByteBuffer in) {
+		byte type = in.get();
+		if (type == NULL_POINT) {
+			return null;
+		}
+		if (type == POINT) {
+			return new Point(in.getInt(), in.getInt());
+		}
+		PointPixel aPixel = new PointPixel();
+		aPixel.x = in.getInt();
+		aPixel.y = in.getInt();
+		aPixel.setRow(in.getInt());
+		aPixel.setColumn(in.getInt());
+		aPixel.setValue(in.getInt());
+		aPixel.setRowCount(in.getInt());
+		aPixel.setColumnCount(in.getInt());
+		aPixel.setLabelNo(in.getInt());
+		return aPixel;
+	}
+
+	/**
+	 * Writes a linked list of points.
+	 *
+	 * @param out The stream
+	 * @param points The linked list of points, which may be null
+	 */
+	public static void writePoints(DataOutputStream out, LinkedList points) throws IOException {
+		if (points == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(points.size());
+		ListIterator lItr = points.listIterator();
+		while (lItr.hasNext()) {
+			writePoint(out, (Point)lItr.next());
+		}
+	}
+
+	/**
+	 * Reads a linked list of points written by <code>writePoints</code>.
+	 *
+	 * @param in The buffer
+	 * @return The linked list of points, or null
+	 */
+	public static LinkedList readPoints(ByteBuffer in) {
+		int n = in.getInt();
+		if (n < 0) {
+			return null;
+		}
+		LinkedList points = new LinkedList();
+		for (int i = 0; i < n; i++) {
+			points.add(readPoint(in));
+		}
+		return points;
+	}
+
+	/**
+	 * Writes a reference to a primitive: the position of its region in the
+	 * region array and its position in the primitive list of the region.
+	 * A primitive that is not in any region is written in full.
+	 *
+	 * @param out The stream
+	 * @param aPrim The primitive, which may be null
+	 */
+	public void writePrimitiveRef(DataOutputStream out, Primitive aPrim) throws IOException {
+		if (primitiveRefs == null) {
+			indexRegions();
+		}
+		if (aPrim == null) {
+			out.writeInt(NULL_REF);
+			return;
+		}
+		int[] ref = (int[])primitiveRefs.get(aPrim);
+		if (ref == null) {
+			out.writeInt(INLINE_REF);
+			aPrim.write(out);
+			return;
+		}
+		out.writeInt(ref[0]);
+		out.writeInt(ref[1]);
+	}
+
+	/**
+	 * Reads a reference written by <code>writePrimitiveRef</code>.
+	 * The regions must have been read already.
+	 *
+	 * @param in The buffer
+	 * @return The primitive, or null
+	 */
+	public Primitive readPrimitiveRef(ByteBuffer in) {
+		int regionNo = in.getInt();
+		if (regionNo == NULL_REF) {
+			return null;
+		}
+		if (regionNo == INLINE_REF) {
+			return Primitive.read(in);
+		}
+		int position = in.getInt();
+		if (primitiveArrays[regionNo] == null) {
+			primitiveArrays[regionNo] = regions[regionNo].getPrimitiveList().toArray();
+		}
+		return (Primitive)primitiveArrays[regionNo][position];
+	}
+
+	/**
+	 * Writes a reference to a region: its position in the region array.
+	 *
+	 * @param out The stream
+	 * @param aRegion The region, which may be null
+	 */
+	public void writeRegionRef(DataOutputStream out, Region aRegion) throws IOException {
+		if (regionRefs == null) {
+			indexRegions();
+		}
+		if (aRegion == null) {
+			out.writeInt(NULL_REF);
+			return;
+		}
+		Integer ref = (Integer)regionRefs.get(aRegion);
+		if (ref == null) {
+			throw new IOException("Region "+aRegion.getRegion()+" is not in the region array");
+		}
+		out.writeInt(ref.intValue());
+	}
+
+	/**
+	 * Reads a reference written by <code>writeRegionRef</code>.
+	 *
+	 * @param in The buffer
+	 * @return The region, or null
+	 */
+	public Region readRegionRef(ByteBuffer in) {
+		int regionNo = in.getInt();
+		return regionNo == NULL_REF ? null : regions[regionNo];
+	}
+
+	/**
+	 * Returns an empty <code>HashMap</code> that, when the given integer keys
+	 * are put in it in the given order, goes through them in the same order.
+	 * This is the smallest table that holds them without growing and in
+	 * which they are in the order of their buckets.
+	 *
+	 * @param keys The keys in the order of the table that was written
+	 */
+	public static HashMap newHashMap(int[] keys) {
+		int capacity = 16;
+		while (capacity < (1 << 30)) {
+			if (keys.length <= capacity/4*3 && inBucketOrder(keys, capacity)) {
+				break;
+			}
+			capacity *= 2;
+		}
+		return new HashMap(capacity);
+	}
+
+	/**
+	 * Returns an empty <code>Hashtable</code> with the capacity of a
+	 * <code>new Hashtable()</code> after n new keys were put in it. If the
+	 * keys of the table that was written are put in it in the opposite of
+	 * their order, it goes through them in their order.
+	 *
+	 * @param n The number of keys
+	 */
+	public static Hashtable newHashtable(int n) {
+		int capacity = 11;
+		int threshold = (int)(capacity*0.75f);
+		for (int count = 0; count < n; count++) {
+			if (count >= threshold) {
+				capacity = capacity*2+1;
+				threshold = (int)(capacity*0.75f);
+			}
+		}
+		return new Hashtable(capacity);
+	}
+
+	/**
+	 * Checks if the given keys are in the order of their buckets
+	 * in a <code>HashMap</code> of the given capacity.
+	 *
+	 * @param keys The keys
+	 * @param capacity The number of buckets, a power of two
+	 */
+	private static boolean inBucketOrder(int[] keys, int capacity) {
+		int previous = 0;
+		for (int i = 0; i < keys.length; i++) {
+			int bucket = (keys[i] ^ (keys[i] >>> 16)) & (capacity-1);
+			if (bucket < previous) {
+				return false;
+			}
+			previous = bucket;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the position of each region and each primitive.
+	 *
+	 * @param none
+	 */
+	private void indexRegions() {
+		primitiveRefs = new IdentityHashMap();
+		regionRefs = new IdentityHashMap();
+		for (int i = 0; i < regions.length; i++) {
+			if (regions[i] == null) {
+				continue;
+			}
+			regionRefs.put(regions[i], Integer.valueOf(i));
+			Iterator itr = regions[i].getPrimitiveList().iterator();
+			int position = 0;
+			while (itr.hasNext()) {
+				primitiveRefs.put(itr.next(), new int[] {i, position});
+				position++;
+			}
+		}
+	}
+}
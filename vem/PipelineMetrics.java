@@ -0,0 +1,272 @@
+import java.io.*;
+import java.util.*;
+import java.lang.management.*;
+
+/**
+ * A class to record how long each stage of the <code>BWImageG</code>
+ * pipeline takes.
+ * <p>
+ * For each stage (loadJavaImage, filterImage, labelImage, ...) the wall
+ * clock time and the number of bytes allocated by the thread that ran the
+ * stage are recorded, together with counters about what the stage found
+ * (number of blobs, primitives, rectangles, words, OCR template comparisons).
+ * The stages are kept in the order they were started.
+ * <p>
+ * Only the allocations of the calling thread are counted: the work that a
+ * stage hands to the fork/join pool (the row stripes of the preprocessing
+ * passes, the stripes of the labelling) is not included, because the pool
+ * threads may be working for another stage or another image at the same
+ * time. The json field is named threadAllocatedBytes for that reason.
+ * <p>
+ * The stages may overlap when they are run by a <code>StageScheduler</code>,
+ * so the total time is not the sum of the stage times but the time from
+ * the start of the first stage to the end of the last one.
+ * <p>
+ * The measurements can be read with the get methods or written to a
+ * json file with <code>writeJSON</code>. All methods are synchronized,
+ * so stages may be recorded from different threads.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PipelineMetrics {
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	private LinkedHashMap stages;	//stage name -> Stage
+	private long firstStart;	//nanoTime of the first startStage
+	private long lastEnd;	//nanoTime of the last endStage
+	private boolean started;	//true after the first startStage
+
+	/**
+	 * Constructor.
+	 *
+	 * @param none
+	 */
+	public PipelineMetrics() {
+		stages = new LinkedHashMap();
+	}
+
+	/**
+	 * Records the start of a stage. Must be followed by <code>endStage</code>
+	 * with the same name on the same thread.
+	 *
+	 * @param name The name of the stage
+	 */
+	public synchronized void startStage(String name) {
+		Stage aStage = getStage(name);
+		aStage.allocationStart = allocatedBytes();
+		aStage.start = System.nanoTime();
+		if (!started) {
+			firstStart = aStage.start;
+			started = true;
+		}
+	}
+
+	/**
+	 * Records the end of a stage. If the stage was run more than once, the
+	 * times and the allocations are added up.
+	 *
+	 * @param name The name of the stage
+	 */
+	public synchronized void endStage(String name) {
+		long end = System.nanoTime();
+		Stage aStage = getStage(name);
+		aStage.wallNanos += end - aStage.start;
+		lastEnd = Math.max(lastEnd, end);
+		if (aStage.allocationStart >= 0) {
+			aStage.allocatedBytes += allocatedBytes() - aStage.allocationStart;
+		}
+		else {
+			aStage.allocatedBytes = -1;
+		}
+	}
+
+	/**
+	 * Sets a counter of a stage.
+	 *
+	 * @param name The name of the stage
+	 * @param counter The name of the counter
+	 * @param value The value of the counter
+	 */
+	public synchronized void setCounter(String name, String counter, long value) {
+		getStage(name).counters.put(counter, Long.valueOf(value));
+	}
+
+	/**
+	 * Returns the names of the recorded stages, in the order they were started.
+	 *
+	 * @param none
+	 * @return The linked list of stage names (Strings)
+	 */
+	public synchronized LinkedList getStageNames() {
+		return new LinkedList(stages.keySet());
+	}
+
+	/**
+	 * Returns the wall clock time of a stage in nanoseconds.
+	 *
+	 * @param name The name of the stage
+	 * @return The time, or 0 if the stage was not recorded
+	 */
+	public synchronized long getWallNanos(String name) {
+		Stage aStage = (Stage)stages.get(name);
+		return aStage == null ? 0 : aStage.wallNanos;
+	}
+
+	/**
+	 * Returns the number of bytes allocated during a stage by the thread
+	 * that ran it; the allocations of the fork/join pool are not included.
+	 *
+	 * @param name The name of the stage
+	 * @return The number of bytes, or -1 if the virtual machine cannot measure it
+	 */
+	public synchronized long getAllocatedBytes(String name) {
+		Stage aStage = (Stage)stages.get(name);
+		return aStage == null ? 0 : aStage.allocatedBytes;
+	}
+
+	/**
+	 * Returns a counter of a stage.
+	 *
+	 * @param name The name of the stage
+	 * @param counter The name of the counter
+	 * @return The value of the counter, or 0 if it was not set
+	 */
+	public synchronized long getCounter(String name, String counter) {
+		Stage aStage = (Stage)stages.get(name);
+		if (aStage == null || !aStage.counters.containsKey(counter)) {
+			return 0;
+		}
+		return ((Long)aStage.counters.get(counter)).longValue();
+	}
+
+	/**
+	 * Returns the counters of a stage.
+	 *
+	 * @param name The name of the stage
+	 * @return A copy of the counters of the stage; counter name -> Long
+	 */
+	public synchronized LinkedHashMap getCounters(String name) {
+		Stage aStage = (Stage)stages.get(name);
+		return aStage == null ? new LinkedHashMap() : new LinkedHashMap(aStage.counters);
+	}
+
+	/**
+	 * Returns the wall clock time from the start of the first stage to the
+	 * end of the last one in nanoseconds. Unlike the sum of the stage
+	 * times, it does not count the stages that ran at the same time twice.
+	 *
+	 * @param none
+	 * @return The total time, or 0 if no stage has ended
+	 */
+	public synchronized long getTotalWallNanos() {
+		if (!started || lastEnd < firstStart) {
+			return 0;
+		}
+		return lastEnd - firstStart;
+	}
+
+	/**
+	 * Returns the measurements as a json document:
+	 * the total time and, for each stage, its name, time in milliseconds,
+	 * bytes allocated by the thread that ran it and counters.
+	 *
+	 * @param none
+	 * @return The json document
+	 */
+	public synchronized String toJSON() {
+		StringBuffer s = new StringBuffer();
+		s.append("{\n");
+		s.append("  \"totalMillis\": "+millis(getTotalWallNanos())+",\n");
+		s.append("  \"stages\": [");
+		Iterator itr = stages.values().iterator();
+		while (itr.hasNext()) {
+			Stage aStage = (Stage)itr.next();
+			s.append("\n    {\"name\": \""+aStage.name+"\", \"wallMillis\": "+millis(aStage.wallNanos)
+			         +", \"threadAllocatedBytes\": "+aStage.allocatedBytes+", \"counters\": {");
+			Iterator itr2 = aStage.counters.entrySet().iterator();
+			while (itr2.hasNext()) {
+				Map.Entry anEntry = (Map.Entry)itr2.next();
+				s.append("\""+anEntry.getKey()+"\": "+anEntry.getValue());
+				if (itr2.hasNext()) s.append(", ");
+			}
+			s.append("}}");
+			if (itr.hasNext()) s.append(",");
+		}
+		s.append("\n  ]\n}\n");
+		return s.toString();
+	}
+
+	/**
+	 * Writes the json document of <code>toJSON</code> to a file.
+	 *
+	 * @param filename The name of the json file
+	 */
+	public void writeJSON(String filename) {
+		try {
+			BufferedWriter ostream = new BufferedWriter(new FileWriter(filename));
+			ostream.write(toJSON());
+			ostream.close();
+		}
+		catch (Exception e) {System.out.println(e.getMessage());}
+	}
+
+	/**
+	 * Returns the record of a stage, creating it if necessary.
+	 *
+	 * @param name The name of the stage
+	 * @return The record of the stage
+	 */
+	private Stage getStage(String name) {
+		Stage aStage = (Stage)stages.get(name);
+		if (aStage == null) {
+			aStage = new Stage(name);
+			stages.put(name, aStage);
+		}
+		return aStage;
+	}
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread,
+	 * or -1 if the virtual machine cannot measure it.
+	 *
+	 * @param none
+	 */
+	private static long allocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)threadBean;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds with three decimals.
+	 *
+	 * @param nanos The time in nanoseconds
+	 */
+	private static String millis(long nanos) {
+		return String.valueOf(Math.round(nanos/1000.0)/1000.0);
+	}
+
+	/**
+	 * The measurements of one stage.
+	 */
+	private static class Stage {
+		String name;
+		long start;
+		long wallNanos;
+		long allocationStart;
+		long allocatedBytes;
+		LinkedHashMap counters;	//counter name -> Long
+
+		Stage(String aName) {
+			name = aName;
+			counters = new LinkedHashMap();
+		}
+	}
+}
@@ -3,6 +3,8 @@ import java.util.Collection;
 import java.util.*;
 import java.lang.Integer;
 import java.awt.Point;
+import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A class to hold the pixel information for all the relevant pixels of the image.
@@ -24,6 +26,7 @@ import java.awt.Point;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class PixelDatabase {
 	private int imageHeight;
   private int	imageWidth;
@@ -875,6 +878,76 @@ public class PixelDatabase {
 		return noOfPixels; 
 	} 
 
+ /**
+	* Writes the database to a checkpoint (see <code>PipelineCheckpoint</code>).
+	* 
+	* @param out The stream of the checkpoint
+	*/
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(imageHeight);
+		out.writeInt(imageWidth);
+		out.writeInt(noOfPixels);
+		out.writeInt(pixels.size());
+		Iterator itr = pixels.entrySet().iterator();
+		while (itr.hasNext()) {
+			Map.Entry anEntry = (Map.Entry)itr.next();
+			out.writeInt(((Integer)anEntry.getKey()).intValue());
+			LinkedList alist = (LinkedList)anEntry.getValue();
+			out.writeInt(alist.size());
+			ListIterator lItr = alist.listIterator();
+			while (lItr.hasNext()) {
+				PixelData entry = (PixelData)lItr.next();
+				out.writeInt(entry.getLabel());
+				out.writeInt(entry.getTag());
+				out.writeInt(entry.getPosition());
+				out.writeInt(entry.getRow());
+				out.writeInt(entry.getColumn());
+				out.writeInt(entry.getValue());
+			}
+		}
+		out.writeInt(pixelNeigbors.size());
+		itr = pixelNeigbors.entrySet().iterator();
+		while (itr.hasNext()) {
+			Map.Entry anEntry = (Map.Entry)itr.next();
+			out.writeInt(((Integer)anEntry.getKey()).intValue());
+			PipelineCheckpoint.writePoints(out, (LinkedList)anEntry.getValue());
+		}
+	}
+
+ /**
+	* Reads a database written by <code>write</code>. The keys of both
+	* tables are below rows*columns, so the tables go through them in the
+	* same order as before.
+	* 
+	* @param in The buffer of the checkpoint
+	* @return The database
+	*/
+	public static PixelDatabase read(ByteBuffer in) {
+		PixelDatabase aDatabase = new PixelDatabase(in.getInt(), in.getInt());
+		aDatabase.noOfPixels = in.getInt();
+		int n = in.getInt();
+		for (int i = 0; i < n; i++) {
+			Integer key = Integer.valueOf(in.getInt());
+			int size = in.getInt();
+			LinkedList alist = new LinkedList();
+			for (int j = 0; j < size; j++) {
+				int labelNo = in.getInt();
+				int tagNo = in.getInt();
+				int pos = in.getInt();
+				int row = in.getInt();
+				int column = in.getInt();
+				alist.add(new PixelData(labelNo, tagNo, pos, row, column, in.getInt()));
+			}
+			aDatabase.pixels.put(key, alist);
+		}
+		n = in.getInt();
+		for (int i = 0; i < n; i++) {
+			Integer key = Integer.valueOf(in.getInt());
+			aDatabase.pixelNeigbors.put(key, PipelineCheckpoint.readPoints(in));
+		}
+		return aDatabase;
+	}
+
  /**
 	* Prints the information for certain pixels on the screen.
 	* 
@@ -0,0 +1,210 @@
+/**
+ * The simple per-pixel loops of the pipeline that can be done on several
+ * pixels at once with the vector instructions of the processor: the gray
+ * conversion of packed RGB pixels, the min/max and scaling of
+ * <code>BWImageG.makePGM</code> and the label comparisons of
+ * <code>Border.applyBorderDetection</code>.
+ * <p>
+ * This class has the scalar loops. <code>VectorPixelKernels</code>, in
+ * the vector directory, does the same with the <code>jdk.incubator.vector</code>
+ * API and gives exactly the same results. It is compiled and run
+ * separately, since the module has to be added to javac and java:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorPixelKernels.java
+ * java --add-modules jdk.incubator.vector VEM ...
+ * </pre>
+ * The maven build (pom.xml) compiles it this way.
+ * <code>get</code> returns the vector kernels when the module is there and
+ * the class can be loaded, and the scalar kernels otherwise or when the
+ * <code>vem.vector</code> system property is false.
+ * <p>
+ * The vector kernels are slow until the compiler has made them into vector
+ * instructions, and loading the module takes time, so they pay off in long
+ * runs such as <code>VEMBatch</code> and not for a single chart.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class PixelKernels {
+
+	private static PixelKernels kernels;	//the kernels returned by get
+	private static PixelKernels scalarKernels = new PixelKernels();
+
+	/**
+	 * Returns the kernels to use: the vector kernels if they are
+	 * available, otherwise the scalar ones.
+	 *
+	 * @param none
+	 */
+	public static synchronized PixelKernels get() {
+		if (kernels == null) {
+			kernels = scalarKernels;
+			if (!"false".equals(System.getProperty("vem.vector"))
+			    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+				try {
+					kernels = (PixelKernels)Class.forName("VectorPixelKernels").getDeclaredConstructor().newInstance();
+				}
+				catch (Throwable e) {
+					//not compiled, or the vector API cannot be used here
+				}
+			}
+		}
+		return kernels;
+	}
+
+	/**
+	 * Returns the scalar kernels.
+	 *
+	 * @param none
+	 */
+	public static PixelKernels scalar() {
+		return scalarKernels;
+	}
+
+	/**
+	 * Returns true if the kernels use vector instructions.
+	 *
+	 * @param none
+	 */
+	public boolean isVectorized() {
+		return false;
+	}
+
+	/**
+	 * Returns the name of the kernels, for the benchmarks.
+	 *
+	 * @param none
+	 */
+	public String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * Makes the gray values of a row of packed RGB pixels
+	 * (see <code>BWImageG.toGray</code>) and counts them.
+	 *
+	 * @param pixels The packed pixels
+	 * @param p The index of the first pixel of the row
+	 * @param gray The gray values
+	 * @param i The index of the first gray value of the row
+	 * @param count The number of pixels of the row
+	 * @param counts The number of pixels of each gray value
+	 */
+	public void grayRow(int[] pixels, int p, byte[] gray, int i, int count, int[] counts) {
+		for (int c = 0; c < count; c++) {
+			int rgb = pixels[p+c];
+			int value = BWImageG.toGray((rgb>>16)&0xff, (rgb>>8)&0xff, rgb&0xff);
+			gray[i+c] = (byte)value;
+			counts[value]++;
+		}
+	}
+
+	/**
+	 * Returns the minimum and the maximum value of a 2d array.
+	 *
+	 * @param anImage The 2d array
+	 * @param height The number of rows
+	 * @param width The number of columns
+	 * @return {minimum, maximum}
+	 */
+	public int[] minMax(int[][] anImage, int height, int width) {
+		int min = anImage[0][0];
+		int max = min;
+		for (int r = 0; r < height; r++) {
+			int[] aRow = anImage[r];
+			for (int c = 0; c < width; c++) {
+				if (aRow[c] < min) min = aRow[c];
+				if (aRow[c] > max) max = aRow[c];
+			}
+		}
+		return new int[] {min, max};
+	}
+
+	/**
+	 * Scales a row to bytes: (byte)(k*(value - min)).
+	 *
+	 * @param aRow The row
+	 * @param width The number of columns
+	 * @param min The value that becomes 0
+	 * @param k The integer scale factor
+	 * @param out The bytes
+	 * @param n The index of the first byte of the row
+	 */
+	public void scaleRow(int[] aRow, int width, int min, int k, byte[] out, int n) {
+		for (int c = 0; c < width; c++) {
+			out[n+c] = (byte)(k*(aRow[c] - min));
+		}
+	}
+
+	/**
+	 * Scales a row to bytes: (byte)(int)(k*(value - min)).
+	 *
+	 * @param aRow The row
+	 * @param width The number of columns
+	 * @param min The value that becomes 0
+	 * @param k The real scale factor
+	 * @param out The bytes
+	 * @param n The index of the first byte of the row
+	 */
+	public void scaleRow(int[] aRow, int width, int min, double k, byte[] out, int n) {
+		for (int c = 0; c < width; c++) {
+			out[n+c] = (byte)(int)(k*(aRow[c] - min));
+		}
+	}
+
+	/**
+	 * Marks the border pixels of a row of a labelled image: a pixel that
+	 * is not background is a border pixel if one of its 4 neighbors has
+	 * another label; the pixels outside the image are background.
+	 * The border pixels get their label and the others the background.
+	 * The labels and the marks are rasters of the same size, so the row
+	 * is at the same index in both.
+	 *
+	 * @param labels The labels of the image, row by row
+	 * @param p The index of the first pixel of the row
+	 * @param width The number of columns
+	 * @param up true if there is a row above
+	 * @param down true if there is a row below
+	 * @param out The marks of the image, row by row
+	 * @param background The label of the background
+	 */
+	public void markBorders(int[] labels, int p, int width, boolean up, boolean down, int[] out, int background) {
+		if (!up || !down || width < 3) {
+			for (int c = 0; c < width; c++) {
+				out[p+c] = isBorder(labels, p, c, width, up, down, background) ? labels[p+c] : background;
+			}
+			return;
+		}
+		//the pixels between the first and the last ones have all their neighbors
+		out[p] = isBorder(labels, p, 0, width, up, down, background) ? labels[p] : background;
+		for (int i = p+1; i < p+width-1; i++) {
+			int label = labels[i];
+			out[i] = label != background && (labels[i-1] != label || labels[i+1] != label
+			                                 || labels[i-width] != label || labels[i+width] != label) ? label : background;
+		}
+		out[p+width-1] = isBorder(labels, p, width-1, width, up, down, background) ? labels[p+width-1] : background;
+	}
+
+	/**
+	 * Checks if a pixel of a row is a border pixel (see markBorders).
+	 *
+	 * @param labels The labels of the image, row by row
+	 * @param p The index of the first pixel of the row
+	 * @param c The column of the pixel
+	 * @param width The number of columns
+	 * @param up true if there is a row above
+	 * @param down true if there is a row below
+	 * @param background The label of the background
+	 */
+	protected static boolean isBorder(int[] labels, int p, int c, int width, boolean up, boolean down, int background) {
+		int i = p+c;
+		int label = labels[i];
+		if (label == background) {
+			return false;
+		}
+		return (c == 0 ? background : labels[i-1]) != label
+		       || (c == width-1 ? background : labels[i+1]) != label
+		       || (up ? labels[i-width] : background) != label
+		       || (down ? labels[i+width] : background) != label;
+	}
+}
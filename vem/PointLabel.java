@@ -7,6 +7,7 @@ import java.util.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class PointLabel {
     final static int UP = 0;
     final static int DOWN = 1;
@@ -27,9 +28,9 @@ public class PointLabel {
      *
      * @param box The box containing the annotation
      * @param rgn The region containing both the box and attached arrow
-     * @param inputLabelImage The image array with all the regions labelled
+     * @param inputLabelImage The LABELS raster with all the regions labelled
      */
-    public PointLabel(Rectangle box, Region rgn, int[][] inputLabelImage) {
+    public PointLabel(Rectangle box, Region rgn, Raster inputLabelImage) {
         PointPixel boxUL,boxLR, rgnUL, rgnLR;
         rectangle = box;
         region = rgn;
@@ -62,25 +63,25 @@ public class PointLabel {
         arrowRow = -1;
         if (orientation == UP) {
             for (x=xb;x<=xe;x++)
-                if (inputLabelImage[yb][x]==label) {
+                if (inputLabelImage.get(yb, x)==label) {
                    arrowColumn = x;
                    break;}}
         else if (orientation == RIGHT){
             for (y=yb;y<=ye;y++)
-                if (inputLabelImage[y][xe]==label) {
+                if (inputLabelImage.get(y, xe)==label) {
                    arrowRow = y;
                    break;}}
         else if (orientation == DOWN)
 {System.out.println("orientation == DOWN");
             for (x=xb;x<=xe;x++)
-                 {System.out.println("see " + inputLabelImage[ye][x]);
-                if (inputLabelImage[ye][x]==label) {
+                 {System.out.println("see " + inputLabelImage.get(ye, x));
+                if (inputLabelImage.get(ye, x)==label) {
                    arrowColumn = x;
                    break;}
                  }
 }
         else for (y=yb;y<=ye;y++)
-                if (inputLabelImage[y][xb]==label) {
+                if (inputLabelImage.get(y, xb)==label) {
                    arrowRow = y;
                    break;}}
 
@@ -7,6 +7,7 @@ import java.awt.Point;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "serial"})
 public class PointPixel extends Point {
 	final static int [] rPos = {-1, -1, -1, 0, 1, 1, 1, 0};  //already declared in ImagePrimitives.java
 	final static int [] cPos = {1, 0, -1, -1, -1, 0, 1, 1};  //already declared in ImagePrimitives.java
@@ -3,6 +3,8 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Vector;
 import java.lang.Math;
+import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A class to hold information for a chain of pixels.
@@ -10,6 +12,7 @@ import java.lang.Math;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Primitive {
 
 	final static public int P_UNDEFINED = 0;
@@ -1589,6 +1592,77 @@ public class Primitive {
 		return(tmpList);
 	}
 
+ /**
+	* Writes the primitive to a checkpoint (see <code>PipelineCheckpoint</code>).
+	* The list of primitive neighbors, which is not used, is not written.
+	*
+	* @param out The stream of the checkpoint
+	*/
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(parentLabelNo);
+		out.writeInt(tagNo);
+		out.writeInt(p_type);
+		out.writeInt(lineOrientation);
+		out.writeDouble(length);
+		out.writeDouble(slope);
+		out.writeDouble(intercept);
+		out.writeDouble(angle);
+		out.writeDouble(radius);
+		out.writeInt(size);
+		out.writeInt(distance);
+		out.writeInt(partOfAxis);
+		out.writeInt(partOfTick);
+		out.writeInt(partOfRectangle);
+		out.writeInt(partOfWedge);
+		out.writeInt(partOfConnectedLine);
+		out.writeInt(partOfGridline);
+		out.writeBoolean(isLine);
+		out.writeInt(equivPrimTagNo);
+		out.writeBoolean(done);
+		out.writeInt(numNeighbors);
+		out.writeInt(numReferenced);
+		PipelineCheckpoint.writePoint(out, center);
+		PipelineCheckpoint.writePoints(out, listPoints);
+		PipelineCheckpoint.writePoints(out, beginNeigborList);
+		PipelineCheckpoint.writePoints(out, endNeigborList);
+	}
+
+ /**
+	* Reads a primitive written by <code>write</code>.
+	*
+	* @param in The buffer of the checkpoint
+	* @return The primitive
+	*/
+	public static Primitive read(ByteBuffer in) {
+		Primitive aPrim = new Primitive(in.getInt());
+		aPrim.tagNo = in.getInt();
+		aPrim.p_type = in.getInt();
+		aPrim.lineOrientation = in.getInt();
+		aPrim.length = in.getDouble();
+		aPrim.slope = in.getDouble();
+		aPrim.intercept = in.getDouble();
+		aPrim.angle = in.getDouble();
+		aPrim.radius = in.getDouble();
+		aPrim.size = in.getInt();
+		aPrim.distance = in.getInt();
+		aPrim.partOfAxis = in.getInt();
+		aPrim.partOfTick = in.getInt();
+		aPrim.partOfRectangle = in.getInt();
+		aPrim.partOfWedge = in.getInt();
+		aPrim.partOfConnectedLine = in.getInt();
+		aPrim.partOfGridline = in.getInt();
+		aPrim.isLine = in.get() != 0;
+		aPrim.equivPrimTagNo = in.getInt();
+		aPrim.done = in.get() != 0;
+		aPrim.numNeighbors = in.getInt();
+		aPrim.numReferenced = in.getInt();
+		aPrim.center = PipelineCheckpoint.readPoint(in);
+		aPrim.listPoints = PipelineCheckpoint.readPoints(in);
+		aPrim.beginNeigborList = PipelineCheckpoint.readPoints(in);
+		aPrim.endNeigborList = PipelineCheckpoint.readPoints(in);
+		return aPrim;
+	}
+
 /***********************
 METHODS BELOW ARE NOT USED
 	public PrimitiveNeighbor addNeighbor(PrimitiveNeighbor n) {
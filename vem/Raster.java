@@ -0,0 +1,263 @@
+/**
+ * An image stored row by row in one array, instead of one array for each
+ * row as in an <code>int[][]</code>.
+ * <p>
+ * A GRAY raster holds one unsigned byte for each pixel (gray values and
+ * binary images, 0 to 255); a LABELS raster holds one int for each pixel
+ * (region labels). The pixel at (row, column) is at index
+ * row*columns + column of the array. The hot loops of the stages use the
+ * array directly (<code>getGrayData</code>, <code>getLabelData</code>);
+ * get and set are for the code that visits only a few pixels.
+ * <p>
+ * A gray raster takes a quarter of the memory of an <code>int[][]</code>
+ * and has no array header per row, and a loop over the rows and columns
+ * goes through memory in order.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class Raster {
+
+	/**
+	 * One unsigned byte for each pixel.
+	 */
+	public static final int GRAY = 0;
+
+	/**
+	 * One int for each pixel.
+	 */
+	public static final int LABELS = 1;
+
+	private int rows;
+	private int columns;
+	private int type;		//GRAY or LABELS
+	private byte[] grayData;	//the pixels of a GRAY raster
+	private int[] labelData;	//the pixels of a LABELS raster
+
+	/**
+	 * Constructor. All the pixels are zero.
+	 *
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 * @param aType GRAY or LABELS
+	 */
+	public Raster(int imageRows, int imageColumns, int aType) {
+		rows = imageRows;
+		columns = imageColumns;
+		type = aType;
+		if (type == GRAY) {
+			grayData = new byte[rows*columns];
+		}
+		else {
+			labelData = new int[rows*columns];
+		}
+	}
+
+	/**
+	 * Constructor. The pixels are copied from a 2d array; the values of a
+	 * GRAY raster must be between 0 and 255.
+	 *
+	 * @param anImage The 2d array representation of the image
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 * @param aType GRAY or LABELS
+	 */
+	public Raster(int[][] anImage, int imageRows, int imageColumns, int aType) {
+		this(imageRows, imageColumns, aType);
+		for (int r = 0; r < rows; r++) {
+			int[] aRow = anImage[r];
+			int i = r*columns;
+			if (type == GRAY) {
+				for (int c = 0; c < columns; c++) {
+					grayData[i+c] = (byte)aRow[c];
+				}
+			}
+			else {
+				System.arraycopy(aRow, 0, labelData, i, columns);
+			}
+		}
+	}
+
+	/**
+	 * Constructor. Wraps an array of gray values without copying it.
+	 *
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 * @param data The gray values, row by row
+	 */
+	public Raster(int imageRows, int imageColumns, byte[] data) {
+		rows = imageRows;
+		columns = imageColumns;
+		type = GRAY;
+		grayData = data;
+	}
+
+	/**
+	 * Constructor. Wraps an array of labels without copying it.
+	 *
+	 * @param imageRows The number of rows
+	 * @param imageColumns The number of columns
+	 * @param data The labels, row by row
+	 */
+	public Raster(int imageRows, int imageColumns, int[] data) {
+		rows = imageRows;
+		columns = imageColumns;
+		type = LABELS;
+		labelData = data;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @param none
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 *
+	 * @param none
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns GRAY or LABELS.
+	 *
+	 * @param none
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the array of a GRAY raster; the values are unsigned,
+	 * so they are read with <code>data[i] &amp; 0xff</code>.
+	 *
+	 * @param none
+	 */
+	public byte[] getGrayData() {
+		return grayData;
+	}
+
+	/**
+	 * Returns the array of a LABELS raster.
+	 *
+	 * @param none
+	 */
+	public int[] getLabelData() {
+		return labelData;
+	}
+
+	/**
+	 * Returns the value of a pixel.
+	 *
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 */
+	public int get(int row, int column) {
+		if (type == GRAY) {
+			return grayData[row*columns + column] & 0xff;
+		}
+		return labelData[row*columns + column];
+	}
+
+	/**
+	 * Sets the value of a pixel.
+	 *
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 * @param value The new value
+	 */
+	public void set(int row, int column, int value) {
+		if (type == GRAY) {
+			grayData[row*columns + column] = (byte)value;
+		}
+		else {
+			labelData[row*columns + column] = value;
+		}
+	}
+
+	/**
+	 * Sets all the pixels to a value.
+	 *
+	 * @param value The value
+	 */
+	public void fill(int value) {
+		if (type == GRAY) {
+			java.util.Arrays.fill(grayData, (byte)value);
+		}
+		else {
+			java.util.Arrays.fill(labelData, value);
+		}
+	}
+
+	/**
+	 * Returns a raster that is larger by one row/column on each side,
+	 * with this raster in the middle and the given value around it.
+	 *
+	 * @param value The value of the added pixels
+	 */
+	public Raster addBorder(int value) {
+		return addBorder(value, new StripeExecutor(null, 1));
+	}
+
+	/**
+	 * Same as addBorder(value), but the rows are copied in row stripes
+	 * by the given executor.
+	 *
+	 * @param value The value of the added pixels
+	 * @param stripes The executor of the row stripes
+	 */
+	public Raster addBorder(int value, StripeExecutor stripes) {
+		final Raster aRaster = new Raster(rows+2, columns+2, type);
+		final int border = value;
+		final int width = columns+2;
+		//the first and the last row
+		for (int c = 0; c < width; c++) {
+			aRaster.set(0, c, border);
+			aRaster.set(rows+1, c, border);
+		}
+		stripes.run(rows, columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				for (int r = firstRow; r < lastRow; r++) {
+					if (type == GRAY) {
+						System.arraycopy(grayData, r*columns, aRaster.grayData, (r+1)*width + 1, columns);
+					}
+					else {
+						System.arraycopy(labelData, r*columns, aRaster.labelData, (r+1)*width + 1, columns);
+					}
+					aRaster.set(r+1, 0, border);
+					aRaster.set(r+1, width-1, border);
+				}
+			}
+		});
+		return aRaster;
+	}
+
+	/**
+	 * Returns the 2d array representation of the image, for the code that
+	 * has not been moved to rasters yet.
+	 *
+	 * @param none
+	 */
+	public int[][] toArray() {
+		int[][] anImage = new int[rows][columns];
+		for (int r = 0; r < rows; r++) {
+			int[] aRow = anImage[r];
+			int i = r*columns;
+			if (type == GRAY) {
+				for (int c = 0; c < columns; c++) {
+					aRow[c] = grayData[i+c] & 0xff;
+				}
+			}
+			else {
+				System.arraycopy(labelData, i, aRow, 0, columns);
+			}
+		}
+		return anImage;
+	}
+}
@@ -7,6 +7,7 @@ import java.util.ListIterator;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Rectangle {
 	/***
 	private LinkedList leftEdge;
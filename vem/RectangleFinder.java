@@ -43,6 +43,7 @@ import java.awt.Point;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked", "cast", "static"})
 public class RectangleFinder {
   private int imageHeight;    // #rows in the input image
 	private int imageWidth;     // #columns in the input image
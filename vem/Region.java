@@ -3,13 +3,21 @@ import java.util.Collection;
 import java.util.*;
 import java.lang.Integer;
 import java.awt.Point;
+import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A class to hold information for a region of the image.
+ * <p>
+ * A region made on a <code>RegionStore</code> is a view of its label in
+ * the store: its color, bounding box, number of pixels and pixels are read
+ * from there, unless they are set on the region. Once its pixel list is
+ * cleared or added to, the region keeps its own list.
  *
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class Region {
 
 	private int RegionNo;
@@ -28,6 +36,8 @@ public class Region {
 	private LinkedList allPixels;
 	private PointPixel upperLeft;
 	private PointPixel lowerRight;
+	private RegionStore store;	//the store this region is a view of, or null
+	private boolean storePixels;	//the pixels are the runs of the store, not allPixels
 
   /**
 	 * Constructor.
@@ -51,6 +61,18 @@ public class Region {
 		allPixels = new LinkedList();
 	}
 
+  /**
+	 * Constructor. The region is a view of its label in the store.
+	 *
+	 * @param labelNo The label number of the region
+	 * @param aStore The store of the regions of the labelled image
+	 */
+	public Region(int labelNo, RegionStore aStore) {
+		this(labelNo);
+		store = aStore;
+		storePixels = true;
+	}
+
   /**
 	 * Constructor.
 	 *
@@ -81,6 +103,11 @@ public class Region {
 	 * @param p The pixel to be added to the region
 	 */
 	public void addPixelToRegion(PointPixel p) {
+		if (storePixels) {
+			allPixels = store.getPixelList(RegionNo);
+			numPixels = allPixels.size();
+			storePixels = false;
+		}
 		allPixels.add(p);
 		numPixels++;
 	}
@@ -121,7 +148,7 @@ public class Region {
 	 */
 	public Vector fitLine() {
 		LineFitter aLineFitter = new LineFitter();
-		Vector fitVector = aLineFitter.fitStraightLineLSE(allPixels);
+		Vector fitVector = aLineFitter.fitStraightLineLSE(getPixelList());
 		int lineOrientation = ((Integer)fitVector.get(0)).intValue();
 		double slope = ((Double)fitVector.get(1)).doubleValue();
 		double intercept = ((Double)fitVector.get(2)).doubleValue();
@@ -153,12 +180,16 @@ public class Region {
 	}
 
   /**
-	 * Returns the pixels of the region.
+	 * Returns the pixels of the region. The list of a region that is a view
+	 * of a store is made from its runs; it is a new list each time.
 	 *
 	 * @param none
 	 * @return The linked list of the pixels in the region
 	 */
 	public LinkedList getPixelList() {
+		if (storePixels) {
+			return store.getPixelList(RegionNo);
+		}
 		return allPixels; 
 	}
 
@@ -168,6 +199,7 @@ public class Region {
 	 * @param none
 	 */
 	public void clearPixelList() {
+		storePixels = false;
 		allPixels = new LinkedList();
 		numPixels = 0;
 	}
@@ -202,6 +234,9 @@ public class Region {
 	 */
 	public int getNumPixels() {
 		//return allPixels.size();
+		if (storePixels) {
+			return store.getArea(RegionNo);
+		}
                 return numPixels;
 	}
 
@@ -262,6 +297,9 @@ public class Region {
 	 * @return The upper left corner point of the bounding box of the region
 	 */
 	public PointPixel getUpperLeft() {
+		if (upperLeft == null && store != null) {
+			upperLeft = store.getUpperLeft(RegionNo);
+		}
 		return upperLeft;
 	}
 
@@ -281,6 +319,9 @@ public class Region {
 	 * @return The lower right corner point of the bounding box of the region
 	 */
 	public PointPixel getLowerRight() {
+		if (lowerRight == null && store != null) {
+			lowerRight = store.getLowerRight(RegionNo);
+		}
 		return lowerRight;
 	}
 
@@ -300,7 +341,7 @@ public class Region {
 	 * @return The height of the bounding box of the region
 	 */
 	public int getBoundingBoxHeight() {
-		return (lowerRight.getRow() - upperLeft.getRow() + 1);
+		return (getLowerRight().getRow() - getUpperLeft().getRow() + 1);
 	}
 
 	/**
@@ -310,7 +351,7 @@ public class Region {
 	 * @return The width of the bounding box of the region
 	 */
 	public int getBoundingBoxWidth() {
-		return (lowerRight.getColumn() - upperLeft.getColumn() + 1);
+		return (getLowerRight().getColumn() - getUpperLeft().getColumn() + 1);
 	}
 
 	/**
@@ -467,6 +508,9 @@ public class Region {
 	 * @return The color value of the region
 	 */
 	public int getColor() {
+		if (color == -1 && store != null) {
+			return store.getColor(RegionNo);
+		}
 		return color;
 	}
 
@@ -516,10 +560,77 @@ public class Region {
 		if (isGridline) {
 			message = message + ("Gridline, "); 
 		}
-		message = message + (numChains+ " chains, "+chains.size()+" key-value mappings, "+numPixels+" pixels, orientation = "+orientation+", color = "+color+"\n");
+		message = message + (numChains+ " chains, "+chains.size()+" key-value mappings, "+getNumPixels()+" pixels, orientation = "+orientation+", color = "+color+"\n");
 		return message;
 	}
 
+	/**
+	 * Writes the region and its primitives to a checkpoint (see
+	 * <code>PipelineCheckpoint</code>). The pixel list, which is only used
+	 * until the thick lines are thinned, is not written.
+	 *
+	 * @param out The stream of the checkpoint
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(RegionNo);
+		out.writeInt(numChains);
+		out.writeInt(getNumPixels());
+		out.writeInt(nextKey);
+		out.writeInt(orientation);
+		out.writeInt(getColor());
+		out.writeBoolean(isFrame);
+		out.writeBoolean(isCharacter);
+		out.writeBoolean(isThickLine);
+		out.writeBoolean(isDashedLine);
+		out.writeBoolean(isFilledArea);
+		out.writeBoolean(isGridline);
+		PipelineCheckpoint.writePoint(out, getUpperLeft());
+		PipelineCheckpoint.writePoint(out, getLowerRight());
+		out.writeInt(chains.size());
+		Iterator itr = chains.entrySet().iterator();
+		while (itr.hasNext()) {
+			Map.Entry anEntry = (Map.Entry)itr.next();
+			out.writeInt(((Integer)anEntry.getKey()).intValue());
+			((Primitive)anEntry.getValue()).write(out);
+		}
+	}
+
+	/**
+	 * Reads a region written by <code>write</code>. The primitives are
+	 * in the same order in the new region.
+	 *
+	 * @param in The buffer of the checkpoint
+	 * @return The region
+	 */
+	public static Region read(ByteBuffer in) {
+		Region aRegion = new Region(in.getInt());
+		aRegion.numChains = in.getInt();
+		aRegion.numPixels = in.getInt();
+		aRegion.nextKey = in.getInt();
+		aRegion.orientation = in.getInt();
+		aRegion.color = in.getInt();
+		aRegion.isFrame = in.get() != 0;
+		aRegion.isCharacter = in.get() != 0;
+		aRegion.isThickLine = in.get() != 0;
+		aRegion.isDashedLine = in.get() != 0;
+		aRegion.isFilledArea = in.get() != 0;
+		aRegion.isGridline = in.get() != 0;
+		aRegion.upperLeft = (PointPixel)PipelineCheckpoint.readPoint(in);
+		aRegion.lowerRight = (PointPixel)PipelineCheckpoint.readPoint(in);
+		int n = in.getInt();
+		int[] keys = new int[n];
+		Primitive[] prims = new Primitive[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = in.getInt();
+			prims[i] = Primitive.read(in);
+		}
+		aRegion.chains = PipelineCheckpoint.newHashMap(keys);
+		for (int i = 0; i < n; i++) {
+			aRegion.chains.put(Integer.valueOf(keys[i]), prims[i]);
+		}
+		return aRegion;
+	}
+
 /*
 * increments the number of Pixels in the region.
 */
@@ -531,12 +642,12 @@ public void incrementNumPixels() {
 * counts the number of pixels in region and stores it in numPixels
 */
 
-public void setNumPixels(int[][] pixelLabel) {
+public void setNumPixels(Raster pixelLabel) {
 System.out.println("in setNumPixels");
   int i,j;
-  for (i = upperLeft.getRow(); i<=lowerRight.getRow();i++) 
-    for (j = upperLeft.getColumn(); j<=lowerRight.getColumn();j++)
-       if (RegionNo == pixelLabel[i][j]) numPixels++;
+  for (i = getUpperLeft().getRow(); i<=getLowerRight().getRow();i++) 
+    for (j = getUpperLeft().getColumn(); j<=getLowerRight().getColumn();j++)
+       if (RegionNo == pixelLabel.get(i, j)) numPixels++;
 System.out.println("numPixels = " + numPixels);
 }
 
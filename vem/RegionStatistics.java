@@ -0,0 +1,278 @@
+/**
+ * The statistics of the regions of a labelled image, kept for each label
+ * in arrays of numbers: the number of pixels, the bounding box, the sums
+ * of the rows and columns of the pixels and of their squares (from which
+ * the centroid and the variances are found) and the number of runs, the
+ * pieces of a row that are all in the region.
+ * <p>
+ * The table is filled a run at a time while the image is labelled (see
+ * <code>RunLabeler</code>) or its borders are found (see
+ * <code>Border</code>), so that the bounding boxes, pixel counts,
+ * centroids and variances of the regions do not need more passes over
+ * the image. The sums are kept in longs and are exact; label 0 is the
+ * background.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class RegionStatistics {
+
+	private int labelCount;
+	private int[] area;	//number of pixels of each label
+	private int[] runs;	//number of runs of each label
+	private int[] minRow;
+	private int[] minColumn;
+	private int[] maxRow;
+	private int[] maxColumn;
+	private long[] rowSums;	//sum of the rows of the pixels
+	private long[] columnSums2;	//twice the sum of the columns of the pixels
+	private long[] rowSquareSums;	//sum of the squares of the rows of the pixels
+	private long[] columnSquareSums6;	//six times the sum of the squares of the columns
+
+	/**
+	 * Constructor. All the labels are empty.
+	 *
+	 * @param labels The number of labels, the background included
+	 */
+	public RegionStatistics(int labels) {
+		labelCount = labels;
+		area = new int[labels];
+		runs = new int[labels];
+		minRow = new int[labels];
+		minColumn = new int[labels];
+		maxRow = new int[labels];
+		maxColumn = new int[labels];
+		rowSums = new long[labels];
+		columnSums2 = new long[labels];
+		rowSquareSums = new long[labels];
+		columnSquareSums6 = new long[labels];
+	}
+
+	/**
+	 * Returns the statistics of a labelled image, found in one pass over it.
+	 *
+	 * @param labelImage The LABELS raster of the image
+	 * @param labels The number of labels, the background included
+	 */
+	public static RegionStatistics fromLabels(Raster labelImage, int labels) {
+		RegionStatistics statistics = new RegionStatistics(labels);
+		int rows = labelImage.getRows();
+		int columns = labelImage.getColumns();
+		int[] data = labelImage.getLabelData();
+		for (int r = 0; r < rows; r++) {
+			statistics.addRow(data, r*columns, r, columns);
+		}
+		return statistics;
+	}
+
+	/**
+	 * Adds the pixels of a run of a label: the columns from firstColumn to
+	 * lastColumn of a row.
+	 *
+	 * @param label The label
+	 * @param row The row
+	 * @param firstColumn The first column of the run
+	 * @param lastColumn The last column of the run
+	 */
+	public void addRun(int label, int row, int firstColumn, int lastColumn) {
+		int n = lastColumn - firstColumn + 1;
+		if (area[label] == 0) {
+			minRow[label] = row;
+			minColumn[label] = firstColumn;
+			maxRow[label] = row;
+			maxColumn[label] = lastColumn;
+		}
+		else {
+			if (row < minRow[label]) minRow[label] = row;
+			if (row > maxRow[label]) maxRow[label] = row;
+			if (firstColumn < minColumn[label]) minColumn[label] = firstColumn;
+			if (lastColumn > maxColumn[label]) maxColumn[label] = lastColumn;
+		}
+		area[label] += n;
+		runs[label]++;
+		rowSums[label] += (long)n*row;
+		rowSquareSums[label] += (long)n*row*row;
+		columnSums2[label] += (long)(firstColumn + lastColumn)*n;
+		columnSquareSums6[label] += squareSum6(lastColumn) - squareSum6(firstColumn - 1);
+	}
+
+	/**
+	 * Adds one pixel of a label, as a run of its own.
+	 *
+	 * @param label The label
+	 * @param row The row of the pixel
+	 * @param column The column of the pixel
+	 */
+	public void addPixel(int label, int row, int column) {
+		addRun(label, row, column, column);
+	}
+
+	/**
+	 * Adds the runs of a row of a labelled image; a run is a piece of the
+	 * row with the same label.
+	 *
+	 * @param labels The labels of the image, row by row
+	 * @param p The index of the first pixel of the row
+	 * @param row The row
+	 * @param columns The number of columns
+	 */
+	public void addRow(int[] labels, int p, int row, int columns) {
+		int first = 0;
+		for (int c = 1; c <= columns; c++) {
+			if (c == columns || labels[p+c] != labels[p+first]) {
+				addRun(labels[p+first], row, first, c - 1);
+				first = c;
+			}
+		}
+	}
+
+	/**
+	 * Adds the statistics of another table of the same labels, e.g. of
+	 * another stripe of the image.
+	 *
+	 * @param other The other table
+	 */
+	public void add(RegionStatistics other) {
+		for (int i = 0; i < labelCount; i++) {
+			if (other.area[i] == 0) {
+				continue;
+			}
+			if (area[i] == 0) {
+				minRow[i] = other.minRow[i];
+				minColumn[i] = other.minColumn[i];
+				maxRow[i] = other.maxRow[i];
+				maxColumn[i] = other.maxColumn[i];
+			}
+			else {
+				minRow[i] = Math.min(minRow[i], other.minRow[i]);
+				minColumn[i] = Math.min(minColumn[i], other.minColumn[i]);
+				maxRow[i] = Math.max(maxRow[i], other.maxRow[i]);
+				maxColumn[i] = Math.max(maxColumn[i], other.maxColumn[i]);
+			}
+			area[i] += other.area[i];
+			runs[i] += other.runs[i];
+			rowSums[i] += other.rowSums[i];
+			columnSums2[i] += other.columnSums2[i];
+			rowSquareSums[i] += other.rowSquareSums[i];
+			columnSquareSums6[i] += other.columnSquareSums6[i];
+		}
+	}
+
+	/**
+	 * Returns six times 0*0 + 1*1 + ... + n*n; the sums of the columns are
+	 * kept times 2 and 6, so that a run is added without a division.
+	 */
+	private static long squareSum6(long n) {
+		return n*(n + 1)*(2*n + 1);
+	}
+
+	/**
+	 * Returns the number of labels, the background included.
+	 *
+	 * @param none
+	 */
+	public int getLabelCount() {
+		return labelCount;
+	}
+
+	/**
+	 * Returns the number of pixels of a label.
+	 *
+	 * @param label The label
+	 */
+	public int getArea(int label) {
+		return area[label];
+	}
+
+	/**
+	 * Returns the number of runs of a label.
+	 *
+	 * @param label The label
+	 */
+	public int getRunCount(int label) {
+		return runs[label];
+	}
+
+	/**
+	 * Returns the first row of a label; 0 if it has no pixels.
+	 *
+	 * @param label The label
+	 */
+	public int getMinRow(int label) {
+		return minRow[label];
+	}
+
+	/**
+	 * Returns the first column of a label; 0 if it has no pixels.
+	 *
+	 * @param label The label
+	 */
+	public int getMinColumn(int label) {
+		return minColumn[label];
+	}
+
+	/**
+	 * Returns the last row of a label; 0 if it has no pixels.
+	 *
+	 * @param label The label
+	 */
+	public int getMaxRow(int label) {
+		return maxRow[label];
+	}
+
+	/**
+	 * Returns the last column of a label; 0 if it has no pixels.
+	 *
+	 * @param label The label
+	 */
+	public int getMaxColumn(int label) {
+		return maxColumn[label];
+	}
+
+	/**
+	 * Returns the upper left corner of the bounding box of a label.
+	 *
+	 * @param label The label
+	 */
+	public PointPixel getUpperLeft(int label) {
+		return new PointPixel(minRow[label], minColumn[label]);
+	}
+
+	/**
+	 * Returns the lower right corner of the bounding box of a label.
+	 *
+	 * @param label The label
+	 */
+	public PointPixel getLowerRight(int label) {
+		return new PointPixel(maxRow[label], maxColumn[label]);
+	}
+
+	/**
+	 * Returns the centroid of the pixels of a label.
+	 *
+	 * @param label The label
+	 * @return An array of size two of double values; first one is the row number of the centroid, the second one is the column number of the centroid
+	 */
+	public double[] getCentroid(int label) {
+		double[] cent = new double[2];
+		cent[0] = (double)rowSums[label]/(double)area[label];
+		cent[1] = (double)(columnSums2[label]/2)/(double)area[label];
+		return cent;
+	}
+
+	/**
+	 * Returns the variances of the rows and the columns of the pixels of a
+	 * label around its centroid.
+	 *
+	 * @param label The label
+	 * @return An array of size two of double values; first one is the row variance, the second one is the column variance
+	 */
+	public double[] getVariance(int label) {
+		double n = area[label];
+		double[] variance = new double[2];
+		variance[0] = (rowSquareSums[label] - rowSums[label]*(rowSums[label]/n))/n;
+		long columnSum = columnSums2[label]/2;
+		variance[1] = (columnSquareSums6[label]/6 - columnSum*(columnSum/n))/n;
+		return variance;
+	}
+}
@@ -0,0 +1,176 @@
+import java.util.*;
+
+/**
+ * The regions of a labelled image kept as columns of ints indexed by the
+ * label, instead of an object for each pixel: the color, the number of
+ * pixels and the bounding box of each region (from the
+ * <code>RegionStatistics</code> found while the image was labelled), and
+ * the pixels of each region as runs, the pieces of a row that are all in
+ * the region, in one array shared by all the regions.
+ * <p>
+ * The runs of a region are next to each other in the array, in the order
+ * of the rows, from runOffset[label] to runOffset[label+1]; each run is
+ * three ints, its row, first column and last column. A
+ * <code>Region</code> made on the store reads its pixels from here until
+ * it is given pixels of its own (see <code>LineThinner.getCounts</code>).
+ * The background, label 0, has no runs.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class RegionStore {
+
+	private int labelCount;
+	private RegionStatistics statistics;	//the area and the bounding box of each label
+	private int[] color;	//the color of each label in the image
+	private int[] runOffset;	//the first run of each label, and the number of runs at the end
+	private int[] runs;	//row, first column and last column of each run
+
+	/**
+	 * Constructor. The runs are added with addRuns.
+	 *
+	 * @param labelStatistics The statistics of the labels (see <code>LabelImage.getStatistics</code>)
+	 * @param colors The color of each label
+	 */
+	public RegionStore(RegionStatistics labelStatistics, int[] colors) {
+		statistics = labelStatistics;
+		labelCount = labelStatistics.getLabelCount();
+		color = colors;
+		runOffset = new int[labelCount + 1];
+		for (int i = 1; i < labelCount; i++) {
+			runOffset[i+1] = runOffset[i] + labelStatistics.getRunCount(i);
+		}
+		runs = new int[3*runOffset[labelCount]];
+	}
+
+	/**
+	 * Puts the runs of the labelled image in the store, in one pass over it.
+	 * It is the image that the statistics were found on.
+	 *
+	 * @param labelImage The LABELS raster of the image
+	 */
+	public void addRuns(Raster labelImage) {
+		int rows = labelImage.getRows();
+		int columns = labelImage.getColumns();
+		int[] labels = labelImage.getLabelData();
+		int[] next = new int[labelCount];	//the next run of each label
+		System.arraycopy(runOffset, 0, next, 0, labelCount);
+		for (int r = 0; r < rows; r++) {
+			int p = r*columns;
+			int first = 0;
+			for (int c = 1; c <= columns; c++) {
+				if (c == columns || labels[p+c] != labels[p+first]) {
+					int label = labels[p+first];
+					if (label != 0) {
+						int i = 3*next[label]++;
+						runs[i] = r;
+						runs[i+1] = first;
+						runs[i+2] = c - 1;
+					}
+					first = c;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of labels, the background included.
+	 *
+	 * @param none
+	 */
+	public int getLabelCount() {
+		return labelCount;
+	}
+
+	/**
+	 * Returns the color of a label in the image.
+	 *
+	 * @param label The label
+	 */
+	public int getColor(int label) {
+		return color[label];
+	}
+
+	/**
+	 * Returns the number of pixels of a label.
+	 *
+	 * @param label The label
+	 */
+	public int getArea(int label) {
+		return label == 0 ? 0 : statistics.getArea(label);
+	}
+
+	/**
+	 * Returns the upper left corner of the bounding box of a label.
+	 *
+	 * @param label The label
+	 */
+	public PointPixel getUpperLeft(int label) {
+		return statistics.getUpperLeft(label);
+	}
+
+	/**
+	 * Returns the lower right corner of the bounding box of a label.
+	 *
+	 * @param label The label
+	 */
+	public PointPixel getLowerRight(int label) {
+		return statistics.getLowerRight(label);
+	}
+
+	/**
+	 * Returns the number of runs of a label.
+	 *
+	 * @param label The label
+	 */
+	public int getRunCount(int label) {
+		return runOffset[label+1] - runOffset[label];
+	}
+
+	/**
+	 * Returns the row of a run of a label.
+	 *
+	 * @param label The label
+	 * @param n The number of the run, from 0 to getRunCount(label) - 1
+	 */
+	public int getRunRow(int label, int n) {
+		return runs[3*(runOffset[label] + n)];
+	}
+
+	/**
+	 * Returns the first column of a run of a label.
+	 *
+	 * @param label The label
+	 * @param n The number of the run, from 0 to getRunCount(label) - 1
+	 */
+	public int getRunFirstColumn(int label, int n) {
+		return runs[3*(runOffset[label] + n) + 1];
+	}
+
+	/**
+	 * Returns the last column of a run of a label.
+	 *
+	 * @param label The label
+	 * @param n The number of the run, from 0 to getRunCount(label) - 1
+	 */
+	public int getRunLastColumn(int label, int n) {
+		return runs[3*(runOffset[label] + n) + 2];
+	}
+
+	/**
+	 * Returns a new list of the pixels of a label, in the order of the rows
+	 * and columns, for the methods that take a list of points.
+	 *
+	 * @param label The label
+	 */
+	public LinkedList getPixelList(int label) {
+		LinkedList aList = new LinkedList();
+		for (int i = 3*runOffset[label]; i < 3*runOffset[label+1]; i += 3) {
+			for (int c = runs[i+1]; c <= runs[i+2]; c++) {
+				aList.add(new PointPixel(runs[i], c));
+			}
+		}
+		return aList;
+	}
+}
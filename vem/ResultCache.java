@@ -0,0 +1,325 @@
+import java.io.*;
+import java.util.*;
+import java.security.*;
+
+/**
+ * A cache of the results of the chart reading pipeline, so that a chart
+ * that has been read before is not read again.
+ * <p>
+ * A result is the xml document of <code>Graph.writeXML</code> and the json
+ * document of the <code>PipelineMetrics</code> of the run that made it.
+ * It is found by a key made from the hash of the gray values of the image
+ * (<code>BWImageG.getPixelHash</code>, computed while the image is
+ * loaded) and the fingerprint of the pipeline version, fonts and settings
+ * (<code>BWImageG.getConfigFingerprint</code>).
+ * <p>
+ * The most recently used results are kept in memory. All the results are
+ * also written to a directory, as key.xml and key.json, which may be
+ * shared by later runs. When the files of the directory take more than the
+ * given number of bytes, the least recently used results are deleted.
+ * <p>
+ * All the methods are synchronized, so one cache can be shared by
+ * several threads.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ResultCache {
+
+	private File directory;			//the disk store, or null for memory only
+	private long maxDiskBytes;		//size cap of the disk store
+	private long diskBytes;			//size of the files in the disk store
+	private LinkedHashMap onDisk;		//key -> Long (size of its files), least recently used first
+	private LinkedHashMap inMemory;		//key -> Entry, least recently used first
+	private int maxMemoryEntries;		//number of results kept in memory
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor. The results already in the directory are used; the
+	 * ones modified least recently are the first to be deleted.
+	 *
+	 * @param dir The directory of the disk store, or null to keep the results only in memory
+	 * @param maxBytes The size cap of the disk store in bytes
+	 * @param memoryEntries The number of results kept in memory
+	 */
+	public ResultCache(File dir, long maxBytes, int memoryEntries) {
+		directory = dir;
+		maxDiskBytes = maxBytes;
+		maxMemoryEntries = memoryEntries;
+		onDisk = new LinkedHashMap(16, 0.75f, true);
+		inMemory = new LinkedHashMap(16, 0.75f, true);
+		if (directory != null) {
+			directory.mkdirs();
+			loadIndex();
+		}
+	}
+
+	/**
+	 * Returns the cache key of an image.
+	 *
+	 * @param pixelHash The hash of the gray values of the image
+	 * @param fingerprint The fingerprint of the pipeline
+	 * @return The key, the sha-256 hash in hex of both
+	 */
+	public static String makeKey(String pixelHash, String fingerprint) {
+		MessageDigest digest = newDigest();
+		digest.update((pixelHash+"\n"+fingerprint).getBytes());
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Returns the result for a key, from memory or from the disk store.
+	 *
+	 * @param key The key made by <code>makeKey</code>
+	 * @return The result, or null if it is not in the cache
+	 */
+	public synchronized Entry get(String key) {
+		Entry anEntry = (Entry)inMemory.get(key);
+		if (anEntry == null && onDisk.containsKey(key)) {
+			try {
+				anEntry = new Entry(readFile(new File(directory, key+".xml")),
+				                    readFile(new File(directory, key+".json")));
+				new File(directory, key+".xml").setLastModified(System.currentTimeMillis());
+				remember(key, anEntry);
+			}
+			catch(IOException e) {
+				//The files were removed or damaged; forget them
+				forget(key);
+				anEntry = null;
+			}
+		}
+		if (anEntry == null) {
+			misses++;
+		}
+		else {
+			hits++;
+			onDisk.get(key); //makes it the most recently used one
+		}
+		return anEntry;
+	}
+
+	/**
+	 * Stores a result.
+	 *
+	 * @param key The key made by <code>makeKey</code>
+	 * @param anEntry The result
+	 */
+	public synchronized void put(String key, Entry anEntry) {
+		remember(key, anEntry);
+		if (directory == null || onDisk.containsKey(key)) {
+			return;
+		}
+		try {
+			writeFile(new File(directory, key+".json"), anEntry.getMetrics());
+			//The xml file is written last; a result is used only if it exists
+			writeFile(new File(directory, key+".xml"), anEntry.getXML());
+			long size = new File(directory, key+".xml").length() + new File(directory, key+".json").length();
+			onDisk.put(key, Long.valueOf(size));
+			diskBytes += size;
+			evict();
+		}
+		catch(IOException e) {System.out.println(e.getMessage());}
+	}
+
+	/**
+	 * Returns the number of times a result was found.
+	 *
+	 * @param none
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of times a result was not found.
+	 *
+	 * @param none
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the size of the files of the disk store in bytes.
+	 *
+	 * @param none
+	 */
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+
+	/**
+	 * Returns a sha-256 message digest.
+	 *
+	 * @param none
+	 */
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			//Every java virtual machine has SHA-256
+			throw new RuntimeException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the hex string of a hash.
+	 *
+	 * @param hash The bytes of the hash
+	 */
+	public static String toHex(byte[] hash) {
+		StringBuffer s = new StringBuffer();
+		for (int i = 0; i < hash.length; i++) {
+			s.append(Character.forDigit((hash[i]>>4)&0xf, 16));
+			s.append(Character.forDigit(hash[i]&0xf, 16));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Adds a result to the memory tier, dropping the least recently used
+	 * one if the memory tier is full.
+	 *
+	 * @param key The key
+	 * @param anEntry The result
+	 */
+	private void remember(String key, Entry anEntry) {
+		if (maxMemoryEntries <= 0) {
+			return;
+		}
+		inMemory.put(key, anEntry);
+		if (inMemory.size() > maxMemoryEntries) {
+			Iterator itr = inMemory.keySet().iterator();
+			itr.next();
+			itr.remove();
+		}
+	}
+
+	/**
+	 * Deletes the least recently used results until the disk store
+	 * is within its size cap.
+	 *
+	 * @param none
+	 */
+	private void evict() {
+		while (diskBytes > maxDiskBytes && !onDisk.isEmpty()) {
+			String key = (String)onDisk.keySet().iterator().next();
+			forget(key);
+		}
+	}
+
+	/**
+	 * Deletes the files of a result from the disk store.
+	 *
+	 * @param key The key of the result
+	 */
+	private void forget(String key) {
+		Long size = (Long)onDisk.remove(key);
+		if (size != null) {
+			diskBytes -= size.longValue();
+		}
+		new File(directory, key+".xml").delete();
+		new File(directory, key+".json").delete();
+	}
+
+	/**
+	 * Reads the list of the results in the directory, least recently
+	 * modified first.
+	 *
+	 * @param none
+	 */
+	private void loadIndex() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		LinkedList xmlFiles = new LinkedList();
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].getName().endsWith(".xml")) {
+				xmlFiles.add(files[i]);
+			}
+		}
+		Collections.sort(xmlFiles, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long t1 = ((File)o1).lastModified();
+				long t2 = ((File)o2).lastModified();
+				return t1 < t2 ? -1 : (t1 > t2 ? 1 : 0);
+			}
+		});
+		ListIterator lItr = xmlFiles.listIterator();
+		while (lItr.hasNext()) {
+			File xmlFile = (File)lItr.next();
+			String name = xmlFile.getName();
+			String key = name.substring(0, name.length()-".xml".length());
+			long size = xmlFile.length() + new File(directory, key+".json").length();
+			onDisk.put(key, Long.valueOf(size));
+			diskBytes += size;
+		}
+		evict();
+	}
+
+	/**
+	 * Reads a whole text file.
+	 *
+	 * @param aFile The file
+	 */
+	private static String readFile(File aFile) throws IOException {
+		byte[] data = new byte[(int)aFile.length()];
+		DataInputStream x = new DataInputStream(new FileInputStream(aFile));
+		try {
+			x.readFully(data);
+		}
+		finally {
+			x.close();
+		}
+		return new String(data, "UTF-8");
+	}
+
+	/**
+	 * Writes a whole text file. The text is first written to a temporary
+	 * file that is then renamed, so a reader never sees half a file.
+	 *
+	 * @param aFile The file
+	 * @param text The text
+	 */
+	private static void writeFile(File aFile, String text) throws IOException {
+		File tmpFile = new File(aFile.getPath()+".tmp");
+		FileOutputStream x = new FileOutputStream(tmpFile);
+		try {
+			x.write(text.getBytes("UTF-8"));
+		}
+		finally {
+			x.close();
+		}
+		if (!tmpFile.renameTo(aFile)) {
+			aFile.delete();
+			if (!tmpFile.renameTo(aFile)) {
+				throw new IOException("Cannot write "+aFile);
+			}
+		}
+	}
+
+	/**
+	 * One result of the pipeline: the xml document and the stage metrics.
+	 */
+	public static class Entry {
+		private String xml;
+		private String metrics;
+
+		public Entry(String anXML, String aMetrics) {
+			xml = anXML;
+			metrics = aMetrics;
+		}
+
+		public String getXML() {
+			return xml;
+		}
+
+		public String getMetrics() {
+			return metrics;
+		}
+	}
+}
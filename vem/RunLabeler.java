@@ -0,0 +1,321 @@
+import java.util.*;
+
+/**
+ * Labels a gray raster like the labeller of <code>LabelImage</code>, a run
+ * of pixels at a time instead of a pixel at a time, and finds the
+ * statistics of the regions (see <code>RegionStatistics</code>) while it
+ * writes the labels.
+ * <p>
+ * A run is a piece of a row whose pixels all have the same value. All the
+ * pixels of a run are in the same region, so the labels of a run only have
+ * to be joined with the ones of the runs it touches: the run on its left
+ * and the runs of the row above it that are one column or less away, if
+ * their values are close (less than 8 apart). Most runs of the charts are
+ * long, so the equivalences are found in a few steps for each run.
+ * <p>
+ * The labels are numbered exactly as by the pixel labeller. A run keeps the
+ * provisional label of the pixel labeller in segments: it starts with the
+ * smallest label of the pixels next to its first pixel, or a new label, and
+ * takes the label of each run above it that it reaches with a smaller
+ * label, from the pixel where it reaches it. The joins are the ones the
+ * pixel labeller makes that change the equivalences, in the same order, so
+ * the <code>LabelEquivalence</code> numbers the regions in the same order.
+ * <p>
+ * With setFindBorders the border pixels of the regions (see
+ * <code>Border.applyBorderDetection</code>) are also marked as the final
+ * labels are written: a row is marked as soon as the row below it has its
+ * final labels, while the three rows are still in the cache, so the labels
+ * are not read again in another pass.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class RunLabeler {
+
+	private Raster inputImage;
+	private int bPix;	//value of the background pixel
+	private int rows;
+	private int columns;
+	private int[] segmentStart;	//the first column of each segment of the row
+	private int[] segmentLabel;	//the provisional label of each segment
+	private int[] segmentValue;	//the value of the pixels of each segment
+	private int segmentCount;
+	private int[] upperStart;	//the segments of the row above
+	private int[] upperLabel;
+	private int[] upperValue;
+	private int upperCount;
+	private RegionStatistics statistics;
+	private boolean findBorders;	//the borders are marked with the final labels
+	private Raster borderImage;
+	private RegionStatistics borderStatistics;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param inImage The gray raster of the image
+	 * @param bP The color value of the background
+	 */
+	public RunLabeler(Raster inImage, int bP) {
+		inputImage = inImage;
+		bPix = bP;
+		rows = inImage.getRows();
+		columns = inImage.getColumns();
+	}
+
+	/**
+	 * Sets whether applyLabelling also marks the borders of the regions.
+	 *
+	 * @param borders true to mark the borders
+	 */
+	public void setFindBorders(boolean borders) {
+		findBorders = borders;
+	}
+
+	/**
+	 * Labels the image (see <code>LabelImage.applyLabelling</code>).
+	 *
+	 * @param none
+	 * @return A Vector of number of labels as an Integer, the 1d integer array
+	 * of color values for each label number, the LABELS raster of the labelled
+	 * image and the <code>RegionStatistics</code> of the labels.
+	 */
+	public Vector applyLabelling() {
+		//a row has at most one segment for each column, and the start of the next row after them
+		segmentStart = new int[columns + 1];
+		segmentLabel = new int[columns];
+		segmentValue = new int[columns];
+		upperStart = new int[columns + 1];
+		upperLabel = new int[columns];
+		upperValue = new int[columns];
+		upperCount = 0;
+		//the equivalences of the provisional labels; label 0 is there for the background pixels
+		LabelEquivalence equivalence = new LabelEquivalence(Math.max(rows, columns));
+		//the first pass writes the provisional labels
+		Raster pixelLabel = new Raster(rows, columns, Raster.LABELS);
+		int[] labels = pixelLabel.getLabelData();
+		for (int r = 0; r < rows; r++) {
+			labelRow(r, equivalence, labels);
+		}
+		segmentStart = null;
+		segmentLabel = null;
+		segmentValue = null;
+		upperStart = null;
+		upperLabel = null;
+		upperValue = null;
+
+		//The equivalence classes are numbered in the order of their representatives
+		int[] labelsMap = equivalence.makeLabelMap();
+		int noOfLabels = equivalence.getSetCount();
+		int[] labelsArray = new int[noOfLabels];
+		statistics = new RegionStatistics(noOfLabels);
+		if (findBorders) {
+			borderImage = new Raster(rows, columns, Raster.LABELS);
+			borderStatistics = new RegionStatistics(noOfLabels);
+		}
+		//Second pass replaces the first pass labels with consecutive numbered labels
+		for (int r = 0; r < rows; r++) {
+			writeRow(r, labelsMap, labels, labelsArray);
+			if (findBorders && r > 0) {
+				markBorders(r - 1, labels);
+			}
+		}
+		if (findBorders && rows > 0) {
+			markBorders(rows - 1, labels);
+		}
+
+		Vector labelVector = new Vector(4);
+		labelVector.add(Integer.valueOf(noOfLabels)); //Count of Blobs
+		labelVector.add(labelsArray);//Array holding the mapping of sequential labels to pixel labels
+		labelVector.add(pixelLabel);//Pixel Labels
+		labelVector.add(statistics);
+		return labelVector;
+	}
+
+	/**
+	 * Returns the statistics of the labels found by applyLabelling.
+	 *
+	 * @param none
+	 */
+	public RegionStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the border image found by applyLabelling with setFindBorders,
+	 * as the one of <code>Border.getBorderImage</code>; null otherwise.
+	 *
+	 * @param none
+	 */
+	public Raster getBorderImage() {
+		return borderImage;
+	}
+
+	/**
+	 * Returns the statistics of the border pixels found by applyLabelling
+	 * with setFindBorders, as the ones of <code>Border.getStatistics</code>;
+	 * null otherwise.
+	 *
+	 * @param none
+	 */
+	public RegionStatistics getBorderStatistics() {
+		return borderStatistics;
+	}
+
+	/**
+	 * Finds the runs of a row and their provisional labels, joins their
+	 * labels with the ones of the runs they touch and writes the labels of
+	 * the row; the segments of the row are then the ones above the next row.
+	 */
+	private void labelRow(int r, LabelEquivalence equivalence, int[] labels) {
+		byte[] gray = inputImage.getGrayData();
+		segmentCount = 0;
+		int upper = 0;	//the first segment above that can be reached
+		int[] neigLabel = new int[4];
+		int leftLabel = -1;	//the label of the last pixel on the left, -1 for none
+		int leftValue = 0;
+		int p = r*columns;
+		int c = 0;
+		while (c < columns) {
+			byte b = gray[p+c];
+			int value = b & 0xff;
+			int last = c;
+			while (last + 1 < columns && gray[p+last+1] == b) {
+				last++;
+			}
+			if (value == bPix) {
+				//the background pixels keep the 0 of the new array
+				addSegment(c, 0, value);
+				leftLabel = 0;
+				leftValue = value;
+				c = last + 1;
+				continue;
+			}
+			//the segments above that end before the column on the left of the run are passed
+			while (upper < upperCount && upperStart[upper+1] <= c - 1) {
+				upper++;
+			}
+			//the first pixel: the pixel on the left and the segments above it that are close
+			int j = 0;
+			if (leftLabel >= 0 && Math.abs(value - leftValue) < 8) {
+				neigLabel[j++] = leftLabel;
+			}
+			int k = upper;
+			while (k < upperCount && upperStart[k] <= c + 1) {
+				if (Math.abs(value - upperValue[k]) < 8) {
+					neigLabel[j++] = upperLabel[k];
+				}
+				k++;
+			}
+			int label;
+			if (j == 0) { //there are no prior neighbors in the same region
+				label = equivalence.add();
+			}
+			else {
+				label = neigLabel[0];
+				for (int i = 1; i < j; i++) {
+					if (neigLabel[i] < label)
+						label = neigLabel[i];
+				}
+				for (int i = 0; i < j; i++) {
+					if (neigLabel[i] != label) {
+						equivalence.union(label, neigLabel[i]);
+					}
+				}
+			}
+			addSegment(c, label, value);
+			//the segments above that the run reaches from its second pixel on
+			int from = c;	//the first pixel of the last segment
+			while (k < upperCount && upperStart[k] <= last + 1) {
+				if (Math.abs(value - upperValue[k]) < 8) {
+					int aLabel = upperLabel[k];
+					if (aLabel < label) {
+						equivalence.union(aLabel, label);
+						int x = upperStart[k] - 1;
+						fill(labels, p+from, p+x, label);
+						label = aLabel;
+						from = x;
+						addSegment(x, label, value);
+					}
+					else if (aLabel > label) {
+						equivalence.union(label, aLabel);
+					}
+				}
+				k++;
+			}
+			fill(labels, p+from, p+last+1, label);
+			leftLabel = label;
+			leftValue = value;
+			c = last + 1;
+		}
+		segmentStart[segmentCount] = columns;
+		int[] t = upperStart;
+		upperStart = segmentStart;
+		segmentStart = t;
+		t = upperLabel;
+		upperLabel = segmentLabel;
+		segmentLabel = t;
+		t = upperValue;
+		upperValue = segmentValue;
+		segmentValue = t;
+		upperCount = segmentCount;
+	}
+
+	/**
+	 * Writes a label from index first to index end - 1 of the labels; most
+	 * runs are short, so they are written without Arrays.fill.
+	 */
+	private static void fill(int[] labels, int first, int end, int label) {
+		if (end - first > 16) {
+			Arrays.fill(labels, first, end, label);
+			return;
+		}
+		for (int i = first; i < end; i++) {
+			labels[i] = label;
+		}
+	}
+
+	/**
+	 * Adds a segment to the row.
+	 */
+	private void addSegment(int start, int label, int value) {
+		segmentStart[segmentCount] = start;
+		segmentLabel[segmentCount] = label;
+		segmentValue[segmentCount] = value;
+		segmentCount++;
+	}
+
+	/**
+	 * Marks the border pixels of a row whose neighbor rows have their final
+	 * labels; the pixels outside the image are background.
+	 */
+	private void markBorders(int r, int[] labels) {
+		int[] borders = borderImage.getLabelData();
+		PixelKernels.get().markBorders(labels, r*columns, columns, r > 0, r < rows-1, borders, 0);
+		borderStatistics.addRow(borders, r*columns, r, columns);
+	}
+
+	/**
+	 * Replaces the provisional labels of a row with the final ones, keeps
+	 * the color of the last pixel of each label and adds the runs of the
+	 * labels to the statistics.
+	 */
+	private void writeRow(int r, int[] labelsMap, int[] labels, int[] labelsArray) {
+		byte[] gray = inputImage.getGrayData();
+		int p = r*columns;
+		int runLabel = labelsMap[labels[p]];
+		int runStart = 0;
+		for (int c = 0; c < columns; c++) {
+			int aLabel = labelsMap[labels[p+c]];
+			labels[p+c] = aLabel;
+			if (aLabel != runLabel) {
+				statistics.addRun(runLabel, r, runStart, c - 1);
+				labelsArray[runLabel] = gray[p+c-1] & 0xff;
+				runLabel = aLabel;
+				runStart = c;
+			}
+		}
+		statistics.addRun(runLabel, r, runStart, columns - 1);
+		labelsArray[runLabel] = gray[p+columns-1] & 0xff;
+	}
+}
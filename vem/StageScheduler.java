@@ -0,0 +1,117 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the stages of a pipeline as a directed acyclic graph.
+ * <p>
+ * Each stage declares the names of the results it needs (inputs) and of
+ * the results it makes (outputs). A stage is started when the stages that
+ * make its inputs are finished, so stages that do not depend on each other
+ * run at the same time on a fork/join pool. Without a pool the stages are
+ * run one after the other, in the order they were added.
+ * <p>
+ * Every result must be made by exactly one stage, and a stage can only use
+ * the results of stages added before it, so the graph cannot have cycles.
+ * Two stages that change the same object must be ordered by their inputs
+ * and outputs; e.g. the stages that add to the <code>Graph</code> of a
+ * chart pass a "graph.xxx" result from one to the next.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class StageScheduler {
+
+	private ForkJoinPool pool;	//runs the stages, null to run them sequentially
+	private LinkedList stages;	//the stages in the order they were added
+	private Hashtable producers;	//result name -> Stage that makes it
+
+	/**
+	 * Constructor. The stages are run on the given pool.
+	 *
+	 * @param aPool The fork/join pool, or null to run the stages sequentially
+	 */
+	public StageScheduler(ForkJoinPool aPool) {
+		pool = aPool;
+		stages = new LinkedList();
+		producers = new Hashtable();
+	}
+
+	/**
+	 * Adds a stage.
+	 *
+	 * @param name The name of the stage
+	 * @param inputs The names of the results that the stage needs
+	 * @param outputs The names of the results that the stage makes
+	 * @param work The work of the stage
+	 */
+	public void addStage(String name, String[] inputs, String[] outputs, Runnable work) {
+		Stage aStage = new Stage(name, work);
+		for (int i = 0; i < inputs.length; i++) {
+			Stage producer = (Stage)producers.get(inputs[i]);
+			if (producer == null) {
+				throw new IllegalArgumentException("Stage "+name+" needs "+inputs[i]+", which no earlier stage makes");
+			}
+			if (!aStage.dependencies.contains(producer)) {
+				aStage.dependencies.add(producer);
+			}
+		}
+		for (int i = 0; i < outputs.length; i++) {
+			if (producers.containsKey(outputs[i])) {
+				throw new IllegalArgumentException("Stage "+name+" makes "+outputs[i]+", which stage "
+				                                   +((Stage)producers.get(outputs[i])).name+" already makes");
+			}
+			producers.put(outputs[i], aStage);
+		}
+		stages.add(aStage);
+	}
+
+	/**
+	 * Runs all the stages and waits until they are finished.
+	 * A scheduler can be run only once.
+	 * If a stage throws an exception, the stages that depend on it are not
+	 * run and the exception is thrown by this method.
+	 *
+	 * @param none
+	 */
+	public void run() {
+		if (pool == null) {
+			ListIterator lItr = stages.listIterator();
+			while (lItr.hasNext()) {
+				((Stage)lItr.next()).work.run();
+			}
+			return;
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				invokeAll(stages);
+			}
+		});
+	}
+
+	/**
+	 * One stage of the graph. It waits for the stages it depends on
+	 * and then does its work.
+	 */
+	private static class Stage extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		String name;
+		Runnable work;
+		LinkedList dependencies;	//Stages that make the inputs
+
+		Stage(String aName, Runnable aWork) {
+			name = aName;
+			work = aWork;
+			dependencies = new LinkedList();
+		}
+
+		protected void compute() {
+			ListIterator lItr = dependencies.listIterator();
+			while (lItr.hasNext()) {
+				((Stage)lItr.next()).join();
+			}
+			work.run();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a per-pixel kernel over the rows of an image in horizontal stripes,
+ * at the same time on a fork/join pool.
+ * <p>
+ * The kernels are the passes where each row is done on its own (gray
+ * conversion, the filter and background tables, padding), so the stripes
+ * need no locking; a kernel that counts something keeps its own counts and
+ * adds them to the total at the end of its stripe. An image smaller than
+ * two stripes of <code>MIN_STRIPE_PIXELS</code> is done in one stripe on
+ * the calling thread, where splitting costs more than it gains.
+ * <p>
+ * The number of stripes is at most the parallelism level. By default it is
+ * the number of processors, or the <code>vem.parallelism</code> system
+ * property; a level of 1 runs everything on the calling thread.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class StripeExecutor {
+
+	/**
+	 * The least number of pixels of a stripe.
+	 */
+	public static final int MIN_STRIPE_PIXELS = 1 << 16;
+
+	/**
+	 * The work done on one stripe.
+	 */
+	public interface Kernel {
+		/**
+		 * Does the work on the rows from firstRow to lastRow - 1.
+		 *
+		 * @param firstRow The first row of the stripe
+		 * @param lastRow The row after the last row of the stripe
+		 */
+		void run(int firstRow, int lastRow);
+	}
+
+	private ForkJoinPool pool;	//runs the stripes, null to run them on the calling thread
+	private int parallelism;	//the most stripes of an image
+
+	/**
+	 * Constructor.
+	 *
+	 * @param aPool The fork/join pool, or null to run on the calling thread
+	 * @param level The parallelism level, the most stripes of an image
+	 */
+	public StripeExecutor(ForkJoinPool aPool, int level) {
+		pool = aPool;
+		parallelism = Math.max(level, 1);
+	}
+
+	/**
+	 * Returns an executor with the given parallelism level on the common
+	 * fork/join pool, or on the calling thread if the level is 1.
+	 *
+	 * @param level The parallelism level
+	 */
+	public static StripeExecutor withParallelism(int level) {
+		return new StripeExecutor(level > 1 ? ForkJoinPool.commonPool() : null, level);
+	}
+
+	/**
+	 * Returns an executor with the default parallelism level: the
+	 * <code>vem.parallelism</code> system property if it is set, otherwise
+	 * the number of processors.
+	 *
+	 * @param none
+	 */
+	public static StripeExecutor getDefault() {
+		return withParallelism(Integer.getInteger("vem.parallelism", Runtime.getRuntime().availableProcessors()).intValue());
+	}
+
+	/**
+	 * Returns the parallelism level.
+	 *
+	 * @param none
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns the number of stripes that an image of the given size is
+	 * split into.
+	 *
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 */
+	public int getStripeCount(int rows, int columns) {
+		if (pool == null || rows < 2) {
+			return 1;
+		}
+		long stripes = (long)rows*columns / MIN_STRIPE_PIXELS;
+		return (int)Math.max(1, Math.min(Math.min(stripes, parallelism), rows));
+	}
+
+	/**
+	 * Returns the first row of stripe k when the rows are split into the
+	 * given number of stripes; stripe k ends where stripe k+1 starts, and
+	 * the last one at getFirstRow(rows, stripes, stripes), which is rows.
+	 *
+	 * @param rows The number of rows
+	 * @param stripes The number of stripes
+	 * @param k The stripe
+	 */
+	public static int getFirstRow(int rows, int stripes, int k) {
+		return (int)((long)rows*k/stripes);
+	}
+
+	/**
+	 * Runs the kernel over all the rows and waits until it is finished.
+	 * An exception thrown by the kernel is thrown by this method.
+	 *
+	 * @param rows The number of rows
+	 * @param columns The number of columns
+	 * @param aKernel The kernel
+	 */
+	public void run(int rows, int columns, final Kernel aKernel) {
+		int stripes = getStripeCount(rows, columns);
+		if (stripes == 1) {
+			aKernel.run(0, rows);
+			return;
+		}
+		final LinkedList tasks = new LinkedList();
+		for (int k = 0; k < stripes; k++) {
+			final int firstRow = getFirstRow(rows, stripes, k);
+			final int lastRow = getFirstRow(rows, stripes, k+1);
+			tasks.add(new RecursiveAction() {
+				protected void compute() {
+					aKernel.run(firstRow, lastRow);
+				}
+			});
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+}
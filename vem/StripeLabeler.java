@@ -0,0 +1,446 @@
+import java.util.*;
+
+/**
+ * Labels a gray raster like <code>LabelImage</code>, with the rows split
+ * into horizontal stripes that are labelled at the same time (see
+ * <code>StripeExecutor</code>), and gives exactly the same labels, number
+ * of labels and colors of the labels.
+ * <p>
+ * The numbers of the regions depend on the order in which the labeller
+ * of <code>LabelImage</code> joins its provisional labels (see
+ * <code>LabelEquivalence</code>), so the stripes make the same provisional
+ * labels and joins, and the joins are then replayed in the same order:
+ * <ol>
+ * <li>Each stripe is labelled on its own. A pixel that starts a new
+ * label gets the next number of its stripe; a pixel with a neighbor
+ * in the stripe above, whose label is not known yet, is left for
+ * step 3, and so is a pixel next to one of those. The joins are
+ * recorded with their pixel.</li>
+ * <li>The numbers of each stripe are moved after the labels of the
+ * stripes above it, which makes them the numbers of the first labeller,
+ * since a new label is started by the same pixels in both.</li>
+ * <li>The pixels that were left are labelled one stripe after the other,
+ * in row order; in most images they are only a few rows of the regions
+ * that cross the stripe boundaries.</li>
+ * <li>The joins of all the stripes are replayed in the order of their
+ * pixels, and the final labels are written, again in stripes, with the
+ * statistics of the labels in each stripe; the statistics of the stripes
+ * are then added up.</li>
+ * </ol>
+ * With setFindBorders the borders of the regions are then marked in
+ * stripes too, as by <code>RunLabeler</code>.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class StripeLabeler {
+
+	private Raster inputImage;
+	private int bPix;	//value of the background pixel
+	private StripeExecutor stripes;
+	private int rows;
+	private int columns;
+	private int stripeCount;
+	private int[] labels;	//provisional labels, -1 for the pixels left for step 3, then the final labels
+	private int[] firstLabels;	//the number before the first label of each stripe
+	private IntList[] joins;	//the joins of the pixels labelled in step 1, for each stripe
+	private IntList[] lateJoins;	//the joins of the pixels labelled in step 3
+	private IntList[] leftPixels;	//the pixels left for step 3
+	private int[][] labelColors;	//the color of the last pixel of each label in each stripe
+	private RegionStatistics[] stripeStatistics;	//the statistics of the labels in each stripe
+	private boolean findBorders;	//the borders are marked after the final labels
+	private Raster borderImage;
+	private RegionStatistics[] stripeBorderStatistics;	//the statistics of the border pixels in each stripe
+	private RegionStatistics borderStatistics;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param inImage The gray raster of the image
+	 * @param bP The color value of the background
+	 * @param aStripes Splits the rows into stripes
+	 */
+	public StripeLabeler(Raster inImage, int bP, StripeExecutor aStripes) {
+		inputImage = inImage;
+		bPix = bP;
+		stripes = aStripes;
+		rows = inImage.getRows();
+		columns = inImage.getColumns();
+	}
+
+	/**
+	 * Sets whether applyLabelling also marks the borders of the regions.
+	 *
+	 * @param borders true to mark the borders
+	 */
+	public void setFindBorders(boolean borders) {
+		findBorders = borders;
+	}
+
+	/**
+	 * Labels the image (see <code>LabelImage.applyLabelling</code>).
+	 *
+	 * @param none
+	 * @return A Vector of number of labels as an Integer, the 1d integer array
+	 * of color values for each label number, the LABELS raster of the labelled
+	 * image and the <code>RegionStatistics</code> of the labels.
+	 */
+	public Vector applyLabelling() {
+		stripeCount = stripes.getStripeCount(rows, columns);
+		labels = new int[rows*columns];
+		firstLabels = new int[stripeCount];
+		joins = new IntList[stripeCount];
+		lateJoins = new IntList[stripeCount];
+		leftPixels = new IntList[stripeCount];
+		labelColors = new int[stripeCount][];
+		stripeStatistics = new RegionStatistics[stripeCount];
+
+		//Step 1
+		stripes.run(rows, columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				labelStripe(getStripe(firstRow), firstRow, lastRow);
+			}
+		});
+
+		//Step 2
+		int labelCount = 1;	//the background
+		for (int k = 0; k < stripeCount; k++) {
+			int newLabels = firstLabels[k];
+			firstLabels[k] = labelCount - 1;
+			labelCount += newLabels;
+		}
+		stripes.run(rows, columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				int k = getStripe(firstRow);
+				moveLabels(firstRow*columns, lastRow*columns, firstLabels[k]);
+				moveJoins(joins[k], firstLabels[k]);
+			}
+		});
+
+		//Step 3
+		for (int k = 1; k < stripeCount; k++) {
+			labelLeftPixels(k);
+		}
+
+		//Step 4
+		LabelEquivalence equivalence = new LabelEquivalence(labelCount);
+		for (int i = 1; i < labelCount; i++) {
+			equivalence.add();
+		}
+		for (int k = 0; k < stripeCount; k++) {
+			replayJoins(equivalence, joins[k], lateJoins[k]);
+		}
+		final int[] labelsMap = equivalence.makeLabelMap();
+		int noOfLabels = equivalence.getSetCount();
+		final int labelTotal = noOfLabels;
+		stripes.run(rows, columns, new StripeExecutor.Kernel() {
+			public void run(int firstRow, int lastRow) {
+				writeLabels(getStripe(firstRow), firstRow, lastRow, labelsMap, labelTotal);
+			}
+		});
+		//the final labels are written over the provisional ones
+		Raster pixelLabel = new Raster(rows, columns, labels);
+		if (findBorders) {
+			//the rows next to a stripe are written by now
+			borderImage = new Raster(rows, columns, Raster.LABELS);
+			stripeBorderStatistics = new RegionStatistics[stripeCount];
+			stripes.run(rows, columns, new StripeExecutor.Kernel() {
+				public void run(int firstRow, int lastRow) {
+					markBorders(getStripe(firstRow), firstRow, lastRow, labelTotal);
+				}
+			});
+			borderStatistics = new RegionStatistics(noOfLabels);
+		}
+		//the color of a label is the one of its last pixel, so the later stripes come last
+		int[] labelsArray = new int[noOfLabels];
+		RegionStatistics statistics = new RegionStatistics(noOfLabels);
+		for (int k = 0; k < stripeCount; k++) {
+			int[] colors = labelColors[k];
+			for (int i = 0; i < noOfLabels; i++) {
+				if (colors[i] >= 0) {
+					labelsArray[i] = colors[i];
+				}
+			}
+			labelColors[k] = null;
+			statistics.add(stripeStatistics[k]);
+			stripeStatistics[k] = null;
+			if (findBorders) {
+				borderStatistics.add(stripeBorderStatistics[k]);
+				stripeBorderStatistics[k] = null;
+			}
+		}
+		labels = null;
+
+		Vector labelVector = new Vector(4);
+		labelVector.add(Integer.valueOf(noOfLabels)); //Count of Blobs
+		labelVector.add(labelsArray);//Array holding the mapping of sequential labels to pixel labels
+		labelVector.add(pixelLabel);//Pixel Labels
+		labelVector.add(statistics);
+		return labelVector;
+	}
+
+	/**
+	 * Returns the border image found by applyLabelling with setFindBorders;
+	 * null otherwise.
+	 *
+	 * @param none
+	 */
+	public Raster getBorderImage() {
+		return borderImage;
+	}
+
+	/**
+	 * Returns the statistics of the border pixels found by applyLabelling
+	 * with setFindBorders; null otherwise.
+	 *
+	 * @param none
+	 */
+	public RegionStatistics getBorderStatistics() {
+		return borderStatistics;
+	}
+
+	/**
+	 * Returns the stripe that starts at the given row.
+	 */
+	private int getStripe(int firstRow) {
+		int k = 0;
+		while (StripeExecutor.getFirstRow(rows, stripeCount, k) != firstRow) {
+			k++;
+		}
+		return k;
+	}
+
+	/**
+	 * Step 1: labels the rows of a stripe as if it were the top of the
+	 * image, except for the pixels whose label depends on the stripe above.
+	 * The labels are numbered from 1 in the stripe; their number is kept in
+	 * firstLabels until step 2.
+	 */
+	private void labelStripe(int k, int firstRow, int lastRow) {
+		byte[] gray = inputImage.getGrayData();
+		int[] offset = new int[4];
+		for (int i = 0; i < 4; i++) {
+			offset[i] = LabelImage.rPos[i]*columns + LabelImage.cPos[i];
+		}
+		int[] priorNeigLabel = new int[4];
+		IntList stripeJoins = new IntList();
+		IntList left = new IntList();
+		int label = 0;
+		for (int r = firstRow; r < lastRow; r++) {
+			for (int c = 0; c < columns; c++) {
+				int p = r*columns + c;
+				int value = gray[p] & 0xff;
+				if (value == bPix) {
+					labels[p] = 0;
+					continue;
+				}
+				int j = 0;
+				boolean later = false;	//the label depends on the stripe above
+				for (int i = 0; i < 4; i++) {
+					int nr = r + LabelImage.rPos[i];
+					int nc = c + LabelImage.cPos[i];
+					if (nr >= 0 && nc >= 0 && nc < columns) {
+						int neigValue = gray[p+offset[i]] & 0xff;
+						if (Math.abs(value - neigValue) < 8) {
+							if (nr < firstRow && neigValue != bPix) {
+								later = true;
+							}
+							else if (nr < firstRow) {
+								priorNeigLabel[j++] = 0;	//the background above is always 0
+							}
+							else if (labels[p+offset[i]] < 0) {
+								later = true;
+							}
+							else {
+								priorNeigLabel[j++] = labels[p+offset[i]];
+							}
+						}
+					}
+				}
+				if (later) {
+					labels[p] = -1;
+					left.add(p);
+				}
+				else if (j == 0) {
+					labels[p] = ++label;
+				}
+				else {
+					labels[p] = join(p, priorNeigLabel, j, stripeJoins);
+				}
+			}
+		}
+		firstLabels[k] = label;
+		joins[k] = stripeJoins;
+		leftPixels[k] = left;
+		lateJoins[k] = new IntList();
+	}
+
+	/**
+	 * Returns the smallest of the labels of the neighbors and records the
+	 * joins of the others with it, in the order of the first labeller:
+	 * the pixel, its label and the label of the neighbor, three ints each.
+	 */
+	private static int join(int p, int[] priorNeigLabel, int j, IntList someJoins) {
+		int minLabel = priorNeigLabel[0];
+		for (int i = 1; i < j; i++) {
+			if (priorNeigLabel[i] < minLabel)
+				minLabel = priorNeigLabel[i];
+		}
+		for (int i = 0; i < j; i++) {
+			if (minLabel != priorNeigLabel[i]) {
+				someJoins.add(p);
+				someJoins.add(minLabel);
+				someJoins.add(priorNeigLabel[i]);
+			}
+		}
+		return minLabel;
+	}
+
+	/**
+	 * Step 2: adds the number before the first label of the stripe to its
+	 * labels, leaving the background and the pixels left for step 3.
+	 */
+	private void moveLabels(int first, int last, int firstLabel) {
+		if (firstLabel == 0) {
+			return;
+		}
+		for (int p = first; p < last; p++) {
+			if (labels[p] > 0) {
+				labels[p] += firstLabel;
+			}
+		}
+	}
+
+	/**
+	 * Step 2: moves the labels of the joins of a stripe like moveLabels.
+	 */
+	private static void moveJoins(IntList someJoins, int firstLabel) {
+		if (firstLabel == 0) {
+			return;
+		}
+		int[] data = someJoins.getData();
+		for (int n = 0; n < someJoins.size(); n++) {
+			if (n % 3 != 0 && data[n] > 0) {
+				data[n] += firstLabel;
+			}
+		}
+	}
+
+	/**
+	 * Step 3: labels the pixels of stripe k that were left, in row order,
+	 * now that the stripes above it are labelled. Each of them has at least
+	 * one neighbor in its region, so none of them starts a new label.
+	 */
+	private void labelLeftPixels(int k) {
+		byte[] gray = inputImage.getGrayData();
+		int[] priorNeigLabel = new int[4];
+		IntList left = leftPixels[k];
+		for (int n = 0; n < left.size(); n++) {
+			int p = left.get(n);
+			int r = p / columns;
+			int c = p - r*columns;
+			int value = gray[p] & 0xff;
+			int j = 0;
+			for (int i = 0; i < 4; i++) {
+				int nr = r + LabelImage.rPos[i];
+				int nc = c + LabelImage.cPos[i];
+				if (nr >= 0 && nc >= 0 && nc < columns) {
+					int q = nr*columns + nc;
+					if (Math.abs(value - (gray[q] & 0xff)) < 8) {
+						priorNeigLabel[j++] = labels[q];
+					}
+				}
+			}
+			labels[p] = join(p, priorNeigLabel, j, lateJoins[k]);
+		}
+		leftPixels[k] = null;
+	}
+
+	/**
+	 * Step 4: replays the joins of a stripe, those of step 1 and of step 3
+	 * together in the order of their pixels.
+	 */
+	private static void replayJoins(LabelEquivalence equivalence, IntList first, IntList late) {
+		int[] a = first.getData();
+		int[] b = late.getData();
+		int i = 0;
+		int j = 0;
+		while (i < first.size() || j < late.size()) {
+			if (j == late.size() || (i < first.size() && a[i] < b[j])) {
+				equivalence.union(a[i+1], a[i+2]);
+				i += 3;
+			}
+			else {
+				equivalence.union(b[j+1], b[j+2]);
+				j += 3;
+			}
+		}
+	}
+
+	/**
+	 * Step 4: writes the final labels of the rows of a stripe over the
+	 * provisional ones, keeps the color of the last pixel of each label in
+	 * the stripe, -1 for none, and finds the statistics of the labels in
+	 * the stripe.
+	 */
+	private void writeLabels(int k, int firstRow, int lastRow, int[] labelsMap, int noOfLabels) {
+		byte[] gray = inputImage.getGrayData();
+		int[] colors = new int[noOfLabels];
+		Arrays.fill(colors, -1);
+		RegionStatistics statistics = new RegionStatistics(noOfLabels);
+		for (int r = firstRow; r < lastRow; r++) {
+			int p = r*columns;
+			for (int i = p; i < p+columns; i++) {
+				int aLabel = labelsMap[labels[i]];
+				labels[i] = aLabel;
+				colors[aLabel] = gray[i] & 0xff;
+			}
+			statistics.addRow(labels, p, r, columns);
+		}
+		labelColors[k] = colors;
+		stripeStatistics[k] = statistics;
+	}
+
+	/**
+	 * Marks the border pixels of the rows of a stripe, once all the final
+	 * labels are written, and finds their statistics in the stripe.
+	 */
+	private void markBorders(int k, int firstRow, int lastRow, int noOfLabels) {
+		PixelKernels kernels = PixelKernels.get();
+		RegionStatistics statistics = new RegionStatistics(noOfLabels);
+		int[] borders = borderImage.getLabelData();
+		for (int r = firstRow; r < lastRow; r++) {
+			kernels.markBorders(labels, r*columns, columns, r > 0, r < rows-1, borders, 0);
+			statistics.addRow(borders, r*columns, r, columns);
+		}
+		stripeBorderStatistics[k] = statistics;
+	}
+
+	/**
+	 * A list of ints that grows as they are added.
+	 */
+	private static class IntList {
+		private int[] data = new int[64];
+		private int size;
+
+		void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, 2*data.length);
+			}
+			data[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int get(int n) {
+			return data[n];
+		}
+
+		int[] getData() {
+			return data;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.*;
 * of text, possibly written over more than one line.
 */
 
+@SuppressWarnings("rawtypes")
 public class TextBlock {
 
   private LinkedList pieces;
@@ -7,6 +7,7 @@ import java.util.*;
 * each other in the direction of orientation.
 */
 
+@SuppressWarnings("rawtypes")
 public class TextPiece {
 
   private LinkedList Words;
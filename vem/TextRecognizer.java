@@ -11,38 +11,52 @@ import java.io.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class TextRecognizer {
 
 	private int imageHeight;    //number of rows in the input image
 	private int imageWidth;     //number of columns in the input image
  	private int bPixLabel; 			//background label
 
-	private int[][] borderImage;  //Labelled image
+	private Raster borderImage;  //Labelled image
 	private int noOfLabels;				//number or regions in the image
 	private int noOfCharacters;
 	private Region[] allRegions;
+	private RegionStatistics statistics; //of the pixels of each label in borderImage
 	//PointPixel[] boundingBoxCorners;
 	LinkedList allDashedLines;
 
  /**
 	* Constructor. Initializes a linked list for the regions which are dashed lines.
 	*
-	* @param inImage The border image
+	* @param inImage The LABELS raster of the border image
 	* @param labelCount The number of regions in the image
 	* @param imageRows The number of rows
 	* @param imageColumns The number of columns
 	* @param regions The Region array of all the regions
 	* @param bPix The background pixels' label (zero)
 	*/
-	public TextRecognizer(int[][] inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix) {
-		borderImage = new int[imageRows][imageColumns];
-		for (int i=0; i<imageRows; i++) {
-			for (int j=0; j<imageColumns; j++) {
-				//System.out.println(inImage[i][j]);
-				borderImage[i][j] = inImage[i][j];
-				//System.out.print(inPixImage[i][j]);
-			}
-		}	
+	public TextRecognizer(Raster inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix) {
+		this(inImage, labelCount, imageRows, imageColumns, regions, bPix,
+		     RegionStatistics.fromLabels(inImage, labelCount));
+	}
+
+ /**
+	* Constructor. Initializes a linked list for the regions which are dashed lines.
+	* The pixel counts, centroids and variances of the regions are taken from
+	* the statistics of the border image instead of being counted again.
+	*
+	* @param inImage The LABELS raster of the border image
+	* @param labelCount The number of regions in the image
+	* @param imageRows The number of rows
+	* @param imageColumns The number of columns
+	* @param regions The Region array of all the regions
+	* @param bPix The background pixels' label (zero)
+	* @param borderStatistics The statistics of the labels of the border image (see <code>Border.getStatistics</code>)
+	*/
+	public TextRecognizer(Raster inImage, int labelCount, int imageRows, int imageColumns, Region[] regions, int bPix, RegionStatistics borderStatistics) {
+		statistics = borderStatistics;
+		borderImage = inImage;
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
 		bPixLabel = bPix;
@@ -311,22 +325,7 @@ public class TextRecognizer {
 	 * @return An array of size two of double values; first one is the row number of the centroid, the second one is the column number of the centroid
    */
 	private double[] findCentroid(int label, PointPixel upperLeft, PointPixel lowerRight) {
-		int count = 0;
-		int sumRow = 0;
-		int sumColumn = 0;
-		double[] cent = new double[2];
-		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
-			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (borderImage[i][j] == label) {
-					count++;
-					sumRow += i;
-					sumColumn += j;
-				}
-			}
-		}			
-		cent[0] = (double)sumRow/(double)count;
-		cent[1] = (double)sumColumn/(double)count;
-		return cent;	
+		return statistics.getCentroid(label);
 	}
 
   /**
@@ -338,23 +337,7 @@ public class TextRecognizer {
 	 * @return An array of size two of double values; first one is the row variance, the second one is the column variance
    */
 	private double[] findVariance(int label, PointPixel upperLeft, PointPixel lowerRight) {
-		int count = 0;
-		double sumRow = 0;
-		double sumColumn = 0;
-		double[] variance = new double[2];
-		double[] cent = findCentroid(label, upperLeft, lowerRight);
-		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
-			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (borderImage[i][j] == label) {
-					count++;
-					sumRow += (i-cent[0]) * (i-cent[0]);
-					sumColumn += (j-cent[1]) * (j-cent[1]);
-				}
-			}
-		}			
-		variance[0] = sumRow/(double)count;
-		variance[1] = sumColumn/(double)count;
-		return variance;	
+		return statistics.getVariance(label);
 	}
 
   /**
@@ -402,15 +385,7 @@ public class TextRecognizer {
 	 * @return The number of pixels with the same label in the given area.
    */
 	private int findPixelCount(int label, PointPixel upperLeft, PointPixel lowerRight) {
-		int count = 0;
-		for (int i = upperLeft.getRow(); i <= lowerRight.getRow(); i++) {
-			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				if (borderImage[i][j] == label) {
-					count++;
-				}
-			}
-		}			
-		return count;	
+		return statistics.getArea(label);
 	}
 
   /**
@@ -503,7 +478,7 @@ public class TextRecognizer {
 		for (int j = 0; j < (int)(checkSize); j++) {
 			for (int i = column; i < column + width; i++) { 
 				if (row >= 0 && row < imageHeight && i >= 0 && i < imageWidth) { 
-					newLabel = borderImage[row][i];
+					newLabel = borderImage.get(row, i);
 					if (newLabel != label && newLabel != bPixLabel) {
 						//A new region is encountered
 						//System.out.println("New region "+newLabel+" at ("+row+", "+i+")");
@@ -525,7 +500,7 @@ public class TextRecognizer {
 			}
 			for (int i = row; i < row + height; i++) { 
 				if (i >= 0 && i < imageHeight && (column + width - 1) >= 0 && (column + width - 1) < imageWidth) { 
-					newLabel = borderImage[i][column + width - 1];
+					newLabel = borderImage.get(i, column + width - 1);
 					if (newLabel != label && newLabel != bPixLabel) {
 						//A new region is encountered
 						//System.out.println("New region "+newLabel+" at ("+i+", "+(column+width-1)+")");
@@ -540,7 +515,7 @@ public class TextRecognizer {
 			}
 			for (int i = column + width - 1; i >= column; i--) { //row = row + length - 1;
 				if ((row + height - 1) >= 0 && (row  + height - 1) < imageHeight && i >= 0 && i < imageWidth) { 
-					newLabel = borderImage[row + height - 1][i];
+					newLabel = borderImage.get(row + height - 1, i);
 					if (newLabel != label && newLabel != bPixLabel) {
 						//A new region is encountered
 						//System.out.println("New region "+newLabel+" at ("+(row+height-1)+", "+i+")");
@@ -555,7 +530,7 @@ public class TextRecognizer {
 			}
 			for (int i = row + height - 1; i >= row; i--) { 
 				if (i >= 0 && i < imageHeight && column >= 0 && column < imageWidth) { 
-					newLabel = borderImage[i][column];
+					newLabel = borderImage.get(i, column);
 					if (newLabel != label && newLabel != bPixLabel) {
 						//A new region is encountered
 						//System.out.println("New region "+newLabel+" at ("+i+", "+column+")");
@@ -639,7 +614,7 @@ public class TextRecognizer {
 			for (int i = columnFirstPoint; i > columnFirstPoint - 4*width; i--) {
 				row = (int)(slope * (double)i + intercept);
 				if (row >= 0 && row < imageHeight && i >= 0 && i < imageWidth) { 
-					newLabel = borderImage[row][i];
+					newLabel = borderImage.get(row, i);
 					if (newLabel != label && newLabel != bPixLabel) {
 						if (extendDashedLine(label, height, lineOrientation, slope, intercept, newLabel, dashedLines)) {
 							Region anotherRegion = allRegions[newLabel];
@@ -661,7 +636,7 @@ public class TextRecognizer {
 			for (int i = columnLastPoint; i < columnLastPoint + 4*width; i++) {
 				row = (int)(slope * (double)i + intercept);
 				if (row >= 0 && row < imageHeight && i >= 0 && i < imageWidth) { 
-					newLabel = borderImage[row][i];
+					newLabel = borderImage.get(row, i);
 					if (newLabel != label && newLabel != bPixLabel) {
 						if (extendDashedLine(label, height, lineOrientation, slope, intercept, newLabel, dashedLines)) {
 							Region anotherRegion = allRegions[newLabel];
@@ -686,7 +661,7 @@ public class TextRecognizer {
 			for (int i = rowFirstPoint; i > rowFirstPoint - 4*height; i--) {
 				column = (int)(slope * (double)i + intercept);
 				if (i >= 0 && i < imageHeight && column >= 0 && column < imageWidth) { 
-					newLabel = borderImage[i][column];
+					newLabel = borderImage.get(i, column);
 					if (newLabel != label && newLabel != bPixLabel) {
 						if (extendDashedLine(label, width, lineOrientation, slope, intercept, newLabel, dashedLines)) {
 							Region anotherRegion = allRegions[newLabel];
@@ -708,7 +683,7 @@ public class TextRecognizer {
 			for (int i = rowLastPoint; i < rowLastPoint + 4*height; i++) {
 				column = (int)(slope * (double)i + intercept);
 				if (i >= 0 && i < imageHeight && column >= 0 && column < imageWidth) { 
-					newLabel = borderImage[i][column];
+					newLabel = borderImage.get(i, column);
 					if (newLabel != label && newLabel != bPixLabel) {
 						if (extendDashedLine(label, width, lineOrientation, slope, intercept, newLabel, dashedLines)) {
 							Region anotherRegion = allRegions[newLabel];
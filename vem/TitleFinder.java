@@ -16,6 +16,7 @@ import java.io.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class TitleFinder {
 
   private int imageHeight;    //number of rows in the input image
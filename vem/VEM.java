@@ -8,6 +8,7 @@ import java.lang.*;
 import java.awt.image.*;
 import javax.imageio.*;
 import java.net.*;
+import java.util.concurrent.*;
 
 /**
  * The main program for the chart reading project.
@@ -26,50 +27,401 @@ public class VEM {
 		return classString.substring(dotIndex+1);
 	}
 
+	/**
+	 * Reads the chart at the url given as the first argument.
+	 * With "-checkpoint file" the state of the image after fitLines is also
+	 * written to the file. With "-resume file" the image is not read; the
+	 * stages after fitLines are run on the state in the file instead.
+	 * <p>
+	 * Usage: java VEM url [-checkpoint file | -resume file]
+	 */
 	public static void main(String args[]) throws Exception { 
 		VEM app = new VEM();
         BWImageG image;
-        URL u = new URL(args[0]);
-        BufferedImage jImage = ImageIO.read(u);
-		image = new BWImageG();
-        image.loadJavaImage(jImage);
-		image.filterImage();
-		int numImageRows = image.getImageHeight();
-		int numImageColumns = image.getImageWidth();
-                image.labelImage();
-                //System.out.println("Labelled.\n\n");
-                image.findBorders();
-                //System.out.println("Bordered.\n\n");
-                image.findCharacters();
-                //System.out.println("Found characters.\n\n");
-                image.thinThickLines();
-                //System.out.println("Thinned.\n\n");
-                image.segmentBorders();
-                //System.out.println("Found chains.\n\n");
-                image.fitLines();
-                //System.out.println("Fit lines.\n\n");
-                image.findRectangles(image);
-                //System.out.println("Found rectangles.\n\n");
-                image.findBars();
-                //System.out.println("Found bars");
-                simpleOCR.loadFonts();
-                image.findWords();
-                image.findCoordinateAxes(image);
-                //System.out.println("Found axes.\n\n");
-                image.findWedges();
-                //System.out.println("Found wedges.\n\n");
-                image.findConnectedLines();
-                //System.out.println("Found connected line.\n\n");
-                int i = args[0].lastIndexOf('/');
-                String filename = args[0].substring(i);
-                i = filename.lastIndexOf('.');
-                filename = filename.substring(1,i) + "-vision.xml";
-                //System.out.println(filename);
-                image.displaySummary(filename);
+		String checkpointFile = null;
+		String resumeFile = null;
+		for (int i = 1; i+1 < args.length; i += 2) {
+			if (args[i].equals("-checkpoint")) {
+				checkpointFile = args[i+1];
+			}
+			else if (args[i].equals("-resume")) {
+				resumeFile = args[i+1];
+			}
+		}
+		image = new BWImageG(FontLibrary.getDefault());
+                //The diagnostic images are written to the working directory
+                image.setArtifactSink(new AsyncArtifactSink(new File(".")));
+		if (resumeFile == null && checkpointFile == null) {
+			URL u = new URL(args[0]);
+			BufferedImage jImage = ImageIO.read(u);
+			readChart(image, jImage, getXMLFilename(args[0]));
+		}
+		else {
+			if (resumeFile != null) {
+				resumeChartComponents(image, getDefaultPool(), resumeFile);
+			}
+			else {
+				URL u = new URL(args[0]);
+				image.loadJavaImage(ImageIO.read(u));
+				findLoadedChartComponents(image, getDefaultPool(), checkpointFile);
+			}
+			String filename = getXMLFilename(args[0]);
+			image.displaySummary(filename);
+			image.getMetrics().writeJSON(getMetricsFilename(filename));
+		}
+                image.getArtifactSink().flush();
                 System.out.println("Displayed summary.\n\n");
 		System.exit(0);
 	}	
 
+	/**
+	 * Runs the whole chart reading pipeline on a java image, from
+	 * <code>loadJavaImage</code> to <code>displaySummary</code>, and writes
+	 * the result to the given xml file. The time, allocations and counts of
+	 * each stage are written next to it (see <code>getMetricsFilename</code>).
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param jImage The java image of the chart
+	 * @param filename The name of the xml file that the summary is written to
+	 */
+	public static void readChart(BWImageG image, BufferedImage jImage, String filename) {
+                findChartComponents(image, jImage);
+                //System.out.println(filename);
+                image.displaySummary(filename);
+                image.getMetrics().writeJSON(getMetricsFilename(filename));
+	}
+
+	/**
+	 * Same as <code>readChart(image, jImage, filename)</code>, but the result
+	 * is taken from the given cache if the chart was read before, and is
+	 * put in the cache otherwise. The metrics file of a cached result is
+	 * the one of the run that made it.
+	 * Unlike <code>readChart(image, jImage, filename)</code>, an error while
+	 * writing the files is thrown, so that the caller does not report the
+	 * chart as read.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param jImage The java image of the chart
+	 * @param filename The name of the xml file that the summary is written to
+	 * @param cache The cache of results, or null
+	 */
+	public static void readChart(BWImageG image, BufferedImage jImage, String filename, ResultCache cache) throws IOException {
+		image.setHashPixels(cache != null);
+		image.loadJavaImage(jImage);
+		readLoadedChart(image, filename, cache);
+	}
+
+	/**
+	 * Same as <code>readChart(image, jImage, filename, cache)</code> for an
+	 * image that has already been loaded, e.g. by <code>loadFile</code>.
+	 * The cache is only used if the image was loaded after
+	 * <code>setHashPixels(true)</code>.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param filename The name of the xml file that the summary is written to
+	 * @param cache The cache of results, or null
+	 */
+	public static void readLoadedChart(BWImageG image, String filename, ResultCache cache) throws IOException {
+		ResultCache.Entry anEntry = recognizeLoaded(image, cache);
+		BufferedWriter ostream = new BufferedWriter(new FileWriter(filename));
+		try {
+			ostream.write(anEntry.getXML());
+		}
+		finally {
+			ostream.close();
+		}
+		ostream = new BufferedWriter(new FileWriter(getMetricsFilename(filename)));
+		try {
+			ostream.write(anEntry.getMetrics());
+		}
+		finally {
+			ostream.close();
+		}
+	}
+
+	/**
+	 * Reads a chart and returns its xml document and stage metrics.
+	 * <p>
+	 * The image is loaded first, which also computes the hash of its gray
+	 * values if there is a cache. If the cache has a result for that hash and the configuration
+	 * of the image (fonts, pipeline version, settings) the result is
+	 * returned without running <code>filterImage</code> or any later stage.
+	 * Otherwise the rest of the pipeline is run and its result is put in
+	 * the cache.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param jImage The java image of the chart
+	 * @param cache The cache of results, or null
+	 * @return The xml document and the metrics of the chart
+	 */
+	public static ResultCache.Entry recognize(BWImageG image, BufferedImage jImage, ResultCache cache) {
+		image.setHashPixels(cache != null);
+		image.loadJavaImage(jImage);
+		return recognizeLoaded(image, cache);
+	}
+
+	/**
+	 * Same as <code>recognize(image, jImage, cache)</code> for an image that
+	 * has already been loaded. The cache is not used if the image was
+	 * loaded without <code>setHashPixels(true)</code>, since it has no hash.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param cache The cache of results, or null
+	 * @return The xml document and the metrics of the chart
+	 */
+	public static ResultCache.Entry recognizeLoaded(BWImageG image, ResultCache cache) {
+		String key = null;
+		if (cache != null && image.getPixelHash() == null) {
+			cache = null;
+		}
+		if (cache != null) {
+			key = ResultCache.makeKey(image.getPixelHash(), image.getConfigFingerprint());
+			ResultCache.Entry anEntry = cache.get(key);
+			if (anEntry != null) {
+				return anEntry;
+			}
+		}
+		findLoadedChartComponents(image, getDefaultPool());
+		StringWriter xml = new StringWriter();
+		try {
+			image.displaySummary(xml);
+		}
+		catch (IOException e) {System.out.println(e.getMessage());}
+		ResultCache.Entry anEntry = new ResultCache.Entry(xml.toString(), image.getMetrics().toJSON());
+		if (cache != null) {
+			cache.put(key, anEntry);
+		}
+		return anEntry;
+	}
+
+	/**
+	 * Runs the chart reading pipeline on a java image, from
+	 * <code>loadJavaImage</code> to <code>findConnectedLines</code>.
+	 * The summary of the chart can then be written with one of the
+	 * <code>displaySummary</code> methods of the image.
+	 * The stages that do not depend on each other are run at the same time
+	 * on the common fork/join pool (see <code>addStages</code>); with a
+	 * single processor they are run one after the other.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param jImage The java image of the chart
+	 */
+	public static void findChartComponents(BWImageG image, BufferedImage jImage) {
+		findChartComponents(image, jImage, getDefaultPool());
+	}
+
+	/**
+	 * Same as <code>findChartComponents(image, jImage)</code>, but the stages
+	 * are run on the given pool, or one after the other if the pool is null.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param jImage The java image of the chart
+	 * @param pool The fork/join pool, or null
+	 */
+	public static void findChartComponents(BWImageG image, BufferedImage jImage, ForkJoinPool pool) {
+		image.loadJavaImage(jImage);
+		findLoadedChartComponents(image, pool);
+	}
+
+	/**
+	 * Runs the stages of the pipeline after <code>loadJavaImage</code>,
+	 * from <code>filterImage</code> to <code>findConnectedLines</code>,
+	 * on an image that has already been loaded.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param pool The fork/join pool, or null to run the stages one after the other
+	 */
+	public static void findLoadedChartComponents(BWImageG image, ForkJoinPool pool) {
+		StageScheduler scheduler = new StageScheduler(pool);
+		addStages(scheduler, image);
+		scheduler.run();
+	}
+
+	/**
+	 * Returns the common fork/join pool, or null if there is only one
+	 * processor.
+	 *
+	 * @param none
+	 */
+	private static ForkJoinPool getDefaultPool() {
+		if (Runtime.getRuntime().availableProcessors() > 1) {
+			return ForkJoinPool.commonPool();
+		}
+		return null;
+	}
+
+	/**
+	 * Same as <code>findLoadedChartComponents</code>, but the state of the
+	 * image after <code>fitLines</code> is also written to a checkpoint file
+	 * (see <code>BWImageG.writeCheckpoint</code>). The stages that change
+	 * the primitives wait until it is written.
+	 *
+	 * @param image The <code>BWImageG</code> object that holds the loaded image
+	 * @param pool The fork/join pool, or null to run the stages one after the other
+	 * @param checkpointFile The name of the checkpoint file
+	 */
+	public static void findLoadedChartComponents(final BWImageG image, ForkJoinPool pool, final String checkpointFile) {
+		StageScheduler scheduler = new StageScheduler(pool);
+		addVectorizingStages(scheduler, image);
+		scheduler.addStage("writeCheckpoint", new String[] {"lines"}, new String[] {"checkpoint"},
+			new Runnable() { public void run() {
+				try {
+					image.writeCheckpoint(checkpointFile);
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e.getMessage());
+				}
+			}});
+		addReadingStages(scheduler, image, "checkpoint");
+		scheduler.run();
+	}
+
+	/**
+	 * Runs the stages of the pipeline after <code>fitLines</code>, from
+	 * <code>readWords</code> and <code>findRectangles</code> to
+	 * <code>findConnectedLines</code>, on the state of an image read from
+	 * a checkpoint file (see <code>BWImageG.readCheckpoint</code>).
+	 * The summary of the chart can then be written with one of the
+	 * <code>displaySummary</code> methods of the image.
+	 *
+	 * @param image The <code>BWImageG</code> object that the state is read into
+	 * @param pool The fork/join pool, or null to run the stages one after the other
+	 * @param checkpointFile The name of the checkpoint file
+	 */
+	public static void resumeChartComponents(final BWImageG image, ForkJoinPool pool, final String checkpointFile) {
+		StageScheduler scheduler = new StageScheduler(pool);
+		scheduler.addStage("readCheckpoint", new String[] {}, new String[] {"characters", "lines", "graph"},
+			new Runnable() { public void run() {
+				try {
+					image.readCheckpoint(checkpointFile);
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e.getMessage());
+				}
+			}});
+		addReadingStages(scheduler, image, null);
+		scheduler.run();
+	}
+
+	/**
+	 * Adds the stages of the pipeline after <code>loadJavaImage</code> to a
+	 * scheduler; the image must be loaded before the scheduler is run.
+	 * <p>
+	 * The stages up to <code>findCharacters</code> form a chain. After it
+	 * the pipeline splits in two: <code>readWords</code> (dilation, labelling
+	 * and OCR of the characters) only needs the character regions, while
+	 * the geometric stages work on the borders and the primitives.
+	 * The stages that add to the Graph object stay in their old order,
+	 * because each of them uses what the previous ones added, and the
+	 * geometric detectors mark the primitives they use (as part of a
+	 * rectangle, tick, wedge, ...), which the later detectors check.
+	 *
+	 * @param scheduler The scheduler
+	 * @param image The <code>BWImageG</code> object that holds the loaded image
+	 */
+	public static void addStages(StageScheduler scheduler, BWImageG image) {
+		addVectorizingStages(scheduler, image);
+		addReadingStages(scheduler, image, null);
+	}
+
+	/**
+	 * Adds the stages from <code>filterImage</code> to <code>fitLines</code>,
+	 * which make the "characters", "lines" and "graph" results.
+	 *
+	 * @param scheduler The scheduler
+	 * @param image The <code>BWImageG</code> object that holds the loaded image
+	 */
+	public static void addVectorizingStages(StageScheduler scheduler, final BWImageG image) {
+		scheduler.addStage("filterImage", new String[] {}, new String[] {"filteredImage"},
+			new Runnable() { public void run() { image.filterImage(); }});
+		scheduler.addStage("labelImage", new String[] {"filteredImage"}, new String[] {"labels", "graph"},
+			new Runnable() { public void run() { image.labelImage(); }});
+		scheduler.addStage("findBorders", new String[] {"labels"}, new String[] {"borders", "regions"},
+			new Runnable() { public void run() { image.findBorders(); }});
+		scheduler.addStage("findCharacters", new String[] {"borders", "regions"}, new String[] {"characters"},
+			new Runnable() { public void run() { image.findCharacters(); }});
+		scheduler.addStage("thinThickLines", new String[] {"characters"}, new String[] {"thinBorders"},
+			new Runnable() { public void run() { image.thinThickLines(); }});
+		scheduler.addStage("segmentBorders", new String[] {"thinBorders"}, new String[] {"primitives"},
+			new Runnable() { public void run() { image.segmentBorders(); }});
+		scheduler.addStage("fitLines", new String[] {"primitives"}, new String[] {"lines"},
+			new Runnable() { public void run() { image.fitLines(); }});
+	}
+
+	/**
+	 * Adds the stages after <code>fitLines</code>, from <code>readWords</code>
+	 * to <code>findConnectedLines</code>, which need the "characters",
+	 * "lines" and "graph" results.
+	 *
+	 * @param scheduler The scheduler
+	 * @param image The <code>BWImageG</code> object that holds the image
+	 * @param ready A result that the stages that change the primitives must also wait for, or null
+	 */
+	public static void addReadingStages(StageScheduler scheduler, final BWImageG image, String ready) {
+		String[] rectangleInputs = (ready == null) ? new String[] {"lines", "graph"} : new String[] {"lines", "graph", ready};
+		//The word path
+		scheduler.addStage("readWords", new String[] {"characters"}, new String[] {"words"},
+			new Runnable() { public void run() { image.readWords(); }});
+		//The geometric path
+		scheduler.addStage("findRectangles", rectangleInputs, new String[] {"graph.rectangles"},
+			new Runnable() { public void run() { image.findRectangles(image); }});
+		scheduler.addStage("findBars", new String[] {"graph.rectangles"}, new String[] {"graph.bars"},
+			new Runnable() { public void run() { image.findBars(); }});
+		//The two paths join
+		scheduler.addStage("addWords", new String[] {"graph.bars", "words"}, new String[] {"graph.words"},
+			new Runnable() { public void run() { image.addWords(); }});
+		scheduler.addStage("findCoordinateAxes", new String[] {"graph.words"}, new String[] {"graph.axes"},
+			new Runnable() { public void run() { image.findCoordinateAxes(image); }});
+		scheduler.addStage("findWedges", new String[] {"graph.axes"}, new String[] {"graph.wedges"},
+			new Runnable() { public void run() { image.findWedges(); }});
+		scheduler.addStage("findConnectedLines", new String[] {"graph.wedges"}, new String[] {"graph.connectedLines"},
+			new Runnable() { public void run() { image.findConnectedLines(); }});
+	}
+
+	/**
+	 * Returns the name of the xml file for the given image url or path:
+	 * the name of the image without its directory and extension,
+	 * followed by "-vision.xml".
+	 *
+	 * @param imageName The url or the path of the image
+	 * @return The name of the xml file
+	 */
+	public static String getXMLFilename(String imageName) {
+                return getXMLFilename(imageName, false);
+	}
+
+	/**
+	 * Same as <code>getXMLFilename(imageName)</code>, but the extension of
+	 * the image may be kept, so that e.g. "chart.gif" and "chart.jpg" get
+	 * different xml files: "chart-gif-vision.xml" and "chart-jpg-vision.xml".
+	 *
+	 * @param imageName The url or the path of the image
+	 * @param keepExtension True to keep the extension in the name
+	 * @return The name of the xml file
+	 */
+	public static String getXMLFilename(String imageName, boolean keepExtension) {
+                int i = imageName.lastIndexOf('/');
+                String filename = imageName.substring(i+1);
+                i = filename.lastIndexOf('.');
+                if (i < 0) return filename + "-vision.xml";
+                if (keepExtension) return filename.substring(0,i) + "-" + filename.substring(i+1) + "-vision.xml";
+                return filename.substring(0,i) + "-vision.xml";
+	}
+
+	/**
+	 * Returns the name of the json file with the stage measurements for the
+	 * given xml file: "name-vision.xml" becomes "name-metrics.json".
+	 *
+	 * @param xmlFilename The name of the xml file
+	 * @return The name of the json file
+	 */
+	public static String getMetricsFilename(String xmlFilename) {
+                if (xmlFilename.endsWith("-vision.xml")) {
+                        xmlFilename = xmlFilename.substring(0, xmlFilename.length()-"-vision.xml".length());
+                }
+                return xmlFilename + "-metrics.json";
+	}
+
 
 }
 
@@ -0,0 +1,436 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.awt.image.*;
+import javax.imageio.*;
+import java.net.*;
+
+/**
+ * Batch version of the main program for the chart reading project.
+ * Reads every chart of a directory, or every chart listed in a manifest
+ * file, in one java virtual machine.
+ * The charts are processed by a fixed size pool of worker threads;
+ * each worker runs the whole <code>BWImageG</code> pipeline
+ * (see <code>VEM.readChart</code>) on one chart at a time.
+ * <p>
+ * One xml file (name-vision.xml) is written for each chart to the output
+ * directory. If two charts have the same name without the extension, as
+ * chart.gif and chart.jpg, the extension is kept in the name of their
+ * files (chart-gif-vision.xml and chart-jpg-vision.xml); a chart whose
+ * file would still have the name of another one's, as two chart.png files
+ * of different directories in a manifest, is not read and is reported as
+ * failed. A report file with one line for each chart tells
+ * whether the chart was read successfully:
+ * <pre>
+ * OK      milliseconds  chart  xml file
+ * FAILED  milliseconds  chart  reason
+ * </pre>
+ * <p>
+ * A chart that takes more than -timeout seconds (120 by default, 0 for no
+ * limit) is reported as failed with the reason "timeout" and its task is
+ * cancelled. The pipeline can only be interrupted while it thins lines
+ * (<code>LineThinner</code>), so the worker may keep reading the chart,
+ * and may still write its xml file later; another
+ * worker is started in its place, so that the other charts are still read
+ * by "threads" workers.
+ * <p>
+ * Usage: java VEMBatch [-threads n] [-out directory] [-report file] [-artifacts directory]
+ *                      [-cache directory] [-cacheSize megabytes] [-timeout seconds] directory|manifest
+ * <p>
+ * The diagnostic images of the pipeline (Labelled.pgm, Text.pgm, ...) are
+ * not built unless -artifacts is given. Then the images of each chart are
+ * written to their own subdirectory, named after the chart, by one
+ * background thread.
+ * <p>
+ * With -cache the results are kept in the given directory (see
+ * <code>ResultCache</code>), so a chart whose image was read before, in
+ * this batch or an earlier one, is not read again; its xml and metrics
+ * files are copied from the cache. The cache is limited to -cacheSize
+ * megabytes (100 by default).
+ * <p>
+ * A manifest is a text file with one image path or url on each line.
+ * Empty lines and lines starting with # are skipped.
+ * The fonts are loaded once, before the workers are started, and the same
+ * <code>FontLibrary</code> is shared by all the workers.
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class VEMBatch {
+
+	private static final String[] IMAGE_EXTENSIONS = {".gif", ".jpg", ".jpeg", ".png", ".bmp", ".pbm", ".pgm", ".ppm", ".pnm"};
+
+	private int noOfThreads;   //number of worker threads
+	private File outDirectory; //directory that the xml files are written to
+	private File reportFile;   //the success/failure report
+	private File artifactDirectory; //directory of the diagnostic images, or null
+	private ExecutorService artifactWriter; //writes the diagnostic images
+	private ResultCache cache; //results of the charts read before, or null
+	private FontLibrary fonts; //shared by all the workers
+	private long timeout = 120; //seconds a chart may take, 0 for no limit
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threads The number of worker threads
+	 * @param outDir The directory that the xml files are written to
+	 * @param report The file that the report is written to
+	 */
+	public VEMBatch(int threads, File outDir, File report) {
+		noOfThreads = threads;
+		outDirectory = outDir;
+		reportFile = report;
+	}
+
+	/**
+	 * Makes the batch keep the diagnostic images of the charts.
+	 *
+	 * @param dir The directory that the subdirectories of the charts are made in
+	 */
+	public void setArtifactDirectory(File dir) {
+		artifactDirectory = dir;
+	}
+
+	/**
+	 * Makes the batch take the results of the charts that were read
+	 * before from a cache, and put the new ones in it.
+	 *
+	 * @param aCache The cache, or null
+	 */
+	public void setCache(ResultCache aCache) {
+		cache = aCache;
+	}
+
+	/**
+	 * Sets the time that one chart may take.
+	 *
+	 * @param seconds The number of seconds, 0 for no limit
+	 */
+	public void setTimeout(long seconds) {
+		timeout = seconds;
+	}
+
+	public static void main(String args[]) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		File outDir = new File(".");
+		File report = null;
+		File artifacts = null;
+		File cacheDir = null;
+		long cacheSize = 100;
+		long seconds = 120;
+		String input = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads") && i+1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-out") && i+1 < args.length) {
+				outDir = new File(args[++i]);
+			}
+			else if (args[i].equals("-report") && i+1 < args.length) {
+				report = new File(args[++i]);
+			}
+			else if (args[i].equals("-artifacts") && i+1 < args.length) {
+				artifacts = new File(args[++i]);
+			}
+			else if (args[i].equals("-cache") && i+1 < args.length) {
+				cacheDir = new File(args[++i]);
+			}
+			else if (args[i].equals("-cacheSize") && i+1 < args.length) {
+				cacheSize = Long.parseLong(args[++i]);
+			}
+			else if (args[i].equals("-timeout") && i+1 < args.length) {
+				seconds = Long.parseLong(args[++i]);
+			}
+			else {
+				input = args[i];
+			}
+		}
+		if (input == null || threads < 1 || seconds < 0) {
+			System.out.println("Usage: java VEMBatch [-threads n] [-out directory] [-report file] [-artifacts directory]"
+			                   +" [-cache directory] [-cacheSize megabytes] [-timeout seconds] directory|manifest");
+			System.exit(2);
+		}
+		outDir.mkdirs();
+		if (report == null) {
+			report = new File(outDir, "batch-report.txt");
+		}
+		VEMBatch batch = new VEMBatch(threads, outDir, report);
+		batch.setArtifactDirectory(artifacts);
+		batch.setTimeout(seconds);
+		if (cacheDir != null) {
+			batch.setCache(new ResultCache(cacheDir, cacheSize*1024*1024, 64));
+		}
+		LinkedList charts = batch.listCharts(new File(input));
+		int failures = batch.run(charts);
+		System.out.println("Read "+(charts.size()-failures)+" of "+charts.size()+" charts. Report is in "+report);
+		if (batch.cache != null) {
+			System.out.println("Cache: "+batch.cache.getHits()+" hits, "+batch.cache.getMisses()+" misses");
+		}
+		System.exit(failures > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Returns the list of the charts to be read.
+	 * If the input is a directory, the image files in it are listed in
+	 * alphabetical order. Otherwise the input is read as a manifest.
+	 *
+	 * @param input The directory or the manifest file
+	 * @return The linked list of image paths or urls (Strings)
+	 */
+	public LinkedList listCharts(File input) throws IOException {
+		LinkedList charts = new LinkedList();
+		if (input.isDirectory()) {
+			String[] names = input.list();
+			Arrays.sort(names);
+			for (int i = 0; i < names.length; i++) {
+				if (isImageName(names[i])) {
+					charts.add(new File(input, names[i]).getPath());
+				}
+			}
+		}
+		else {
+			BufferedReader x = new BufferedReader(new FileReader(input));
+			String s;
+			while ((s = x.readLine()) != null) {
+				s = s.trim();
+				if (s.length() > 0 && !s.startsWith("#")) {
+					charts.add(s);
+				}
+			}
+			x.close();
+		}
+		return charts;
+	}
+
+	/**
+	 * Reads all the given charts with the worker pool and writes the report.
+	 * The report lists the charts in the given order. A chart that takes
+	 * longer than the timeout, counted from when its worker starts it,
+	 * is reported as failed and cancelled, and the pool gets one more
+	 * worker in place of the one that may still be reading it.
+	 *
+	 * @param charts The linked list of image paths or urls
+	 * @return The number of charts that could not be read
+	 */
+	public int run(LinkedList charts) throws Exception {
+		fonts = FontLibrary.getDefault();
+		if (artifactDirectory != null) {
+			artifactWriter = AsyncArtifactSink.newWriter();
+		}
+		ThreadPoolExecutor workers = (ThreadPoolExecutor)Executors.newFixedThreadPool(noOfThreads);
+		LinkedList tasks = new LinkedList();
+		LinkedList results = new LinkedList();
+		ListIterator lItr = charts.listIterator();
+		ListIterator nItr = getXMLFilenames(charts).listIterator();
+		while (lItr.hasNext()) {
+			ChartTask aTask = new ChartTask((String)lItr.next(), (String)nItr.next());
+			tasks.add(aTask);
+			results.add(workers.submit(aTask));
+		}
+		workers.shutdown();
+
+		int failures = 0;
+		BufferedWriter ostream = new BufferedWriter(new FileWriter(reportFile));
+		lItr = results.listIterator();
+		ListIterator tItr = tasks.listIterator();
+		while (lItr.hasNext()) {
+			Result aResult = waitForChart((Future)lItr.next(), (ChartTask)tItr.next(), workers);
+			if (!aResult.succeeded) {
+				failures++;
+			}
+			ostream.write(aResult.toString());
+			ostream.newLine();
+			ostream.flush();
+		}
+		ostream.close();
+		if (artifactWriter != null) {
+			artifactWriter.shutdown();
+			artifactWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		return failures;
+	}
+
+	/**
+	 * Waits for the result of one chart. If the chart takes longer than the
+	 * timeout after it was started, its task is cancelled and the pool is
+	 * given another worker.
+	 *
+	 * @param result The future of the chart's task
+	 * @param aTask The chart's task
+	 * @param workers The worker pool
+	 * @return The result for the chart
+	 */
+	private Result waitForChart(Future result, ChartTask aTask, ThreadPoolExecutor workers) throws Exception {
+		if (timeout == 0) {
+			return (Result)result.get();
+		}
+		long limit = timeout*1000;
+		while (true) {
+			long started = aTask.started;
+			long wait = (started == 0) ? limit : started + limit - System.currentTimeMillis();
+			try {
+				return (Result)result.get(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e) {
+				if (started != 0 && System.currentTimeMillis() - started >= limit) {
+					result.cancel(true);
+					synchronized (workers) {
+						workers.setMaximumPoolSize(workers.getMaximumPoolSize()+1);
+						workers.setCorePoolSize(workers.getCorePoolSize()+1);
+					}
+					return new Result(aTask.chart, false, System.currentTimeMillis()-started, "timeout");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the names of the xml files of the given charts, in the same
+	 * order. The name is the one of <code>VEM.getXMLFilename</code>, with the
+	 * extension of the image kept if another chart has the same name
+	 * without it. If the name is still the one of an earlier chart, the
+	 * chart gets null instead, because their files would overwrite each
+	 * other.
+	 *
+	 * @param charts The linked list of image paths or urls
+	 * @return The linked list of xml file names (Strings or nulls)
+	 */
+	public static LinkedList getXMLFilenames(LinkedList charts) {
+		HashMap baseCounts = new HashMap();
+		ListIterator lItr = charts.listIterator();
+		while (lItr.hasNext()) {
+			String baseName = VEM.getXMLFilename(((String)lItr.next()).replace(File.separatorChar, '/'));
+			Integer count = (Integer)baseCounts.get(baseName);
+			baseCounts.put(baseName, Integer.valueOf(count == null ? 1 : count.intValue()+1));
+		}
+		LinkedList names = new LinkedList();
+		HashSet usedNames = new HashSet();
+		lItr = charts.listIterator();
+		while (lItr.hasNext()) {
+			String chart = ((String)lItr.next()).replace(File.separatorChar, '/');
+			String name = VEM.getXMLFilename(chart);
+			if (((Integer)baseCounts.get(name)).intValue() > 1) {
+				name = VEM.getXMLFilename(chart, true);
+			}
+			names.add(usedNames.add(name) ? name : null);
+		}
+		return names;
+	}
+
+	/**
+	 * Reads one chart and writes its xml file.
+	 * Any exception or error thrown by the pipeline, or while writing the
+	 * files, is recorded in the result, so that one bad chart does not stop
+	 * the batch.
+	 *
+	 * @param chart The path or the url of the image
+	 * @param xmlName The name of the xml file in the output directory
+	 * @return The result for the chart
+	 */
+	public Result readOneChart(String chart, String xmlName) {
+		long start = System.currentTimeMillis();
+		File xmlFile = new File(outDirectory, xmlName);
+		try {
+			if (chart.indexOf(":/") <= 1 && PNMCodec.isPNMName(chart)) {
+				//netpbm files are read straight into the gray image
+				BWImageG image = makeImage(xmlFile);
+				image.loadFile(chart);
+				VEM.readLoadedChart(image, xmlFile.getPath(), cache);
+				return new Result(chart, true, System.currentTimeMillis()-start, xmlFile.getPath());
+			}
+			BufferedImage jImage;
+			if (chart.indexOf(":/") > 1) {
+				jImage = ImageIO.read(new URL(chart));
+			}
+			else {
+				jImage = ImageIO.read(new File(chart));
+			}
+			if (jImage == null) {
+				return new Result(chart, false, System.currentTimeMillis()-start, "not a readable image");
+			}
+			BWImageG image = makeImage(xmlFile);
+			VEM.readChart(image, jImage, xmlFile.getPath(), cache);
+			return new Result(chart, true, System.currentTimeMillis()-start, xmlFile.getPath());
+		}
+		catch (Throwable e) {
+			return new Result(chart, false, System.currentTimeMillis()-start, e.toString());
+		}
+	}
+
+	/**
+	 * Returns a new image for one chart, with its artifact sink if the
+	 * diagnostic images are saved.
+	 *
+	 * @param xmlFile The xml file of the chart
+	 */
+	private BWImageG makeImage(File xmlFile) {
+		BWImageG image = new BWImageG(fonts);
+		image.setHashPixels(cache != null);
+		if (artifactWriter != null) {
+			String name = xmlFile.getName();
+			File dir = new File(artifactDirectory, name.substring(0, name.length()-"-vision.xml".length()));
+			image.setArtifactSink(new AsyncArtifactSink(dir, artifactWriter));
+		}
+		return image;
+	}
+
+	/**
+	 * Checks if the given file name has one of the image extensions.
+	 *
+	 * @param name The file name
+	 * @return True if the file is an image, false otherwise
+	 */
+	private static boolean isImageName(String name) {
+		String lower = name.toLowerCase();
+		for (int i = 0; i < IMAGE_EXTENSIONS.length; i++) {
+			if (lower.endsWith(IMAGE_EXTENSIONS[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The task of reading one chart; it keeps the time its worker started it.
+	 */
+	private class ChartTask implements Callable {
+		String chart;
+		String xmlName; //null if another chart has the same output file name
+		volatile long started; //milliseconds, 0 until the task is started
+
+		ChartTask(String aChart, String aName) {
+			chart = aChart;
+			xmlName = aName;
+		}
+
+		public Object call() {
+			started = System.currentTimeMillis();
+			if (xmlName == null) {
+				return new Result(chart, false, 0, "another chart has the same output file name");
+			}
+			return readOneChart(chart, xmlName);
+		}
+	}
+
+	/**
+	 * The outcome of reading one chart; one line of the report.
+	 */
+	public static class Result {
+		String chart;
+		boolean succeeded;
+		long milliseconds;
+		String detail; //the xml file, or the reason of the failure
+
+		Result(String aChart, boolean ok, long ms, String aDetail) {
+			chart = aChart;
+			succeeded = ok;
+			milliseconds = ms;
+			detail = aDetail;
+		}
+
+		public String toString() {
+			return (succeeded ? "OK" : "FAILED")+"\t"+milliseconds+"\t"+chart+"\t"+detail;
+		}
+	}
+}
@@ -0,0 +1,455 @@
+import java.io.*;
+import java.util.*;
+import java.awt.*;
+import java.awt.image.*;
+import javax.imageio.*;
+
+/**
+ * A benchmark of the hot paths of the chart reading pipeline, to get a
+ * reproducible baseline before a performance change is accepted.
+ * <p>
+ * Each chart is read at each of the given scales. The pipeline is run
+ * "warmup" times without being measured and then "iterations" times, one
+ * stage after the other on the main thread, with the diagnostic images off.
+ * For each run the time and the allocations of the stages are taken from
+ * its <code>PipelineMetrics</code>. The stages that are measured, and the
+ * methods that take most of their time, are:
+ * <pre>
+ * labelImage       LabelImage.applyLabelling, with the borders (setFindBorders)
+ * findBorders      RegionStore.addRuns
+ * thinThickLines   LineThinner.getThinLines, Border.findBordersAndRecord (thinBorders)
+ * segmentBorders   Vectorizer.findSegments
+ * findRectangles   RectangleFinder.findRectangles
+ * readWords        WordFinder.findWords
+ * displaySummary   Graph.writeXML
+ * </pre>
+ * After each run two methods are also measured on their own:
+ * <code>LineFitter.fitsLineOrArc</code> on the points of every primitive of
+ * the image and <code>simpleOCR.decideChar</code> on the image of every
+ * character region. So are the <code>PixelKernels</code>: the gray
+ * conversion of the pixels of the chart, <code>BWImageG.makePGM</code> and
+ * the border marking of the labelled image, with the scalar kernels and,
+ * if they are available, the vector kernels.
+ * <p>
+ * The report has one line for each chart, scale and benchmark with the
+ * size of the image, the type of the chart found, and the mean, minimum,
+ * maximum and standard deviation of the time in milliseconds and the
+ * mean bytes allocated by the main thread (the work of the fork/join pool
+ * is not counted, see <code>PipelineMetrics</code>). With -json the same is written as a json document.
+ * <p>
+ * Usage: java VEMBenchmark [-warmup n] [-iterations n] [-scales s1,s2,...] [-json file] chart...
+ * <p>
+ * The charts are image files; the font tables must be in the working
+ * directory. Runs are comparable only on the same machine and java
+ * virtual machine, which are printed at the top of the report.
+ * With maven it is run from the vem directory, with the vector kernels:
+ * <pre>
+ * mvn -B exec:exec@benchmark -Dbenchmark.args="chart..."
+ * </pre>
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class VEMBenchmark {
+
+	/**
+	 * The stages that are measured.
+	 */
+	public static final String[] STAGES = {"labelImage", "findBorders", "thinThickLines", "segmentBorders",
+	                                       "findRectangles", "readWords", "displaySummary"};
+
+	/**
+	 * The <code>PixelKernels</code> that are measured.
+	 */
+	public static final String[] KERNELS = {"grayRow", "makePGM", "markBorders"};
+
+	private static final String[] CHART_TYPES = {"unknown", "bar", "line", "pie"};
+
+	private int warmup;		//number of runs that are not measured
+	private int iterations;		//number of runs that are measured
+	private double[] scales;	//sizes of the image, relative to the chart
+	private FontLibrary fonts;
+	private LinkedList results;	//the Results, in the order they were measured
+
+	/**
+	 * Constructor.
+	 *
+	 * @param warmupRuns The number of runs that are not measured
+	 * @param measuredRuns The number of runs that are measured
+	 * @param imageScales The sizes of the image, relative to the chart
+	 */
+	public VEMBenchmark(int warmupRuns, int measuredRuns, double[] imageScales) {
+		warmup = warmupRuns;
+		iterations = measuredRuns;
+		scales = imageScales;
+		results = new LinkedList();
+	}
+
+	public static void main(String args[]) throws Exception {
+		int warmupRuns = 2;
+		int measuredRuns = 5;
+		double[] imageScales = {1.0};
+		String jsonFile = null;
+		LinkedList charts = new LinkedList();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup") && i+1 < args.length) {
+				warmupRuns = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-iterations") && i+1 < args.length) {
+				measuredRuns = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-scales") && i+1 < args.length) {
+				StringTokenizer st = new StringTokenizer(args[++i], ",");
+				imageScales = new double[st.countTokens()];
+				for (int j = 0; j < imageScales.length; j++) {
+					imageScales[j] = Double.parseDouble(st.nextToken());
+				}
+			}
+			else if (args[i].equals("-json") && i+1 < args.length) {
+				jsonFile = args[++i];
+			}
+			else {
+				charts.add(args[i]);
+			}
+		}
+		if (charts.size() == 0 || measuredRuns < 1) {
+			System.out.println("Usage: java VEMBenchmark [-warmup n] [-iterations n] [-scales s1,s2,...] [-json file] chart...");
+			System.exit(2);
+		}
+		//The pipeline prints a lot; only the report goes to the standard output
+		PrintStream report = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		}));
+		VEMBenchmark benchmark = new VEMBenchmark(warmupRuns, measuredRuns, imageScales);
+		report.println("# java "+System.getProperty("java.version")+" ("+System.getProperty("java.vm.name")+"), "
+		               +Runtime.getRuntime().availableProcessors()+" processors, "
+		               +System.getProperty("os.name")+" "+System.getProperty("os.arch"));
+		report.println("# warmup "+warmupRuns+", iterations "+measuredRuns);
+		report.println("# chart\tscale\tsize\ttype\tbenchmark\tmeanMs\tminMs\tmaxMs\tstddevMs\tthreadAllocatedBytes");
+		ListIterator lItr = charts.listIterator();
+		while (lItr.hasNext()) {
+			String chart = (String)lItr.next();
+			LinkedList chartResults = benchmark.run(chart);
+			ListIterator lItr2 = chartResults.listIterator();
+			while (lItr2.hasNext()) {
+				report.println(lItr2.next());
+			}
+		}
+		if (jsonFile != null) {
+			BufferedWriter ostream = new BufferedWriter(new FileWriter(jsonFile));
+			ostream.write(benchmark.toJSON());
+			ostream.close();
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Runs all the benchmarks on one chart at all the scales.
+	 *
+	 * @param chart The image file of the chart
+	 * @return The linked list of the Results for the chart
+	 */
+	public LinkedList run(String chart) throws IOException {
+		if (fonts == null) {
+			fonts = FontLibrary.getDefault();
+		}
+		BufferedImage original = ImageIO.read(new File(chart));
+		if (original == null) {
+			throw new IOException(chart+" is not a readable image");
+		}
+		LinkedList chartResults = new LinkedList();
+		for (int s = 0; s < scales.length; s++) {
+			BufferedImage jImage = scale(original, scales[s]);
+			Hashtable samples = new Hashtable();	//benchmark name -> Sample
+			int chartType = 0;
+			int[] pixels = jImage.getRGB(0, 0, jImage.getWidth(), jImage.getHeight(), null, 0, jImage.getWidth());
+			PixelKernels[] kernels = getKernels();
+			for (int i = 0; i < warmup + iterations; i++) {
+				BWImageG image = new BWImageG(fonts);
+				VEM.findChartComponents(image, jImage, null);
+				image.displaySummary(new StringWriter());
+				chartType = image.getGraph().getChartType();
+				if (i < warmup) {
+					fitPrimitives(image);
+					readCharacters(image);
+					for (int k = 0; k < kernels.length; k++) {
+						runKernels(kernels[k], pixels, jImage.getWidth(), image.getRegionLabels(), null);
+					}
+					continue;
+				}
+				PipelineMetrics metrics = image.getMetrics();
+				for (int j = 0; j < STAGES.length; j++) {
+					getSample(samples, STAGES[j]).add(metrics.getWallNanos(STAGES[j]), metrics.getAllocatedBytes(STAGES[j]));
+				}
+				long start = System.nanoTime();
+				fitPrimitives(image);
+				getSample(samples, "LineFitter.fitsLineOrArc").add(System.nanoTime() - start, -1);
+				start = System.nanoTime();
+				readCharacters(image);
+				getSample(samples, "simpleOCR.decideChar").add(System.nanoTime() - start, -1);
+				for (int k = 0; k < kernels.length; k++) {
+					runKernels(kernels[k], pixels, jImage.getWidth(), image.getRegionLabels(), samples);
+				}
+			}
+			String size = jImage.getWidth()+"x"+jImage.getHeight();
+			String type = chartType >= 0 && chartType < CHART_TYPES.length ? CHART_TYPES[chartType] : String.valueOf(chartType);
+			String[] names = new String[STAGES.length + 2 + KERNELS.length*kernels.length];
+			System.arraycopy(STAGES, 0, names, 0, STAGES.length);
+			names[STAGES.length] = "LineFitter.fitsLineOrArc";
+			names[STAGES.length + 1] = "simpleOCR.decideChar";
+			for (int k = 0; k < kernels.length; k++) {
+				for (int j = 0; j < KERNELS.length; j++) {
+					names[STAGES.length + 2 + k*KERNELS.length + j] = getKernelName(kernels[k], j);
+				}
+			}
+			for (int j = 0; j < names.length; j++) {
+				Result aResult = new Result(new File(chart).getName(), scales[s], size, type, names[j], getSample(samples, names[j]));
+				chartResults.add(aResult);
+				results.add(aResult);
+			}
+		}
+		return chartResults;
+	}
+
+	/**
+	 * Returns the results as a json document.
+	 *
+	 * @param none
+	 */
+	public String toJSON() {
+		StringBuffer s = new StringBuffer();
+		s.append("{\n");
+		s.append("  \"java\": \""+System.getProperty("java.version")+"\",\n");
+		s.append("  \"processors\": "+Runtime.getRuntime().availableProcessors()+",\n");
+		s.append("  \"warmup\": "+warmup+",\n");
+		s.append("  \"iterations\": "+iterations+",\n");
+		s.append("  \"results\": [");
+		ListIterator lItr = results.listIterator();
+		while (lItr.hasNext()) {
+			s.append("\n    "+((Result)lItr.next()).toJSON());
+			if (lItr.hasNext()) s.append(",");
+		}
+		s.append("\n  ]\n}\n");
+		return s.toString();
+	}
+
+	/**
+	 * Fits a line or an arc to the points of every primitive of the image
+	 * that has more than two points.
+	 *
+	 * @param image The image, after the pipeline was run on it
+	 */
+	private static void fitPrimitives(BWImageG image) {
+		LineFitter aFitter = new LineFitter();
+		Region[] allRegions = image.getRegions();
+		for (int i = 1; i < image.getBlobCount(); i++) {
+			Iterator itr = allRegions[i].getPrimitiveList().iterator();
+			while (itr.hasNext()) {
+				Primitive aPrim = (Primitive)itr.next();
+				if (aPrim.getSize() > 2) {
+					aFitter.fitsLineOrArc(aPrim.getAllPoints());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the scalar kernels, and the vector kernels if they are available.
+	 *
+	 * @param none
+	 */
+	private static PixelKernels[] getKernels() {
+		if (PixelKernels.get().isVectorized()) {
+			return new PixelKernels[] {PixelKernels.scalar(), PixelKernels.get()};
+		}
+		return new PixelKernels[] {PixelKernels.scalar()};
+	}
+
+	/**
+	 * Returns the name of a kernel benchmark, e.g. "PixelKernels.grayRow (vector)".
+	 *
+	 * @param kernels The kernels
+	 * @param j The index of the kernel in KERNELS
+	 */
+	private static String getKernelName(PixelKernels kernels, int j) {
+		return "PixelKernels."+KERNELS[j]+" ("+kernels.getName()+")";
+	}
+
+	/**
+	 * Runs each of the kernels on the whole image and adds their times
+	 * to the samples, unless the samples are null.
+	 *
+	 * @param kernels The kernels
+	 * @param pixels The packed RGB pixels of the chart
+	 * @param width The width of the chart
+	 * @param labelImage The LABELS raster of the labelled image
+	 * @param samples The samples; benchmark name -> Sample, or null
+	 */
+	private static void runKernels(PixelKernels kernels, int[] pixels, int width, Raster labelImage, Hashtable samples) {
+		int height = pixels.length/width;
+		long[] nanos = new long[KERNELS.length];
+		long start = System.nanoTime();
+		byte[] gray = new byte[pixels.length];
+		int[] counts = new int[256];
+		for (int r = 0; r < height; r++) {
+			kernels.grayRow(pixels, r*width, gray, r*width, width, counts);
+		}
+		nanos[0] = System.nanoTime() - start;
+		int labelRows = labelImage.getRows();
+		int labelColumns = labelImage.getColumns();
+		//makePGM scales the 2d arrays of the saved images
+		int[][] labels = labelImage.toArray();
+		start = System.nanoTime();
+		int[] minMax = kernels.minMax(labels, labelRows, labelColumns);
+		byte[] pgm = new byte[labelRows*labelColumns];
+		double k = (minMax[1] == minMax[0]) ? 0 : 255.0/(minMax[1] - minMax[0]);
+		for (int r = 0; r < labelRows; r++) {
+			kernels.scaleRow(labels[r], labelColumns, minMax[0], k, pgm, r*labelColumns);
+		}
+		nanos[1] = System.nanoTime() - start;
+		start = System.nanoTime();
+		int[] labelData = labelImage.getLabelData();
+		int[] borders = new int[labelData.length];
+		for (int r = 0; r < labelRows; r++) {
+			kernels.markBorders(labelData, r*labelColumns, labelColumns, r > 0, r < labelRows-1, borders, 0);
+		}
+		nanos[2] = System.nanoTime() - start;
+		if (samples != null) {
+			for (int j = 0; j < KERNELS.length; j++) {
+				getSample(samples, getKernelName(kernels, j)).add(nanos[j], -1);
+			}
+		}
+	}
+
+	/**
+	 * Reads the character in the image of every character region.
+	 *
+	 * @param image The image, after the pipeline was run on it
+	 */
+	private void readCharacters(BWImageG image) {
+		Region[] allRegions = image.getRegions();
+		long[] comparisons = new long[1];
+		for (int i = 1; i < image.getBlobCount(); i++) {
+			if (allRegions[i].getIsCharacter()) {
+				simpleOCR.decideChar(image.getBlobImage(i), fonts, comparisons);
+			}
+		}
+	}
+
+	/**
+	 * Returns the chart scaled by the given factor (nearest neighbor),
+	 * or the chart itself if the factor is 1.
+	 *
+	 * @param original The chart
+	 * @param factor The scale factor
+	 */
+	private static BufferedImage scale(BufferedImage original, double factor) {
+		if (factor == 1.0) {
+			return original;
+		}
+		int width = Math.max(1, (int)Math.round(original.getWidth()*factor));
+		int height = Math.max(1, (int)Math.round(original.getHeight()*factor));
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g.drawImage(original, 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Returns the sample of a benchmark, creating it if necessary.
+	 *
+	 * @param samples The samples; benchmark name -> Sample
+	 * @param name The name of the benchmark
+	 */
+	private static Sample getSample(Hashtable samples, String name) {
+		Sample aSample = (Sample)samples.get(name);
+		if (aSample == null) {
+			aSample = new Sample();
+			samples.put(name, aSample);
+		}
+		return aSample;
+	}
+
+	/**
+	 * The measured runs of one benchmark.
+	 */
+	static class Sample {
+		LinkedList nanos = new LinkedList();	//Longs
+		long allocatedBytes = 0;		//sum, or -1 if not measured
+
+		void add(long wallNanos, long bytes) {
+			nanos.add(Long.valueOf(wallNanos));
+			if (bytes < 0 || allocatedBytes < 0) {
+				allocatedBytes = -1;
+			}
+			else {
+				allocatedBytes += bytes;
+			}
+		}
+	}
+
+	/**
+	 * The statistics of one benchmark on one chart at one scale;
+	 * one line of the report.
+	 */
+	public static class Result {
+		String chart;
+		double scale;
+		String size;
+		String chartType;
+		String benchmark;
+		double mean;		//milliseconds
+		double min;
+		double max;
+		double stddev;
+		long allocatedBytes;	//mean, or -1 if not measured
+
+		Result(String aChart, double aScale, String aSize, String aType, String aBenchmark, Sample aSample) {
+			chart = aChart;
+			scale = aScale;
+			size = aSize;
+			chartType = aType;
+			benchmark = aBenchmark;
+			int n = aSample.nanos.size();
+			min = Double.MAX_VALUE;
+			max = 0;
+			double sum = 0;
+			ListIterator lItr = aSample.nanos.listIterator();
+			while (lItr.hasNext()) {
+				double ms = ((Long)lItr.next()).longValue()/1e6;
+				sum += ms;
+				min = Math.min(min, ms);
+				max = Math.max(max, ms);
+			}
+			mean = sum/n;
+			double squares = 0;
+			lItr = aSample.nanos.listIterator();
+			while (lItr.hasNext()) {
+				double ms = ((Long)lItr.next()).longValue()/1e6;
+				squares += (ms - mean)*(ms - mean);
+			}
+			stddev = n > 1 ? Math.sqrt(squares/(n-1)) : 0;
+			allocatedBytes = aSample.allocatedBytes < 0 ? -1 : aSample.allocatedBytes/n;
+		}
+
+		public String toString() {
+			return chart+"\t"+scale+"\t"+size+"\t"+chartType+"\t"+benchmark+"\t"+round(mean)+"\t"+round(min)
+			       +"\t"+round(max)+"\t"+round(stddev)+"\t"+allocatedBytes;
+		}
+
+		String toJSON() {
+			return "{\"chart\": \""+chart+"\", \"scale\": "+scale+", \"size\": \""+size+"\", \"chartType\": \""+chartType
+			       +"\", \"benchmark\": \""+benchmark+"\", \"meanMillis\": "+round(mean)+", \"minMillis\": "+round(min)
+			       +", \"maxMillis\": "+round(max)+", \"stddevMillis\": "+round(stddev)+", \"threadAllocatedBytes\": "+allocatedBytes+"}";
+		}
+
+		private static double round(double ms) {
+			return Math.round(ms*1000)/1000.0;
+		}
+	}
+}
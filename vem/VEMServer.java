@@ -0,0 +1,291 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.awt.image.*;
+import javax.imageio.*;
+import java.net.*;
+import com.sun.net.httpserver.*;
+
+/**
+ * A long running http server version of the main program for the chart
+ * reading project, built on the http server of the JDK.
+ * <p>
+ * The fonts are loaded once when the server starts and are shared by all
+ * the requests, so a request does not pay for starting a java virtual
+ * machine or for reading the font tables.
+ * <p>
+ * POST /recognize with an image (gif, jpg, png, ...) as the body of the
+ * request runs the <code>BWImageG</code> pipeline on the image and returns
+ * the xml document that <code>Graph.writeXML</code> writes for it.
+ * GET /health returns OK.
+ * <p>
+ * At most "threads" images are decoded and read at the same time and at
+ * most "queue" more requests wait for a free worker. Requests beyond that
+ * are answered with 503 (busy). The requests are handled by a fixed number
+ * of threads (threads+queue), so at most that many bodies are held in
+ * memory; a body larger than -maxBody megabytes is answered with 413,
+ * and a body that is not a readable image with 400.
+ * <p>
+ * A request that takes more than "timeout" seconds is answered with 504
+ * and its task is cancelled. A task that has not started yet is dropped,
+ * but the pipeline can only be interrupted while it thins lines, so a
+ * task that is already running mostly keeps its worker until the image
+ * is finished; such a stuck worker still counts against the "threads"
+ * limit, and the number of them is logged.
+ * <p>
+ * The results of the last "cacheEntries" images are kept in memory
+ * (see <code>ResultCache</code>), so an image that is sent again is answered
+ * without being read again. With -cache the results are also kept in the
+ * given directory, limited to -cacheSize megabytes, and survive a restart.
+ * <p>
+ * Usage: java VEMServer [-port p] [-threads n] [-queue m] [-timeout seconds] [-maxBody megabytes]
+ *                       [-cacheEntries k] [-cache directory] [-cacheSize megabytes]
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class VEMServer {
+
+	private HttpServer server;
+	private ThreadPoolExecutor workers; //reads the images
+	private FontLibrary fonts;          //shared by all the requests
+	private long timeout;               //seconds a request may take
+	private ResultCache cache;          //results of the images read before
+	private long maxBodySize;           //bytes that the body of a request may have
+	private AtomicInteger stuckWorkers; //workers still reading images that timed out
+
+	/**
+	 * Constructor. Creates the server; it is started by <code>start</code>.
+	 *
+	 * @param port The port that the server listens to
+	 * @param threads The number of images that can be read at the same time
+	 * @param queueSize The number of requests that can wait for a worker
+	 * @param seconds The number of seconds a request may take
+	 * @param maxBody The number of bytes that the body of a request may have
+	 * @param fontLibrary The fonts that the words are read with
+	 * @param aCache The cache of results, or null
+	 */
+	public VEMServer(int port, int threads, int queueSize, long seconds, long maxBody, FontLibrary fontLibrary, ResultCache aCache) throws IOException {
+		fonts = fontLibrary;
+		cache = aCache;
+		timeout = seconds;
+		maxBodySize = maxBody;
+		stuckWorkers = new AtomicInteger();
+		workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+		                                 new ArrayBlockingQueue(queueSize));
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/recognize", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				recognize(exchange);
+			}
+		});
+		server.createContext("/health", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain", "OK\n");
+			}
+		});
+		//An exchange holds its body until a worker has read the image, so
+		//more exchanges than the workers and their queue would only hold
+		//bodies to be answered with 503; the others wait for a connection.
+		server.setExecutor(Executors.newFixedThreadPool(threads+queueSize));
+	}
+
+	public static void main(String args[]) throws Exception {
+		int port = 8080;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queueSize = 4*threads;
+		long seconds = 120;
+		int cacheEntries = 256;
+		File cacheDir = null;
+		long cacheSize = 100;
+		long maxBody = 20;
+		for (int i = 0; i+1 < args.length; i += 2) {
+			if (args[i].equals("-port")) {
+				port = Integer.parseInt(args[i+1]);
+			}
+			else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i+1]);
+			}
+			else if (args[i].equals("-queue")) {
+				queueSize = Integer.parseInt(args[i+1]);
+			}
+			else if (args[i].equals("-timeout")) {
+				seconds = Long.parseLong(args[i+1]);
+			}
+			else if (args[i].equals("-maxBody")) {
+				maxBody = Long.parseLong(args[i+1]);
+			}
+			else if (args[i].equals("-cacheEntries")) {
+				cacheEntries = Integer.parseInt(args[i+1]);
+			}
+			else if (args[i].equals("-cache")) {
+				cacheDir = new File(args[i+1]);
+			}
+			else if (args[i].equals("-cacheSize")) {
+				cacheSize = Long.parseLong(args[i+1]);
+			}
+		}
+		ResultCache aCache = new ResultCache(cacheDir, cacheSize*1024*1024, cacheEntries);
+		VEMServer aServer = new VEMServer(port, threads, queueSize, seconds, maxBody*1024*1024, FontLibrary.getDefault(), aCache);
+		aServer.start();
+		System.out.println("Listening on port "+port+" with "+threads+" workers");
+	}
+
+	/**
+	 * Starts the server.
+	 *
+	 * @param none
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server. Requests that are being read are given
+	 * the given number of seconds to finish.
+	 *
+	 * @param seconds The number of seconds to wait
+	 */
+	public void stop(int seconds) {
+		server.stop(seconds);
+		workers.shutdown();
+	}
+
+	/**
+	 * Handles a /recognize request: reads the image in the body of the
+	 * request and answers with the xml document of the chart.
+	 * The image is decoded by the worker, so that no more images than
+	 * workers are decoded at the same time.
+	 *
+	 * @param exchange The http exchange
+	 */
+	private void recognize(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, 405, "text/plain", "POST an image to /recognize\n");
+			return;
+		}
+		final byte[] bytes = readBody(exchange);
+		if (bytes == null) {
+			respond(exchange, 413, "text/plain", "the image is larger than "+maxBodySize+" bytes\n");
+			return;
+		}
+		//0: waiting, 1: running, 2: finished, 3: timed out;
+		//it changes from 1 and stuckWorkers with it under the lock of state
+		final AtomicInteger state = new AtomicInteger();
+		Future result;
+		try {
+			result = workers.submit(new Callable() {
+				public Object call() throws Exception {
+					if (!state.compareAndSet(0, 1)) {
+						return null;
+					}
+					try {
+						BufferedImage jImage = ImageIO.read(new ByteArrayInputStream(bytes));
+						if (jImage == null) {
+							throw new IOException("not a readable image");
+						}
+						BWImageG image = new BWImageG(fonts);
+						return VEM.recognize(image, jImage, cache).getXML();
+					}
+					finally {
+						synchronized (state) {
+							if (!state.compareAndSet(1, 2)) {
+								stuckWorkers.decrementAndGet();
+							}
+						}
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			respond(exchange, 503, "text/plain", "busy\n");
+			return;
+		}
+		try {
+			String xml = (String)result.get(timeout, TimeUnit.SECONDS);
+			respond(exchange, 200, "application/xml; charset=UTF-8", xml);
+		}
+		catch (TimeoutException e) {
+			int stuck = -1;
+			synchronized (state) {
+				if (!state.compareAndSet(0, 3) && state.compareAndSet(1, 3)) {
+					stuck = stuckWorkers.incrementAndGet();
+				}
+			}
+			result.cancel(true);
+			if (stuck >= 0) {
+				System.out.println("VEMServer: an image timed out; "+stuck
+				                   +" workers are still reading images that timed out");
+			}
+			respond(exchange, 504, "text/plain", "timed out\n");
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				respond(exchange, 400, "text/plain", "not a readable image\n");
+			}
+			else {
+				System.out.println("VEMServer: reading an image failed: "+e.getCause());
+				respond(exchange, 500, "text/plain", "internal error\n");
+			}
+		}
+		catch (InterruptedException e) {
+			respond(exchange, 500, "text/plain", "interrupted\n");
+		}
+	}
+
+	/**
+	 * Reads the body of an exchange.
+	 *
+	 * @param exchange The http exchange
+	 * @return The bytes of the body, or null if it is larger than maxBodySize
+	 */
+	private byte[] readBody(HttpExchange exchange) throws IOException {
+		String length = exchange.getRequestHeaders().getFirst("Content-Length");
+		InputStream body = exchange.getRequestBody();
+		try {
+			if (length != null) {
+				try {
+					if (Long.parseLong(length.trim()) > maxBodySize) {
+						return null;
+					}
+				}
+				catch (NumberFormatException e) {
+					return null;
+				}
+			}
+			//A chunked body has no length, so the bytes are counted
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = body.read(buffer)) > 0) {
+				if (bytes.size()+n > maxBodySize) {
+					return null;
+				}
+				bytes.write(buffer, 0, n);
+			}
+			return bytes.toByteArray();
+		}
+		finally {
+			body.close();
+		}
+	}
+
+	/**
+	 * Sends the response of an exchange and closes the exchange.
+	 *
+	 * @param exchange The http exchange
+	 * @param status The http status code
+	 * @param contentType The type of the content
+	 * @param content The body of the response
+	 */
+	private static void respond(HttpExchange exchange, int status, String contentType, String content) throws IOException {
+		byte[] bytes = content.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream ostream = exchange.getResponseBody();
+		ostream.write(bytes);
+		ostream.close();
+	}
+}
@@ -19,6 +19,7 @@ import java.io.*;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked", "cast", "static", "fallthrough", "removal"})
 public class Vectorizer {
 
 	final int[] rPos = {-1, -1, -1, 0, 1, 1, 1, 0};  //already declared in ImagePrimitives.jave
@@ -44,7 +45,7 @@ public class Vectorizer {
 
 	private int[][] inPixImage;  //Bordered labelled image
 	private int noOfLabels;
-	private int[][] borderedImage;
+	private Raster borderedImage;
   private Hashtable allChains; //each entry is a linked list of chains
 	private PixelDatabase pixelData;
 	private Region[] allRegions;
@@ -52,7 +53,7 @@ public class Vectorizer {
  /**
 	* Constructor.
 	*
-	* @param inImage The 2d array representation of the borders of the image
+	* @param inImage The LABELS raster of the borders of the image
 	* @param labelCount The number of regions
 	* @param imageRows The number of rows
 	* @param imageColumns The number of columns
@@ -60,15 +61,8 @@ public class Vectorizer {
 	* @param regions The Region array for all the regions in the image
 	* @param database The PixelDatabase for all the border pixels in the image
 	*/
-	public Vectorizer(int[][] inImage, int labelCount, int imageRows, int imageColumns, int bLabel, Region[] regions, PixelDatabase database) {
-		borderedImage = new int[imageRows][imageColumns];
-		for (int i=0; i<imageRows; i++) {
-			for (int j=0; j<imageColumns; j++) {
-				//System.out.println(inImage[i][j]);
-				borderedImage[i][j] = inImage[i][j];
-				//System.out.print(inPixImage[i][j]);
-			}
-		}	
+	public Vectorizer(Raster inImage, int labelCount, int imageRows, int imageColumns, int bLabel, Region[] regions, PixelDatabase database) {
+		borderedImage = new Raster(imageRows, imageColumns, inImage.getLabelData().clone());
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
 		bPixLabel = bLabel;
@@ -117,31 +111,17 @@ public class Vectorizer {
 		//System.out.println("In followBorders of Border.java");
 		int imageRows = imageHeight;
 		int imageColumns = imageWidth;	
-		int[][] borderImage = new int[imageRows+2][imageColumns+2];
 		int label_c;
 		//allRegions = new Region[noOfLabels];
 		//allChains = new Hashtable(); //each entry is a linked list of chains
 
-		//insert one row of background pixels at the bottom and one on top 
-		for (int i = 0; i<imageColumns+2; i++) {
-			borderImage[0][i] = bPixLabel;
-			borderImage[imageRows+2-1][i] = bPixLabel;
-		}
-		for (int i = 0; i<imageRows+2; i++) {
-			borderImage[i][0] = bPixLabel;
-			borderImage[i][imageColumns+2-1] = bPixLabel;
-		}
-		//System.out.println("Copying...");
-		for (int i = 1; i<imageRows+2-1; i++) {
-			for (int j = 1; j<imageColumns+2-1; j++) {
-				borderImage[i][j] = borderedImage[i-1][j-1];
-			}
-		}
+		//one row/column of background pixels around the border image
+		Raster borderImage = borderedImage.addBorder(bPixLabel);
 		//System.out.println("Inserted background pixels on top and bottom.");
 
 	 	for(int r = 1; r < imageRows+2-1; r++ ) {
 			for( int c = 1; c < imageColumns+2-1; c++ ) {
-				label_c = borderImage[r][c]; 
+				label_c = borderImage.get(r, c); 
 				if (label_c != bPixLabel && !(allRegions[label_c].getIsCharacter())) {
 					makeAChain(borderImage, r, c);
 				}
@@ -164,11 +144,11 @@ public class Vectorizer {
 	 * chains are ended at those points, the following continues with a new chain.
 	 * A chain is stored as a Primitive. The primitives are stores in Region objects.
 	 *
-   * @param borderImage The 2d array representation of the border pixels of the image
+   * @param borderImage The LABELS raster of the border pixels of the image
 	 * @param row The row number of the beginning pixel
 	 * @param column The column number of the beginning pixel
    */
-	private void makeAChain(int[][] borderImage, int row, int column) {
+	private void makeAChain(Raster borderImage, int row, int column) {
 		//System.out.println("In makeAChain of Border.java for point "+row+", "+column);
 		int imageRows = imageHeight;
 		int imageColumns = imageWidth;	
@@ -180,7 +160,7 @@ public class Vectorizer {
 		
 		int	firstRow = row;
 		int firstColumn = column;
-		int labelNo = borderImage[row][column];
+		int labelNo = borderImage.get(row, column);
 		int previousRow = row;
 		int previousColumn = column - 1;
 		int nextRow = row;
@@ -211,7 +191,7 @@ public class Vectorizer {
 
 		//Change the beginning point the background in the border image.
 		//The chain will not be allowed to turn back on itself.
-		borderImage[firstRow][firstColumn] = bPixLabel;
+		borderImage.set(firstRow, firstColumn, bPixLabel);
 
 		//System.out.println("\nStarting a new set of chains with point ("+(row-1)+", "+(column-1)+")");
 
@@ -376,7 +356,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 				remainder = (position+i) - (((position+i)/8)*8); //position+i mod 8
 				newRow = row + rPos[remainder];
 				newColumn = column + cPos[remainder];
-				if (borderImage[newRow][newColumn] == labelNo && foundNext == 0) {
+				if (borderImage.get(newRow, newColumn) == labelNo && foundNext == 0) {
 					nextRow = newRow;
 					nextColumn = newColumn;
 					foundNext = 1;
@@ -384,7 +364,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 					//break;
 				}
 				//Is there another one after this one? If yes, then this point is a junction 
-				else if (borderImage[newRow][newColumn] == labelNo && foundNext == 1) {
+				else if (borderImage.get(newRow, newColumn) == labelNo && foundNext == 1) {
 					isJunction = 1;
 				}
 			}	//end of for (int i = 7; i >= 0; i--) { 
@@ -410,7 +390,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 					aPrimitive.addPointToList(new Point(nextRow-1, nextColumn-1));
 
 					//Change the border image so that this pixel is not backgrond
-					borderImage[nextRow][nextColumn] = bPixLabel;
+					borderImage.set(nextRow, nextColumn, bPixLabel);
 					previousRow = row;
 					previousColumn = column;
 					row = nextRow;
@@ -453,7 +433,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 				aPoint = (Point)lItr2.next();
 				row = (int)aPoint.getX();
 				column = (int)aPoint.getY();
-				borderImage[row+1][column+1] = bPixLabel;
+				borderImage.set(row+1, column+1, bPixLabel);
 			}
 		}
 		//System.out.println("Set to background.");
@@ -474,7 +454,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 		int[] neigbors;
 		for (int i=0; i<imageHeight; i++) {
 			for (int j=0; j<imageWidth; j++) {
-				if (borderedImage[i][j] != bPixLabel) {
+				if (borderedImage.get(i, j) != bPixLabel) {
 					neigborList = new LinkedList();
 					neigbors = getRegionNeigbors(i, j);
 					for (int k = 1; k <= neigbors[0]; k++) {
@@ -1122,7 +1102,7 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 	 	ListIterator lItr = neigborList.listIterator();
 	 	while (lItr.hasNext()) {
 		 	neigPoint = new PointPixel(lItr.next());
-			labeln = borderedImage[neigPoint.getRow()][neigPoint.getColumn()];
+			labeln = borderedImage.get(neigPoint.getRow(), neigPoint.getColumn());
 			if (labeln == labelc) {
 		 		numNeigbors++;
 			 	neigborArray[numNeigbors] = k;
@@ -1259,12 +1239,12 @@ System.out.println("New chain starts with the previous point ("+(previousRow-1)+
 
 
   /**
-   * Returns the 2-d array of border pixels. 
+   * Returns the raster of border pixels. 
 	 *
    * @param none
-   * @return The 2d array representation of the border pixels
+   * @return The LABELS raster of the border pixels
    */
-  int[][] getBorderEdgeImage2D() {
+  Raster getBorderEdgeImage2D() {
     return borderedImage;
   }
 
@@ -1832,27 +1812,13 @@ The method below here are not used!!!
 		int[] modelArray;
 		int[] rowPos = {-1, -1, -1, 0, 1, 1, 1, 0, 0};
 		int[] colPos = {1, 0, -1, -1, -1, 0, 1, 1, 0};
-		int[][] borderImage = new int[imageRows+2][imageColumns+2];
 		//System.out.println("In thinBorders.");
-		// insert one row of background pixels at the bottom and one on top
-		for (int i = 0; i<imageColumns+2; i++) {
-			borderImage[0][i] = bPixLabel;
-			borderImage[imageRows+2-1][i] = bPixLabel;
-		}
-		for (int i = 0; i<imageRows+2; i++) {
-			borderImage[i][0] = bPixLabel;
-			borderImage[i][imageColumns+2-1] = bPixLabel;
-		}
-		//System.out.println("Copying...");
-		for (int i = 1; i<imageRows+2-1; i++) {
-			for (int j = 1; j<imageColumns+2-1; j++) {
-				borderImage[i][j] = borderedImage[i-1][j-1];
-			}
-		}
+		//one row/column of background pixels around the border image
+		Raster borderImage = borderedImage.addBorder(bPixLabel);
 //System.out.println("Inserted background pixels on top and bottom for border thinning");
 		for(int r = 1; r < imageRows+2-1; r++ ) {
 			for(int c = 1; c < imageColumns+2-1; c++ ) {
-				pixelLabel = borderImage[r][c];
+				pixelLabel = borderImage.get(r, c);
 				if (pixelLabel != bPixLabel) {
 					for (int k = 0; k < models.size(); k++) {
 						modelArray = (int [])models.elementAt(k);
@@ -1866,20 +1832,20 @@ The method below here are not used!!!
 				*/
 						for (int i = 0; i < 9; i++) {
 							if (modelArray[i] == 1) {
-								label_check = borderImage[r+rowPos[i]][c+colPos[i]];
+								label_check = borderImage.get(r+rowPos[i], c+colPos[i]);
 								break;
 							}
 						}
 						for (int i = 0; i < 9; i++) {
-							label = borderImage[r+rowPos[i]][c+colPos[i]];
+							label = borderImage.get(r+rowPos[i], c+colPos[i]);
 							if (modelArray[i] == 1 && label != label_check)
 								match = 0;
 							if (modelArray[i] == 0 && label == label_check)
 								match = 0;
 						}
 						if (match == 1) { //this pixel passed the test
-							borderImage[r][c] = bPixLabel;
-							borderedImage[r-1][c-1] = bPixLabel;
+							borderImage.set(r, c, bPixLabel);
+							borderedImage.set(r-1, c-1, bPixLabel);
 						//System.out.println("Removing: "+(r-1)+", "+(c-1));
 							break;
 						}
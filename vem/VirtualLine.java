@@ -3,6 +3,8 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Vector;
 import java.lang.Math;
+import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * A class to hold information for the virtual lines of the image.
@@ -14,6 +16,7 @@ import java.lang.Math;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class VirtualLine {
 	private LinkedList primitives;
 	private LinkedList regions;
@@ -435,6 +438,82 @@ public class VirtualLine {
 		return (int)dist;
 	}
 
+	/**
+	 * Writes the virtual line to a checkpoint. Its primitives and regions
+	 * are written as references (see <code>PipelineCheckpoint</code>).
+	 *
+	 * @param out The stream of the checkpoint
+	 * @param checkpoint The checkpoint that finds the primitives and the regions
+	 */
+	public void write(DataOutputStream out, PipelineCheckpoint checkpoint) throws IOException {
+		out.writeInt(primitives == null ? -1 : primitives.size());
+		if (primitives != null) {
+			ListIterator lItr = primitives.listIterator();
+			while (lItr.hasNext()) {
+				checkpoint.writePrimitiveRef(out, (Primitive)lItr.next());
+			}
+		}
+		out.writeInt(regions == null ? -1 : regions.size());
+		if (regions != null) {
+			ListIterator lItr = regions.listIterator();
+			while (lItr.hasNext()) {
+				checkpoint.writeRegionRef(out, (Region)lItr.next());
+			}
+		}
+		PipelineCheckpoint.writePoint(out, beginPoint);
+		PipelineCheckpoint.writePoint(out, endPoint);
+		checkpoint.writePrimitiveRef(out, beginPrim);
+		checkpoint.writePrimitiveRef(out, endPrim);
+		out.writeInt(orientation);
+		out.writeDouble(angle);
+		out.writeDouble(slope);
+		out.writeDouble(intercept);
+		out.writeInt(distance);
+		out.writeInt(noOfPixels);
+		out.writeInt(length);
+		out.writeBoolean(primitivesLine);
+		out.writeBoolean(regionsLine);
+		out.writeBoolean(isGridline);
+		out.writeBoolean(isDashedLine);
+	}
+
+	/**
+	 * Reads a virtual line written by <code>write</code>.
+	 *
+	 * @param in The buffer of the checkpoint
+	 * @param checkpoint The checkpoint that finds the primitives and the regions
+	 * @return The virtual line
+	 */
+	public static VirtualLine read(ByteBuffer in, PipelineCheckpoint checkpoint) {
+		VirtualLine aLine = new VirtualLine();
+		int n = in.getInt();
+		aLine.primitives = n < 0 ? null : new LinkedList();
+		for (int i = 0; i < n; i++) {
+			aLine.primitives.add(checkpoint.readPrimitiveRef(in));
+		}
+		n = in.getInt();
+		aLine.regions = n < 0 ? null : new LinkedList();
+		for (int i = 0; i < n; i++) {
+			aLine.regions.add(checkpoint.readRegionRef(in));
+		}
+		aLine.beginPoint = (PointPixel)PipelineCheckpoint.readPoint(in);
+		aLine.endPoint = (PointPixel)PipelineCheckpoint.readPoint(in);
+		aLine.beginPrim = checkpoint.readPrimitiveRef(in);
+		aLine.endPrim = checkpoint.readPrimitiveRef(in);
+		aLine.orientation = in.getInt();
+		aLine.angle = in.getDouble();
+		aLine.slope = in.getDouble();
+		aLine.intercept = in.getDouble();
+		aLine.distance = in.getInt();
+		aLine.noOfPixels = in.getInt();
+		aLine.length = in.getInt();
+		aLine.primitivesLine = in.get() != 0;
+		aLine.regionsLine = in.get() != 0;
+		aLine.isGridline = in.get() != 0;
+		aLine.isDashedLine = in.get() != 0;
+		return aLine;
+	}
+
 	/**
 	 * Returns a string holding information about the virtual line 
 	 * to be printed on the screen.
@@ -9,6 +9,7 @@ import java.awt.Point;
  * @version 1.0
  */
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Wedge{
 
 	private Primitive wedgeCurve;	
@@ -241,7 +242,9 @@ public class Wedge{
 			}
 			if (breakPointsList[0].size() > 0 || breakPointsList[1].size() > 0) {
 			PointPixel breakPoint;
-			if (breakPointsList[0].size() < breakPointsList[1].size()) {
+			//split the side that has break points, the one with fewer if both have
+			if (breakPointsList[0].size() > 0
+			    && (breakPointsList[1].size() == 0 || breakPointsList[0].size() < breakPointsList[1].size())) {
 				//breakPoint = ((Integer)breakPointsList[0].getFirst()).intValue();
 				breakPoint = (PointPixel)breakPointsList[0].getFirst();
 				sidesList.add((Primitive)wedgeSides.get(1));
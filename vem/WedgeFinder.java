@@ -45,6 +45,7 @@ import java.awt.Point;
  * A field of the primitives that make up the wedge can be set that says
  * that that primitive is part of wedge.
  */
+@SuppressWarnings({"rawtypes", "unchecked", "cast"})
 public class WedgeFinder {
   private int imageHeight;    // #rows in the input image
 	private int imageWidth;     // #columns in the input image
@@ -52,7 +53,7 @@ public class WedgeFinder {
   private PixelDatabase allPixels;
   private	Region[] allRegions;
 	private LinkedList allWedges;
-	private int[][] borderImage;
+	private Raster borderImage;
 
 	/**
 	 * Constructor.
@@ -70,9 +71,9 @@ public class WedgeFinder {
 	 * @param imageRows The number of rows in the image
 	 * @param imageColumns The number of columns in the image
 	 * @param pixels The pixel database of the image
-	 * @param bImage The 2d array representation of the border pixels of the image
+	 * @param bImage The LABELS raster of the border pixels of the image
 	 */
-	public WedgeFinder(Region[] regions, int labelCount, int imageRows, int imageColumns, PixelDatabase pixels, int[][] bImage) {
+	public WedgeFinder(Region[] regions, int labelCount, int imageRows, int imageColumns, PixelDatabase pixels, Raster bImage) {
 		imageHeight = imageRows;
 	 	imageWidth = imageColumns;
 		noOfLabels = labelCount;
@@ -367,7 +368,7 @@ public class WedgeFinder {
 			inside = -1;
 			previousLabelNo = -1;
 			for (int j = upperLeft.getColumn(); j <= lowerRight.getColumn(); j++) {
-				labelNo = borderImage[i][j];
+				labelNo = borderImage.get(i, j);
 				if (inside == 1 && labelNo != regionNo) {
 					area++;
 				}
@@ -9,6 +9,7 @@ import java.lang.reflect.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class Word {
 
 	final static public int UNSET = 361;
@@ -50,6 +51,7 @@ public class Word {
 	private String text;
         private String font = "";
 	private static int chrcnt = 0;
+	private long[] templateComparisons = new long[1]; //made by simpleOCR reading this word
 	private static boolean inputImageSaved = false;
         private TextPiece inTextPiece = null;
         private Rectangle nearestBar = null;
@@ -1003,11 +1005,12 @@ public class Word {
 * examined to see if they are realy one character ("i', "j" or "%").
 * The word is read horizontally and vertically. If both produce
 * output, the shorter string is chosen.
+* The characters are matched against the templates of the given fonts.
 */
 
-    public void readWord(Region[] allRegions, int[][] inputLabelImage) {
-        String hs = readHorizontalWord(allRegions,inputLabelImage);
-        String vs = readVerticalWord(allRegions,inputLabelImage);
+    public void readWord(Region[] allRegions, int[][] inputLabelImage, FontLibrary fonts) {
+        String hs = readHorizontalWord(allRegions,inputLabelImage,fonts);
+        String vs = readVerticalWord(allRegions,inputLabelImage,fonts);
 //System.out.println("hs " + hs + " vs " + vs);
 //Kluge for now. One of the TR17 periods in L21nb is read as a ` for some
 // reason even though they all look the same.
@@ -1047,7 +1050,7 @@ System.out.println("text = " + text);
 /*
 *  Tries to read the word horizontally
 */
-    public String readHorizontalWord(Region[] allRegions, int[][] inputLabelImage) {
+    public String readHorizontalWord(Region[] allRegions, int[][] inputLabelImage, FontLibrary fonts) {
 	Object[] charArray = characters.toArray();
 	String[] previousChar = new String[5];
 	int[] previousCharPosition = new int[5];
@@ -1108,7 +1111,7 @@ if (i < 5) {
 		     //BWImageG.save("chr"+chrcnt,charImage,ye-yb+1,xe-xb+1);
 }
 		     chrcnt++;
-		     String chr = simpleOCR.decideChar(charImage);
+		     String chr = simpleOCR.decideChar(charImage, fonts, templateComparisons);
 //System.out.println("chr " + chr);
                      String tempFont;
                      if (chr != "") {
@@ -1213,7 +1216,7 @@ System.out.println("stostring= "+s.toString());
 *  Tries to read a Vertical word
 */
 
-    public String readVerticalWord(Region[] allRegions, int[][] inputLabelImage) {
+    public String readVerticalWord(Region[] allRegions, int[][] inputLabelImage, FontLibrary fonts) {
 	Object[] charArray = characters.toArray();
 	String[] previousChar = new String[5];
 	int[] previousCharPosition = new int[5];
@@ -1257,7 +1260,7 @@ System.out.println("stostring= "+s.toString());
 				 (inputLabelImage[x][y]==reg.getRegion()) ? 0 : 255;
 		     //BWImageG.save("chr"+chrcnt,charImage,ye-yb+1,xb-xe+1);
 		     chrcnt++;
-		     String chr = simpleOCR.decideChar(charImage);
+		     String chr = simpleOCR.decideChar(charImage, fonts, templateComparisons);
                      if (chr != "") {
 //System.out.println("vertical " + chr);
                        String tempFont = chr.substring(0,4);
@@ -1329,6 +1332,10 @@ System.out.println("stostring= "+s.toString());
     public String getText() {
 	return text;}
 
+    // number of character templates compared while reading this word
+    public long getTemplateComparisons() {
+	return templateComparisons[0];}
+
     public void setText(String str) {
         text = str;}
 
@@ -23,6 +23,7 @@ import java.io.*;
  * @author Chart Reading project
  * @version 1.0
  */
+@SuppressWarnings({"rawtypes", "unchecked", "removal"})
 public class WordFinder {
 
   private int imageHeight;    //number of rows in the input image
@@ -30,14 +31,16 @@ public class WordFinder {
 	private int bPixValue;      //background label
 	private int bBoxColor; 			//the color of the bounding box in a final image
 	private int noOfWords; 
+	private long noOfTemplateComparisons; //made while reading the words
 
-	private int[][] inputImage;  	//input image
+	private BitImage inputImage;  	//input image: the pixels of the characters are set
 	private int[][] inputLabelImage;  		//labelled input image
 	private int[][] wordImage;  	//word image
 	private int[][] bBoxImage;  	//bounding box image
 	private Hashtable words;			//all the words
 
 	private PointPixel[] boundingBoxes; //bounding box corners for all words
+	private StripeExecutor stripes; //labels the dilated image in stripes
 
 	/**
 	 * Constructor.
@@ -49,20 +52,9 @@ public class WordFinder {
 	 */
 	public WordFinder(int[][] inImage, int imageRows, int imageColumns, int bPix) {
 		inputLabelImage = inImage;
-		inputImage = new int[imageRows][imageColumns];
-		wordImage = new int[imageRows][imageColumns];
+		inputImage = new BitImage(inImage, imageRows, imageColumns, bPix);
+		wordImage = inputImage.toArray(0, 255);
 		bBoxImage = new int[imageRows][imageColumns];
-		for (int i = 0; i < imageRows; i++) {
-			for (int j = 0; j < imageColumns; j++) {
-				//inputImage[i][j] = bPix;
-				inputImage[i][j] = 255;
-				if (inImage[i][j] != bPix) {
-					inputImage[i][j] = 0;
-				}
-				wordImage[i][j] = inputImage[i][j];
-				bBoxImage[i][j] = 0;
-			}
-		}
 		imageHeight = imageRows;
 		imageWidth = imageColumns;
 		//bPixValue = bPix; 
@@ -70,6 +62,18 @@ public class WordFinder {
 		//System.out.println("Background is "+bPixValue);
 		bBoxColor = 200;
 		words = new Hashtable();
+		stripes = new StripeExecutor(null, 1);
+	}
+
+	/**
+	 * Sets the executor that the dilated image is labelled with in
+	 * stripes (see <code>StripeLabeler</code>); by default it is labelled
+	 * on the calling thread. The words do not depend on it.
+	 *
+	 * @param aStripes The stripe executor
+	 */
+	public void setStripeExecutor(StripeExecutor aStripes) {
+		stripes = aStripes;
 	}
 
 	/**
@@ -79,11 +83,12 @@ public class WordFinder {
 	 * region. The number of characters in a region is found. The angle of
 	 * the axis of the word is found. The words are combined, if possible.
 	 *
-	 * @param none
+	 * @param allRegions The array of all the regions of the image
+	 * @param fonts The fonts that the characters of the words are read with
 	 */
-	public void findWords(Region[] allRegions) {
+	public void findWords(Region[] allRegions, FontLibrary fonts) {
 		Dilator aDilator = new Dilator();
-		int[][] dilatedImage = aDilator.dilate(inputImage, imageHeight, imageWidth, bPixValue);
+		Raster dilatedImage = aDilator.dilate(inputImage).toRaster(0, bPixValue);
 //just for tight chart like Amex.PGM; didn't work
 		//int[][] dilatedImage = aDilator.dilate2(inputImage, imageHeight, imageWidth, bPixValue);
 			
@@ -96,16 +101,15 @@ public class WordFinder {
 		//dilate();
 
 		//Label -find the regions of- the dilated image
-		LabelImage alabeler = new LabelImage(dilatedImage, imageHeight, imageWidth, bPixValue);	
+		LabelImage alabeler = new LabelImage(dilatedImage, bPixValue, stripes);	
 		Vector labelledImageInfo = alabeler.applyLabelling();
 		//The number of regions = number of words
 		noOfWords = ((Integer)labelledImageInfo.get(0)).intValue();
-		int[][] labelImage = (int [][])labelledImageInfo.get(2);
 //System.out.println("There are "+noOfWords+" words.");
 
 		//Find the bounding boxes of all the regions in the labelled image of
-		//the dilated image.
-		BoundingBoxFinder boxFinder = new BoundingBoxFinder(labelImage, imageHeight, imageWidth, 0, noOfWords);
+		//the dilated image, from the statistics found while it was labelled.
+		BoundingBoxFinder boxFinder = new BoundingBoxFinder(alabeler.getStatistics());
 		boxFinder.findBoundingBoxes();
 		boundingBoxes = boxFinder.getBoundingBoxes();
 
@@ -131,7 +135,8 @@ public class WordFinder {
 			double angle = aWord.calculateAngle();
 			//System.out.println("Axis is from "+aWord.getAxisBeginPoint()+" to "+aWord.getAxisEndPoint());
 
-                        aWord.readWord(allRegions,inputLabelImage);
+                        aWord.readWord(allRegions,inputLabelImage,fonts);
+			noOfTemplateComparisons += aWord.getTemplateComparisons();
 			//System.out.println(aWord.getText());
 
 			//Save the new word in the hashtable "words"
@@ -439,6 +444,17 @@ System.out.println("trying to merge "+word1.getText()+" with "+word2.getText());
 		return words.values();
 	}
 
+ 	/**
+	 * Returns the number of character templates that were compared
+	 * with the characters while reading the words.
+	 * 
+	 * @param none
+	 * @return The number of template comparisons
+	 */
+	public long getNoOfTemplateComparisons() {
+		return noOfTemplateComparisons;
+	}
+
  	/**
 	 * Returns the hash table of words found
 	 * 
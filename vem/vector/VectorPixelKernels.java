@@ -0,0 +1,145 @@
+import jdk.incubator.vector.*;
+
+/**
+ * The kernels of <code>PixelKernels</code> done with the
+ * <code>jdk.incubator.vector</code> API, several pixels at a time.
+ * The results are exactly those of the scalar kernels: the gray values
+ * are made with the integer weights, and the lanes whose sum is a
+ * multiple of 100 look up <code>BWImageG.ROUNDED_DOWN</code> with a gather.
+ * The ints and bytes of a kernel have the same number of lanes, since
+ * the conversions that change it are not compiled to vector instructions.
+ * The scaling by a real factor is left to the scalar kernel: the
+ * conversions between ints and doubles are not compiled to vector
+ * instructions either.
+ * <p>
+ * This file is not compiled with the other classes, since it needs the
+ * incubator module (see <code>PixelKernels</code>):
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorPixelKernels.java
+ * </pre>
+ *
+ * @author Chart Reading project
+ * @version 1.0
+ */
+public class VectorPixelKernels extends PixelKernels {
+
+	//The widest ints, and bytes with as many lanes, so that the
+	//conversion between them keeps the lanes in place
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES =
+		ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(INTS.vectorBitSize()/4));
+	private static final VectorSpecies<Integer> LABELS = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constructor. The class cannot be loaded if the processor has no
+	 * byte vectors with as many lanes as its widest int vectors
+	 * (e.g. 8 lanes with 256 bit vectors), and then the scalar kernels
+	 * are used.
+	 *
+	 * @param none
+	 */
+	public VectorPixelKernels() {
+	}
+
+	public boolean isVectorized() {
+		return true;
+	}
+
+	public String getName() {
+		return "vector";
+	}
+
+	public void grayRow(int[] pixels, int p, byte[] gray, int i, int count, int[] counts) {
+		int c = 0;
+		int lanes = INTS.length();
+		int bound = INTS.loopBound(count);
+		int[] words = new int[lanes];	//the words of BWImageG.ROUNDED_DOWN of the lanes
+		for (; c < bound; c += lanes) {
+			IntVector rgb = IntVector.fromArray(INTS, pixels, p+c);
+			IntVector red = rgb.lanewise(VectorOperators.LSHR, 16).and(0xff);
+			IntVector green = rgb.lanewise(VectorOperators.LSHR, 8).and(0xff);
+			IntVector blue = rgb.and(0xff);
+			IntVector sum = red.mul(30).add(green.mul(59)).add(blue.mul(11));
+			IntVector value = sum.mul(5243).lanewise(VectorOperators.LSHR, 19);
+			VectorMask<Integer> exact = value.mul(100).compare(VectorOperators.EQ, sum);
+			if (exact.anyTrue()) {
+				//the sums that are multiples of 100 may be one less (see BWImageG.toGray)
+				IntVector bit = red.lanewise(VectorOperators.LSHL, 8).add(green).mul(3)
+				                .add(blue.mul(41).lanewise(VectorOperators.LSHR, 12));	//blue/100
+				bit.lanewise(VectorOperators.LSHR, 5).intoArray(words, 0);
+				IntVector roundedDown = IntVector.fromArray(INTS, BWImageG.ROUNDED_DOWN, 0, words, 0)
+				                        .lanewise(VectorOperators.LSHR, bit.and(31)).and(1);
+				value = value.sub(roundedDown, exact);
+			}
+			((ByteVector)value.castShape(BYTES, 0)).intoArray(gray, i+c);
+		}
+		for (; c < count; c++) {
+			int rgb = pixels[p+c];
+			gray[i+c] = (byte)BWImageG.toGray((rgb>>16)&0xff, (rgb>>8)&0xff, rgb&0xff);
+		}
+		for (c = 0; c < count; c++) {
+			counts[gray[i+c] & 0xff]++;
+		}
+	}
+
+	public int[] minMax(int[][] anImage, int height, int width) {
+		int min = anImage[0][0];
+		int max = min;
+		int bound = LABELS.loopBound(width);
+		for (int r = 0; r < height; r++) {
+			int[] aRow = anImage[r];
+			int c = 0;
+			if (bound > 0) {
+				IntVector vmin = IntVector.fromArray(LABELS, aRow, 0);
+				IntVector vmax = vmin;
+				for (c = LABELS.length(); c < bound; c += LABELS.length()) {
+					IntVector v = IntVector.fromArray(LABELS, aRow, c);
+					vmin = vmin.min(v);
+					vmax = vmax.max(v);
+				}
+				min = Math.min(min, vmin.reduceLanes(VectorOperators.MIN));
+				max = Math.max(max, vmax.reduceLanes(VectorOperators.MAX));
+			}
+			for (; c < width; c++) {
+				if (aRow[c] < min) min = aRow[c];
+				if (aRow[c] > max) max = aRow[c];
+			}
+		}
+		return new int[] {min, max};
+	}
+
+	public void scaleRow(int[] aRow, int width, int min, int k, byte[] out, int n) {
+		int c = 0;
+		int lanes = INTS.length();
+		int bound = INTS.loopBound(width);
+		for (; c < bound; c += lanes) {
+			IntVector v = IntVector.fromArray(INTS, aRow, c).sub(min).mul(k);
+			((ByteVector)v.castShape(BYTES, 0)).intoArray(out, n+c);
+		}
+		for (; c < width; c++) {
+			out[n+c] = (byte)(k*(aRow[c] - min));
+		}
+	}
+
+	public void markBorders(int[] labels, int p, int width, boolean up, boolean down, int[] out, int background) {
+		int lanes = LABELS.length();
+		int c = 1;
+		if (width > 0) {
+			out[p] = isBorder(labels, p, 0, width, up, down, background) ? labels[p] : background;
+		}
+		IntVector back = IntVector.broadcast(LABELS, background);
+		for (; c + lanes <= width - 1; c += lanes) {
+			int i = p+c;
+			IntVector label = IntVector.fromArray(LABELS, labels, i);
+			VectorMask<Integer> other = label.compare(VectorOperators.NE, IntVector.fromArray(LABELS, labels, i-1))
+			                            .or(label.compare(VectorOperators.NE, IntVector.fromArray(LABELS, labels, i+1)))
+			                            .or(label.compare(VectorOperators.NE, up ? IntVector.fromArray(LABELS, labels, i-width) : back))
+			                            .or(label.compare(VectorOperators.NE, down ? IntVector.fromArray(LABELS, labels, i+width) : back));
+			VectorMask<Integer> border = other.and(label.compare(VectorOperators.NE, back));
+			back.blend(label, border).intoArray(out, i);
+		}
+		for (; c < width; c++) {
+			out[p+c] = isBorder(labels, p, c, width, up, down, background) ? labels[p+c] : background;
+		}
+	}
+}